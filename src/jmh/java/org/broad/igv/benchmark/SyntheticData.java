@@ -0,0 +1,291 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.benchmark;
+
+import htsjdk.samtools.*;
+import org.broad.igv.Globals;
+import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.feature.genome.GenomeManager;
+import org.broad.igv.feature.genome.fasta.FastaIndexedSequence;
+import org.broad.igv.feature.genome.fasta.FastaUtils;
+import org.broad.igv.tools.Preprocessor;
+import org.broad.igv.track.TrackType;
+import org.broad.igv.track.WindowFunction;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Generators for the synthetic files and records used by the benchmarks.  Data is generated from a seeded random
+ * number generator, so that it is identical from run to run.  Files are written to a temporary directory which the
+ * benchmark deletes on tear down.
+ */
+public class SyntheticData {
+
+    public static final String CHR = "chr1";
+    public static final long SEED = 20071;
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+    private static final int FASTA_LINE_LENGTH = 60;
+
+    /**
+     * Configure IGV for use without a display.  Call from the benchmark setup, before using any IGV classes.
+     */
+    public static void setUpHeadless() {
+        Globals.setHeadless(true);
+    }
+
+    public static File createDirectory() throws IOException {
+        return Files.createTempDirectory("igv-jmh").toFile();
+    }
+
+    public static void delete(File dir) {
+        if (dir == null) return;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    delete(f);
+                } else {
+                    f.delete();
+                }
+            }
+        }
+        dir.delete();
+    }
+
+    public static byte[] randomSequence(int length, Random random) {
+        byte[] seq = new byte[length];
+        for (int i = 0; i < length; i++) {
+            seq[i] = BASES[random.nextInt(4)];
+        }
+        return seq;
+    }
+
+    /**
+     * Write the sequence as a single-contig fasta file named CHR, with a fai index.
+     */
+    public static File writeFasta(File dir, byte[] sequence) throws IOException {
+        File fasta = new File(dir, "synthetic.fa");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fasta))) {
+            out.write((">" + CHR + "\n").getBytes());
+            for (int i = 0; i < sequence.length; i += FASTA_LINE_LENGTH) {
+                out.write(sequence, i, Math.min(FASTA_LINE_LENGTH, sequence.length - i));
+                out.write('\n');
+            }
+        }
+        FastaUtils.createIndexFile(fasta.getAbsolutePath(), fasta.getAbsolutePath() + ".fai");
+        return fasta;
+    }
+
+    /**
+     * Create a genome for the fasta file, and make it the current genome.
+     */
+    public static Genome loadGenome(File fasta) throws IOException {
+        FastaIndexedSequence sequence = new FastaIndexedSequence(fasta.getAbsolutePath());
+        Genome genome = new Genome("synthetic", "synthetic", sequence, true);
+        GenomeManager.getInstance().setCurrentGenome(genome);
+        return genome;
+    }
+
+    /**
+     * Write an indexed BAM file of paired reads sampled from the reference at the given mean depth.  Reads carry
+     * mismatches at a rate of 1%, and 1 in 20 reads has a small deletion or insertion.
+     */
+    public static File writeBam(File dir, byte[] reference, int readLength, int depth, Random random) throws IOException {
+
+        SAMFileHeader header = new SAMFileHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        header.addSequence(new SAMSequenceRecord(CHR, reference.length));
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("synthetic");
+        readGroup.setSample("synthetic");
+        readGroup.setLibrary("synthetic");
+        header.addReadGroup(readGroup);
+
+        File bam = new File(dir, "synthetic.bam");
+        SAMFileWriter writer = new SAMFileWriterFactory()
+                .setCreateIndex(true)
+                .makeBAMWriter(header, true, bam);
+
+        // Read pairs are written in start order.  Mates wait in a queue until their start is reached.
+        int insertSize = 3 * readLength;
+        int nPairs = (int) ((long) reference.length * depth / (2 * readLength));
+        PriorityQueue<SAMRecord> mates = new PriorityQueue<>(Comparator.comparingInt(SAMRecord::getAlignmentStart));
+        int maxStart = reference.length - insertSize - readLength;
+        int[] starts = new int[nPairs];
+        for (int i = 0; i < nPairs; i++) {
+            starts[i] = 1 + random.nextInt(maxStart);
+        }
+        Arrays.sort(starts);
+
+        for (int i = 0; i < nPairs; i++) {
+            int start = starts[i];
+            int mateStart = start + insertSize - readLength + random.nextInt(readLength);
+            while (!mates.isEmpty() && mates.peek().getAlignmentStart() <= start) {
+                writer.addAlignment(mates.poll());
+            }
+            String name = "read" + i;
+            boolean negative = random.nextBoolean();
+            SAMRecord read = newRead(header, name, reference, start, readLength, random);
+            SAMRecord mate = newRead(header, name, reference, mateStart, readLength, random);
+            setMateInfo(read, mate, negative, true);
+            setMateInfo(mate, read, !negative, false);
+            writer.addAlignment(read);
+            mates.add(mate);
+        }
+        while (!mates.isEmpty()) {
+            writer.addAlignment(mates.poll());
+        }
+        writer.close();
+        return bam;
+    }
+
+    private static SAMRecord newRead(SAMFileHeader header, String name, byte[] reference, int start, int readLength, Random random) {
+
+        byte[] bases = Arrays.copyOfRange(reference, start - 1, start - 1 + readLength);
+        byte[] qualities = new byte[readLength];
+        for (int i = 0; i < readLength; i++) {
+            qualities[i] = (byte) (20 + random.nextInt(21));
+            if (random.nextInt(100) == 0) {
+                bases[i] = BASES[random.nextInt(4)];
+            }
+        }
+
+        String cigar = readLength + "M";
+        int indel = random.nextInt(20);
+        int half = readLength / 2;
+        if (indel == 0) {
+            cigar = half + "M2D" + (readLength - half) + "M";
+        } else if (indel == 1) {
+            cigar = half + "M2I" + (readLength - half - 2) + "M";
+        }
+
+        SAMRecord read = new SAMRecord(header);
+        read.setReadName(name);
+        read.setReferenceName(CHR);
+        read.setAlignmentStart(start);
+        read.setCigarString(cigar);
+        read.setReadBases(bases);
+        read.setBaseQualities(qualities);
+        read.setMappingQuality(60);
+        read.setAttribute(SAMTag.RG.name(), "synthetic");
+        return read;
+    }
+
+    private static void setMateInfo(SAMRecord read, SAMRecord mate, boolean negative, boolean first) {
+        read.setReadPairedFlag(true);
+        read.setProperPairFlag(true);
+        read.setFirstOfPairFlag(first);
+        read.setSecondOfPairFlag(!first);
+        read.setReadNegativeStrandFlag(negative);
+        read.setMateNegativeStrandFlag(!negative);
+        read.setMateReferenceName(CHR);
+        read.setMateAlignmentStart(mate.getAlignmentStart());
+        int insertSize = Math.max(read.getAlignmentEnd(), mate.getAlignmentEnd()) -
+                Math.min(read.getAlignmentStart(), mate.getAlignmentStart()) + 1;
+        read.setInferredInsertSize(read.getAlignmentStart() <= mate.getAlignmentStart() ? insertSize : -insertSize);
+    }
+
+    /**
+     * Write a single track TDF file of a random walk sampled every span bases, as igvtools would for a wig file.
+     */
+    public static File writeTDF(File dir, Genome genome, int span, Random random) {
+
+        File tdf = new File(dir, "synthetic.tdf");
+        Preprocessor preprocessor = new Preprocessor(tdf, genome, Arrays.asList(WindowFunction.mean), -1, null);
+        preprocessor.setTrackParameters(TrackType.OTHER, null, new String[]{"synthetic"});
+
+        int length = genome.getChromosome(CHR).getLength();
+        float value = 0;
+        preprocessor.newChromosome(CHR);
+        for (int start = 0; start + span <= length; start += span) {
+            value = Math.max(0, value + (float) random.nextGaussian());
+            preprocessor.addData(CHR, start, start + span, new float[]{value}, null);
+        }
+        preprocessor.parsingComplete();
+        preprocessor.finish();
+        return tdf;
+    }
+
+    /**
+     * Return BED records with 12 columns (2 to 10 exons) in start order.
+     */
+    public static List<String> bedLines(int count, int chrLength, Random random) {
+        List<String> lines = new ArrayList<>(count);
+        int[] starts = sortedStarts(count, chrLength - 20000, random);
+        for (int i = 0; i < count; i++) {
+            int start = starts[i];
+            int nExons = 2 + random.nextInt(9);
+            StringBuilder sizes = new StringBuilder();
+            StringBuilder offsets = new StringBuilder();
+            int offset = 0;
+            for (int e = 0; e < nExons; e++) {
+                int size = 50 + random.nextInt(200);
+                sizes.append(size).append(',');
+                offsets.append(offset).append(',');
+                offset += size + 100 + random.nextInt(1000);
+            }
+            int end = start + offset - 100;
+            lines.add(CHR + "\t" + start + "\t" + end + "\tfeature" + i + "\t" + random.nextInt(1000) + "\t" +
+                    (random.nextBoolean() ? "+" : "-") + "\t" + start + "\t" + end + "\t0\t" + nExons + "\t" +
+                    sizes + "\t" + offsets);
+        }
+        return lines;
+    }
+
+    /**
+     * Return GFF3 gene, mRNA and exon records, 5 exons per gene, in start order.
+     */
+    public static List<String> gffLines(int geneCount, int chrLength, Random random) {
+        List<String> lines = new ArrayList<>(geneCount * 7);
+        int[] starts = sortedStarts(geneCount, chrLength - 20000, random);
+        for (int i = 0; i < geneCount; i++) {
+            int start = starts[i] + 1;
+            int end = start + 5000;
+            String strand = random.nextBoolean() ? "+" : "-";
+            String gene = "gene" + i;
+            String mRNA = "mRNA" + i;
+            lines.add(CHR + "\tsynthetic\tgene\t" + start + "\t" + end + "\t.\t" + strand + "\t.\tID=" + gene + ";Name=G" + i);
+            lines.add(CHR + "\tsynthetic\tmRNA\t" + start + "\t" + end + "\t.\t" + strand + "\t.\tID=" + mRNA + ";Parent=" + gene);
+            for (int e = 0; e < 5; e++) {
+                int exonStart = start + e * 1000;
+                lines.add(CHR + "\tsynthetic\texon\t" + exonStart + "\t" + (exonStart + 200) + "\t.\t" + strand +
+                        "\t.\tID=exon" + i + "." + e + ";Parent=" + mRNA);
+            }
+        }
+        return lines;
+    }
+
+    public static int[] sortedStarts(int count, int maxStart, Random random) {
+        int[] starts = new int[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = random.nextInt(maxStart);
+        }
+        Arrays.sort(starts);
+        return starts;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.feature.genome.fasta;
+
+import org.broad.igv.benchmark.SyntheticData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random uncached queries of a synthetic indexed fasta file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FastaIndexedSequenceBenchmark {
+
+    static final int CHR_LENGTH = 5000000;
+
+    @Param({"1000", "100000"})
+    int queryLength;
+
+    private File dir;
+    private FastaIndexedSequence sequence;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SyntheticData.setUpHeadless();
+        random = new Random(SyntheticData.SEED);
+        dir = SyntheticData.createDirectory();
+        File fasta = SyntheticData.writeFasta(dir, SyntheticData.randomSequence(CHR_LENGTH, random));
+        sequence = new FastaIndexedSequence(fasta.getAbsolutePath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticData.delete(dir);
+    }
+
+    @Benchmark
+    public byte[] getSequence() {
+        int start = random.nextInt(CHR_LENGTH - queryLength);
+        return sequence.getSequence(SyntheticData.CHR, start, start + queryLength, false);
+    }
+}
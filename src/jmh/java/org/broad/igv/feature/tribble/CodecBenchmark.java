@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.feature.tribble;
+
+import org.broad.igv.benchmark.SyntheticData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding synthetic BED and GFF3 records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    static final int CHR_LENGTH = 100000000;
+
+    private List<String> bedLines;
+    private List<String> gffLines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticData.setUpHeadless();
+        Random random = new Random(SyntheticData.SEED);
+        bedLines = SyntheticData.bedLines(100000, CHR_LENGTH, random);
+        gffLines = SyntheticData.gffLines(10000, CHR_LENGTH, random);
+    }
+
+    @Benchmark
+    public void decodeBed(Blackhole bh) {
+        IGVBEDCodec codec = new IGVBEDCodec();
+        for (String line : bedLines) {
+            bh.consume(codec.decode(line));
+        }
+    }
+
+    @Benchmark
+    public void decodeGFF(Blackhole bh) {
+        GFFCodec codec = new GFFCodec(GFFCodec.Version.GFF3, null);
+        for (String line : gffLines) {
+            bh.consume(codec.decode(line));
+        }
+    }
+}
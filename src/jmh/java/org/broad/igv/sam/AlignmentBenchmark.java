@@ -0,0 +1,112 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import org.broad.igv.benchmark.SyntheticData;
+import org.broad.igv.sam.reader.AlignmentReaderFactory;
+import org.broad.igv.util.ResourceLocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading, packing, and counting alignments of a synthetic BAM file.  Each invocation works on a window of the
+ * given width at the given depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlignmentBenchmark {
+
+    static final int CHR_LENGTH = 500000;
+    static final int READ_LENGTH = 100;
+
+    @Param({"100", "1000"})
+    int depth;
+
+    @Param({"20000"})
+    int windowSize;
+
+    private File dir;
+    private AlignmentTileLoader loader;
+    private AlignmentDataManager.DownsampleOptions downsampleOptions;
+    private AlignmentInterval interval;
+    private List<Alignment> alignments;
+    private int start;
+    private int end;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        SyntheticData.setUpHeadless();
+        Random random = new Random(SyntheticData.SEED);
+        dir = SyntheticData.createDirectory();
+        byte[] reference = SyntheticData.randomSequence(CHR_LENGTH, random);
+        SyntheticData.loadGenome(SyntheticData.writeFasta(dir, reference));
+        File bam = SyntheticData.writeBam(dir, reference, READ_LENGTH, depth, random);
+
+        loader = new AlignmentTileLoader(AlignmentReaderFactory.getReader(new ResourceLocator(bam.getAbsolutePath())));
+        downsampleOptions = new AlignmentDataManager.DownsampleOptions(false, 50, 100);
+        start = CHR_LENGTH / 2;
+        end = start + windowSize;
+
+        AlignmentTileLoader.AlignmentTile tile = loadTile();
+        alignments = tile.getAlignments();
+        interval = new AlignmentInterval(SyntheticData.CHR, start, end, alignments, tile.getCounts(), null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        loader.close();
+        SyntheticData.delete(dir);
+    }
+
+    @Benchmark
+    public AlignmentTileLoader.AlignmentTile loadTile() {
+        return loader.loadTile(SyntheticData.CHR, start, end, null, downsampleOptions, null, null, null);
+    }
+
+    @Benchmark
+    public PackedAlignments packAlignments() {
+        return new AlignmentPacker().packAlignments(interval, new AlignmentTrack.RenderOptions());
+    }
+
+    @Benchmark
+    public AlignmentCounts incrementCounts() {
+        DenseAlignmentCounts counts = new DenseAlignmentCounts(start, end, null);
+        for (Alignment alignment : alignments) {
+            counts.incCounts(alignment);
+        }
+        counts.finish();
+        return counts;
+    }
+}
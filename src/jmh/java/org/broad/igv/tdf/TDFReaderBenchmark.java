@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.tdf;
+
+import org.broad.igv.benchmark.SyntheticData;
+import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.util.ResourceLocator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and decoding every tile of the raw and a zoomed dataset of a synthetic TDF file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TDFReaderBenchmark {
+
+    static final int CHR_LENGTH = 2000000;
+
+    @Param({"/" + SyntheticData.CHR + "/raw", "/" + SyntheticData.CHR + "/z4/mean"})
+    String datasetName;
+
+    private File dir;
+    private TDFReader reader;
+    private TDFDataset dataset;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SyntheticData.setUpHeadless();
+        Random random = new Random(SyntheticData.SEED);
+        dir = SyntheticData.createDirectory();
+        byte[] reference = SyntheticData.randomSequence(CHR_LENGTH, random);
+        Genome genome = SyntheticData.loadGenome(SyntheticData.writeFasta(dir, reference));
+        File tdf = SyntheticData.writeTDF(dir, genome, 25, random);
+        reader = new TDFReader(new ResourceLocator(tdf.getAbsolutePath()));
+        dataset = reader.getDataset(datasetName);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reader.close();
+        SyntheticData.delete(dir);
+    }
+
+    @Benchmark
+    public void readTiles(Blackhole bh) {
+        for (int t = 0; t < dataset.tilePositions.length; t++) {
+            bh.consume(reader.readTile(dataset, t));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.ui.panel;
+
+import org.broad.igv.benchmark.SyntheticData;
+import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.sam.AlignmentDataManager;
+import org.broad.igv.sam.AlignmentTrack;
+import org.broad.igv.track.RenderContext;
+import org.broad.igv.track.Track;
+import org.broad.igv.util.ResourceLocator;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering an alignment track while the view is panned.  Each invocation renders the strip of the given width
+ * exposed by a pan, either with the full visible rect and drawing clipped to the strip, as the pan cache did before
+ * strips were culled, or with the visible rect narrowed to the strip.  The pan benchmark measures a cached pan of
+ * the same width, including the shift of the cached pixels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PanBenchmark {
+
+    static final int CHR_LENGTH = 500000;
+    static final int READ_LENGTH = 100;
+    static final int WIDTH = 1500;
+    static final int HEIGHT = 1000;
+
+    @Param({"100", "1000"})
+    int depth;
+
+    @Param({"10", "100"})
+    int stripWidth;
+
+    private File dir;
+    private AlignmentTrack track;
+    private ReferenceFrame frame;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private JPanel panel;
+    private Rectangle rect;
+    private Rectangle stripRect;
+    private TrackRasterCache cache;
+    private int panDirection = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        SyntheticData.setUpHeadless();
+        Random random = new Random(SyntheticData.SEED);
+        dir = SyntheticData.createDirectory();
+        byte[] reference = SyntheticData.randomSequence(CHR_LENGTH, random);
+        Genome genome = SyntheticData.loadGenome(SyntheticData.writeFasta(dir, reference));
+        File bam = SyntheticData.writeBam(dir, reference, READ_LENGTH, depth, random);
+
+        ResourceLocator locator = new ResourceLocator(bam.getAbsolutePath());
+        track = new AlignmentTrack(locator, new AlignmentDataManager(locator, genome), genome);
+        track.setDisplayMode(Track.DisplayMode.SQUISHED);
+
+        frame = new ReferenceFrame("pan");
+        frame.chrName = SyntheticData.CHR;
+        frame.widthInPixels = WIDTH;
+        frame.scale = 5;
+        frame.origin = CHR_LENGTH / 2;
+        track.load(frame);
+
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        panel = new JPanel();
+        rect = new Rectangle(0, 0, WIDTH, HEIGHT);
+        stripRect = new Rectangle(WIDTH - stripWidth, 0, stripWidth, HEIGHT);
+
+        TrackRasterCache.startPanning(frame);
+        cache = new TrackRasterCache();
+        cache.isActive(frame);
+        drawCached();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TrackRasterCache.stopPanning();
+        graphics.dispose();
+        SyntheticData.delete(dir);
+    }
+
+    @Benchmark
+    public BufferedImage renderClippedStrip() {
+        return render(rect);
+    }
+
+    @Benchmark
+    public BufferedImage renderCulledStrip() {
+        int margin = TrackRasterCache.STRIP_MARGIN;
+        return render(new Rectangle(stripRect.x - margin, 0, stripRect.width + 2 * margin, HEIGHT));
+    }
+
+    @Benchmark
+    public BufferedImage pan() {
+        // Pan back and forth, so that the view stays within the loaded interval
+        frame.origin += panDirection * stripWidth * frame.scale;
+        panDirection = -panDirection;
+        drawCached();
+        return image;
+    }
+
+    private BufferedImage render(Rectangle visibleRect) {
+        Graphics2D g = (Graphics2D) graphics.create();
+        RenderContext context = new RenderContext(panel, g, frame, visibleRect);
+        try {
+            g.clip(stripRect);
+            track.render(context, new Rectangle(rect));
+        } finally {
+            context.dispose();
+            g.dispose();
+        }
+        return image;
+    }
+
+    private void drawCached() {
+        RenderContext context = new RenderContext(panel, graphics, frame, new Rectangle(rect));
+        try {
+            cache.draw(track, new Rectangle(rect), context, (t, r, c) -> t.render(c, r));
+        } finally {
+            context.dispose();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util;
+
+import org.broad.igv.benchmark.SyntheticData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overlap queries of an interval tree of random intervals, and building the tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntervalTreeBenchmark {
+
+    static final int CHR_LENGTH = 100000000;
+    static final int INTERVAL_COUNT = 100000;
+
+    @Param({"1000", "1000000"})
+    int queryLength;
+
+    private int[] starts;
+    private int[] lengths;
+    private IntervalTree<Integer> tree;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new Random(SyntheticData.SEED);
+        starts = SyntheticData.sortedStarts(INTERVAL_COUNT, CHR_LENGTH, random);
+        lengths = new int[INTERVAL_COUNT];
+        for (int i = 0; i < INTERVAL_COUNT; i++) {
+            lengths[i] = 100 + random.nextInt(10000);
+        }
+        tree = build();
+    }
+
+    @Benchmark
+    public List<Interval<Integer>> findOverlapping() {
+        int start = random.nextInt(CHR_LENGTH - queryLength);
+        return tree.findOverlapping(start, start + queryLength);
+    }
+
+    @Benchmark
+    public IntervalTree<Integer> build() {
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        for (int i = 0; i < INTERVAL_COUNT; i++) {
+            tree.insert(new Interval<>(starts[i], starts[i] + lengths[i], i));
+        }
+        return tree;
+    }
+}
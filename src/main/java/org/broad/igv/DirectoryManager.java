@@ -57,6 +57,7 @@ public class DirectoryManager {
     private static File GENOME_CACHE_DIRECTORY;
     private static File GENE_LIST_DIRECTORY;
     private static File BAM_CACHE_DIRECTORY;
+    private static File FEATURE_INDEX_DIRECTORY;
     final public static String IGV_DIR_USERPREF = "igvDir";
 
 
@@ -230,6 +231,21 @@ public class DirectoryManager {
         return GENE_LIST_DIRECTORY;
     }
 
+    public static synchronized File getFeatureIndexDirectory() {
+        if (FEATURE_INDEX_DIRECTORY == null) {
+            FEATURE_INDEX_DIRECTORY = new File(getIgvDirectory(), "index");
+            if (!FEATURE_INDEX_DIRECTORY.exists()) {
+                FEATURE_INDEX_DIRECTORY.mkdir();
+            }
+            if (!FEATURE_INDEX_DIRECTORY.canRead()) {
+                throw new DataLoadException("Cannot read from user directory", FEATURE_INDEX_DIRECTORY.getAbsolutePath());
+            } else if (!FEATURE_INDEX_DIRECTORY.canWrite()) {
+                throw new DataLoadException("Cannot write to user directory", FEATURE_INDEX_DIRECTORY.getAbsolutePath());
+            }
+        }
+        return FEATURE_INDEX_DIRECTORY;
+    }
+
     public static synchronized File getCacheDirectory() {
         if (BAM_CACHE_DIRECTORY == null) {
             File defaultDir = getIgvDirectory();
@@ -55,6 +55,7 @@ import org.broad.igv.ui.util.MessageUtils;
 import org.broad.igv.ui.util.SnapshotUtilities;
 import org.broad.igv.ui.util.UIUtilities;
 import org.broad.igv.util.*;
+import org.broad.igv.util.metrics.MetricsRegistry;
 
 import java.awt.*;
 import java.io.File;
@@ -83,6 +84,22 @@ public class CommandExecutor {
         this.scriptDir = scriptDir;
     }
 
+    /**
+     * Commands that neither read nor change the session, and can be executed on any thread concurrently with
+     * other commands.  The metrics registry is thread safe.
+     */
+    private static final Set<String> CONCURRENT_COMMANDS = new HashSet<>(Arrays.asList("echo", "version", "metrics"));
+
+    /**
+     * Return true if the command can be executed off the event dispatch thread, concurrently with other commands.
+     */
+    public static boolean isConcurrent(String commandLine) {
+        String trimmed = commandLine.trim();
+        int idx = trimmed.indexOf(' ');
+        String cmd = idx < 0 ? trimmed : trimmed.substring(0, idx);
+        return CONCURRENT_COMMANDS.contains(cmd.toLowerCase());
+    }
+
     private List<String> getArgs(String[] tokens) {
         List<String> args = new ArrayList(tokens.length);
         for (String s : tokens) {
@@ -113,7 +130,7 @@ public class CommandExecutor {
             String param4 = args.size() > 4 ? args.get(4) : null;
 
             if (cmd.equalsIgnoreCase("echo")) {
-                result = param1 != null ? param1 : cmd;
+                return param1 != null ? param1 : cmd;
             } else if (cmd.equalsIgnoreCase("gotoimmediate") || cmd.equalsIgnoreCase("goto")) {
                 result = goto1(args);
             } else if (cmd.equalsIgnoreCase("addframes")) {
@@ -198,6 +215,8 @@ public class CommandExecutor {
                 return this.overridePreference(param1, param2);
             } else if (cmd.equalsIgnoreCase("version")) {
                 return Globals.VERSION;
+            } else if (cmd.equalsIgnoreCase("metrics")) {
+                return this.metrics(param1);
             } else if (cmd.equals("exit")) {
                 System.exit(0);
             } else if (cmd.equals("zoomin")) {
@@ -607,6 +626,17 @@ public class CommandExecutor {
         return "OK";
     }
 
+    /**
+     * Return the session metrics as a single line of JSON.  With the "reset" parameter, counters, histograms,
+     * and timers are cleared as they are read, see {@link MetricsRegistry#toJson(boolean)}.
+     */
+    private String metrics(String param) {
+        if (param != null && !param.equalsIgnoreCase("reset")) {
+            return "Error: metrics usage: metrics [reset]";
+        }
+        return MetricsRegistry.getInstance().toJson(param != null);
+    }
+
 
     private String genome(String param1) {
         if (param1 == null) {
@@ -35,6 +35,7 @@ import org.broad.igv.prefs.Constants;
 import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.ui.IGV;
 import org.broad.igv.ui.util.UIUtilities;
+import org.broad.igv.util.IGVExecutors;
 import org.broad.igv.util.StringUtils;
 
 import java.awt.*;
@@ -45,11 +46,34 @@ import java.net.URLDecoder;
 import java.nio.channels.ClosedByInterruptException;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
-
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Listens for batch commands and http requests on the IGV port.
+ * <p>
+ * Several clients can be connected at once, up to the PORT_MAX_CLIENTS preference.  Further connections are sent
+ * "ERROR busy" and closed, rather than queued until a session ends.  Commands from all clients
+ * are executed one at a time, in the order received, on a single command queue.  Commands that change IGV
+ * state run on the event dispatch thread as before; commands that only report information
+ * (see {@link CommandExecutor#isConcurrent(String)}) run immediately on a background thread.  Each client session
+ * has its own {@link CommandExecutor}, so settings such as the snapshot directory apply only to that client.
+ * <p>
+ * A client can pipeline commands by prefixing each line with a request id, "#id command".  The listener then
+ * continues reading without waiting for the result, and the response is returned as "#id response" when the
+ * command completes.  Commands without a request id are answered, in order, before the next line is read.
+ * Responses to pipelined commands are written by a writer for each session, so a client that does not read its
+ * responses stalls only its own session, not the command queue.
+ */
 public class CommandListener implements Runnable {
 
     public static final String OK = "OK";
 
+    static final String BUSY = "ERROR busy";
+
     // when the listener is successfully started, set this to true.
     // set this back to false when the listener closes dwm08
     private static boolean isListening = false;
@@ -61,12 +85,28 @@ public class CommandListener implements Runnable {
     private static CommandListener listener;
     private static final String CRLF = "\r\n";
 
+    // "#id command".  Ids are any non-whitespace token.
+    private static final Pattern REQUEST_ID_PATTERN = Pattern.compile("#(\\S+)\\s+(.*)");
+
     private int port = -1;
     private ServerSocket serverSocket = null;
-    private Socket clientSocket = null;
+    private final Set<Socket> clientSockets = ConcurrentHashMap.newKeySet();
     private Thread listenerThread;
     boolean halt = false;
 
+    // Client sessions, at most PORT_MAX_CLIENTS at a time
+    private final int maxClients;
+    private final ExecutorService sessionExecutor;
+
+    // Number of accepted client connections not yet closed
+    private final AtomicInteger clientCount = new AtomicInteger();
+
+    // Commands that change IGV state, one at a time in order of receipt
+    private final ExecutorService commandExecutor;
+
+    // Number of client sessions open
+    private final AtomicInteger sessionCount = new AtomicInteger();
+
 
     /**
      * Different keys which can be used to specify a file to load
@@ -109,6 +149,9 @@ public class CommandListener implements Runnable {
     private CommandListener(int port) {
         this.port = port;
         listenerThread = new Thread(this);
+        maxClients = Math.max(1, PreferencesManager.getPreferences().getAsInt(Constants.PORT_MAX_CLIENTS));
+        sessionExecutor = IGVExecutors.newIOExecutor(maxClients);
+        commandExecutor = IGVExecutors.newIOExecutor(1);
     }
 
 
@@ -122,29 +165,34 @@ public class CommandListener implements Runnable {
     }
 
     /**
-     * Loop forever, processing client requests synchronously.  The server is single threaded.
+     * Loop forever, accepting client connections.  Each client session is processed on its own thread.
      * dwm08 - set isListening appropriately
      */
     public void run() {
 
         try {
-            CommandExecutor cmdExe = new CommandExecutor(IGV.getInstance());
-
             serverSocket = new ServerSocket(port);
             log.info("Listening on port " + port);
             currentListenerPort = port;
             while (!halt) {
-                clientSocket = serverSocket.accept();
-                processClientSession(cmdExe);
-                if (clientSocket != null) {
+                Socket clientSocket = serverSocket.accept();
+                if (clientCount.incrementAndGet() > maxClients) {
+                    clientCount.decrementAndGet();
+                    rejectClient(clientSocket);
+                    continue;
+                }
+                clientSockets.add(clientSocket);
+                sessionExecutor.execute(() -> {
                     try {
-                        clientSocket.close();
-                        clientSocket = null;
-                        // We do NOT set isListening = false here, otherwise logout/login state change falls back to OOB
+                        // Executor state, such as the snapshot directory, belongs to the session
+                        processClientSession(clientSocket, new CommandExecutor(IGV.getInstance()));
                     } catch (IOException e) {
                         log.error("Error in client socket loop", e);
+                    } finally {
+                        closeClientSocket(clientSocket);
+                        clientCount.decrementAndGet();
                     }
-                }
+                });
             }
         } catch (java.net.BindException e) {
             log.error(e);
@@ -164,12 +212,19 @@ public class CommandListener implements Runnable {
     /**
      * Process a client session.  Loop continuously until client sends the "halt" message, or closes the connection.
      *
+     * @param clientSocket
      * @param cmdExe
      * @throws IOException
      */
-    private void processClientSession(CommandExecutor cmdExe) throws IOException {
+    private void processClientSession(Socket clientSocket, CommandExecutor cmdExe) throws IOException {
         PrintWriter out = null;
         BufferedReader in = null;
+
+        // Responses to pipelined commands not yet sent, and the writer that sends them
+        List<CompletableFuture<?>> pendingResponses = new ArrayList<>();
+        ExecutorService responseWriter = IGVExecutors.newIOExecutor(1);
+
+        sessionCount.incrementAndGet();
         try {
             out = new PrintWriter(clientSocket.getOutputStream(), true);
             in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
@@ -231,9 +286,17 @@ public class CommandListener implements Runnable {
                                         halt();
                                     }
                                 } else {
-                                    // Process the request.
-                                    result = processGet(command, params, cmdExe); // Send no response if result is "OK".
-                                    if ("OK".equals(result)) result = null;
+                                    // Process the request, in turn with batch commands from other clients.
+                                    String finalCommand = command;
+                                    Map<String, String> finalParams = params;
+                                    result = await(CompletableFuture.supplyAsync(() -> {
+                                        try {
+                                            return processGet(finalCommand, finalParams, cmdExe);
+                                        } catch (IOException e) {
+                                            throw new CompletionException(e);
+                                        }
+                                    }, commandExecutor));
+                                    if ("OK".equals(result)) result = null;   // Send no response if result is "OK".
                                     sendTextResponse(out, result);
                                 }
                             }
@@ -246,42 +309,132 @@ public class CommandListener implements Runnable {
 
 
                 } else {
-                    // Port command
-                    try {
-                        Globals.setBatch(true);
-                        String finalInputLine = inputLine;
-                        PrintWriter finalOut = out;
-                        UIUtilities.invokeAndWaitOnEventThread(() -> {
-                            final String response = cmdExe.execute(finalInputLine);
-                            finalOut.println(response);
-                            finalOut.flush();
-                        });
+                    // Port command, optionally prefixed with a request id
+                    String requestId = null;
+                    String commandLine = inputLine;
+                    Matcher matcher = REQUEST_ID_PATTERN.matcher(inputLine);
+                    if (matcher.matches()) {
+                        requestId = matcher.group(1);
+                        commandLine = matcher.group(2);
+                    }
 
-                    } finally {
-                        Globals.setBatch(false);
+                    CompletableFuture<String> response = executeCommand(commandLine, cmdExe);
+
+                    PrintWriter finalOut = out;
+                    if (requestId == null) {
+                        sendResponse(finalOut, await(response));
+                    } else {
+                        String prefix = "#" + requestId + " ";
+                        pendingResponses.removeIf(CompletableFuture::isDone);
+                        // Written on the session's writer, not the thread that completed the command, which may
+                        // be the shared command queue
+                        pendingResponses.add(response.handleAsync((result, e) -> {
+                            sendResponse(finalOut, prefix + (e == null ? result : errorMessage(e)));
+                            return null;
+                        }, responseWriter));
                     }
                 }
             }
         } catch (IOException e) {
             log.error("Error processing client session", e);
         } finally {
-            Globals.setSuppressMessages(false);
-            Globals.setBatch(false);
+            // Finish pipelined commands before closing the connection
+            for (CompletableFuture<?> f : pendingResponses) {
+                try {
+                    f.join();
+                } catch (CompletionException | CancellationException e) {
+                    // Already reported to the client
+                }
+            }
+            responseWriter.shutdown();
+            // Message suppression is global, restore it only when the last open session ends
+            if (sessionCount.decrementAndGet() == 0) {
+                Globals.setSuppressMessages(false);
+            }
             if (out != null) out.close();
             if (in != null) in.close();
         }
     }
 
+    /**
+     * Execute a batch command.  Commands that change IGV state are queued for execution, one at a time, on the
+     * event dispatch thread.  Others are executed immediately on a background thread.
+     */
+    private CompletableFuture<String> executeCommand(String commandLine, CommandExecutor cmdExe) {
 
-    private void closeSockets() {
-        if (clientSocket != null) {
+        if (CommandExecutor.isConcurrent(commandLine)) {
+            return CompletableFuture.supplyAsync(() -> cmdExe.execute(commandLine), IGVExecutors.getIOExecutor());
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Globals.setBatch(true);
+                String[] response = new String[1];
+                UIUtilities.invokeAndWaitOnEventThread(() -> response[0] = cmdExe.execute(commandLine));
+                return response[0];
+            } finally {
+                Globals.setBatch(false);
+            }
+        }, commandExecutor);
+    }
+
+    private static void sendResponse(PrintWriter out, String response) {
+        synchronized (out) {
+            out.println(response);
+            out.flush();
+        }
+    }
+
+    /**
+     * Wait for the result of a command.  Errors are returned as an error message.
+     */
+    private static String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            return errorMessage(e);
+        }
+    }
+
+    private static String errorMessage(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.error("Error executing command", cause);
+        return "ERROR " + cause.getMessage();
+    }
+
+
+    /**
+     * Answer a connection beyond the client limit and close it
+     */
+    private void rejectClient(Socket clientSocket) {
+        log.warn("Rejecting connection, " + maxClients + " clients are connected");
+        try (PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
+            out.println(BUSY);
+        } catch (IOException e) {
+            log.error("Error rejecting client", e);
+        } finally {
             try {
                 clientSocket.close();
-                clientSocket = null;
             } catch (IOException e) {
                 log.error("Error closing clientSocket", e);
             }
         }
+    }
+
+    private void closeClientSocket(Socket clientSocket) {
+        clientSockets.remove(clientSocket);
+        try {
+            clientSocket.close();
+            // We do NOT set isListening = false here, otherwise logout/login state change falls back to OOB
+        } catch (IOException e) {
+            log.error("Error closing clientSocket", e);
+        }
+    }
+
+    private void closeSockets() {
+        for (Socket clientSocket : new ArrayList<>(clientSockets)) {
+            closeClientSocket(clientSocket);
+        }
 
         if (serverSocket != null) {
             try {
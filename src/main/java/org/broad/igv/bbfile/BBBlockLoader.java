@@ -0,0 +1,264 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.bbfile;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+import org.broad.igv.logging.*;
+import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.util.CompressionUtils;
+import org.broad.igv.util.IGVExecutors;
+import org.broad.igv.util.collections.WeightedLRUCache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.broad.igv.prefs.Constants.BB_INFLATE_THREADS;
+
+/**
+ * Reads and decompresses the data blocks referenced by R+ tree leaf items.  Blocks requested together are
+ * sorted by file offset and adjacent or nearly adjacent blocks are coalesced into a single read.  Compressed
+ * blocks are inflated in parallel on a small shared pool, and decompressed blocks are retained in an LRU cache
+ * owned by the reader.
+ * <p>
+ * Decompressed buffers are shared between the cache and data blocks, and must not be modified.
+ */
+class BBBlockLoader {
+
+    private static Logger log = LogManager.getLogger(BBBlockLoader.class);
+
+    /**
+     * Blocks separated by fewer than this number of bytes are read together
+     */
+    static final int MAX_GAP = 8 * 1024;
+
+    /**
+     * Upper bound on the size of a single coalesced read
+     */
+    static final int MAX_READ_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Number of leaf items loaded at a time by a {@link Prefetcher}
+     */
+    static final int BATCH_SIZE = 64;
+
+    private static ExecutorService inflateExecutor;
+
+    private static final ThreadLocal<CompressionUtils> compressionUtils = ThreadLocal.withInitial(CompressionUtils::new);
+
+    private final BBRangeReader reader;
+    private final int uncompressBufSize;
+    private final WeightedLRUCache<Long, byte[]> cache;
+
+    /**
+     * @param fis               stream for the file.  Reads are synchronized on the stream.
+     * @param uncompressBufSize buffer size for data decompression; 0 for uncompressed data
+     * @param cacheSize         maximum size in bytes of the decompressed block cache; 0 to disable caching
+     */
+    BBBlockLoader(SeekableStream fis, int uncompressBufSize, long cacheSize) {
+        this(BBRangeReader.forStream(fis), uncompressBufSize, cacheSize);
+    }
+
+    /**
+     * @param reader            reader for the file
+     * @param uncompressBufSize buffer size for data decompression; 0 for uncompressed data
+     * @param cacheSize         maximum size in bytes of the decompressed block cache; 0 to disable caching
+     */
+    BBBlockLoader(BBRangeReader reader, int uncompressBufSize, long cacheSize) {
+        this.reader = reader;
+        this.uncompressBufSize = uncompressBufSize;
+        this.cache = cacheSize > 0 ? new WeightedLRUCache<>(cacheSize, b -> b.length) : null;
+    }
+
+    /**
+     * Return a prefetcher over the leaf items, which loads blocks in batches as they are requested.
+     */
+    Prefetcher prefetcher(List<RPTreeLeafNodeItem> leafItems) {
+        return new Prefetcher(leafItems);
+    }
+
+    /**
+     * Return the decompressed data block for each leaf item, in the order of the list.
+     */
+    byte[][] loadBlocks(List<RPTreeLeafNodeItem> leafItems) {
+
+        byte[][] blocks = new byte[leafItems.size()][];
+
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < leafItems.size(); i++) {
+            blocks[i] = cache == null ? null : cache.get(leafItems.get(i).getDataOffset());
+            if (blocks[i] == null) {
+                misses.add(i);
+            }
+        }
+        if (misses.isEmpty()) {
+            return blocks;
+        }
+
+        misses.sort(Comparator.comparingLong(i -> leafItems.get(i).getDataOffset()));
+
+        // Read runs of neighboring blocks, handing each block to the inflate pool as soon as its run is read.
+        List<Future<byte[]>> futures = new ArrayList<>(misses.size());
+        boolean parallel = uncompressBufSize > 0 && misses.size() > 1;
+        int runStart = 0;
+        while (runStart < misses.size()) {
+
+            RPTreeLeafNodeItem first = leafItems.get(misses.get(runStart));
+            long start = first.getDataOffset();
+            long end = start + first.geDataSize();
+            int runEnd = runStart + 1;
+            while (runEnd < misses.size()) {
+                RPTreeLeafNodeItem next = leafItems.get(misses.get(runEnd));
+                long nextEnd = Math.max(end, next.getDataOffset() + next.geDataSize());
+                if (next.getDataOffset() - end > MAX_GAP || nextEnd - start > MAX_READ_SIZE) {
+                    break;
+                }
+                end = nextEnd;
+                runEnd++;
+            }
+
+            ByteBuffer buffer = read(start, (int) (end - start));
+
+            for (int m = runStart; m < runEnd; m++) {
+                RPTreeLeafNodeItem item = leafItems.get(misses.get(m));
+                int offset = (int) (item.getDataOffset() - start);
+                int size = (int) item.geDataSize();
+                if (parallel) {
+                    futures.add(getInflateExecutor().submit(() -> decompress(buffer, offset, size)));
+                } else {
+                    blocks[misses.get(m)] = decompress(buffer, offset, size);
+                }
+            }
+            runStart = runEnd;
+        }
+
+        if (parallel) {
+            for (int m = 0; m < misses.size(); m++) {
+                try {
+                    blocks[misses.get(m)] = futures.get(m).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while decompressing data blocks", e);
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Error decompressing data block", e.getCause());
+                }
+            }
+        }
+
+        if (cache != null) {
+            for (int i : misses) {
+                cache.put(leafItems.get(i).getDataOffset(), blocks[i]);
+            }
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Read and decompress a single block, bypassing the cache.
+     */
+    static byte[] readBlock(SeekableStream fis, RPTreeLeafNodeItem leafItem, int uncompressBufSize) {
+        BBBlockLoader loader = new BBBlockLoader(fis, uncompressBufSize, 0);
+        return loader.decompress(loader.read(leafItem.getDataOffset(), (int) leafItem.geDataSize()), 0, (int) leafItem.geDataSize());
+    }
+
+    WeightedLRUCache<Long, byte[]> getCache() {
+        return cache;
+    }
+
+    private ByteBuffer read(long position, int size) {
+        try {
+            return reader.readBuffer(position, size);
+        } catch (IOException e) {
+            String error = "Error reading data block at offset " + position;
+            log.error(error, e);
+            throw new RuntimeException(error, e);
+        }
+    }
+
+    /**
+     * Decompress the block at offset in the buffer, which may be a view of a memory-mapped file.
+     */
+    private byte[] decompress(ByteBuffer buffer, int offset, int size) {
+
+        ByteBuffer block = buffer.duplicate();
+        block.position(offset).limit(offset + size);
+
+        // the buffer size is 0 for uncompressed data.  Note:  BBFile Table C specifies a decompression buffer size
+        if (uncompressBufSize > 0) {
+            return compressionUtils.get().decompress(block, uncompressBufSize);
+        } else if (buffer.hasArray() && buffer.arrayOffset() == 0 && offset == 0 && size == buffer.array().length) {
+            return buffer.array();
+        } else {
+            byte[] bytes = new byte[size];
+            block.get(bytes);
+            return bytes;
+        }
+    }
+
+    private static synchronized ExecutorService getInflateExecutor() {
+        if (inflateExecutor == null) {
+            int threads = PreferencesManager.getPreferences().getAsInt(BB_INFLATE_THREADS);
+            if (threads <= 0) {
+                threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+            }
+            inflateExecutor = IGVExecutors.newBoundedExecutor(IGVExecutors.getCPUExecutor(), threads);
+        }
+        return inflateExecutor;
+    }
+
+
+    /**
+     * Sequential access to the blocks of a list of leaf items.  Blocks are loaded {@link #BATCH_SIZE} items at a
+     * time, so that wide queries coalesce reads without holding every block in memory at once.
+     */
+    class Prefetcher {
+
+        private final List<RPTreeLeafNodeItem> leafItems;
+        private byte[][] batch;
+        private int batchStart;
+
+        Prefetcher(List<RPTreeLeafNodeItem> leafItems) {
+            this.leafItems = leafItems;
+        }
+
+        /**
+         * Return the decompressed block for the leaf item at the index.
+         */
+        byte[] getBlock(int index) {
+            if (batch == null || index < batchStart || index >= batchStart + batch.length) {
+                batchStart = index;
+                batch = loadBlocks(leafItems.subList(index, Math.min(leafItems.size(), index + BATCH_SIZE)));
+            }
+            return batch[index - batchStart];
+        }
+    }
+}
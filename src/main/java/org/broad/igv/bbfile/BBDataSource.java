@@ -43,6 +43,7 @@ import htsjdk.tribble.Feature;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A hybrid source, implements both DataSource and FeatureSource.   Way of the future?
@@ -69,7 +70,7 @@ public class BBDataSource extends AbstractDataSource implements FeatureSource {
     // Lookup table to support chromosome aliasing.
     private Map<String, String> chrNameMap = new HashMap();
 
-    private RawDataInterval currentInterval = null;
+    private volatile RawDataInterval currentInterval = null;
 
     private double dataMin = 0;
     private double dataMax = 100;
@@ -81,7 +82,7 @@ public class BBDataSource extends AbstractDataSource implements FeatureSource {
 
         this.reader = reader;
         this.levels = reader.getZoomLevels();
-        this.wholeGenomeScores = new HashMap<>();
+        this.wholeGenomeScores = new ConcurrentHashMap<>();
 
         if (reader.isBigWigFile()) initMinMax();
 
@@ -286,15 +287,16 @@ public class BBDataSource extends AbstractDataSource implements FeatureSource {
 
 
     @Override
-    protected synchronized DataTile getRawData(String chr, int start, int end) {
+    protected DataTile getRawData(String chr, int start, int end) {
 
         if (chr.equals(Globals.CHR_ALL)) {
             return null;
         }
 
-
-        if (currentInterval != null && currentInterval.contains(chr, start, end)) {
-            return currentInterval.tile;
+        // Not synchronized -- the reader supports concurrent queries, as from several gene list frames
+        RawDataInterval interval = currentInterval;
+        if (interval != null && interval.contains(chr, start, end)) {
+            return interval.tile;
         }
 
         // TODO -- fetch data directly in arrays to avoid creation of multiple "WigItem" objects?
@@ -332,11 +334,14 @@ public class BBDataSource extends AbstractDataSource implements FeatureSource {
                 String firstChr = reader.getChromsomeFromId(0);
                 String lastChr = reader.getChromsomeFromId(maxChromId);
 
+                // Scores are published when complete, as other frames may be querying concurrently
                 ArrayList<LocusScore> scores = new ArrayList<LocusScore>();
-                wholeGenomeScores.put(windowFunction, scores);
 
                 BBZoomLevelHeader lowestResHeader = this.getZoomLevelForScale(scale);
-                if (lowestResHeader == null) return null;
+                if (lowestResHeader == null) {
+                    wholeGenomeScores.put(windowFunction, scores);
+                    return null;
+                }
 
                 Set<String> wgChrNames = new HashSet<>(genome.getLongChromosomeNames());
 
@@ -366,6 +371,7 @@ public class BBDataSource extends AbstractDataSource implements FeatureSource {
                 }
 
                 scores.sort((o1, o2) -> o1.getStart() - o2.getStart());
+                wholeGenomeScores.put(windowFunction, scores);
 
             }
             return wholeGenomeScores.get(windowFunction);
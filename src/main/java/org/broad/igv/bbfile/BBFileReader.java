@@ -27,6 +27,9 @@ package org.broad.igv.bbfile;
 
 import htsjdk.samtools.seekablestream.SeekableStream;
 import org.broad.igv.logging.*;
+import org.broad.igv.prefs.IGVPreferences;
+import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.util.stream.IGVMappedFileStream;
 import org.broad.igv.util.stream.IGVSeekableBufferedStream;
 import org.broad.igv.util.stream.IGVSeekableStreamFactory;
 
@@ -35,6 +38,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 
+import static org.broad.igv.prefs.Constants.BB_BLOCK_CACHE_SIZE;
+import static org.broad.igv.prefs.Constants.BB_CONCURRENT_QUERIES;
+
 /*
 *   Broad Institute Interactive Genome Viewer Big Binary File (BBFile) Reader
 *   -   File reader for UCSC BigWig and BigBed file types.
@@ -84,6 +90,9 @@ import java.util.ArrayList;
 *
 *   13) Provides iterators using chromosome names and data regions to extract
 *       zoom data, Wig data, and Bed data.
+*
+*   Iterators may be created and used concurrently.  The header and index trees are not modified after
+*   construction, except for per chromosome R+ tree nodes which are loaded once on demand.
 * 
 * */
 
@@ -121,12 +130,22 @@ public class BBFileReader {
     private RPTree chromosomeDataTree;     // Container for the mChromosome data R+ tree
     private String autoSql;
 
+    private BBRangeReader rangeReader;   // reads index nodes loaded on demand, and data blocks
+    private BBBlockLoader blockLoader;   // reads data blocks, with a cache of decompressed blocks
+
 
     public BBFileReader(String path) throws IOException {
 
         log.debug("Opening BBFile source  " + path);
 
-        fis = new IGVSeekableBufferedStream(IGVSeekableStreamFactory.getInstance().getStreamFor(path), 128000);
+        // Memory-mapped local files need no buffering
+        SeekableStream stream = IGVSeekableStreamFactory.getInstance().getStreamFor(path);
+        fis = stream instanceof IGVMappedFileStream ? stream : new IGVSeekableBufferedStream(stream, 128000);
+
+        // In concurrent mode queries read through positional reads or their own stream handles, otherwise all
+        // reads are serialized on the shared stream
+        IGVPreferences prefs = PreferencesManager.getPreferences();
+        rangeReader = prefs.getAsBoolean(BB_CONCURRENT_QUERIES) ? BBRangeReader.open(path) : BBRangeReader.forStream(fis);
 
         // read in file header
         fileOffset = BBFILE_HEADER_OFFSET;
@@ -141,6 +160,8 @@ public class BBFileReader {
         // get data characteristics
         isLowToHigh = fileHeader.isLowToHigh();
         uncompressBufSize = fileHeader.getUncompressBuffSize();
+        long blockCacheSize = prefs.getAsInt(BB_BLOCK_CACHE_SIZE) * 1024L * 1024L;
+        blockLoader = new BBBlockLoader(rangeReader, uncompressBufSize, blockCacheSize);
 
         // update file offset past BBFile header
         fileOffset += BBFileHeader.BBFILE_HEADER_SIZE;
@@ -152,7 +173,7 @@ public class BBFileReader {
         // Note: zoom headers Table D immediately follow the BBFile Header
         if (zoomLevelCount > 0) {
             zoomLevelOffset = fileOffset;
-            zoomLevels = new BBZoomLevels(fis, zoomLevelOffset, zoomLevelCount, isLowToHigh, uncompressBufSize);
+            zoomLevels = new BBZoomLevels(fis, zoomLevelOffset, zoomLevelCount, isLowToHigh, uncompressBufSize, rangeReader);
 
             // end of zoom level headers - compare with next BBFile item location
             fileOffset += zoomLevelCount * BBZoomLevelHeader.ZOOM_LEVEL_HEADER_SIZE;
@@ -183,7 +204,7 @@ public class BBFileReader {
         chromDataTreeOffset = fileHeader.getFullIndexOffset();
         if (chromDataTreeOffset != 0) {
             fileOffset = chromDataTreeOffset;
-            chromosomeDataTree = new RPTree(fis, fileOffset, isLowToHigh, uncompressBufSize);
+            chromosomeDataTree = new RPTree(fis, fileOffset, isLowToHigh, uncompressBufSize, rangeReader);
         }
 
 
@@ -195,6 +216,7 @@ public class BBFileReader {
 
     public void close() {
         try {
+            rangeReader.close();
             fis.close();
         } catch (IOException e) {
             log.error("Error closing bigwig stream", e);
@@ -313,7 +335,7 @@ public class BBFileReader {
      * 1) An empty iterator is returned if region has no data available
      * 2) A null object is returned if the file is not BigBed.(see isBigBedFile method)
      */
-    synchronized public BigBedIterator getBigBedIterator(String startChromosome, int startBase,
+    public BigBedIterator getBigBedIterator(String startChromosome, int startBase,
                                                          String endChromosome, int endBase, boolean contained) {
 
         if (!isBigBedFile())
@@ -329,7 +351,7 @@ public class BBFileReader {
         }
 
         // compose an iterator
-        BigBedIterator bedIterator = new BigBedIterator(fis, fileHeader, chromosomeIDTree, chromosomeDataTree, selectionRegion, contained);
+        BigBedIterator bedIterator = new BigBedIterator(fis, fileHeader, chromosomeIDTree, chromosomeDataTree, selectionRegion, contained, blockLoader);
 
         return bedIterator;
     }
@@ -354,7 +376,7 @@ public class BBFileReader {
      * 1) An empty iterator is returned if region has no data available
      * 2) A null object is returned if the file is not BigWig.(see isBigWigFile method)
      */
-    synchronized public BigWigIterator getBigWigIterator(String startChromosome, int startBase,
+    public BigWigIterator getBigWigIterator(String startChromosome, int startBase,
                                                          String endChromosome, int endBase, boolean contained) {
 
 
@@ -371,7 +393,7 @@ public class BBFileReader {
 
         // compose an iterator
         BigWigIterator wigIterator = new BigWigIterator(fis, chromosomeIDTree, chromosomeDataTree,
-                selectionRegion, contained);
+                selectionRegion, contained, blockLoader);
 
         return wigIterator;
     }
@@ -396,7 +418,7 @@ public class BBFileReader {
      * Error conditions:
      * 1) An empty iterator is returned if region has no data available
      */
-    synchronized public ZoomLevelIterator getZoomLevelIterator(int zoomLevel, String startChromosome, int startBase,
+    public ZoomLevelIterator getZoomLevelIterator(int zoomLevel, String startChromosome, int startBase,
                                                                String endChromosome, int endBase, boolean contained) {
         // check for valid zoom level
         if (zoomLevel < 1 || zoomLevel > zoomLevelCount)
@@ -416,7 +438,7 @@ public class BBFileReader {
 
         /// compose an iterator
         ZoomLevelIterator zoomIterator = new ZoomLevelIterator(fis, chromosomeIDTree,
-                zoomDataTree, zoomLevel, selectionRegion, contained);
+                zoomDataTree, zoomLevel, selectionRegion, contained, blockLoader);
 
         return zoomIterator;
     }
@@ -434,7 +456,7 @@ public class BBFileReader {
      * Error conditions:
      * 1) An empty iterator is returned if region has no data available
      */
-    synchronized public ZoomLevelIterator getZoomLevelIterator(int zoomLevel) {
+    public ZoomLevelIterator getZoomLevelIterator(int zoomLevel) {
 
         // check for valid zoom level
         if (zoomLevel < 1 || zoomLevel > zoomLevelCount)
@@ -449,7 +471,7 @@ public class BBFileReader {
         // compose an iterator
         boolean contained = true;   //all regions are contained
         ZoomLevelIterator zoomIterator = new ZoomLevelIterator(fis, chromosomeIDTree,
-                zoomDataTree, zoomLevel, selectionRegion, contained);
+                zoomDataTree, zoomLevel, selectionRegion, contained, blockLoader);
 
         return zoomIterator;
     }
@@ -0,0 +1,234 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.bbfile;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+import org.broad.igv.logging.*;
+import org.broad.igv.util.FileUtils;
+import org.broad.igv.util.stream.IGVMappedFileStream;
+import org.broad.igv.util.stream.IGVSeekableStreamFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Reads byte ranges of a BBFile.  Reads are independent of each other and may be made concurrently from any
+ * thread, so the position of a shared stream is never exposed to callers.
+ */
+abstract class BBRangeReader implements Closeable {
+
+    private static Logger log = LogManager.getLogger(BBRangeReader.class);
+
+    /**
+     * Maximum number of idle streams retained by a stream pool
+     */
+    static final int MAX_IDLE_STREAMS = 4;
+
+    /**
+     * Read size bytes starting at position.
+     *
+     * @throws EOFException if the range extends past the end of file
+     */
+    abstract byte[] read(long position, int size) throws IOException;
+
+    /**
+     * Return a buffer over size bytes starting at position, in big-endian order.  The buffer may be a view of a
+     * memory-mapped file, and must not be modified.
+     *
+     * @throws EOFException if the range extends past the end of file
+     */
+    ByteBuffer readBuffer(long position, int size) throws IOException {
+        return ByteBuffer.wrap(read(position, size));
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    /**
+     * Return a reader over a single stream.  Reads are serialized by synchronizing on the stream, so the stream
+     * can safely be shared with other code that does the same.
+     */
+    static BBRangeReader forStream(SeekableStream stream) {
+        return new SharedStreamReader(stream);
+    }
+
+    /**
+     * Return a reader that supports concurrent reads of the path: views of a memory-mapped file or positional
+     * reads on a file channel for local files, or a pool of stream handles otherwise.
+     */
+    static BBRangeReader open(String path) throws IOException {
+        if (IGVSeekableStreamFactory.isMappable(path)) {
+            return new MappedFileReader(new IGVMappedFileStream(new File(path)));
+        } else if (!FileUtils.isRemote(path) && !path.endsWith(".list") && new File(path).isFile()) {
+            return new FileChannelReader(FileChannel.open(new File(path).toPath(), StandardOpenOption.READ));
+        } else {
+            return new StreamPoolReader(path);
+        }
+    }
+
+
+    private static class SharedStreamReader extends BBRangeReader {
+
+        private final SeekableStream stream;
+
+        SharedStreamReader(SeekableStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        byte[] read(long position, int size) throws IOException {
+            byte[] buffer = new byte[size];
+            synchronized (stream) {
+                stream.seek(position);
+                stream.readFully(buffer);
+            }
+            return buffer;
+        }
+    }
+
+    private static class MappedFileReader extends BBRangeReader {
+
+        private final IGVMappedFileStream stream;
+
+        MappedFileReader(IGVMappedFileStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        byte[] read(long position, int size) throws IOException {
+            byte[] buffer = new byte[size];
+            if (stream.read(position, buffer, 0, size) < size) {
+                throw new EOFException("Unexpected end of file at position " + position);
+            }
+            return buffer;
+        }
+
+        @Override
+        ByteBuffer readBuffer(long position, int size) throws IOException {
+            ByteBuffer buffer = stream.getBuffer(position, size);
+            if (buffer.remaining() < size) {
+                throw new EOFException("Unexpected end of file at position " + position);
+            }
+            return buffer;
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
+    private static class FileChannelReader extends BBRangeReader {
+
+        private final FileChannel channel;
+
+        FileChannelReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        byte[] read(long position, int size) throws IOException {
+            byte[] buffer = new byte[size];
+            ByteBuffer bb = ByteBuffer.wrap(buffer);
+            while (bb.hasRemaining()) {
+                int n = channel.read(bb, position + bb.position());
+                if (n < 0) {
+                    throw new EOFException("Unexpected end of file at position " + (position + bb.position()));
+                }
+            }
+            return buffer;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Borrows a stream for each read, opening a new one if none is idle.  Remote streams share the remote block
+     * cache, so opening an additional handle is cheap.
+     */
+    private static class StreamPoolReader extends BBRangeReader {
+
+        private final String path;
+        private final ConcurrentLinkedDeque<SeekableStream> idleStreams = new ConcurrentLinkedDeque<>();
+        private volatile boolean closed;
+
+        StreamPoolReader(String path) {
+            this.path = path;
+        }
+
+        @Override
+        byte[] read(long position, int size) throws IOException {
+
+            SeekableStream stream = idleStreams.pollFirst();
+            if (stream == null) {
+                stream = IGVSeekableStreamFactory.getInstance().getStreamFor(path);
+            }
+
+            byte[] buffer = new byte[size];
+            try {
+                stream.seek(position);
+                stream.readFully(buffer);
+            } catch (IOException e) {
+                closeQuietly(stream);
+                throw e;
+            }
+
+            if (closed || idleStreams.size() >= MAX_IDLE_STREAMS) {
+                closeQuietly(stream);
+            } else {
+                idleStreams.addFirst(stream);
+            }
+            return buffer;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            SeekableStream stream;
+            while ((stream = idleStreams.pollFirst()) != null) {
+                closeQuietly(stream);
+            }
+        }
+
+        private static void closeQuietly(SeekableStream stream) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                log.error("Error closing stream", e);
+            }
+        }
+    }
+}
@@ -85,6 +85,17 @@ public class BBZoomLevels {
 
     public BBZoomLevels(SeekableStream is, long fileOffset, int zoomLevels,
                         boolean isLowToHigh, int uncompressBufSize){
+        this(is, fileOffset, zoomLevels, isLowToHigh, uncompressBufSize, BBRangeReader.forStream(is));
+    }
+
+    /*
+    *  constructor with a separate reader for zoom level R+ tree nodes loaded on demand.
+    *
+    *  Parameters:
+    *      nodeReader - reader for R+ tree nodes loaded after construction
+    * */
+    BBZoomLevels(SeekableStream is, long fileOffset, int zoomLevels,
+                 boolean isLowToHigh, int uncompressBufSize, BBRangeReader nodeReader){
         int zoomLevel;
         int zoomHeadersRead;
         long zoomDataOffset;
@@ -139,7 +150,7 @@ public class BBZoomLevels {
                 zoomIndexOffset = zoomLevelHeaders.get(index).getIndexOffset();
 
                 // get Zoom Data R+ Tree (Tables K, L, M, N): exists for zoom levels
-                RPTree zoomRPTree = new RPTree(fis, zoomIndexOffset, isLowToHigh, uncompressBufSize);
+                RPTree zoomRPTree = new RPTree(fis, zoomIndexOffset, isLowToHigh, uncompressBufSize, nodeReader);
 
                 //if(zoomRPTree.getNodeCount() > 0)
                     zoomLevelRPTree.add(zoomRPTree);
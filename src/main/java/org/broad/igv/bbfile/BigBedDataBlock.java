@@ -27,7 +27,6 @@ package org.broad.igv.bbfile;
 
 import htsjdk.samtools.seekablestream.SeekableStream;
 import org.broad.igv.logging.*;
-import org.broad.igv.util.CompressionUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
@@ -81,33 +80,24 @@ public class BigBedDataBlock {
      * */
     public BigBedDataBlock(SeekableStream fis, BBFileHeader header, RPTreeLeafNodeItem leafHitItem,
                            Map<Integer, String> chromosomeMap, boolean isLowToHigh, int uncompressBufSize) {
+        this(BBBlockLoader.readBlock(fis, leafHitItem, uncompressBufSize), leafHitItem, chromosomeMap, isLowToHigh);
+    }
 
+    /*
+    *   Constructor for a data block that has already been read and decompressed.
+    *
+    *   Parameters:
+    *       bedBuffer - decompressed block data.  The buffer is not modified.
+    * */
+    BigBedDataBlock(byte[] bedBuffer, RPTreeLeafNodeItem leafHitItem,
+                    Map<Integer, String> chromosomeMap, boolean isLowToHigh) {
         this.leafHitItem = leafHitItem;
         this.chromosomeMap = chromosomeMap;
         this.isLowToHigh = isLowToHigh;
 
-        dataBlockSize = this.leafHitItem.geDataSize();
-        byte[] buffer = new byte[(int) dataBlockSize];
-
         fileOffset = this.leafHitItem.getDataOffset();
-
-        // read Bed data block into a buffer
-        try {
-            fis.seek(fileOffset);
-            fis.readFully(buffer);
-
-            // decompress if necessary - the buffer size is 0 for uncompressed data
-            // Note:  BBFile Table C specifies a decompression buffer size
-            if (uncompressBufSize > 0)
-                bedBuffer = (new CompressionUtils()).decompress(buffer, uncompressBufSize);
-            else
-                bedBuffer = buffer;    // use uncompressed read buffer directly
-
-        } catch (IOException ex) {
-            String error = String.format("Error reading Bed data for leaf item %d \n");
-            log.error(error, ex);
-            throw new RuntimeException(error, ex);
-        }
+        dataBlockSize = this.leafHitItem.geDataSize();
+        this.bedBuffer = bedBuffer;
 
         // wrap the bed buffer as an input stream
         ByteOrder bo = this.isLowToHigh ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
@@ -74,6 +74,16 @@ public class BigBedIterator implements Iterator<BedData> {
      */
     public BigBedIterator(SeekableStream fis, BBFileHeader header, BPTree chromIDTree, RPTree chromDataTree,
                           RPChromosomeRegion selectionRegion, boolean contained) {
+        this(fis, header, chromIDTree, chromDataTree, selectionRegion, contained,
+                new BBBlockLoader(fis, chromDataTree.getUncompressBuffSize(), 0));
+    }
+
+    /**
+     * Constructor for a BigBed iterator which reads data blocks through the block loader.  All leaf hits are
+     * collected up front, so neighboring blocks are read together.
+     */
+    BigBedIterator(SeekableStream fis, BBFileHeader header, BPTree chromIDTree, RPTree chromDataTree,
+                   RPChromosomeRegion selectionRegion, boolean contained, BBBlockLoader blockLoader) {
 
         // check for valid selection region
         if (selectionRegion == null)
@@ -88,8 +98,9 @@ public class BigBedIterator implements Iterator<BedData> {
 
         List<RPTreeLeafNodeItem> leafNodeItems = chromDataTree.getChromosomeDataHits(selectionRegion, contained);
         features = new ArrayList<BedData>(512 * leafNodeItems.size());
-        for (RPTreeLeafNodeItem item : leafNodeItems) {
-            features.addAll(readBedDataBlock(item));
+        BBBlockLoader.Prefetcher prefetcher = blockLoader.prefetcher(leafNodeItems);
+        for (int i = 0; i < leafNodeItems.size(); i++) {
+            features.addAll(readBedDataBlock(leafNodeItems.get(i), prefetcher.getBlock(i)));
         }
     }
 
@@ -137,7 +148,7 @@ public class BigBedIterator implements Iterator<BedData> {
    *   Returns:
    *       Successful Bed feature data block set up: true or false.
    * */
-    private List<BedData> readBedDataBlock(RPTreeLeafNodeItem leafHitItem) {
+    private List<BedData> readBedDataBlock(RPTreeLeafNodeItem leafHitItem, byte[] bedBuffer) {
 
         // get the chromosome names associated with the hit region ID's
         int startChromID = leafHitItem.getChromosomeBounds().getStartChromID();
@@ -145,10 +156,9 @@ public class BigBedIterator implements Iterator<BedData> {
         chromosomeMap = chromIDTree.getChromosomeIDMap(startChromID, endChromID);
 
         boolean isLowToHigh = chromDataTree.isIsLowToHigh();
-        int uncompressBufSize = chromDataTree.getUncompressBuffSize();
 
-        // decompress leaf item data block for feature extraction
-        BigBedDataBlock bedDataBlock = new BigBedDataBlock(fis, header, leafHitItem, chromosomeMap, isLowToHigh, uncompressBufSize);
+        // decompressed leaf item data block for feature extraction
+        BigBedDataBlock bedDataBlock = new BigBedDataBlock(bedBuffer, leafHitItem, chromosomeMap, isLowToHigh);
 
         // get data block Bed feature list and set next index to first item
         return bedDataBlock.getBedData(selectionRegion, contained);
@@ -27,10 +27,8 @@ package org.broad.igv.bbfile;
 
 import htsjdk.samtools.seekablestream.SeekableStream;
 import org.broad.igv.logging.*;
-import org.broad.igv.util.CompressionUtils;
 
 import java.util.ArrayList;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -79,30 +77,24 @@ public class BigWigDataBlock {
     * */
     public BigWigDataBlock(SeekableStream fis, RPTreeLeafNodeItem leafHitItem,
                            Map<Integer, String> chromosomeMap, boolean isLowToHigh, int uncompressBufSize){
+        this(BBBlockLoader.readBlock(fis, leafHitItem, uncompressBufSize), leafHitItem, chromosomeMap, isLowToHigh);
+    }
+
+    /*
+    *   Constructor for a data block that has already been read and decompressed.
+    *
+    *   Parameters:
+    *       wigBuffer - decompressed block data.  The buffer is not modified.
+    * */
+    BigWigDataBlock(byte[] wigBuffer, RPTreeLeafNodeItem leafHitItem,
+                    Map<Integer, String> chromosomeMap, boolean isLowToHigh) {
         this.leafHitItem = leafHitItem;
         this.chromosomeMap = chromosomeMap;
         this.isLowToHigh = isLowToHigh;
 
         fileOffset = this.leafHitItem.getDataOffset();
         leafDataSize = this.leafHitItem.geDataSize();
-        byte[] buffer = new byte[(int) leafDataSize];
-
-        // read Wig data block into a buffer
-        try {
-            fis.seek(fileOffset);
-            fis.readFully(buffer);
-
-            // decompress if necessary - the buffer size is 0 for uncompressed data
-            // Note:  BBFile Table C specifies a decompression buffer size
-            if(uncompressBufSize > 0)
-                wigBuffer = (new CompressionUtils()).decompress(buffer, uncompressBufSize);
-            else
-                wigBuffer = buffer;    // use uncompressed read buffer directly
-        }catch(IOException ex) {
-            log.error("Error reading Wig section for leaf item ", ex);
-            String error = String.format("Error reading Wig section for leaf item %d\n");
-            throw new RuntimeException(error, ex);
-        }
+        this.wigBuffer = wigBuffer;
 
         // initialize unread data size
         remDataSize = wigBuffer.length;
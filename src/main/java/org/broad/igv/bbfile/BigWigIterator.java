@@ -27,7 +27,6 @@ package org.broad.igv.bbfile;
 
 import htsjdk.samtools.seekablestream.SeekableStream;
 import org.broad.igv.logging.*;
-import org.broad.igv.util.CompressionUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -69,7 +68,9 @@ public class BigWigIterator implements Iterator<WigItem> {
     private ArrayList<WigItem> wigItemList; // array of selected Wig values
     private int wigItemIndex;      // index of next Wig data item from the list
 
-    CompressionUtils compressionUtils;
+    // reads and decompresses data blocks for the hit list
+    private BBBlockLoader blockLoader;
+    private BBBlockLoader.Prefetcher prefetcher;
 
     /**
      * Constructor for a BigWig iterator over the specified chromosome region
@@ -90,6 +91,15 @@ public class BigWigIterator implements Iterator<WigItem> {
 
     public BigWigIterator(SeekableStream fis, BPTree chromIDTree, RPTree chromDataTree,
                           RPChromosomeRegion selectionRegion, boolean contained) {
+        this(fis, chromIDTree, chromDataTree, selectionRegion, contained,
+                new BBBlockLoader(fis, chromDataTree.getUncompressBuffSize(), 0));
+    }
+
+    /**
+     * Constructor for a BigWig iterator which reads data blocks through the block loader
+     */
+    BigWigIterator(SeekableStream fis, BPTree chromIDTree, RPTree chromDataTree,
+                   RPChromosomeRegion selectionRegion, boolean contained, BBBlockLoader blockLoader) {
 
         // check for valid selection region
         if (selectionRegion == null)
@@ -99,6 +109,7 @@ public class BigWigIterator implements Iterator<WigItem> {
         this.fis = fis;
         this.chromIDTree = chromIDTree;
         this.chromDataTree = chromDataTree;
+        this.blockLoader = blockLoader;
         this.selectionRegion = new RPChromosomeRegion(selectionRegion);
         isContained = contained;
 
@@ -335,6 +346,7 @@ public class BigWigIterator implements Iterator<WigItem> {
 
         // hit list for hit region; subject to mMaxLeafHits limitation
         leafHitList = chromDataTree.getChromosomeDataHits(hitRegion, contained);
+        prefetcher = blockLoader.prefetcher(leafHitList);
 
         // check if any leaf items were selected
         int nHits = leafHitList.size();
@@ -380,11 +392,9 @@ public class BigWigIterator implements Iterator<WigItem> {
         chromosomeMap = chromIDTree.getChromosomeIDMap(startChromID, endChromID);
 
         boolean isLowToHigh = chromDataTree.isIsLowToHigh();
-        int uncompressBufSize = chromDataTree.getUncompressBuffSize();
-
-        // decompress leaf item data block for feature extraction
 
-        wigDataBlock = new BigWigDataBlock(fis, leafHitItem, chromosomeMap, isLowToHigh, uncompressBufSize);
+        // decompressed leaf item data block for feature extraction, read with its neighbors in the hit list
+        wigDataBlock = new BigWigDataBlock(prefetcher.getBlock(leafItemIndex), leafHitItem, chromosomeMap, isLowToHigh);
 
         // get section Wig item list and set next index to first item
         wigItemList = wigDataBlock.getWigData(selectionRegion, isContained);
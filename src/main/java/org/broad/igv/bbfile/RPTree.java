@@ -27,11 +27,10 @@ package org.broad.igv.bbfile;
 
 import htsjdk.samtools.seekablestream.SeekableStream;
 import org.broad.igv.logging.*;
-import org.broad.igv.util.LittleEndianInputStream;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 
 /**
@@ -105,6 +104,18 @@ public class RPTree {
     * */
 
     public RPTree(SeekableStream fis, long fileOffset, boolean isLowToHigh, int uncompressBuffSize) {
+        this(fis, fileOffset, isLowToHigh, uncompressBuffSize, BBRangeReader.forStream(fis));
+    }
+
+    /*
+    *   Constructor for R+ chromosome data locator tree, with a separate reader for nodes loaded on demand.
+    *   The tree can be shared by concurrent queries: on demand nodes are read through nodeReader, and are
+    *   not modified once published.
+    *
+    *   Parameters:
+    *       nodeReader - reader for per chromosome nodes loaded after construction
+    * */
+    RPTree(SeekableStream fis, long fileOffset, boolean isLowToHigh, int uncompressBuffSize, BBRangeReader nodeReader) {
 
         // save the seekable file handle  and B+ Tree file offset
         // Note: the offset is the file position just after the B+ Tree Header
@@ -134,7 +145,7 @@ public class RPTree {
 
         // start constructing the R+ tree - get the root node
         boolean forceDescend = false;
-        rootNode = readRPTreeNode(fis, nodeOffset, isLowToHigh, forceDescend);
+        rootNode = readRPTreeNode(BBRangeReader.forStream(fis), nodeReader, nodeOffset, isLowToHigh, forceDescend);
     }
 
     /*
@@ -537,7 +548,8 @@ public class RPTree {
     *       until the leaves are found.
     *
     *   Parameters:
-    *       fis - file input stream handle
+    *       reader - reader for this node and nodes read with it
+    *       proxyReader - reader for nodes loaded later on demand
     *       fileOffset - file location for node specification (Table L)
     *       parent - parent node of this node
     *       isLowToHigh - indicates formatted data is low to high byte order if true;
@@ -548,33 +560,19 @@ public class RPTree {
 
     * */
 
-    static RPTreeNode readRPTreeNode(SeekableStream fis, long fileOffset, boolean isLowToHigh, boolean forceDescend) {
-
-        LittleEndianInputStream lbdis = null; // low o high byte stream reader
-        DataInputStream bdis = null;    // high to low byte stream reader
+    static RPTreeNode readRPTreeNode(BBRangeReader reader, BBRangeReader proxyReader, long fileOffset,
+                                     boolean isLowToHigh, boolean forceDescend) {
 
-        byte[] buffer = new byte[RPTREE_NODE_FORMAT_SIZE];
+        ByteOrder byteOrder = isLowToHigh ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
         RPTreeNode thisNode = null;
 
         try {
 
             // Read node format into a buffer
-            fis.seek(fileOffset);
-            fis.readFully(buffer);
-
-            if (isLowToHigh) {
-                lbdis = new LittleEndianInputStream(new ByteArrayInputStream(buffer));
-            } else {
-                bdis = new DataInputStream(new ByteArrayInputStream(buffer));
-            }
+            ByteBuffer buffer = reader.readBuffer(fileOffset, RPTREE_NODE_FORMAT_SIZE).order(byteOrder);
 
             // find node type
-            byte type;
-            if (isLowToHigh) {
-                type = lbdis.readByte();
-            } else {
-                type = bdis.readByte();
-            }
+            byte type = buffer.get();
 
             boolean isLeaf;
             int itemSize;
@@ -589,22 +587,12 @@ public class RPTree {
             }
             //nodeCount++;
 
-            int itemCount;
-            if (isLowToHigh) {
-                lbdis.readByte();          // reserved - not currently used
-                itemCount = lbdis.readUShort();
-            } else {
-                bdis.readByte();          // reserved - not currently used
-                itemCount = bdis.readUnsignedShort();
-            }
+            buffer.get();          // reserved - not currently used
+            int itemCount = buffer.getShort() & 0xffff;
 
+            // Read the node items.  For memory-mapped files the buffer is a view of the file, not a copy
             int itemBlockSize = itemCount * itemSize;
-            buffer = new byte[itemBlockSize];            // allocate buffer for item sisze
-            fis.readFully(buffer);
-            if (isLowToHigh)
-                lbdis = new LittleEndianInputStream(new ByteArrayInputStream(buffer));
-            else
-                bdis = new DataInputStream(new ByteArrayInputStream(buffer));
+            buffer = reader.readBuffer(fileOffset + RPTREE_NODE_FORMAT_SIZE, itemBlockSize).order(byteOrder);
 
             // get the node items - leaves or child nodes
             int startChromID, endChromID;
@@ -612,39 +600,20 @@ public class RPTree {
             for (int item = 0; item < itemCount; ++item) {
 
                 // always extract the bounding rectangle
-                if (isLowToHigh) {
-                    startChromID = lbdis.readInt();
-                    startBase = lbdis.readInt();
-                    endChromID = lbdis.readInt();
-                    endBase = lbdis.readInt();
-                } else {
-                    startChromID = bdis.readInt();
-                    startBase = bdis.readInt();
-                    endChromID = bdis.readInt();
-                    endBase = bdis.readInt();
-                }
+                startChromID = buffer.getInt();
+                startBase = buffer.getInt();
+                endChromID = buffer.getInt();
+                endBase = buffer.getInt();
 
                 if (isLeaf) {
-                    long dataOffset;
-                    long dataSize;
-                    if (isLowToHigh) {
-                        dataOffset = lbdis.readLong();
-                        dataSize = lbdis.readLong();
-                    } else {
-                        dataOffset = bdis.readLong();
-                        dataSize = bdis.readLong();
-                    }
+                    long dataOffset = buffer.getLong();
+                    long dataSize = buffer.getLong();
 
                     thisNode.insertItem(new RPTreeLeafNodeItem(startChromID, startBase, endChromID, endBase,
                             dataOffset, dataSize));
                 } else {
                     // get the child node pointed to in the node item
-                    long nodeOffset;
-                    if (isLowToHigh) {
-                        nodeOffset = lbdis.readLong();
-                    } else {
-                        nodeOffset = bdis.readLong();
-                    }
+                    long nodeOffset = buffer.getLong();
 
                     // Recursive call to read next child node
                     // The test on chromIds is designed to stop the descent when the tree reaches the level of an
@@ -652,11 +621,11 @@ public class RPTree {
 
                     RPTreeChildNodeItem childNodeItem;
                     if (startChromID != endChromID || forceDescend) {
-                        RPTreeNode childNode = readRPTreeNode(fis, nodeOffset, isLowToHigh, forceDescend);
+                        RPTreeNode childNode = readRPTreeNode(reader, proxyReader, nodeOffset, isLowToHigh, forceDescend);
                         childNodeItem = new RPTreeChildNodeItem(startChromID, startBase, endChromID,
                                 endBase, childNode);
                     } else {
-                        RPTreeNodeProxy proxy = new RPTreeNodeProxy(fis, nodeOffset, isLowToHigh, startChromID);
+                        RPTreeNodeProxy proxy = new RPTreeNodeProxy(proxyReader, nodeOffset, isLowToHigh, startChromID);
                         childNodeItem = new RPTreeChildNodeItem(startChromID, startBase, endChromID,
                                 endBase, proxy);
                     }
@@ -42,7 +42,7 @@ public class RPTreeChildNodeItem extends RPTreeNodeItem {
 
     private static Logger log = LogManager.getLogger(RPTreeChildNodeItem.class);
 
-    private RPTreeNode childNode;  // child node assigned to node item
+    private volatile RPTreeNode childNode;  // child node assigned to node item, or loaded on demand from the proxy
     private RPTreeNodeProxy childNodeProxy;
 
     /*  Constructor for child node items.
@@ -73,12 +73,19 @@ public class RPTreeChildNodeItem extends RPTreeNodeItem {
 
     public RPTreeNode getChildNode() {
 
-        if (childNode == null) {
-            RPTreeNodeProxy proxy = childNodeProxy;
-            childNode = RPTree.readRPTreeNode(proxy.fis, proxy.fileOffset, proxy.isLowToHigh, true);
+        RPTreeNode node = childNode;
+        if (node == null) {
+            synchronized (this) {
+                node = childNode;
+                if (node == null) {
+                    RPTreeNodeProxy proxy = childNodeProxy;
+                    node = RPTree.readRPTreeNode(proxy.reader, proxy.reader, proxy.fileOffset, proxy.isLowToHigh, true);
+                    childNode = node;
+                }
+            }
         }
 
-        return childNode;
+        return node;
     }
 
     public void print() {
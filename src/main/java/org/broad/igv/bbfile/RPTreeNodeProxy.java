@@ -25,23 +25,21 @@
 
 package org.broad.igv.bbfile;
 
-import htsjdk.samtools.seekablestream.SeekableStream;
-
 /**
  * @author jrobinso
  * @date Jun 22, 2011
  */
 public class RPTreeNodeProxy  {
 
-    public SeekableStream fis;
+    final BBRangeReader reader;
     public long fileOffset;
     public boolean isLowToHigh;
 
     // For debugging
     int chromId;
 
-    public RPTreeNodeProxy(SeekableStream fis, long fileOffset, boolean lowToHigh, int chromId) {
-        this.fis = fis;
+    RPTreeNodeProxy(BBRangeReader reader, long fileOffset, boolean lowToHigh, int chromId) {
+        this.reader = reader;
         this.fileOffset = fileOffset;
         isLowToHigh = lowToHigh;
         this.chromId = chromId;
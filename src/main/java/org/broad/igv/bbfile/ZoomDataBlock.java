@@ -27,7 +27,6 @@ package org.broad.igv.bbfile;
 
 import htsjdk.samtools.seekablestream.SeekableStream;
 import org.broad.igv.logging.*;
-import org.broad.igv.util.CompressionUtils;
 import org.broad.igv.util.LittleEndianInputStream;
 
 import java.io.ByteArrayInputStream;
@@ -86,7 +85,17 @@ public class ZoomDataBlock {
 
     public ZoomDataBlock(int zoomLevel, SeekableStream fis, RPTreeLeafNodeItem leafHitItem,
                          Map<Integer, String> chromosomeMap, boolean isLowToHigh, int uncompressBufSize) {
+        this(zoomLevel, BBBlockLoader.readBlock(fis, leafHitItem, uncompressBufSize), leafHitItem, chromosomeMap, isLowToHigh);
+    }
 
+    /*
+    *   Constructor for a data block that has already been read and decompressed.
+    *
+    *   Parameters:
+    *       zoomBuffer - decompressed block data.  The buffer is not modified.
+    * */
+    ZoomDataBlock(int zoomLevel, byte[] zoomBuffer, RPTreeLeafNodeItem leafHitItem,
+                  Map<Integer, String> chromosomeMap, boolean isLowToHigh) {
         this.zoomLevel = zoomLevel;
         this.leafHitItem = leafHitItem;
         this.chromosomeMap = chromosomeMap;
@@ -94,25 +103,7 @@ public class ZoomDataBlock {
 
         fileOffset = this.leafHitItem.getDataOffset();
         dataBlockSize = this.leafHitItem.geDataSize();
-        byte[] buffer = new byte[(int) dataBlockSize];
-
-        // read Bed data block into a buffer
-        try {
-            fis.seek(fileOffset);
-            fis.readFully(buffer);
-
-            // decompress if necessary - the buffer size is 0 for uncomressed data
-            // Note:  BBFile Table C specifies a decompression buffer size
-            if (uncompressBufSize > 0)
-                zoomBuffer = (new CompressionUtils()).decompress(buffer, uncompressBufSize);
-            else
-                zoomBuffer = buffer;    // use uncompressed read buffer directly
-
-        } catch (IOException ex) {
-            log.error("Error reading Zoom level " + this.zoomLevel + " data for leaf item ",  ex);
-            String error = String.format("Error reading zoom level %d data for leaf item %d\n", this.zoomLevel);
-            throw new RuntimeException(error, ex);
-        }
+        this.zoomBuffer = zoomBuffer;
 
         // wrap the bed buffer as an input stream
         if (this.isLowToHigh)
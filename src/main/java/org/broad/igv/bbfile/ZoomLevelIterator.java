@@ -51,6 +51,8 @@ public class ZoomLevelIterator {
     private SeekableStream fis;  // file input stream handle
     private BPTree chromIDTree;    // B+ chromosome index tree
     private RPTree zoomDataTree;  // R+ zoom data locations tree
+    private BBBlockLoader blockLoader;  // reads and decompresses data blocks for the hit list
+    private BBBlockLoader.Prefetcher prefetcher;
 
     // chromosome region extraction items
     private ArrayList<RPTreeLeafNodeItem> leafHitList; // array of leaf hits for selection region items
@@ -90,6 +92,15 @@ public class ZoomLevelIterator {
      */
     public ZoomLevelIterator(SeekableStream fis, BPTree chromIDTree, RPTree zoomDataTree,
                              int zoomLevel, RPChromosomeRegion selectionRegion, boolean contained) {
+        this(fis, chromIDTree, zoomDataTree, zoomLevel, selectionRegion, contained,
+                new BBBlockLoader(fis, zoomDataTree.getUncompressBuffSize(), 0));
+    }
+
+    /**
+     * Constructs a zoom level iterator which reads data blocks through the block loader
+     */
+    ZoomLevelIterator(SeekableStream fis, BPTree chromIDTree, RPTree zoomDataTree, int zoomLevel,
+                      RPChromosomeRegion selectionRegion, boolean contained, BBBlockLoader blockLoader) {
 
         // check for valid selection region
         if (selectionRegion == null)
@@ -98,6 +109,7 @@ public class ZoomLevelIterator {
         this.fis = fis;
         this.chromIDTree = chromIDTree;
         this.zoomDataTree = zoomDataTree;
+        this.blockLoader = blockLoader;
         this.zoomLevel = zoomLevel;
         this.selectionRegion = selectionRegion;
         isContained = contained;
@@ -337,6 +349,7 @@ public class ZoomLevelIterator {
 
         // hit list for hit region; subject to mMaxLeafHits limitation
         leafHitList = zoomDataTree.getChromosomeDataHits(hitRegion, contained);
+        prefetcher = blockLoader.prefetcher(leafHitList);
 
         // check if any leaf items were selected
         int nHits = leafHitList.size();
@@ -382,11 +395,10 @@ public class ZoomLevelIterator {
         chromosomeMap = chromIDTree.getChromosomeIDMap(startChromID, endChromID);
 
         boolean isLowToHigh = zoomDataTree.isIsLowToHigh();
-        int uncompressBufSize = zoomDataTree.getUncompressBuffSize();
 
-        // decompress leaf item data block for feature extraction
-        zoomDataBlock = new ZoomDataBlock(zoomLevel, fis, leafHitItem, chromosomeMap,
-                isLowToHigh, uncompressBufSize);
+        // decompressed leaf item data block for feature extraction, read with its neighbors in the hit list
+        zoomDataBlock = new ZoomDataBlock(zoomLevel, prefetcher.getBlock(leafItemIndex), leafHitItem, chromosomeMap,
+                isLowToHigh);
 
         // get data block zoom data record list and set next index to first item
         zoomRecordList = zoomDataBlock.getZoomData(selectionRegion, isContained);
@@ -162,6 +162,15 @@ public class InteractionTrack extends AbstractTrack {
         }
     }
 
+    /**
+     * The proportional arc scale is drawn relative to the visible area and would move with cached pixels while
+     * panning.
+     */
+    @Override
+    public boolean isPanCacheable(ReferenceFrame frame) {
+        return graphType != GraphType.PROPORTIONAL_ARC && super.isPanCacheable(frame);
+    }
+
     @Override
     public void render(RenderContext context, Rectangle trackRectangle) {
 
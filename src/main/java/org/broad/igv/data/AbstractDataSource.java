@@ -35,7 +35,7 @@ import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.tdf.Accumulator;
 import org.broad.igv.track.WindowFunction;
 import org.broad.igv.ui.panel.FrameManager;
-import org.broad.igv.util.collections.LRUCache;
+import org.broad.igv.util.collections.WeightedLRUCache;
 
 import java.util.*;
 
@@ -58,10 +58,15 @@ public abstract class AbstractDataSource implements DataSource {
     });
     private static Logger log = LogManager.getLogger(AbstractDataSource.class);
 
+    /**
+     * Maximum estimated size of cached summary tiles, per data source
+     */
+    static final long MAX_SUMMARY_CACHE_BYTES = 10000000;
+
     // DataManager dataManager;
     boolean cacheSummaryTiles = true;
     protected WindowFunction windowFunction = WindowFunction.mean;
-    LRUCache<String, SummaryTile> summaryTileCache = new LRUCache(10);
+    WeightedLRUCache<String, SummaryTile> summaryTileCache = new WeightedLRUCache<>(MAX_SUMMARY_CACHE_BYTES, SummaryTile::estimateBytes);
     protected Genome genome;
 
     public AbstractDataSource(Genome genome) {
@@ -198,9 +203,7 @@ public abstract class AbstractDataSource implements DataSource {
                     summaryTile = computeSummaryTile(chr, tileStart, tileEnd, 700);
 
                     if (cacheSummaryTiles && !FrameManager.isGeneListMode()) {
-                        synchronized (summaryTileCache) {
-                            summaryTileCache.put(key, summaryTile);
-                        }
+                        summaryTileCache.put(key, summaryTile);
                     }
                 }
 
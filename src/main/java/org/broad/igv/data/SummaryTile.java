@@ -79,5 +79,12 @@ public class SummaryTile {
         return summaryScores.isEmpty();
     }
 
+    /**
+     * Rough estimate of the heap size of this tile, assuming ~48 bytes per score object and list slot.
+     */
+    public long estimateBytes() {
+        return 64L + 48L * summaryScores.size();
+    }
+
 
 }
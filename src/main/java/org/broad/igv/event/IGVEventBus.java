@@ -28,17 +28,44 @@ package org.broad.igv.event;
 
 
 import org.broad.igv.logging.*;
+import org.broad.igv.util.metrics.MetricsRegistry;
 
+import java.awt.EventQueue;
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * Ludicrously simple event bus -- its all we need.
+ * <p>
+ * Observers are held by weak references in copy-on-write arrays, one per event class.  Posting an event reads
+ * the current array without locking or copying; subscribe and unsubscribe replace the array.  Events are
+ * delivered to observers subscribed to the exact class of the event.
+ * <p>
+ * In addition to synchronous {@link #post(Object)}, events can be delivered later on the async executor (by
+ * default the Swing event thread) with {@link #postAsync(Object)}, or coalesced with
+ * {@link #postCoalesced(Object)} so that only the latest of a burst of events of the same class is delivered.
  */
 public class IGVEventBus {
 
     static final Logger log = LogManager.getLogger(IGVEventBus.class);
 
-    Map<Class, Set<IGVEventObserver>> observerMap;
+    private final ConcurrentMap<Class, ObserverList> observerMap;
+
+    // Latest undelivered event for each class posted with postCoalesced
+    private final ConcurrentMap<Class, Object> pendingEvents;
+
+    private final ConcurrentMap<Class, DispatchStats> stats;
+
+    private volatile Executor asyncExecutor;
+
+    // True for the default bus, whose dispatch statistics are published to the MetricsRegistry
+    private volatile boolean publishMetrics;
 
     private static IGVEventBus instance;
 
@@ -46,45 +73,253 @@ public class IGVEventBus {
     public static synchronized IGVEventBus getInstance() {
         if (instance == null) {
             instance = new IGVEventBus();
+            instance.publishMetrics = true;
         }
         return instance;
     }
 
     public IGVEventBus() {
-        this.observerMap = new HashMap<>();
+        this(EventQueue::invokeLater);
     }
 
-    public synchronized void subscribe(Class eventClass, IGVEventObserver observer) {
+    IGVEventBus(Executor asyncExecutor) {
+        this.observerMap = new ConcurrentHashMap<>();
+        this.pendingEvents = new ConcurrentHashMap<>();
+        this.stats = new ConcurrentHashMap<>();
+        this.asyncExecutor = asyncExecutor;
+    }
 
-        Set<IGVEventObserver> observerSet = observerMap.get(eventClass);
-        if (observerSet == null) {
-            observerSet = Collections.newSetFromMap(new WeakHashMap<IGVEventObserver, Boolean>());
-            observerMap.put(eventClass, observerSet);
-        }
-        observerSet.add(observer);
+    /**
+     * Set the executor used for asynchronous and coalesced delivery.
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public void subscribe(Class eventClass, IGVEventObserver observer) {
+        observerMap.computeIfAbsent(eventClass, k -> new ObserverList()).add(observer);
     }
 
     /**
      * Unsubscribe observer from all observer lists.  Not that if this method is not called the observer should
      * still be eligible for garbage collection, but its good practice to call this nonetheless.
      */
-    public synchronized void unsubscribe(IGVEventObserver observer) {
-        for (Set<IGVEventObserver> observerSet : observerMap.values()) {
-            observerSet.remove(observer);
+    public void unsubscribe(IGVEventObserver observer) {
+        for (ObserverList observers : observerMap.values()) {
+            observers.remove(observer);
         }
     }
 
+    /**
+     * Deliver the event to all observers on the calling thread.  Observers subscribed or unsubscribed during
+     * delivery do not affect this event.
+     */
     public void post(Object event) {
-        Set<IGVEventObserver> observerSet = observerMap.get(event.getClass());
-        if (observerSet != null) {
-            // Make a copy in case original is modified during loop
-            Collection<IGVEventObserver> observers = new ArrayList<>(observerSet);
-            for (IGVEventObserver observer : observers) {
-                observer.receiveEvent(event);
+
+        Class eventClass = event.getClass();
+        long t0 = System.nanoTime();
+        int count = 0;
+
+        ObserverList observers = observerMap.get(eventClass);
+        if (observers != null) {
+            boolean collected = false;
+            for (WeakReference<IGVEventObserver> ref : observers.array) {
+                IGVEventObserver observer = ref.get();
+                if (observer == null) {
+                    collected = true;
+                } else {
+                    observer.receiveEvent(event);
+                    count++;
+                }
+            }
+            if (collected) {
+                observers.purge();
             }
         }
+
+        getStats(eventClass).recordDispatch(System.nanoTime() - t0, count);
     }
 
-}
+    /**
+     * Deliver the event later, on the async executor.
+     */
+    public void postAsync(Object event) {
+        asyncExecutor.execute(() -> post(event));
+    }
+
+    /**
+     * Deliver the event later, on the async executor, unless it is superseded first.  If another event of the
+     * same class is posted with this method before delivery, only the latest is delivered.  Use this for
+     * notifications such as "the view changed" where intermediate states need not be observed.
+     */
+    public void postCoalesced(Object event) {
+        Class eventClass = event.getClass();
+        if (pendingEvents.put(eventClass, event) == null) {
+            asyncExecutor.execute(() -> {
+                Object latest = pendingEvents.remove(eventClass);
+                if (latest != null) {
+                    post(latest);
+                }
+            });
+        } else {
+            getStats(eventClass).coalesced.increment();
+        }
+    }
+
+    /**
+     * Return the number of live observers subscribed to the event class.
+     */
+    public int getObserverCount(Class eventClass) {
+        ObserverList observers = observerMap.get(eventClass);
+        if (observers == null) return 0;
+        int count = 0;
+        for (WeakReference<IGVEventObserver> ref : observers.array) {
+            if (ref.get() != null) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Return dispatch statistics by event class, for classes that have been posted.
+     */
+    public Map<Class, DispatchStats> getDispatchStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    public void resetDispatchStats() {
+        stats.clear();
+    }
+
+    private DispatchStats getStats(Class eventClass) {
+        DispatchStats s = stats.get(eventClass);
+        if (s == null) {
+            s = stats.computeIfAbsent(eventClass, k -> new DispatchStats());
+            if (publishMetrics) {
+                registerMetrics(eventClass);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Publish the statistics for the event class as gauges, listed in the diagnostics dialog and the "metrics"
+     * batch command.  The gauges read the current statistics, so they survive {@link #resetDispatchStats()}.
+     */
+    private void registerMetrics(Class eventClass) {
+        String tag = eventClass.getSimpleName().isEmpty() ? eventClass.getName() : eventClass.getSimpleName();
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("event.posts", tag, () -> getStat(eventClass, DispatchStats::getPostCount));
+        metrics.gauge("event.deliveries", tag, () -> getStat(eventClass, DispatchStats::getDeliveryCount));
+        metrics.gauge("event.coalesced", tag, () -> getStat(eventClass, DispatchStats::getCoalescedCount));
+        metrics.gauge("event.dispatch.meanMs", tag, () -> getStat(eventClass, st -> st.getMeanNanos() / 1.0e6));
+        metrics.gauge("event.dispatch.maxMs", tag, () -> getStat(eventClass, st -> st.getMaxNanos() / 1.0e6));
+    }
+
+    private Number getStat(Class eventClass, Function<DispatchStats, Number> stat) {
+        DispatchStats s = stats.get(eventClass);
+        return s == null ? 0 : stat.apply(s);
+    }
+
+
+    /**
+     * Copy-on-write list of weakly referenced observers.  Writers synchronize on the list and replace the array;
+     * readers use the array as found.
+     */
+    private static class ObserverList {
+
+        @SuppressWarnings("unchecked")
+        volatile WeakReference<IGVEventObserver>[] array = new WeakReference[0];
+
+        synchronized void add(IGVEventObserver observer) {
+            for (WeakReference<IGVEventObserver> ref : array) {
+                if (ref.get() == observer) return;
+            }
+            List<WeakReference<IGVEventObserver>> list = live(null);
+            list.add(new WeakReference<>(observer));
+            array = toArray(list);
+        }
 
+        synchronized void remove(IGVEventObserver observer) {
+            array = toArray(live(observer));
+        }
+
+        synchronized void purge() {
+            array = toArray(live(null));
+        }
+
+        // References that have not been collected, excluding the given observer
+        private List<WeakReference<IGVEventObserver>> live(IGVEventObserver exclude) {
+            List<WeakReference<IGVEventObserver>> list = new ArrayList<>(array.length + 1);
+            for (WeakReference<IGVEventObserver> ref : array) {
+                IGVEventObserver o = ref.get();
+                if (o != null && o != exclude) {
+                    list.add(ref);
+                }
+            }
+            return list;
+        }
 
+        @SuppressWarnings("unchecked")
+        private static WeakReference<IGVEventObserver>[] toArray(List<WeakReference<IGVEventObserver>> list) {
+            return list.toArray(new WeakReference[0]);
+        }
+    }
+
+
+    /**
+     * Counts and timings of events of one class.  Dispatch time is the time spent delivering an event to all
+     * observers; coalesced events are those superseded before delivery.
+     */
+    public static class DispatchStats {
+
+        private final LongAdder posts = new LongAdder();
+        private final LongAdder deliveries = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder coalesced = new LongAdder();
+
+        void recordDispatch(long nanos, int observerCount) {
+            posts.increment();
+            deliveries.add(observerCount);
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        public long getPostCount() {
+            return posts.sum();
+        }
+
+        public long getDeliveryCount() {
+            return deliveries.sum();
+        }
+
+        public long getCoalescedCount() {
+            return coalesced.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getMeanNanos() {
+            long n = posts.sum();
+            return n == 0 ? 0 : ((double) totalNanos.sum()) / n;
+        }
+
+        @Override
+        public String toString() {
+            return "DispatchStats{posts=" + getPostCount() +
+                    ", deliveries=" + getDeliveryCount() +
+                    ", coalesced=" + getCoalescedCount() +
+                    ", meanNanos=" + (long) getMeanNanos() +
+                    ", maxNanos=" + getMaxNanos() + "}";
+        }
+    }
+}
@@ -40,6 +40,8 @@ import org.broad.igv.track.SequenceTrack;
 import htsjdk.tribble.Feature;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 /**
  * This is a placeholder class for a true "feature database" wrapper.  Its purpose
@@ -57,25 +59,38 @@ public class FeatureDB {
     private static Map<String, List<NamedFeature>> featureMap = Collections.synchronizedSortedMap(new TreeMap<String, List<NamedFeature>>());
     private static final int MAX_DUPLICATE_COUNT = 20;
 
+    /**
+     * Disk-backed name indexes, searched after the in-memory map.
+     */
+    private static final List<FeatureNameIndex> nameIndexes = new CopyOnWriteArrayList<>();
+
     public static void addFeature(NamedFeature feature, Genome genome) {
+        forEachName(feature, (name, f) -> put(name, f, genome));
+    }
+
+    /**
+     * Call the consumer with each searchable name of the feature:  its name, identifier, and short attribute values
+     * of the feature and its exons.  Attribute names are paired with the feature (or exon) that carries them.
+     */
+    static void forEachName(NamedFeature feature, BiConsumer<String, NamedFeature> consumer) {
 
         final String name = feature.getName();
         if (name != null && name.length() > 0 && !name.equals(".")) {
-            put(name, feature, genome);
+            consumer.accept(name, feature);
         }
         if (feature instanceof BasicFeature) {
             final BasicFeature igvFeature = (BasicFeature) feature;
             final String id = igvFeature.getIdentifier();
             if (id != null && id.length() > 0) {
-                put(id, feature, genome);
+                consumer.accept(id, feature);
             }
 
-            addByAttributes(igvFeature, genome);
+            addByAttributes(igvFeature, consumer);
 
             List<Exon> exons = igvFeature.getExons();
             if (exons != null) {
                 for (Exon exon : exons) {
-                    addByAttributes(exon, genome);
+                    addByAttributes(exon, consumer);
                 }
             }
         }
@@ -105,12 +120,12 @@ public class FeatureDB {
         }
     }
 
-    private static void addByAttributes(IGVFeature igvFeature, Genome genome) {
+    private static void addByAttributes(IGVFeature igvFeature, BiConsumer<String, NamedFeature> consumer) {
         List<String> attributeKeys = igvFeature.getAttributeKeys();
         for (String key : attributeKeys) {
             String value = igvFeature.getAttribute(key);
             if (value.length() < 20) {
-                put(value, igvFeature, genome);
+                consumer.accept(value, igvFeature);
             }
         }
     }
@@ -217,8 +232,20 @@ public class FeatureDB {
     }
 
 
+    /**
+     * Add a disk-backed name index.  Its features are found by name and prefix search like those added to the
+     * in-memory map, but are not considered by the mutation searches, which require full feature models.
+     */
+    public static void addNameIndex(FeatureNameIndex index) {
+        nameIndexes.add(index);
+    }
+
     public static void clearFeatures() {
         featureMap.clear();
+        for (FeatureNameIndex index : nameIndexes) {
+            index.close();
+        }
+        nameIndexes.clear();
     }
 
     static int size() {
@@ -234,9 +261,15 @@ public class FeatureDB {
 
         if (features != null) {
             return features.get(0);
-        } else {
-            return null;
         }
+
+        for (FeatureNameIndex index : nameIndexes) {
+            features = index.getFeatures(nm);
+            if (!features.isEmpty()) {
+                return features.get(0);
+            }
+        }
+        return null;
     }
 
     /**
@@ -285,25 +318,49 @@ public class FeatureDB {
      */
     public static List<NamedFeature> getFeaturesList(String name, int limit, boolean longestOnly) {
 
+        Map<String, List<NamedFeature>> resultMap;
+
         //Note: We are iterating over submap, this needs
         //to be synchronized over the main map.
         synchronized (featureMap) {
-            Map<String, List<NamedFeature>> resultMap = getFeaturesMap(name);
-            Set<String> names = resultMap.keySet();
-            Iterator<String> nameIter = names.iterator();
-            ArrayList<NamedFeature> features = new ArrayList<NamedFeature>((Math.min(limit, names.size())));
-            int ii = 0;
-            while (nameIter.hasNext() && ii < limit) {
-                List<NamedFeature> subFeats = resultMap.get(nameIter.next());
-                if (longestOnly) {
-                    features.add(subFeats.get(0));
-                } else {
-                    features.addAll(subFeats);
+            resultMap = getFeaturesMap(name);
+            if (!nameIndexes.isEmpty()) {
+                // Copy the first "limit" matches, to be merged with index matches below
+                SortedMap<String, List<NamedFeature>> merged = new TreeMap<>();
+                for (Map.Entry<String, List<NamedFeature>> entry : resultMap.entrySet()) {
+                    if (merged.size() >= limit) break;
+                    merged.put(entry.getKey(), entry.getValue());
                 }
-                ii++;
+                resultMap = merged;
+            } else {
+                return collectFeatures(resultMap, limit, longestOnly);
+            }
+        }
+
+        String nm = name.trim().toUpperCase();
+        for (FeatureNameIndex index : nameIndexes) {
+            for (Map.Entry<String, List<NamedFeature>> entry : index.search(nm, limit).entrySet()) {
+                resultMap.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return collectFeatures(resultMap, limit, longestOnly);
+    }
+
+    private static List<NamedFeature> collectFeatures(Map<String, List<NamedFeature>> resultMap, int limit, boolean longestOnly) {
+        Set<String> names = resultMap.keySet();
+        Iterator<String> nameIter = names.iterator();
+        ArrayList<NamedFeature> features = new ArrayList<NamedFeature>((Math.min(limit, names.size())));
+        int ii = 0;
+        while (nameIter.hasNext() && ii < limit) {
+            List<NamedFeature> subFeats = resultMap.get(nameIter.next());
+            if (longestOnly) {
+                features.add(subFeats.get(0));
+            } else {
+                features.addAll(subFeats);
             }
-            return features;
+            ii++;
         }
+        return features;
     }
 
 
@@ -0,0 +1,448 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.feature;
+
+import htsjdk.tribble.CloseableTribbleIterator;
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.FeatureReader;
+import org.broad.igv.DirectoryManager;
+import org.broad.igv.Globals;
+import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.logging.*;
+import org.broad.igv.track.TribbleFeatureSource;
+import org.broad.igv.util.FileUtils;
+import org.broad.igv.util.HttpUtils;
+import org.broad.igv.util.ResourceLocator;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * A disk-backed index from feature names to feature locations, used to search annotation files that are loaded
+ * only for their names (e.g. "searchable" genome annotations).  The index is built once per annotation file and
+ * genome, stored in the IGV index directory, and memory-mapped on later sessions.  Only name keys and locations
+ * are stored, features returned by lookups are minimal BasicFeatures without exons or attributes.
+ * <p>
+ * Keys are upper case, as in FeatureDB, so lookups are case insensitive.  Entries are sorted by key, then by
+ * preference (shortest chromosome name, then longest feature), so exact and prefix searches are binary searches
+ * followed by a scan.
+ * <p>
+ * File layout, big-endian:
+ * <pre>
+ *   int    MAGIC, int VERSION
+ *   int    chromosome count, per chromosome: short length, UTF-8 name
+ *   int    entry count, int per entry: offset of the entry from the start of the entries
+ *   entries: short key length, UTF-8 key, short name length, UTF-8 name, short chromosome index,
+ *            int start, int end, byte strand
+ * </pre>
+ */
+public class FeatureNameIndex {
+
+    private static Logger log = LogManager.getLogger(FeatureNameIndex.class);
+
+    static final int MAGIC = 0x49474e58;
+    static final int VERSION = 1;
+    static final String EXTENSION = ".nidx";
+
+    private static final int MAX_DUPLICATE_COUNT = 20;
+    private static final Strand[] STRANDS = Strand.values();
+
+    private final File file;
+    private volatile ByteBuffer buffer;
+    private final String[] chrNames;
+    private final int entryCount;
+    private final int offsetsStart;
+    private final int entriesStart;
+
+    FeatureNameIndex(File file) throws IOException {
+
+        this.file = file;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Feature name index too large: " + file.getAbsolutePath());
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.buffer = mapped;
+        }
+
+        ByteBuffer bb = buffer.duplicate();
+        if (bb.remaining() < 12 || bb.getInt() != MAGIC || bb.getInt() != VERSION) {
+            throw new IOException("Unrecognized feature name index: " + file.getAbsolutePath());
+        }
+
+        chrNames = new String[bb.getInt()];
+        for (int i = 0; i < chrNames.length; i++) {
+            chrNames[i] = readString(bb, bb.position());
+            bb.position(bb.position() + 2 + (bb.getShort(bb.position()) & 0xffff));
+        }
+
+        entryCount = bb.getInt();
+        offsetsStart = bb.position();
+        entriesStart = offsetsStart + 4 * entryCount;
+    }
+
+    /**
+     * Return the name index for an annotation file, building it if a current index does not exist.  Remote files
+     * that report neither an ETag nor a last-modified date are indexed to a temporary file for this session only.
+     */
+    public static FeatureNameIndex getIndex(ResourceLocator locator, Genome genome) throws IOException {
+
+        String path = locator.getPath();
+        String fingerprint = getFingerprint(path);
+
+        File indexFile;
+        if (fingerprint == null) {
+            indexFile = File.createTempFile("features", EXTENSION);
+            indexFile.deleteOnExit();
+        } else {
+            String genomeId = genome == null ? "" : genome.getId();
+            indexFile = new File(DirectoryManager.getFeatureIndexDirectory(), digest(VERSION + "|" + genomeId + "|" + fingerprint) + EXTENSION);
+            if (indexFile.exists()) {
+                try {
+                    return new FeatureNameIndex(indexFile);
+                } catch (IOException e) {
+                    log.info("Rebuilding feature name index for " + path + ": " + e.getMessage());
+                }
+            }
+        }
+
+        log.info("Building feature name index for " + path);
+        CloseableTribbleIterator<Feature> iter = null;
+        try (FeatureReader<Feature> reader = TribbleFeatureSource.getBasicReader(locator, genome)) {
+            iter = reader.iterator();
+            write(indexFile, iter, genome);
+        } finally {
+            if (iter != null) iter.close();
+        }
+        return new FeatureNameIndex(indexFile);
+    }
+
+    /**
+     * Return the features whose name is {@code key}, in order of preference.  The key must be upper case.
+     */
+    public List<NamedFeature> getFeatures(String key) {
+
+        ByteBuffer bb = buffer;
+        if (bb == null) return Collections.emptyList();
+
+        byte[] probe = key.getBytes(StandardCharsets.UTF_8);
+        List<NamedFeature> features = new ArrayList<>(1);
+        for (int i = lowerBound(bb, probe); i < entryCount; i++) {
+            int entry = entryPosition(bb, i);
+            if (compareKey(bb, entry, probe, false) != 0) break;
+            features.add(readFeature(bb, entry));
+        }
+        return features;
+    }
+
+    /**
+     * Return up to {@code limit} names starting with {@code prefix}, in key order, mapped to their features in order
+     * of preference.  The prefix must be upper case.
+     */
+    public Map<String, List<NamedFeature>> search(String prefix, int limit) {
+
+        ByteBuffer bb = buffer;
+        if (bb == null) return Collections.emptyMap();
+
+        byte[] probe = prefix.getBytes(StandardCharsets.UTF_8);
+        Map<String, List<NamedFeature>> results = new LinkedHashMap<>();
+        for (int i = lowerBound(bb, probe); i < entryCount; i++) {
+            int entry = entryPosition(bb, i);
+            if (compareKey(bb, entry, probe, true) != 0) break;
+            String key = readString(bb, entry);
+            List<NamedFeature> features = results.get(key);
+            if (features == null) {
+                if (results.size() >= limit) break;
+                features = new ArrayList<>(1);
+                results.put(key, features);
+            }
+            features.add(readFeature(bb, entry));
+        }
+        return results;
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Release the mapped file.  The mapping itself is released when the buffer is garbage collected.
+     */
+    public void close() {
+        buffer = null;
+    }
+
+    /**
+     * Return the index of the first entry with key >= probe.
+     */
+    private int lowerBound(ByteBuffer bb, byte[] probe) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(bb, entryPosition(bb, mid), probe, false) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int entryPosition(ByteBuffer bb, int i) {
+        return entriesStart + bb.getInt(offsetsStart + 4 * i);
+    }
+
+    /**
+     * Compare the key of the entry at {@code position} to the probe, as unsigned bytes.  If {@code prefix} is
+     * true, a key that starts with the probe compares equal.
+     */
+    private static int compareKey(ByteBuffer bb, int position, byte[] probe, boolean prefix) {
+        int keyLength = bb.getShort(position) & 0xffff;
+        int n = Math.min(keyLength, probe.length);
+        for (int i = 0; i < n; i++) {
+            int c = (bb.get(position + 2 + i) & 0xff) - (probe[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return prefix && keyLength >= probe.length ? 0 : keyLength - probe.length;
+    }
+
+    private NamedFeature readFeature(ByteBuffer bb, int entry) {
+        int position = entry + 2 + (bb.getShort(entry) & 0xffff);
+        String name = readString(bb, position);
+        position += 2 + (bb.getShort(position) & 0xffff);
+        String chr = chrNames[bb.getShort(position) & 0xffff];
+        int start = bb.getInt(position + 2);
+        int end = bb.getInt(position + 6);
+        Strand strand = STRANDS[bb.get(position + 10)];
+
+        BasicFeature feature = new BasicFeature(chr, start, end, strand);
+        if (name.length() > 0) {
+            feature.setName(name);
+        }
+        return feature;
+    }
+
+    private static String readString(ByteBuffer bb, int position) {
+        int length = bb.getShort(position) & 0xffff;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = bb.get(position + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Write an index of the searchable names of the features, as defined by FeatureDB.  As with FeatureDB,
+     * features on chromosomes not in the genome are skipped, except when running headless.
+     */
+    static void write(File file, Iterator<? extends Feature> features, Genome genome) throws IOException {
+
+        Map<String, Integer> chrIndices = new LinkedHashMap<>();
+        List<Entry> entries = new ArrayList<>();
+
+        while (features.hasNext()) {
+            Feature f = features.next();
+            if (!(f instanceof NamedFeature)) continue;
+            if (!Globals.isHeadless() && genome != null && genome.getChromosome(f.getChr()) == null) continue;
+
+            FeatureDB.forEachName((NamedFeature) f, (name, nf) -> {
+                Integer chrIndex = chrIndices.get(nf.getChr());
+                if (chrIndex == null) {
+                    chrIndex = chrIndices.size();
+                    chrIndices.put(nf.getChr(), chrIndex);
+                }
+                Strand strand = nf instanceof IGVFeature ? ((IGVFeature) nf).getStrand() : Strand.NONE;
+                entries.add(new Entry(name.toUpperCase(), nf.getName(), nf.getChr(), chrIndex, nf.getStart(), nf.getEnd(), strand));
+            });
+        }
+
+        if (chrIndices.size() > 0xffff) {
+            throw new IOException("Too many sequence names to index: " + chrIndices.size());
+        }
+
+        Collections.sort(entries);
+
+        // Drop duplicate locations for a name, and limit the number of features per name
+        List<Entry> retained = new ArrayList<>(entries.size());
+        Entry previous = null;
+        int duplicateCount = 0;
+        for (Entry e : entries) {
+            if (previous != null && Arrays.equals(previous.key, e.key)) {
+                if (duplicateCount >= MAX_DUPLICATE_COUNT || e.sameLocation(previous)) continue;
+                duplicateCount++;
+            } else {
+                duplicateCount = 1;
+            }
+            retained.add(e);
+            previous = e;
+        }
+
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(chrIndices.size());
+            for (String chr : chrIndices.keySet()) {
+                writeString(out, chr.getBytes(StandardCharsets.UTF_8));
+            }
+
+            out.writeInt(retained.size());
+            long offset = 0;
+            for (Entry e : retained) {
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IOException("Feature name index too large");
+                }
+                out.writeInt((int) offset);
+                offset += e.size();
+            }
+
+            for (Entry e : retained) {
+                writeString(out, e.key);
+                writeString(out, e.name);
+                out.writeShort(e.chrIndex);
+                out.writeInt(e.start);
+                out.writeInt(e.end);
+                out.writeByte(e.strand.ordinal());
+            }
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw e;
+        }
+
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Return a string identifying the current version of a file, or null if it cannot be determined.
+     */
+    private static String getFingerprint(String path) throws IOException {
+        if (FileUtils.isRemote(path)) {
+            URL url = HttpUtils.createURL(path);
+            String validator = HttpUtils.getInstance().getHeaderField(url, "ETag");
+            if (validator == null) {
+                long lastModified = HttpUtils.getInstance().getLastModified(url);
+                if (lastModified <= 0) return null;
+                validator = String.valueOf(lastModified);
+            }
+            return path + "|" + validator;
+        } else {
+            File f = new File(path);
+            return f.getAbsolutePath() + "|" + f.length() + "|" + f.lastModified();
+        }
+    }
+
+    private static String digest(String s) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(s.hashCode());
+        }
+    }
+
+
+    private static class Entry implements Comparable<Entry> {
+
+        final byte[] key;
+        final byte[] name;
+        final int chrNameLength;
+        final int chrIndex;
+        final int start;
+        final int end;
+        final Strand strand;
+
+        Entry(String key, String name, String chr, int chrIndex, int start, int end, Strand strand) {
+            this.key = truncate(key.getBytes(StandardCharsets.UTF_8));
+            this.name = name == null ? new byte[0] : truncate(name.getBytes(StandardCharsets.UTF_8));
+            this.chrNameLength = chr.length();
+            this.chrIndex = chrIndex;
+            this.start = start;
+            this.end = end;
+            this.strand = strand == null ? Strand.NONE : strand;
+        }
+
+        int size() {
+            return 2 + key.length + 2 + name.length + 2 + 4 + 4 + 1;
+        }
+
+        boolean sameLocation(Entry e) {
+            return chrIndex == e.chrIndex && start == e.start && end == e.end;
+        }
+
+        /**
+         * Order by key, then prefer the shortest chromosome name (longer names are most likely "weird", e.g.
+         * chr1_gl000191_random), then the longest feature.  This matches the ordering of FeatureDB.
+         */
+        @Override
+        public int compareTo(Entry o) {
+            int n = Math.min(key.length, o.key.length);
+            for (int i = 0; i < n; i++) {
+                int c = (key[i] & 0xff) - (o.key[i] & 0xff);
+                if (c != 0) return c;
+            }
+            if (key.length != o.key.length) return key.length - o.key.length;
+            if (chrNameLength != o.chrNameLength) return chrNameLength - o.chrNameLength;
+            return (o.end - o.start) - (end - start);
+        }
+
+        private static byte[] truncate(byte[] bytes) {
+            return bytes.length > 0xffff ? Arrays.copyOf(bytes, 0xffff) : bytes;
+        }
+    }
+}
@@ -49,6 +49,15 @@ public class CytobandTrack extends AbstractTrack {
         // Nothing to do
     }
 
+    /**
+     * Bands are scaled to the visible area and labels are spaced from its left edge, so they are not shifted with
+     * the view.
+     */
+    @Override
+    public boolean isPanCacheable(ReferenceFrame frame) {
+        return false;
+    }
+
     @Override
     public void render(RenderContext context, Rectangle rect) {
         List<Cytoband> cytobands = chrCytoMap.get(context.getChr());
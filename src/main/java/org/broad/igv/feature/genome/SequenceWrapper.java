@@ -31,7 +31,7 @@ package org.broad.igv.feature.genome;
 
 import org.broad.igv.logging.*;
 import org.broad.igv.ui.panel.ReferenceFrame;
-import org.broad.igv.util.ObjectCache;
+import org.broad.igv.util.collections.WeightedLRUCache;
 
 import java.util.Hashtable;
 import java.util.List;
@@ -46,9 +46,10 @@ public class SequenceWrapper implements Sequence  {
     private static Logger log = LogManager.getLogger(SequenceWrapper.class);
     private static boolean cacheSequences = true;
     private static int tileSize = 1000000;
+    private static long maxCacheBytes = 50000000;
 
     private Sequence sequence;
-    private ObjectCache<String, SequenceTile> sequenceCache = new ObjectCache<String, SequenceTile>(50);
+    private WeightedLRUCache<String, SequenceTile> sequenceCache = new WeightedLRUCache<>(maxCacheBytes, SequenceTile::getSize);
 
     public SequenceWrapper(Sequence sequence) {
         this.sequence = sequence;
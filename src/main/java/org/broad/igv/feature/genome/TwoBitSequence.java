@@ -1,122 +1,371 @@
 package org.broad.igv.feature.genome;
 
 import htsjdk.samtools.seekablestream.SeekableStream;
+import org.broad.igv.logging.*;
 import org.broad.igv.util.FileUtils;
-import org.broad.igv.util.LittleEndianInputStream;
 import org.broad.igv.util.stream.IGVSeekableStreamFactory;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
 
 /**
+ * Implementation of Sequence backed by a UCSC .2bit file.  Format description:
+ * http://genome.ucsc.edu/FAQ/FAQformat.html#format7
+ * <p>
+ * The file index (sequence names and record offsets) is read on construction.  Sequence record headers
+ * (N blocks and mask blocks) are read on first access to a sequence and retained in primitive arrays.
+ * Packed bases are decoded on each request directly from a memory-mapped buffer for local files, or from a
+ * seekable stream for remote files.
+ * <p>
  * Created by jrobinso on 6/13/17.
  */
 public class TwoBitSequence implements Sequence {
 
+    private static Logger log = LogManager.getLogger(TwoBitSequence.class);
+
     static int SIGNATURE_LE = 0x1a412743;
     static int SIGNATURE_BE = 0x4327411a;
     static int HEADER_BLOCK_SIZE = 12500;
 
+    // Maximum span of sequence records whose lengths are fetched with a single read
+    static int LENGTH_BLOCK_SIZE = 256000;
+
+    private static final byte[] BASES = {'T', 'C', 'A', 'G'};
+
+    /**
+     * Lookup table mapping a packed byte to its 4 decoded bases.
+     */
+    private static final byte[][] BYTE_TO_BASES = new byte[256][4];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            for (int j = 0; j < 4; j++) {
+                BYTE_TO_BASES[i][j] = BASES[(i >> (6 - 2 * j)) & 0x3];
+            }
+        }
+    }
+
     String path;
 
+    private ByteOrder byteOrder;
+
+    // Index -- parallel arrays indexed by sequence number
+    private String[] names;
+    private long[] offsets;
+    private int[] lengths;
+    private Map<String, Integer> nameToIndex;
+    private List<String> chromosomeNames;
+
+    private SequenceRecord[] records;
+
+    /**
+     * Memory-mapped view of a local file.  Null for remote files, or files too large to map as a single buffer.
+     */
+    private MappedByteBuffer mappedBuffer;
+
+    /**
+     * Stream for files that are not mapped, opened on first use and shared by all reads.  Access is synchronized
+     * on this object.
+     */
+    private SeekableStream stream;
+
     public TwoBitSequence(String path) throws IOException {
         this.path = path;
         init();
+    }
 
+    /**
+     * Read from the stream rather than opening the path, e.g. to read through a stream that records requests
+     */
+    TwoBitSequence(String path, SeekableStream stream) throws IOException {
+        this.path = path;
+        this.stream = stream;
+        init();
     }
 
 
     private void init() throws IOException {
 
-        SeekableStream is = null;
+        if (stream == null && !FileUtils.isRemote(path)) {
+            File file = new File(path);
+            if (file.length() < Integer.MAX_VALUE) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                     FileChannel channel = raf.getChannel()) {
+                    mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+        }
 
-        is = IGVSeekableStreamFactory.getInstance().getStreamFor(path);
+        // Read the file header and first block of the index.  Most index blocks will fit in HEADER_BLOCK_SIZE
+        // bytes, if not we read more as needed
+        ByteBuffer header = readBuffer(0, HEADER_BLOCK_SIZE);
+
+        int signature = header.order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (signature == SIGNATURE_LE) {
+            byteOrder = ByteOrder.LITTLE_ENDIAN;
+        } else if (signature == SIGNATURE_BE) {
+            byteOrder = ByteOrder.BIG_ENDIAN;
+        } else {
+            throw new GenomeException("Unexpected 2bit signature: " + Integer.toHexString(signature) + "  (" + path + ")");
+        }
+        header.order(byteOrder);
 
-        SeekableStream bis = IGVSeekableStreamFactory.getInstance().getBufferedStream(is, 1000);
+        int version = header.getInt();   // 0 => 32-bit offsets,  1 => 64-bit offsets
+        int seqCount = header.getInt();
+        int reserved = header.getInt();    // Should be zero
 
-        LittleEndianInputStream lis = new LittleEndianInputStream(bis);
+        names = new String[seqCount];
+        offsets = new long[seqCount];
+        lengths = new int[seqCount];
+        records = new SequenceRecord[seqCount];
+        nameToIndex = new HashMap<>(seqCount * 2);
 
-        int signature = lis.readInt();
+        int offsetSize = version == 1 ? 8 : 4;
+        long filePosition = 0;
 
-        boolean littleEndian = SIGNATURE_LE == signature;
-        // TODO -- handle big endian
+        for (int i = 0; i < seqCount; i++) {
 
-        int version = lis.readInt();   // Should be zero
+            // Max entry size is 1 (name size) + 255 (name) + offset.  A short buffer means we are at the end of file.
+            if (header.remaining() < 256 + offsetSize && header.limit() == HEADER_BLOCK_SIZE) {
+                filePosition += header.position();
+                header = readBuffer(filePosition, HEADER_BLOCK_SIZE);
+            }
 
-        int seqCount = lis.readInt();
+            int nameSize = header.get() & 0xff;
+            byte[] seqNameBytes = new byte[nameSize];
+            header.get(seqNameBytes);
+            String seqName = new String(seqNameBytes);
 
-        int reserved = lis.readInt();    // Should be zero
+            long offset = version == 1 ? header.getLong() : header.getInt() & 0xffffffffL;
 
-        Map<String, Integer> offsets = new LinkedHashMap<>();
+            names[i] = seqName;
+            offsets[i] = offset;
+            nameToIndex.put(seqName, i);
+        }
 
+        // Sequence lengths are stored in the first 4 bytes of each record.  Lengths of records within
+        // LENGTH_BLOCK_SIZE bytes of each other are fetched together, so that an assembly of many small contigs
+        // is read with a few requests rather than one per contig.
+        Integer[] order = new Integer[seqCount];
         for (int i = 0; i < seqCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> offsets[i]));
+        int first = 0;
+        while (first < seqCount) {
+            long blockStart = offsets[order[first]];
+            int last = first;
+            while (last + 1 < seqCount && offsets[order[last + 1]] + 4 - blockStart <= LENGTH_BLOCK_SIZE) {
+                last++;
+            }
+            ByteBuffer bb = readBuffer(blockStart, (int) (offsets[order[last]] + 4 - blockStart));
+            for (int i = first; i <= last; i++) {
+                lengths[order[i]] = bb.getInt((int) (offsets[order[i]] - blockStart));
+            }
+            first = last + 1;
+        }
 
-            byte nameSize = lis.readByte();
-
-            byte[] seqNameBytes = new byte[nameSize];
-            lis.readFully(seqNameBytes);
-            String seqName = new String(seqNameBytes);
+        chromosomeNames = Collections.unmodifiableList(Arrays.asList(names));
+    }
 
-            int offset = lis.readInt();
 
-            offsets.put(seqName, offset);
+    @Override
+    public byte[] getSequence(String chr, int qstart, int qend, boolean useCache) {
 
+        Integer idx = nameToIndex.get(chr);
+        if (idx == null) {
+            return null;
         }
 
-        for (Integer offset : offsets.values()) {
-
-            bis.seek(offset);
-            int dnaSize = lis.readInt();
+        final int start = Math.max(0, qstart);
+        final int end = Math.min(lengths[idx], qend);
+        if (start >= end) {
+            return null;
+        }
 
-            int nBlockCount = lis.readInt();
-            int [] nBlockStarts = new int[nBlockCount];
-            for(int i=0; i<nBlockCount; i++) {
-                nBlockStarts[i] = lis.readInt();
-            }
-            int [] nBlockSizes = new int[nBlockCount];
-            for(int i=0; i<nBlockCount; i++) {
-                nBlockSizes[i] = lis.readInt();
+        try {
+            SequenceRecord record = getRecord(idx);
+
+            // Read and decode the packed bases.  Each byte holds 4 bases
+            int startByte = start / 4;
+            int endByte = (end - 1) / 4;
+            ByteBuffer packed = readBuffer(record.packedPos + startByte, endByte - startByte + 1);
+
+            byte[] seqBytes = new byte[end - start];
+            int pos = startByte * 4;
+            int i = 0;
+            while (i < seqBytes.length) {
+                byte[] decoded = BYTE_TO_BASES[packed.get() & 0xff];
+                int j = pos < start ? start - pos : 0;
+                for (; j < 4 && i < seqBytes.length; j++) {
+                    seqBytes[i++] = decoded[j];
+                }
+                pos += 4;
             }
 
-            int maskBlockCount = lis.readInt();
-            int [] maskBlockStarts = new int[maskBlockCount];
-            for(int i=0; i<maskBlockCount; i++) {
-                maskBlockStarts[i] = lis.readInt();
-            }
-            int [] maskBlockSizes = new int[maskBlockCount];
-            for(int i=0; i<maskBlockCount; i++) {
-                maskBlockSizes[i] = lis.readInt();
-            }
+            applyBlocks(record.nBlockStarts, record.nBlockSizes, start, end, seqBytes, false);
+            applyBlocks(record.maskBlockStarts, record.maskBlockSizes, start, end, seqBytes, true);
+
+            return seqBytes;
 
+        } catch (IOException e) {
+            log.error("Error loading sequence " + chr + ":" + qstart + "-" + qend, e);
+            return null;
         }
+    }
 
+    /**
+     * Overlay N or mask blocks on the decoded sequence.  Block start arrays are sorted, so the first
+     * overlapping block is found with a binary search.
+     */
+    private static void applyBlocks(int[] blockStarts, int[] blockSizes, int start, int end, byte[] seqBytes, boolean mask) {
 
-    }
+        if (blockStarts.length == 0) return;
 
-    @Override
-    public byte[] getSequence(String chr, int start, int end, boolean useCache) {
-        return new byte[0];
+        int b = Arrays.binarySearch(blockStarts, start);
+        if (b < 0) {
+            b = Math.max(0, -b - 2);    // Block preceding the insertion point might overlap start
+        }
+
+        for (; b < blockStarts.length; b++) {
+            int blockStart = blockStarts[b];
+            if (blockStart >= end) break;
+            int blockEnd = blockStart + blockSizes[b];
+            if (blockEnd <= start) continue;
+
+            int s = Math.max(start, blockStart) - start;
+            int e = Math.min(end, blockEnd) - start;
+            for (int i = s; i < e; i++) {
+                seqBytes[i] = mask ? (byte) Character.toLowerCase(seqBytes[i]) : (byte) 'N';
+            }
+        }
     }
 
     @Override
     public byte getBase(String chr, int position) {
-        return 0;
+        byte[] bytes = getSequence(chr, position, position + 1, false);
+        return bytes == null ? 0 : bytes[0];
     }
 
     @Override
     public List<String> getChromosomeNames() {
-        return null;
+        return chromosomeNames;
     }
 
     @Override
     public int getChromosomeLength(String chrname) {
-        return 0;
+        Integer idx = nameToIndex.get(chrname);
+        return idx == null ? 0 : lengths[idx];
     }
 
     @Override
     public boolean isRemote() {
         return FileUtils.isRemote(path);
     }
+
+
+    private SequenceRecord getRecord(int idx) throws IOException {
+
+        SequenceRecord record = records[idx];
+        if (record == null) {
+
+            long offset = offsets[idx];
+
+            // dnaSize + nBlockCount
+            ByteBuffer bb = readBuffer(offset, 8);
+            bb.getInt();
+            int nBlockCount = bb.getInt();
+            offset += 8;
+
+            bb = readBuffer(offset, 8 * nBlockCount + 4);
+            int[] nBlockStarts = readInts(bb, nBlockCount);
+            int[] nBlockSizes = readInts(bb, nBlockCount);
+            int maskBlockCount = bb.getInt();
+            offset += 8 * nBlockCount + 4;
+
+            bb = readBuffer(offset, 8 * maskBlockCount + 4);
+            int[] maskBlockStarts = readInts(bb, maskBlockCount);
+            int[] maskBlockSizes = readInts(bb, maskBlockCount);
+            bb.getInt();   // reserved
+            offset += 8 * maskBlockCount + 4;
+
+            record = new SequenceRecord(nBlockStarts, nBlockSizes, maskBlockStarts, maskBlockSizes, offset);
+            records[idx] = record;
+        }
+        return record;
+    }
+
+    private static int[] readInts(ByteBuffer bb, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = bb.getInt();
+        }
+        return values;
+    }
+
+    /**
+     * Return a buffer, in file byte order, of the bytes between position and position + size.  The buffer might
+     * be shorter than size if the end of file is reached.  A position past the end of file is an error.
+     */
+    private ByteBuffer readBuffer(long position, int size) throws IOException {
+
+        ByteOrder order = byteOrder == null ? ByteOrder.LITTLE_ENDIAN : byteOrder;
+
+        if (mappedBuffer != null) {
+            ByteBuffer bb = mappedBuffer.duplicate();
+            if (position > bb.capacity()) {
+                throw new GenomeException("Read position " + position + " is past end of file (" + path + ")");
+            }
+            int p = (int) position;
+            bb.position(p);
+            bb.limit(Math.min(bb.capacity(), p + size));
+            return bb.slice().order(order);
+        }
+
+        synchronized (this) {
+            if (stream == null) {
+                stream = IGVSeekableStreamFactory.getInstance().getStreamFor(path);
+            }
+            long length = stream.length();
+            if (length > 0) {
+                if (position > length) {
+                    throw new GenomeException("Read position " + position + " is past end of file (" + path + ")");
+                }
+                size = (int) Math.max(0, Math.min(size, length - position));
+            }
+            byte[] bytes = new byte[size];
+            stream.seek(position);
+            int n = 0;
+            while (n < size) {
+                int count = stream.read(bytes, n, size - n);
+                if (count < 0) break;
+                n += count;
+            }
+            return ByteBuffer.wrap(bytes, 0, n).order(order);
+        }
+    }
+
+
+    private static class SequenceRecord {
+
+        final int[] nBlockStarts;
+        final int[] nBlockSizes;
+        final int[] maskBlockStarts;
+        final int[] maskBlockSizes;
+        final long packedPos;
+
+        SequenceRecord(int[] nBlockStarts, int[] nBlockSizes, int[] maskBlockStarts, int[] maskBlockSizes, long packedPos) {
+            this.nBlockStarts = nBlockStarts;
+            this.nBlockSizes = nBlockSizes;
+            this.maskBlockStarts = maskBlockStarts;
+            this.maskBlockSizes = maskBlockSizes;
+            this.packedPos = packedPos;
+        }
+    }
 }
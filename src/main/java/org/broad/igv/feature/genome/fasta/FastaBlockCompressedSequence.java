@@ -11,6 +11,7 @@ import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Created by jrobinso on 6/23/17.
@@ -35,6 +36,14 @@ public class FastaBlockCompressedSequence extends FastaIndexedSequence {
         readGziMappings(gziIndexPath);
     }
 
+    /**
+     * Block compressed files are never mapped, the bytes are always inflated by {@link #readBytes(long, long)}
+     */
+    @Override
+    protected ByteBuffer readBuffer(long posStart, long posEnd) throws IOException {
+        return ByteBuffer.wrap(readBytes(posStart, posEnd));
+    }
+
     @Override
     /**
      * Read the bytes between VIRTUAL file position posStart and posEnd
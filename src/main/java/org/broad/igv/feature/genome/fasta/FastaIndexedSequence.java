@@ -30,12 +30,16 @@ import org.broad.igv.logging.*;
 import org.broad.igv.feature.genome.Sequence;
 import org.broad.igv.util.FileUtils;
 import org.broad.igv.util.ParsingUtils;
+import org.broad.igv.util.stream.IGVMappedFileStream;
 import org.broad.igv.util.stream.IGVSeekableStreamFactory;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implementation of Sequence backed by an indexed fasta file
@@ -47,11 +51,27 @@ public class FastaIndexedSequence implements Sequence {
 
     static Logger log = LogManager.getLogger(FastaIndexedSequence.class);
 
+    /**
+     * 2-bit codes by base, in the .2bit order T, C, A, G.  Other bytes are 0 (T).
+     */
+    private static final int[] PACKED_CODES = new int[256];
+
+    static {
+        PACKED_CODES['C'] = PACKED_CODES['c'] = 1;
+        PACKED_CODES['A'] = PACKED_CODES['a'] = 2;
+        PACKED_CODES['G'] = PACKED_CODES['g'] = 3;
+    }
+
     final FastaIndex index;
     final String path;
 
     private final ArrayList<String> chromoNamesList;
 
+    /**
+     * Lazily opened mapping of a local file, shared by all queries.  Null for remote files.
+     */
+    private volatile IGVMappedFileStream mappedStream;
+
     public FastaIndexedSequence(String path) throws IOException {
         this(path, null);
     }
@@ -93,61 +113,111 @@ public class FastaIndexedSequence implements Sequence {
     public byte[] getSequence(String chr, int qstart, int qend, boolean useCache) {
 
         FastaIndex.FastaSequenceIndexEntry idxEntry = index.getIndexEntry(chr);
-
         if (idxEntry == null) {
             //log.warn("No fasta sequence entry for: " + chr);
             return null;
         }
 
-        try {
-
-            final int start = Math.max(0, qstart);    // qstart should never be < 0
-            final int end = Math.min((int) idxEntry.getSize(), qend);
-
-            final int bytesPerLine = idxEntry.getBytesPerLine();
-            final int basesPerLine = idxEntry.getBasesPerLine();
-            int nEndBytes = bytesPerLine - basesPerLine;
+        final int start = Math.max(0, qstart);    // qstart should never be < 0
+        final int end = Math.min((int) idxEntry.getSize(), qend);
+        if (start >= end) {
+            return null;
+        }
 
-            int startLine = start / basesPerLine;
-            int endLine = end / basesPerLine;
+        byte[] bytes = new byte[end - start];
+        int nBases = getSequence(chr, start, end, ByteBuffer.wrap(bytes), false);
+        if (nBases <= 0) {
+            return null;
+        }
+        return nBases == bytes.length ? bytes : Arrays.copyOf(bytes, nBases);
+    }
 
-            int base0 = startLine * basesPerLine;   // Base at beginning of start line
+    /**
+     * Copy the sequence for the query interval into the array, starting at destOffset.  The array must have room
+     * for end - start bases.
+     *
+     * @return the number of bases copied, or -1 if the sequence is unknown or an error occurs
+     */
+    public int getSequence(String chr, int start, int end, byte[] dest, int destOffset, boolean toUpperCase) {
+        return getSequence(chr, start, end, ByteBuffer.wrap(dest, destOffset, dest.length - destOffset), toUpperCase);
+    }
 
-            int offset = start - base0;
-            final long position = idxEntry.getPosition();
-            long startByte = position + startLine * bytesPerLine + offset;
+    /**
+     * Copy the sequence for the query interval into the buffer, starting at its position, and advance the
+     * position past the copied bases.  Line endings are skipped as the bases are copied, so there is no
+     * intermediate array.  For memory-mapped local files the source is a view of the mapping.
+     *
+     * @return the number of bases copied, or -1 if the sequence is unknown or an error occurs
+     */
+    public int getSequence(String chr, int qstart, int qend, ByteBuffer dest, boolean toUpperCase) {
 
-            int base1 = endLine * basesPerLine;
-            int offset1 = end - base1;
-            long endByte = position + endLine * bytesPerLine + offset1;
+        FastaIndex.FastaSequenceIndexEntry idxEntry = index.getIndexEntry(chr);
+        if (idxEntry == null) {
+            return -1;
+        }
 
-            if (startByte >= endByte) {
-                return null;
+        try {
+            final int start = Math.max(0, qstart);
+            final int end = Math.min((int) idxEntry.getSize(), qend);
+            ByteBuffer src = readRange(idxEntry, start, end);
+            if (src == null) {
+                return 0;
             }
 
-            // Read all the bytes in the range.  This will include endline characters
-            byte[] allBytes = readBytes(startByte, endByte);
+            final int destStart = dest.position();
+            final int lineOffset = start % idxEntry.getBasesPerLine();
+            forEachLine(src, lineOffset, idxEntry, end - start, dest::put);
+
+            int nBases = dest.position() - destStart;
+            if (toUpperCase) {
+                for (int i = destStart; i < destStart + nBases; i++) {
+                    byte b = dest.get(i);
+                    if (b >= 'a' && b <= 'z') {
+                        dest.put(i, (byte) (b - 32));
+                    }
+                }
+            }
+            return nBases;
 
-            // Create the array for the sequence -- this will be "allBytes" without the endline characters.
-            ByteArrayOutputStream bos = new ByteArrayOutputStream(end - start);
+        } catch (IOException e) {
+            log.error("Error loading sequence " + chr + ":" + qstart + "-" + qend, e);
+            return -1;
+        }
+    }
 
-            int srcPos = 0;
+    /**
+     * Return the sequence for the query interval packed 4 bases per byte, first base in the high order bits,
+     * using the 2-bit encoding of the UCSC .2bit format (T=0, C=1, A=2, G=3).  As in .2bit files, N and other
+     * non-ACGT codes are packed as T, and case is not preserved.
+     *
+     * @return the packed bases, or null if the sequence is unknown or an error occurs
+     */
+    public byte[] getPackedSequence(String chr, int qstart, int qend) {
 
-            // Copy first line
-            final int allBytesLength = allBytes.length;
-            if (offset > 0) {
-                int nBases = Math.min(end - start, basesPerLine - offset);
-                bos.write(allBytes, srcPos, nBases);
-                srcPos += (nBases + nEndBytes);
-            }
+        FastaIndex.FastaSequenceIndexEntry idxEntry = index.getIndexEntry(chr);
+        if (idxEntry == null) {
+            return null;
+        }
 
-            while (srcPos < allBytesLength) {
-                int nBases = Math.min(basesPerLine, allBytesLength - srcPos);
-                bos.write(allBytes, srcPos, nBases);
-                srcPos += (nBases + nEndBytes);
+        try {
+            final int start = Math.max(0, qstart);
+            final int end = Math.min((int) idxEntry.getSize(), qend);
+            ByteBuffer src = readRange(idxEntry, start, end);
+            if (src == null) {
+                return null;
             }
 
-            return bos.toByteArray();
+            final byte[] packed = new byte[(end - start + 3) / 4];
+            final int[] count = {0};
+            forEachLine(src, start % idxEntry.getBasesPerLine(), idxEntry, end - start, line -> {
+                int n = count[0];
+                while (line.hasRemaining()) {
+                    packed[n >> 2] |= PACKED_CODES[line.get() & 0xff] << (6 - 2 * (n & 3));
+                    n++;
+                }
+                count[0] = n;
+            });
+            return packed;
 
         } catch (IOException e) {
             log.error("Error loading sequence " + chr + ":" + qstart + "-" + qend, e);
@@ -155,6 +225,61 @@ public class FastaIndexedSequence implements Sequence {
         }
     }
 
+    /**
+     * Read the file bytes for the query interval, including endline characters.  See
+     * {@link #getSequence(String, int, int, boolean)} for the layout.
+     *
+     * @return the bytes, or null if the interval is empty
+     */
+    private ByteBuffer readRange(FastaIndex.FastaSequenceIndexEntry idxEntry, int start, int end) throws IOException {
+
+        final int bytesPerLine = idxEntry.getBytesPerLine();
+        final int basesPerLine = idxEntry.getBasesPerLine();
+
+        int startLine = start / basesPerLine;
+        int endLine = end / basesPerLine;
+
+        int base0 = startLine * basesPerLine;   // Base at beginning of start line
+
+        int offset = start - base0;
+        final long position = idxEntry.getPosition();
+        long startByte = position + (long) startLine * bytesPerLine + offset;
+
+        int base1 = endLine * basesPerLine;
+        int offset1 = end - base1;
+        long endByte = position + (long) endLine * bytesPerLine + offset1;
+
+        if (startByte >= endByte) {
+            return null;
+        }
+        return readBuffer(startByte, endByte);
+    }
+
+    /**
+     * Pass each line of bases in src to the consumer, as a view of src without the endline characters.  The
+     * first line starts lineOffset bases into a fasta line.
+     */
+    private static void forEachLine(ByteBuffer src, int lineOffset, FastaIndex.FastaSequenceIndexEntry idxEntry,
+                                    int nBases, Consumer<ByteBuffer> consumer) {
+
+        final int basesPerLine = idxEntry.getBasesPerLine();
+        final int nEndBytes = idxEntry.getBytesPerLine() - basesPerLine;
+
+        int lineBases = basesPerLine - lineOffset;
+        int remaining = nBases;
+        int srcPos = src.position();
+        final int srcLimit = src.limit();
+        while (remaining > 0 && srcPos < srcLimit) {
+            int n = Math.min(Math.min(lineBases, remaining), srcLimit - srcPos);
+            ByteBuffer line = src.duplicate();
+            line.position(srcPos).limit(srcPos + n);
+            consumer.accept(line);
+            remaining -= n;
+            srcPos += n + nEndBytes;
+            lineBases = basesPerLine;
+        }
+    }
+
 
     @Override
     public byte getBase(String chr, int position) {
@@ -162,6 +287,31 @@ public class FastaIndexedSequence implements Sequence {
     }
 
 
+    /**
+     * Return a buffer over the bytes between file position posStart and posEnd.  For memory-mapped local files
+     * this is a view of the mapping, otherwise the bytes are read with {@link #readBytes(long, long)}.
+     *
+     * @throws IOException
+     */
+    protected ByteBuffer readBuffer(long posStart, long posEnd) throws IOException {
+
+        IGVMappedFileStream ms = mappedStream;
+        if (ms == null && IGVSeekableStreamFactory.isMappable(path)) {
+            synchronized (this) {
+                if (mappedStream == null) {
+                    mappedStream = new IGVMappedFileStream(new File(path));
+                }
+                ms = mappedStream;
+            }
+        }
+
+        if (ms != null) {
+            return ms.getBuffer(posStart, (int) (posEnd - posStart));
+        } else {
+            return ByteBuffer.wrap(readBytes(posStart, posEnd));
+        }
+    }
+
     /**
      * Read the bytes between file position posStart and posEnd
      *
@@ -21,6 +21,7 @@ import java.util.*;
  * - genbank
  * - json
  * - fasta
+ * - 2bit
  * - chrom sizes (minimal, no reference sequence)
  */
 abstract public class GenomeLoader {
@@ -44,6 +45,8 @@ abstract public class GenomeLoader {
             return new ChromsizesLoader(genomePath);
         } else if (genomePath.endsWith(".json")) {
             return new JsonGenomeLoader(genomePath);
+        } else if (genomePath.endsWith(".2bit")) {
+            return new TwoBitGenomeLoader(genomePath);
         } else {
             // Assume a fasta file
             if (genomePath.endsWith(Globals.GZIP_FILE_EXTENSION)) {
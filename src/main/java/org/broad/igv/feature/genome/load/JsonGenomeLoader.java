@@ -11,10 +11,15 @@ import org.broad.igv.logging.*;
 import org.broad.igv.Globals;
 import org.broad.igv.feature.CytoBandFileParser;
 import org.broad.igv.feature.FeatureDB;
+import org.broad.igv.feature.FeatureNameIndex;
 import org.broad.igv.feature.NamedFeature;
 import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.feature.genome.Sequence;
+import org.broad.igv.feature.genome.TwoBitSequence;
 import org.broad.igv.feature.genome.fasta.FastaBlockCompressedSequence;
 import org.broad.igv.feature.genome.fasta.FastaIndexedSequence;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.track.TribbleFeatureSource;
 import org.broad.igv.ui.color.ColorUtilities;
 import org.broad.igv.util.FileUtils;
@@ -52,26 +57,15 @@ public class JsonGenomeLoader extends GenomeLoader {
             String id = json.get("id").getAsString();
             String name = json.get("name").getAsString();
 
-            String fastaPath;
-            fastaPath = json.get("fastaURL").getAsString();
-
-            JsonElement indexPathObject = json.get("indexURL");
-            String indexPath = indexPathObject == null ? null : indexPathObject.getAsString();
-
-            JsonElement gziObject = json.get("gziIndexURL");
-            String gziIndexPath = gziObject == null ? null : gziObject.getAsString();
-
-            fastaPath = FileUtils.getAbsolutePath(fastaPath, genomePath);
-            if (indexPath != null) {
-                indexPath = FileUtils.getAbsolutePath(indexPath, genomePath);
-            } if (gziIndexPath != null) {
-                gziIndexPath = FileUtils.getAbsolutePath(gziIndexPath, genomePath);
+            Sequence sequence;
+            JsonElement twoBitElement = json.get("twoBitURL");
+            if (twoBitElement != null) {
+                String twoBitPath = FileUtils.getAbsolutePath(twoBitElement.getAsString(), genomePath);
+                sequence = new TwoBitSequence(twoBitPath);
+            } else {
+                sequence = loadFastaSequence(json);
             }
 
-            FastaIndexedSequence sequence = fastaPath.endsWith(".gz") ?
-                    new FastaBlockCompressedSequence(fastaPath, gziIndexPath, indexPath) :
-                    new FastaIndexedSequence(fastaPath, indexPath);
-
             JsonElement orderedElement = json.get("ordered");
             boolean ordered = orderedElement != null && orderedElement.getAsBoolean();
 
@@ -220,16 +214,49 @@ public class JsonGenomeLoader extends GenomeLoader {
             JsonObject json = parser.parse(reader).getAsJsonObject();
             String id = json.get("id").getAsString();
             String name = json.get("name").getAsString();
-            String fastaPath = json.get("fastaURL").getAsString();
-            return new GenomeDescriptor(id, name, fastaPath);
+            JsonElement sequenceElement = json.has("twoBitURL") ? json.get("twoBitURL") : json.get("fastaURL");
+            String sequencePath = sequenceElement.getAsString();
+            return new GenomeDescriptor(id, name, sequencePath);
         } finally {
             reader.close();
         }
     }
 
 
+    private Sequence loadFastaSequence(JsonObject json) throws IOException {
+
+        String fastaPath = json.get("fastaURL").getAsString();
+
+        JsonElement indexPathObject = json.get("indexURL");
+        String indexPath = indexPathObject == null ? null : indexPathObject.getAsString();
+
+        JsonElement gziObject = json.get("gziIndexURL");
+        String gziIndexPath = gziObject == null ? null : gziObject.getAsString();
+
+        fastaPath = FileUtils.getAbsolutePath(fastaPath, genomePath);
+        if (indexPath != null) {
+            indexPath = FileUtils.getAbsolutePath(indexPath, genomePath);
+        }
+        if (gziIndexPath != null) {
+            gziIndexPath = FileUtils.getAbsolutePath(gziIndexPath, genomePath);
+        }
+
+        return fastaPath.endsWith(".gz") ?
+                new FastaBlockCompressedSequence(fastaPath, gziIndexPath, indexPath) :
+                new FastaIndexedSequence(fastaPath, indexPath);
+    }
+
     private void addToFeatureDB(List<ResourceLocator> locators, Genome genome) {
+        boolean useIndex = PreferencesManager.getPreferences().getAsBoolean(Constants.FEATURE_NAME_INDEX);
         for (ResourceLocator locator : locators) {
+            if (useIndex) {
+                try {
+                    FeatureDB.addNameIndex(FeatureNameIndex.getIndex(locator, genome));
+                    continue;
+                } catch (IOException e) {
+                    log.error("Error indexing feature names of " + locator.getPath() + ", loading features", e);
+                }
+            }
             try {
                 FeatureReader featureReader = TribbleFeatureSource.getBasicReader(locator, genome);
                 CloseableTribbleIterator<Feature> iter = featureReader.iterator();
@@ -0,0 +1,37 @@
+package org.broad.igv.feature.genome.load;
+
+import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.feature.genome.TwoBitSequence;
+import org.broad.igv.util.HttpUtils;
+import org.broad.igv.util.Utilities;
+
+import java.io.File;
+import java.io.IOException;
+
+public class TwoBitGenomeLoader extends GenomeLoader {
+
+    private String genomePath;
+
+    public TwoBitGenomeLoader(String genomePath) {
+        this.genomePath = genomePath;
+    }
+
+    @Override
+    public Genome loadGenome() throws IOException {
+
+        String id = genomePath;
+        String name;
+        if (HttpUtils.isRemoteURL(genomePath)) {
+            name = Utilities.getFileNameFromURL(genomePath);
+        } else {
+            File file = new File(genomePath);
+            if (!file.exists()) {
+                throw new IOException(genomePath + " does not exist, could not load genome");
+            }
+            name = file.getName();
+        }
+
+        TwoBitSequence sequence = new TwoBitSequence(genomePath);
+        return new Genome(id, name, sequence, true);
+    }
+}
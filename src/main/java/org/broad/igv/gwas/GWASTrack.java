@@ -139,6 +139,14 @@ public class GWASTrack extends AbstractTrack {
         return true;
     }
 
+    /**
+     * The axis is drawn relative to the visible area and would move with cached pixels while panning.
+     */
+    @Override
+    public boolean isPanCacheable(ReferenceFrame frame) {
+        return !showAxis && super.isPanCacheable(frame);
+    }
+
     @Override
     public boolean isReadyToPaint(ReferenceFrame frame) {
         return true;  // Track is initialized with all data
@@ -56,10 +56,30 @@ final public class Constants {
     public static final String CRAM_CACHE_SEQUENCES = "CRAM.CACHE_SEQUENCES";
     public static final String CRAM_CACHE_DIRECTORY = "CRAM.CACHE_DIRECTORY";
     public static final String CRAM_CACHE_SIZE = "CRAM.CACHE_SIZE";
+    public static final String HTTP_BLOCK_CACHE_ENABLED = "HTTP.BLOCK_CACHE_ENABLED";
+    public static final String HTTP_BLOCK_SIZE = "HTTP.BLOCK_SIZE";
+    public static final String HTTP_BLOCK_CACHE_SIZE = "HTTP.BLOCK_CACHE_SIZE";
+    public static final String HTTP_BLOCK_CACHE_SPILL = "HTTP.BLOCK_CACHE_SPILL";
+    public static final String HTTP_MAX_CONNECTIONS_PER_HOST = "HTTP.MAX_CONNECTIONS_PER_HOST";
+    public static final String HTTP_DISK_CACHE_ENABLED = "HTTP.DISK_CACHE_ENABLED";
+    public static final String HTTP_DISK_CACHE_SIZE = "HTTP.DISK_CACHE_SIZE";
+    public static final String LOCAL_FILE_MAPPED_STREAMS = "LOCAL_FILE.MAPPED_STREAMS";
+    public static final String BB_INFLATE_THREADS = "BB.INFLATE_THREADS";
+    public static final String BB_BLOCK_CACHE_SIZE = "BB.BLOCK_CACHE_SIZE";
+    public static final String BB_CONCURRENT_QUERIES = "BB.CONCURRENT_QUERIES";
+    public static final String TRACK_LOAD_THREADS = "TRACK_LOAD.THREADS";
+    public static final String TRACK_LOAD_THREADS_PER_SOURCE = "TRACK_LOAD.THREADS_PER_SOURCE";
+    public static final String IO_VIRTUAL_THREADS = "IO.VIRTUAL_THREADS";
+    public static final String IO_LONG_RUNNING_TASK_THREADS = "IO.LONG_RUNNING_TASK_THREADS";
+    public static final String IO_REFERENCE_CACHE_THREADS = "IO.REFERENCE_CACHE_THREADS";
+    public static final String CPU_THREADS = "CPU.THREADS";
+    public static final String RENDER_PAN_CACHE = "RENDER.PAN_CACHE";
+    public static final String RENDER_PARALLEL_TRACKS = "RENDER.PARALLEL_TRACKS";
 
     // Search ("go to") and next feature ("F" and "B") options
     public static final String SEARCH_ZOOM = "SEARCH_ZOOM";
     public static final String FLANKING_REGION = "FLANKING_REGION";
+    public static final String FEATURE_NAME_INDEX = "FEATURE_NAME_INDEX";
 
     public static final String NEXT_FIT_TO_WINDOW = "NEXT_FIT_TO_WINDOW";
 
@@ -159,6 +179,12 @@ final public class Constants {
     public static final String SAM_CLIPPING_THRESHOLD = "SAM.CLIPPING_THRESHOLD";
     public static final String SAM_SHOW_GROUP_SEPARATOR = "SAM.SHOW_GROUP_SEPARATOR";
     public static final String SAM_REDUCED_MEMORY_MODE = "SAM.REDUCED_MEMORY_MODE";
+    public static final String SAM_PARALLEL_LOADING = "SAM.PARALLEL_LOADING";
+    public static final String SAM_PARALLEL_LOADING_THREADS = "SAM.PARALLEL_LOADING_THREADS";
+    public static final String SAM_PARALLEL_LOADING_MIN_RANGE = "SAM.PARALLEL_LOADING_MIN_RANGE";
+    public static final String SAM_COMPACT_COUNTS = "SAM.COMPACT_COUNTS";
+    public static final String SAM_COMPACT_ALIGNMENTS = "SAM.COMPACT_ALIGNMENTS";
+    public static final String SAM_DENSITY_RENDERING = "SAM.DENSITY_RENDERING";
     public static final String SAM_HIDE_SMALL_INDEL = "SAM.HIDE_SMALL_INDEL";
     public static final String SAM_SMALL_INDEL_BP_THRESHOLD = "SAM.SMALL_INDEL_BP_THRESHOLD";
     public static final String SAM_SHOW_ALIGNMENT_TRACK = "SAM.SHOW_ALIGNMENT_TRACK";
@@ -258,6 +284,7 @@ final public class Constants {
     // Port settings
     public static final String PORT_ENABLED = "PORT_ENABLED";
     public static final String PORT_NUMBER = "PORT_NUMBER";
+    public static final String PORT_MAX_CLIENTS = "PORT_MAX_CLIENTS";
 
     // Database support -- never deployed
     public static final String DB_ENABLED = "DB_ENABLED";
@@ -60,7 +60,7 @@ public class ContinuousColorScale extends AbstractColorScale {
     private Color minColor;
     private Color midColor = Color.white;
     private Color maxColor;
-    private Color[] colors;
+    private volatile Color[] colors;
     private boolean defaultCS = false;
 
 
@@ -243,8 +243,12 @@ public class ContinuousColorScale extends AbstractColorScale {
 
     private double delta;
 
-    private void initColors() {
-        colors = new Color[251];
+    /**
+     * Compute the color table.  The table is built locally and published last, as getColor() might be called
+     * concurrently by tracks rendered in parallel.
+     */
+    private Color[] initColors() {
+        Color[] colors = new Color[251];
         delta = (posEnd - negEnd) / colors.length;
         if (isUseDoubleGradient()) {
             ColorGradient csPos = new ColorGradient(posStart, posEnd, midColor, maxColor);
@@ -269,6 +273,8 @@ public class ContinuousColorScale extends AbstractColorScale {
                 colors[i] = cs.getColor(x);
             }
         }
+        this.colors = colors;
+        return colors;
     }
 
     /**
@@ -280,8 +286,9 @@ public class ContinuousColorScale extends AbstractColorScale {
     @Override
     public Color getColor(float val) {
 
+        Color[] colors = this.colors;
         if (colors == null) {
-            initColors();
+            colors = initColors();
         }
 
         if(Float.isNaN(val)) {
@@ -146,8 +146,6 @@ public abstract class XYPlotRenderer extends DataRenderer {
 
     }
 
-    static DecimalFormat formatter = new DecimalFormat();
-
     /**
      * Method description
      *
@@ -186,6 +184,8 @@ public abstract class XYPlotRenderer extends DataRenderer {
 
         if (prefs.getAsBoolean(CHART_DRAW_Y_AXIS)) {
 
+            // DecimalFormat is not thread safe, and tracks might be rendered concurrently
+            DecimalFormat formatter = new DecimalFormat();
             Rectangle axisRect = new Rectangle(arect.x, arect.y + 1, AXIS_AREA_WIDTH, arect.height);
 
 
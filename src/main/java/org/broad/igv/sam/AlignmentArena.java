@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Append-only byte storage shared by the compact alignments of a tile.  Records are encoded into a scratch
+ * buffer and then copied into the current chunk; a record never spans chunks.  Chunks start small and double
+ * in size up to MAX_CHUNK_SIZE, so that small tiles do not reserve a full chunk.
+ * <p>
+ * Not thread safe -- an arena is filled by the single thread finishing a tile, and is read-only thereafter.
+ */
+class AlignmentArena {
+
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+    static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+    private final Scratch scratch = new Scratch();
+    private final DataOutputStream out = new DataOutputStream(scratch);
+
+    private byte[] chunk;
+    private int position;
+    private long allocatedBytes;
+
+    /**
+     * Start a new record, returning the stream to encode it to.
+     */
+    DataOutputStream begin() {
+        scratch.reset();
+        return out;
+    }
+
+    /**
+     * Copy the record encoded since {@link #begin()} into the arena, returning its offset in {@link #getChunk()}.
+     */
+    int commit() {
+
+        int size = scratch.size();
+        if (chunk == null || position + size > chunk.length) {
+            int chunkSize = chunk == null ? MIN_CHUNK_SIZE : Math.min(MAX_CHUNK_SIZE, 2 * chunk.length);
+            chunk = new byte[Math.max(chunkSize, size)];
+            position = 0;
+            allocatedBytes += chunk.length;
+        }
+
+        System.arraycopy(scratch.buffer(), 0, chunk, position, size);
+        int offset = position;
+        position += size;
+        return offset;
+    }
+
+    /**
+     * Return the number of bytes encoded since {@link #begin()}.
+     */
+    int size() {
+        return scratch.size();
+    }
+
+    /**
+     * Overwrite 4 bytes of the record being encoded, e.g. to fill in a length placeholder.
+     */
+    void putInt(int position, int value) {
+        ByteBuffer.wrap(scratch.buffer()).putInt(position, value);
+    }
+
+    /**
+     * Return the chunk holding the most recently committed record.
+     */
+    byte[] getChunk() {
+        return chunk;
+    }
+
+    long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    private static class Scratch extends ByteArrayOutputStream {
+
+        Scratch() {
+            super(1024);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
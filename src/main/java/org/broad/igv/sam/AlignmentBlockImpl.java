@@ -59,6 +59,19 @@ public class AlignmentBlockImpl implements AlignmentBlock {
         this.cigarOperator = cigarOperator;
     }
 
+    /**
+     * Create a block over existing base and quality views.  The block offset is the start offset of the bases.
+     * Qualities may be null.
+     */
+    AlignmentBlockImpl(int start, ByteSubarray bases, ByteSubarray qualities, char cigarOperator) {
+        this.start = start;
+        this.offset = bases.startOffset;
+        this.bases = bases;
+        this.basesLength = bases.length;
+        this.qualities = qualities == null ? EMPTY_ARRAY : qualities;
+        this.cigarOperator = cigarOperator;
+    }
+
     @Override
     public void setPixelRange(int s, int e) {
         this.pixelStart = s;
@@ -41,7 +41,9 @@ import org.broad.igv.sam.reader.AlignmentReaderFactory;
 import org.broad.igv.track.Track;
 import org.broad.igv.ui.panel.FrameManager;
 import org.broad.igv.ui.panel.ReferenceFrame;
+import org.broad.igv.util.IGVExecutors;
 import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.metrics.MetricsRegistry;
 
 import java.io.IOException;
 import java.util.*;
@@ -369,7 +371,8 @@ public class AlignmentDataManager implements IGVEventObserver {
 
             intervalCache.add(loadedInterval);
 
-            packAlignments(renderOptions);
+            // Loads run on I/O threads, packing is CPU-bound
+            IGVExecutors.runOnCPU(() -> packAlignments(renderOptions));
 
         } finally {
             currentlyLoading = null;
@@ -416,9 +419,16 @@ public class AlignmentDataManager implements IGVEventObserver {
 
         SpliceJunctionHelper spliceJunctionHelper = new SpliceJunctionHelper(this.loadOptions);
 
+        long t0 = System.nanoTime();
         AlignmentTileLoader.AlignmentTile t = getLoader().loadTile(sequence, start, end, spliceJunctionHelper,
                 downsampleOptions, peStats, bisulfiteContext, renderOptions);
-      List<Alignment> alignments = t.getAlignments();
+        List<Alignment> alignments = t.getAlignments();
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        String tag = MetricsRegistry.pathTag(locator.getPath());
+        metrics.timer("alignment.tile.load", tag).record(System.nanoTime() - t0);
+        metrics.histogram("alignment.tile.alignments", tag).record(alignments.size());
+
         List<DownsampledInterval> downsampledIntervals = t.getDownsampledIntervals();
         return new AlignmentInterval(chr, start, end, alignments, t.getCounts(), spliceJunctionHelper, downsampledIntervals);
     }
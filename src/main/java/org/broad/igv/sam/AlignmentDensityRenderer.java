@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Rasterizes alignments too narrow to show detail (less than 2 pixels wide) into a pixel buffer covering the
+ * visible part of the alignment rows, which is drawn with a single call when all rows are done.  This replaces a
+ * fillRect per alignment in zoomed out views of dense loci.
+ * <p>
+ * Alignments of a row are accumulated as run-length spans of a single color, adjacent or overlapping alignments of
+ * the same color being merged.  When the row is complete the spans are written to one scan line, which is copied
+ * for the remaining lines of the row.
+ */
+class AlignmentDensityRenderer {
+
+    private final Rectangle bounds;
+
+    private BufferedImage image;
+    private int[] pixels;
+
+    // Spans of the current row, as parallel arrays of start (inclusive), end (exclusive), and ARGB color
+    private int[] spanStarts = new int[64];
+    private int[] spanEnds = new int[64];
+    private int[] spanColors = new int[64];
+    private int spanCount;
+    private int rowY;
+    private int rowHeight;
+
+    /**
+     * @param bounds the area, in the coordinates of the graphics the buffer is drawn to, covered by the buffer
+     */
+    AlignmentDensityRenderer(Rectangle bounds) {
+        this.bounds = new Rectangle(bounds);
+    }
+
+    boolean isEmpty() {
+        return bounds.isEmpty();
+    }
+
+    /**
+     * Start a row occupying lines y to y + height.  Spans of the previous row, if any, are written to the buffer.
+     */
+    void startRow(int y, int height) {
+        endRow();
+        rowY = y;
+        rowHeight = height;
+    }
+
+    /**
+     * Add an alignment spanning pixels x to x + width of the current row.  Alignments are expected in order of
+     * start position, as they are in packed rows.
+     */
+    void addAlignment(int x, int width, Color color) {
+
+        int start = Math.max(x, bounds.x);
+        int end = Math.min(x + width, bounds.x + bounds.width);
+        if (start >= end) return;
+
+        int argb = color.getRGB();
+        if (spanCount > 0) {
+            int last = spanCount - 1;
+            if (start <= spanEnds[last] && argb == spanColors[last]) {
+                spanEnds[last] = Math.max(spanEnds[last], end);
+                return;
+            }
+        }
+        if (spanCount == spanStarts.length) {
+            spanStarts = Arrays.copyOf(spanStarts, 2 * spanCount);
+            spanEnds = Arrays.copyOf(spanEnds, 2 * spanCount);
+            spanColors = Arrays.copyOf(spanColors, 2 * spanCount);
+        }
+        spanStarts[spanCount] = start;
+        spanEnds[spanCount] = end;
+        spanColors[spanCount] = argb;
+        spanCount++;
+    }
+
+    /**
+     * Draw the buffer, if any alignments were added.  The composite of the graphics is applied to the buffer as a
+     * whole, as it would be to alignments drawn individually.
+     */
+    void draw(Graphics2D g) {
+        endRow();
+        if (image != null) {
+            g.drawImage(image, bounds.x, bounds.y, null);
+        }
+    }
+
+    private void endRow() {
+
+        if (spanCount == 0) return;
+
+        int y0 = Math.max(rowY, bounds.y) - bounds.y;
+        int y1 = Math.min(rowY + rowHeight, bounds.y + bounds.height) - bounds.y;
+        if (y0 < y1) {
+            if (pixels == null) {
+                image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+                pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            }
+            int width = bounds.width;
+            int offset = y0 * width;
+            for (int i = 0; i < spanCount; i++) {
+                Arrays.fill(pixels, offset + spanStarts[i] - bounds.x, offset + spanEnds[i] - bounds.x, spanColors[i]);
+            }
+            for (int y = y0 + 1; y < y1; y++) {
+                System.arraycopy(pixels, offset, pixels, y * width, width);
+            }
+        }
+        spanCount = 0;
+    }
+}
@@ -30,6 +30,8 @@ import org.broad.igv.feature.Locus;
 import org.broad.igv.feature.Range;
 import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.feature.genome.GenomeManager;
+import org.broad.igv.util.metrics.MetricsRegistry;
+import org.broad.igv.util.metrics.Timer;
 
 import java.util.*;
 
@@ -166,7 +168,9 @@ public class AlignmentInterval extends Locus {
     public void packAlignments(AlignmentTrack.RenderOptions renderOptions) {
 
         final AlignmentPacker alignmentPacker = new AlignmentPacker();
-        this.packedAlignments = alignmentPacker.packAlignments(this, renderOptions);
+        try (Timer.Context ignored = MetricsRegistry.getInstance().timer("alignment.pack").time()) {
+            this.packedAlignments = alignmentPacker.packAlignments(this, renderOptions);
+        }
     }
 
     public PackedAlignments getPackedAlignments() {
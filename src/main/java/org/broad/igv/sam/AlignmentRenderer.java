@@ -280,6 +280,21 @@ public class AlignmentRenderer {
                                  Rectangle rowRect,
                                  AlignmentTrack.RenderOptions renderOptions
     ) {
+        renderAlignments(alignments, alignmentCounts, context, rowRect, renderOptions, null);
+    }
+
+    /**
+     * Render a row of alignments in the given rectangle.  If a density renderer is supplied, alignments too narrow
+     * to show detail are added to it rather than drawn, and the center line is left for the caller to draw with
+     * {@link #renderCenterLine(RenderContext, Rectangle)} after the density renderer.
+     */
+    void renderAlignments(List<Alignment> alignments,
+                          AlignmentCounts alignmentCounts,
+                          RenderContext context,
+                          Rectangle rowRect,
+                          AlignmentTrack.RenderOptions renderOptions,
+                          AlignmentDensityRenderer densityRenderer
+    ) {
 
         initializeGraphics(context);
 
@@ -290,6 +305,11 @@ public class AlignmentRenderer {
         if ((alignments != null) && (alignments.size() > 0)) {
 
             int lastPixelDrawn = -1;
+            final int h = (int) Math.max(1, rowRect.getHeight() - 2);
+            final int y = (int) (rowRect.getY() + (rowRect.getHeight() - h) / 2);
+            if (densityRenderer != null) {
+                densityRenderer.startRow(y, h);
+            }
 
             for (Alignment alignment : alignments) {
                 // Compute the start and dend of the alignment in pixels
@@ -316,12 +336,14 @@ public class AlignmentRenderer {
                     if (pixelEnd <= lastPixelDrawn && alignmentColor == defaultColor) {
                         continue;
                     }
-                    Graphics2D g = context.getGraphics2D("ALIGNMENT");
-                    g.setColor(alignmentColor);
                     int w = Math.max(1, (int) (pixelWidth));
-                    int h = (int) Math.max(1, rowRect.getHeight() - 2);
-                    int y = (int) (rowRect.getY() + (rowRect.getHeight() - h) / 2);
-                    g.fillRect((int) pixelStart, y, w, h);
+                    if (densityRenderer != null) {
+                        densityRenderer.addAlignment((int) pixelStart, w, alignmentColor);
+                    } else {
+                        Graphics2D g = context.getGraphics2D("ALIGNMENT");
+                        g.setColor(alignmentColor);
+                        g.fillRect((int) pixelStart, y, w, h);
+                    }
                     lastPixelDrawn = (int) pixelStart + w;
                 } else if (alignment instanceof PairedAlignment) {
                     drawPairedAlignment((PairedAlignment) alignment, rowRect, context, renderOptions, leaveMargin, alignmentCounts);
@@ -332,22 +354,52 @@ public class AlignmentRenderer {
                 }
             }
 
-            // Optionally draw a border around the center base
-            IGVPreferences prefs = this.track.getPreferences();
-            boolean showCenterLine = prefs.getAsBoolean(SAM_SHOW_CENTER_LINE);
-            final int bottom = rowRect.y + rowRect.height;
-            if (showCenterLine) {
-                // Calculate center lines
-                double center = (int) (context.getReferenceFrame().getCenter() - origin);
-                int centerLeftP = (int) (center / locScale);
-                int centerRightP = (int) ((center + 1) / locScale);
-                //float transparency = Math.max(0.5f, (float) Math.round(10 * (1 - .75 * locScale)) / 10);
-                Graphics2D g = context.getGraphics();
-                g.setColor(Color.black);
-                GraphicUtils.drawDottedDashLine(g, centerLeftP, rowRect.y, centerLeftP, bottom);
-                if ((centerRightP - centerLeftP > 2)) {
-                    GraphicUtils.drawDottedDashLine(g, centerRightP, rowRect.y, centerRightP, bottom);
-                }
+            if (densityRenderer == null) {
+                renderCenterLine(context, rowRect);
+            }
+        }
+    }
+
+    /**
+     * Create a density renderer for rows in the rectangle, or return null if density rendering is disabled or
+     * alignments of the view are unlikely to be narrow enough to use it.
+     */
+    AlignmentDensityRenderer createDensityRenderer(RenderContext context, Rectangle rect) {
+        if (context.getScale() > 1 && this.track.getPreferences().getAsBoolean(SAM_DENSITY_RENDERING)) {
+            AlignmentDensityRenderer densityRenderer = new AlignmentDensityRenderer(context.getVisibleRect().intersection(rect));
+            return densityRenderer.isEmpty() ? null : densityRenderer;
+        }
+        return null;
+    }
+
+    /**
+     * Draw the alignments accumulated by the density renderer.
+     */
+    void renderDensity(AlignmentDensityRenderer densityRenderer, RenderContext context) {
+        initializeGraphics(context);
+        densityRenderer.draw(context.getGraphics2D("ALIGNMENT"));
+    }
+
+    /**
+     * Optionally draw a border around the center base
+     */
+    void renderCenterLine(RenderContext context, Rectangle rowRect) {
+        IGVPreferences prefs = this.track.getPreferences();
+        boolean showCenterLine = prefs.getAsBoolean(SAM_SHOW_CENTER_LINE);
+        final int bottom = rowRect.y + rowRect.height;
+        if (showCenterLine) {
+            // Calculate center lines
+            double origin = context.getOrigin();
+            double locScale = context.getScale();
+            double center = (int) (context.getReferenceFrame().getCenter() - origin);
+            int centerLeftP = (int) (center / locScale);
+            int centerRightP = (int) ((center + 1) / locScale);
+            //float transparency = Math.max(0.5f, (float) Math.round(10 * (1 - .75 * locScale)) / 10);
+            Graphics2D g = context.getGraphics();
+            g.setColor(Color.black);
+            GraphicUtils.drawDottedDashLine(g, centerLeftP, rowRect.y, centerLeftP, bottom);
+            if ((centerRightP - centerLeftP > 2)) {
+                GraphicUtils.drawDottedDashLine(g, centerRightP, rowRect.y, centerRightP, bottom);
             }
         }
     }
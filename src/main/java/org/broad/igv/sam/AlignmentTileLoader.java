@@ -38,14 +38,19 @@ import org.broad.igv.event.IGVEventBus;
 import org.broad.igv.event.IGVEventObserver;
 import org.broad.igv.event.StopEvent;
 import org.broad.igv.ui.util.MessageUtils;
-import org.broad.igv.util.ObjectCache;
+import org.broad.igv.util.IGVExecutors;
 import org.broad.igv.util.RuntimeUtils;
+import org.broad.igv.util.collections.WeightedLRUCache;
 
 import javax.swing.*;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static org.broad.igv.prefs.Constants.*;
 
@@ -62,6 +67,12 @@ public class AlignmentTileLoader implements IGVEventObserver {
 
     private static Set<WeakReference<AlignmentTileLoader>> activeLoaders = Collections.synchronizedSet(new HashSet());
 
+    /**
+     * Executor for concurrent sub-range queries, created on first use of parallel loading
+     */
+    private static ExecutorService queryExecutor;
+    private static int queryExecutorThreads;
+
     /**
      * Flag to mark a corrupt index.  Without this attempted reads will continue in an infinite loop
      */
@@ -151,8 +162,9 @@ public class AlignmentTileLoader implements IGVEventObserver {
         int alignmentCount = 0;
         WeakReference<AlignmentTileLoader> ref = new WeakReference(this);
         try {
-            ObjectCache<String, Alignment> mappedMates = new ObjectCache<String, Alignment>(1000);
-            ObjectCache<String, Alignment> unmappedMates = new ObjectCache<String, Alignment>(1000);
+            // Mate caches are bounded by record count, each weighted 1
+            WeightedLRUCache<String, Alignment> mappedMates = new WeightedLRUCache<>(1000, a -> 1);
+            WeightedLRUCache<String, Alignment> unmappedMates = new WeightedLRUCache<>(1000, a -> 1);
 
             activeLoaders.add(ref);
             IGVEventBus.getInstance().subscribe(StopEvent.class, this);
@@ -163,7 +175,7 @@ public class AlignmentTileLoader implements IGVEventObserver {
 
             MessageUtils.setStatusBarMessage("Reading...");
 
-            iter = reader.query(chr, start, end, false);
+            iter = query(prefMgr, chr, start, end);
             MessageUtils.setStatusBarMessage("Iterating...");
 
             while (iter != null && iter.hasNext()) {
@@ -285,7 +297,7 @@ public class AlignmentTileLoader implements IGVEventObserver {
             }
 
             // Clean up any remaining unmapped mate sequences
-            for (String mappedMateName : mappedMates.getKeys()) {
+            for (String mappedMateName : mappedMates.keys()) {
                 Alignment mappedMate = mappedMates.get(mappedMateName);
                 if (mappedMate != null) {
                     Alignment mate = unmappedMates.get(mappedMate.getReadName());
@@ -338,6 +350,63 @@ public class AlignmentTileLoader implements IGVEventObserver {
     }
 
 
+    /**
+     * Query the reader for alignments overlapping the interval.  If parallel loading is enabled, and the reader
+     * supports concurrent queries, the interval is split into sub-ranges which are queried on separate threads.
+     * Records are returned in the same order as from a single query.
+     */
+    private CloseableIterator<Alignment> query(IGVPreferences prefMgr, String chr, int start, int end) throws IOException {
+
+        if (prefMgr.getAsBoolean(SAM_PARALLEL_LOADING) && reader.supportsConcurrentQueries()) {
+            int nThreads = Math.max(1, prefMgr.getAsInt(SAM_PARALLEL_LOADING_THREADS));
+            int minRange = Math.max(1, prefMgr.getAsInt(SAM_PARALLEL_LOADING_MIN_RANGE));
+            int nRanges = (int) Math.min(nThreads, ((long) end - start) / minRange);
+            if (nRanges > 1) {
+                return new ParallelQueryIterator(getQueryExecutor(nThreads), chr, start, end, nRanges);
+            }
+        }
+        return reader.query(chr, start, end, false);
+    }
+
+    /**
+     * Stream records for a sub-range of a parallel query to the buffer.  Alignments that span a sub-range boundary
+     * are returned by queries on both sides, to avoid duplicates only alignments starting in the sub-range are
+     * kept, with the exception of the first sub-range which keeps everything.  Blocks while the buffer is full.
+     */
+    private void querySubRange(String chr, int start, int end, boolean first, BlockingQueue<Object> buffer)
+            throws IOException, InterruptedException {
+
+        CloseableIterator<Alignment> iter = null;
+        try {
+            iter = reader.query(chr, start, end, false);
+            while (iter != null && iter.hasNext() && !cancel) {
+                Alignment record = iter.next();
+                if (first || record.getStart() >= start) {
+                    buffer.put(record);
+                }
+            }
+        } finally {
+            if (iter != null) {
+                iter.close();
+            }
+        }
+    }
+
+    /**
+     * Return the executor for sub-range queries, running at most nThreads queries at a time on the shared
+     * I/O executor.  The executor is replaced if the SAM_PARALLEL_LOADING_THREADS preference changes.
+     */
+    private static synchronized ExecutorService getQueryExecutor(int nThreads) {
+        if (queryExecutor == null || queryExecutorThreads != nThreads) {
+            if (queryExecutor != null) {
+                queryExecutor.shutdown();
+            }
+            queryExecutor = IGVExecutors.newIOExecutor(nThreads);
+            queryExecutorThreads = nThreads;
+        }
+        return queryExecutor;
+    }
+
     private static boolean memoryTooLow() {
         if (RuntimeUtils.getAvailableMemoryFraction() < 0.2) {
             System.gc();
@@ -390,6 +459,92 @@ public class AlignmentTileLoader implements IGVEventObserver {
         return reader.getSequenceDictionary();
     }
 
+    /**
+     * Iterator over the results of concurrent sub-range queries.  Sub-ranges are consumed in order, so the first
+     * records can be processed while later sub-ranges are still loading.  Each sub-range streams its records
+     * through a bounded buffer, so records are added to the tile, and downsampled, as they are read rather than
+     * after a whole sub-range has been loaded.  A sub-range query waits while its buffer is full.
+     */
+    private class ParallelQueryIterator implements CloseableIterator<Alignment> {
+
+        // Buffer capacity, in records, of each sub-range
+        static final int BUFFER_SIZE = 1000;
+
+        // Marks the end of a sub-range in its buffer
+        private final Object END = new Object();
+
+        private List<BlockingQueue<Object>> buffers;
+        private List<Future<?>> futures;
+        private int rangeIndex = 0;
+        private Alignment nextRecord;
+
+        ParallelQueryIterator(ExecutorService executor, String chr, int start, int end, int nRanges) {
+
+            long step = ((long) end - start + nRanges - 1) / nRanges;
+            buffers = new ArrayList<>(nRanges);
+            futures = new ArrayList<>(nRanges);
+            for (int i = 0; i < nRanges; i++) {
+                final int s = (int) (start + i * step);
+                final int e = (int) Math.min(end, s + step);
+                final boolean first = i == 0;
+                final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(BUFFER_SIZE);
+                buffers.add(buffer);
+                futures.add(executor.submit(() -> {
+                    try {
+                        querySubRange(chr, s, e, first, buffer);
+                        buffer.put(END);
+                    } catch (InterruptedException ex) {
+                        // Closed
+                    } catch (Exception ex) {
+                        buffer.put(ex);
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextRecord == null && rangeIndex < buffers.size()) {
+                Object next;
+                try {
+                    next = buffers.get(rangeIndex).take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                if (next == END) {
+                    rangeIndex++;
+                } else if (next instanceof Exception) {
+                    throw next instanceof RuntimeException ? (RuntimeException) next : new RuntimeException((Exception) next);
+                } else {
+                    nextRecord = (Alignment) next;
+                }
+            }
+            return nextRecord != null;
+        }
+
+        @Override
+        public Alignment next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Alignment record = nextRecord;
+            nextRecord = null;
+            return record;
+        }
+
+        @Override
+        public void close() {
+            for (Future<?> f : futures) {
+                f.cancel(true);
+            }
+            for (BlockingQueue<Object> buffer : buffers) {
+                buffer.clear();
+            }
+        }
+    }
+
     /**
      * Caches alignments, coverage, splice junctions, and downsampled intervals
      */
@@ -425,6 +580,7 @@ public class AlignmentTileLoader implements IGVEventObserver {
         private int downsampledCount = 0;
         private int offset = 0;
         private int indelLimit;
+        private boolean compactAlignments;
 
         AlignmentTile(int start,
                       int end,
@@ -437,6 +593,7 @@ public class AlignmentTileLoader implements IGVEventObserver {
             this.downsampledIntervals = new ArrayList<DownsampledInterval>();
 
             this.indelLimit = PreferencesManager.getPreferences().getAsInt(SAM_SMALL_INDEL_BP_THRESHOLD);
+            this.compactAlignments = !reducedMemory && PreferencesManager.getPreferences().getAsBoolean(SAM_COMPACT_ALIGNMENTS);
 
             long seed = System.currentTimeMillis();
             //System.out.println("seed: " + seed);
@@ -658,10 +815,31 @@ public class AlignmentTileLoader implements IGVEventObserver {
             if (downsample) {
                 sortFilterDownsampled();
             }
+            if (compactAlignments) {
+                compactAlignments();
+            }
             finalizeSpliceJunctions();
             counts.finish();
         }
 
+        /**
+         * Replace retained SAMAlignments with compact copies sharing a single arena.  This is done once loading is
+         * complete, so that alignments discarded by downsampling are never encoded, and mate sequences have been set.
+         */
+        private void compactAlignments() {
+
+            if (alignments == null) return;
+
+            AlignmentArena arena = new AlignmentArena();
+            for (int i = 0; i < alignments.size(); i++) {
+                Alignment alignment = alignments.get(i);
+                // Subclasses might depend on the record, leave them as is
+                if (alignment.getClass() == SAMAlignment.class) {
+                    alignments.set(i, new CompactAlignment((SAMAlignment) alignment, arena));
+                }
+            }
+        }
+
         public AlignmentCounts getCounts() {
             return counts;
         }
@@ -426,6 +426,18 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
     }
 
 
+    /**
+     * The center line, group labels, and "zoom in" message are positioned relative to the view, and are not
+     * cacheable.
+     */
+    @Override
+    public boolean isPanCacheable(ReferenceFrame frame) {
+        return frame.getCurrentRange().getLength() <= dataManager.getVisibilityWindow() &&
+                !getPreferences().getAsBoolean(SAM_SHOW_CENTER_LINE) &&
+                renderOptions.getGroupByOption() == GroupOption.NONE &&
+                super.isPanCacheable(frame);
+    }
+
     @Override
     public void load(ReferenceFrame referenceFrame) {
         if (log.isDebugEnabled()) {
@@ -552,6 +564,11 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
         }
 
 
+        // Alignments are culled to the visible columns, e.g. the strip exposed by a pan
+        Rectangle rowColumns = visibleRect == null ? inputRect : inputRect.intersection(visibleRect);
+        int rowX = rowColumns.x;
+        int rowWidth = Math.max(0, rowColumns.width);
+
         // Loop through groups
         Graphics2D groupBorderGraphics = context.getGraphic2DForColor(AlignmentRenderer.GROUP_DIVIDER_COLOR);
         int nGroups = groups.size();
@@ -564,6 +581,12 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
 
             // Loop through the alignment rows for this group
             List<Row> rows = entry.getValue();
+
+            // Alignments too narrow to show detail are collected in a pixel buffer, drawn after the group's rows
+            Rectangle groupRect = new Rectangle(inputRect.x, (int) y, inputRect.width, (int) Math.ceil(rows.size() * h));
+            AlignmentDensityRenderer densityRenderer = renderer.createDensityRenderer(context, groupRect);
+            List<Rectangle> centerLineRects = densityRenderer == null ? null : new ArrayList<>();
+
             for (Row row : rows) {
                 if ((visibleRect != null && y > visibleRect.getMaxY())) {
                     break;
@@ -571,14 +594,24 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
 
                 assert visibleRect != null;
                 if (y + h > visibleRect.getY()) {
-                    Rectangle rowRectangle = new Rectangle(inputRect.x, (int) y, inputRect.width, (int) h);
-                    renderer.renderAlignments(row.alignments, alignmentCounts, context, rowRectangle, renderOptions);
+                    Rectangle rowRectangle = new Rectangle(rowX, (int) y, rowWidth, (int) h);
+                    renderer.renderAlignments(row.alignments, alignmentCounts, context, rowRectangle, renderOptions, densityRenderer);
+                    if (centerLineRects != null && !row.alignments.isEmpty()) {
+                        centerLineRects.add(rowRectangle);
+                    }
                     row.y = y;
                     row.h = h;
                 }
                 y += h;
             }
 
+            if (densityRenderer != null) {
+                renderer.renderDensity(densityRenderer, context);
+                for (Rectangle rowRectangle : centerLineRects) {
+                    renderer.renderCenterLine(context, rowRectangle);
+                }
+            }
+
             if (groupOption != GroupOption.NONE) {
                 // Draw a subtle divider line between groups
                 if (showGroupLine) {
@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+/**
+ * A read-only view of a range of read bases or qualities stored in an {@link AlignmentArena}.  Bases may be
+ * packed 2 per byte using the BAM 4-bit encoding.  As with the superclass, {@code startOffset} is the offset of
+ * the view in the read, and positions past the end of the stored read return the fill byte.
+ */
+class ArenaByteSubarray extends ByteSubarray {
+
+    static final byte[] BAM_BASES = "=ACMGRSVTWYHKDBN".getBytes();
+
+    /**
+     * Map from base character to its 4-bit code, or -1 if the character has no exact encoding (e.g. lower case).
+     */
+    static final byte[] BASE_CODES = new byte[256];
+
+    static {
+        java.util.Arrays.fill(BASE_CODES, (byte) -1);
+        for (int i = 0; i < BAM_BASES.length; i++) {
+            BASE_CODES[BAM_BASES[i]] = (byte) i;
+        }
+    }
+
+    private final byte[] data;
+    private final int dataOffset;
+    private final boolean packed;
+    private final int readLength;
+
+    ArenaByteSubarray(byte[] data, int dataOffset, boolean packed, int readLength, int startOffset, int length, byte fillByte) {
+        super(null, startOffset, length, fillByte);
+        this.data = data;
+        this.dataOffset = dataOffset;
+        this.packed = packed;
+        this.readLength = readLength;
+    }
+
+    @Override
+    public byte getByte(int idx) {
+        if (idx < 0 || idx >= length) {
+            throw new IndexOutOfBoundsException("Index out of bounds: " + idx);
+        }
+        return byteAt(startOffset + idx);
+    }
+
+    @Override
+    public byte[] copyOfRange(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = byteAt(startOffset + start + i);
+        }
+        return bytes;
+    }
+
+    @Override
+    public String getString() {
+        return new String(copyOfRange(0, length));
+    }
+
+    @Override
+    public byte[] getBytes() {
+        return copyOfRange(0, length);
+    }
+
+    private byte byteAt(int readOffset) {
+        if (readOffset >= readLength) {
+            return fillByte;
+        } else if (packed) {
+            int b = data[dataOffset + (readOffset >> 1)];
+            return BAM_BASES[(readOffset & 1) == 0 ? (b >> 4) & 0xf : b & 0xf];
+        } else {
+            return data[dataOffset + readOffset];
+        }
+    }
+
+    /**
+     * Decode the whole read stored at {@code dataOffset}.
+     */
+    static byte[] decode(byte[] data, int dataOffset, boolean packed, int readLength) {
+        return new ArenaByteSubarray(data, dataOffset, packed, readLength, 0, readLength, (byte) 0).getBytes();
+    }
+}
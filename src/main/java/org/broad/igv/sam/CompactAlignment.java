@@ -0,0 +1,521 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import org.broad.igv.logging.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A SAMAlignment that does not retain its SAMRecord.  The read name, CIGAR operators, bases, qualities and tags
+ * are encoded into a byte arena shared by all alignments of a tile.  Bases are packed 2 per byte when every
+ * base has an exact BAM 4-bit encoding.  Tags are decoded on demand, e.g. for popup text, and the SAMRecord
+ * is rebuilt on request for export.
+ * <p>
+ * Record layout, big-endian:
+ * <pre>
+ *   short  name length, name bytes
+ *   int    CIGAR operator count, int per operator (length << 4 | operator index in "MIDNSHP=X")
+ *   int    read length, byte flags (PACKED, HAS_QUALITIES), bases, qualities
+ *   int    tags length, tags (2 byte key, type, value)
+ * </pre>
+ */
+public class CompactAlignment extends SAMAlignment {
+
+    private static Logger log = LogManager.getLogger(CompactAlignment.class);
+
+    private static final String CIGAR_OPERATORS = "MIDNSHP=X";
+
+    private static final int PACKED = 1;
+    private static final int HAS_QUALITIES = 2;
+
+    // Tag value types.  Array values are written as ARRAY, element type, count, elements.
+    private static final byte CHAR = 'A';
+    private static final byte BYTE = 'c';
+    private static final byte SHORT = 's';
+    private static final byte INT = 'i';
+    private static final byte LONG = 'l';
+    private static final byte FLOAT = 'f';
+    private static final byte DOUBLE = 'd';
+    private static final byte STRING = 'Z';
+    private static final byte ARRAY = 'B';
+
+    private final byte[] data;
+    private final int offset;
+    private final int sequenceOffset;
+
+    private final int alignmentStart;
+    private final int alignmentEnd;
+    private final int mappingQuality;
+    private final int inferredInsertSize;
+    private final int mateAlignmentStart;
+    private final String referenceName;
+    private final String mateReferenceName;
+    private final SAMFileHeader header;
+
+    /**
+     * Create a compact copy of the alignment, encoding its record into the arena.
+     */
+    CompactAlignment(SAMAlignment alignment, AlignmentArena arena) {
+
+        super(alignment);
+
+        SAMRecord record = alignment.getRecord();
+        this.alignmentStart = record.getAlignmentStart() - 1;
+        this.alignmentEnd = record.getAlignmentEnd();
+        this.mappingQuality = record.getMappingQuality();
+        this.inferredInsertSize = record.getInferredInsertSize();
+        this.mateAlignmentStart = record.getMateAlignmentStart();
+        this.referenceName = record.getReferenceName();
+        this.mateReferenceName = record.getMateReferenceName();
+        this.header = record.getHeader();
+
+        byte[] bases = record.getReadBases();
+        byte[] qualities = record.getBaseQualities();
+        boolean packed = isPackable(bases);
+        boolean hasQualities = qualities != null && qualities.length > 0 && qualities.length == bases.length;
+
+        int sequencePosition;
+        try {
+            DataOutputStream out = arena.begin();
+
+            byte[] name = record.getReadName().getBytes(StandardCharsets.ISO_8859_1);
+            out.writeShort(name.length);
+            out.write(name);
+
+            writeCigar(out, record.getCigarString());
+
+            sequencePosition = arena.size();
+            out.writeInt(bases.length);
+            out.writeByte((packed ? PACKED : 0) | (hasQualities ? HAS_QUALITIES : 0));
+            if (packed) {
+                for (int i = 0; i < bases.length; i += 2) {
+                    int hi = ArenaByteSubarray.BASE_CODES[bases[i] & 0xff];
+                    int lo = i + 1 < bases.length ? ArenaByteSubarray.BASE_CODES[bases[i + 1] & 0xff] : 0;
+                    out.writeByte((hi << 4) | lo);
+                }
+            } else {
+                out.write(bases);
+            }
+            if (hasQualities) {
+                out.write(qualities);
+            }
+
+            writeTags(out, arena, record);
+
+        } catch (IOException e) {
+            // Writes are to memory, this is not expected
+            throw new RuntimeException(e);
+        }
+
+        this.offset = arena.commit();
+        this.data = arena.getChunk();
+        this.sequenceOffset = offset + sequencePosition;
+
+        this.alignmentBlocks = compactBlocks(alignmentBlocks, packed, bases.length, hasQualities);
+        this.insertions = compactBlocks(insertions, packed, bases.length, hasQualities);
+    }
+
+    @Override
+    public SAMRecord getRecord() {
+
+        SAMRecord record = new SAMRecord(header);
+        record.setReadName(getReadName());
+        record.setFlags(getFlags());
+        record.setReferenceName(referenceName);
+        record.setAlignmentStart(alignmentStart + 1);
+        record.setMappingQuality(mappingQuality);
+        record.setCigarString(getCigarString());
+        record.setMateReferenceName(mateReferenceName);
+        record.setMateAlignmentStart(mateAlignmentStart);
+        record.setInferredInsertSize(inferredInsertSize);
+        record.setReadBases(getReadBases());
+        record.setBaseQualities(getBaseQualities());
+
+        ByteBuffer bb = tagBuffer();
+        while (bb.hasRemaining()) {
+            String tag = readTagKey(bb);
+            byte type = bb.get();
+            boolean unsigned = type == ARRAY && Character.isUpperCase(bb.get(bb.position()));
+            Object value = readValue(bb, type);
+            if (unsigned) {
+                record.setUnsignedArrayAttribute(tag, value);
+            } else {
+                record.setAttribute(tag, value);
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public Object getAttribute(String key) {
+
+        if (key == null || key.length() != 2) {
+            return super.getAttribute(key);
+        }
+
+        ByteBuffer bb = tagBuffer();
+        while (bb.hasRemaining()) {
+            byte c0 = bb.get();
+            byte c1 = bb.get();
+            byte type = bb.get();
+            if (c0 == key.charAt(0) && c1 == key.charAt(1)) {
+                return readValue(bb, type);
+            }
+            skipValue(bb, type);
+        }
+        return null;
+    }
+
+    @Override
+    protected List<SAMRecord.SAMTagAndValue> getTagValues() {
+        List<SAMRecord.SAMTagAndValue> tags = new ArrayList<>();
+        ByteBuffer bb = tagBuffer();
+        while (bb.hasRemaining()) {
+            String tag = readTagKey(bb);
+            tags.add(new SAMRecord.SAMTagAndValue(tag, readValue(bb, bb.get())));
+        }
+        return tags;
+    }
+
+    @Override
+    public String toString() {
+        return getRecord().getSAMString();
+    }
+
+    @Override
+    public String getReadName() {
+        int length = ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+        return new String(data, offset + 2, length, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public int getMappingQuality() {
+        return mappingQuality;
+    }
+
+    @Override
+    public int getInferredInsertSize() {
+        return inferredInsertSize;
+    }
+
+    @Override
+    public String getCigarString() {
+
+        ByteBuffer bb = ByteBuffer.wrap(data);
+        int position = offset + 2 + (bb.getShort(offset) & 0xffff);
+        int count = bb.getInt(position);
+        if (count == 0) {
+            return "*";
+        }
+
+        StringBuilder cigar = new StringBuilder(4 * count);
+        for (int i = 0; i < count; i++) {
+            int op = bb.getInt(position + 4 + 4 * i);
+            cigar.append(op >>> 4).append(CIGAR_OPERATORS.charAt(op & 0xf));
+        }
+        return cigar.toString();
+    }
+
+    @Override
+    public String getReadSequence() {
+        byte[] bases = getReadBases();
+        return bases.length == 0 ? "*" : new String(bases);
+    }
+
+    @Override
+    public int getAlignmentStart() {
+        return alignmentStart;
+    }
+
+    @Override
+    public int getAlignmentEnd() {
+        return alignmentEnd;
+    }
+
+    @Override
+    protected byte[] getReadBases() {
+        return ArenaByteSubarray.decode(data, sequenceOffset + 5, isPacked(), getReadLength());
+    }
+
+    private byte[] getBaseQualities() {
+        if ((data[sequenceOffset + 4] & HAS_QUALITIES) == 0) {
+            return SAMRecord.NULL_QUALS;
+        }
+        return ArenaByteSubarray.decode(data, qualitiesOffset(), false, getReadLength());
+    }
+
+    private int getReadLength() {
+        return ByteBuffer.wrap(data).getInt(sequenceOffset);
+    }
+
+    private boolean isPacked() {
+        return (data[sequenceOffset + 4] & PACKED) != 0;
+    }
+
+    private int qualitiesOffset() {
+        int readLength = getReadLength();
+        return sequenceOffset + 5 + (isPacked() ? (readLength + 1) / 2 : readLength);
+    }
+
+    /**
+     * Return a buffer positioned at the first tag, limited to the end of the tags.
+     */
+    private ByteBuffer tagBuffer() {
+        int position = qualitiesOffset();
+        if ((data[sequenceOffset + 4] & HAS_QUALITIES) != 0) {
+            position += getReadLength();
+        }
+        ByteBuffer bb = ByteBuffer.wrap(data);
+        int length = bb.getInt(position);
+        bb.position(position + 4);
+        bb.limit(position + 4 + length);
+        return bb;
+    }
+
+    private AlignmentBlockImpl[] compactBlocks(AlignmentBlockImpl[] blocks, boolean packed, int readLength, boolean hasQualities) {
+
+        if (blocks == null) return null;
+
+        int basesOffset = sequenceOffset + 5;
+        int qualitiesOffset = basesOffset + (packed ? (readLength + 1) / 2 : readLength);
+
+        AlignmentBlockImpl[] compacted = new AlignmentBlockImpl[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            AlignmentBlockImpl block = blocks[i];
+            if (block == null) continue;
+            int from = block.getBasesOffset();
+            int nBases = block.getBasesLength();
+            ByteSubarray bases = new ArenaByteSubarray(data, basesOffset, packed, readLength, from, nBases, (byte) '?');
+            ByteSubarray qualities = hasQualities ?
+                    new ArenaByteSubarray(data, qualitiesOffset, false, readLength, from, nBases, (byte) 126) :
+                    null;
+            AlignmentBlockImpl c = new AlignmentBlockImpl(block.getStart(), bases, qualities, block.getCigarOperator());
+            c.setSoftClipped(block.isSoftClip());
+            c.setPadding(block.getPadding());
+            compacted[i] = c;
+        }
+        return compacted;
+    }
+
+    private static boolean isPackable(byte[] bases) {
+        for (byte b : bases) {
+            if (ArenaByteSubarray.BASE_CODES[b & 0xff] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeCigar(DataOutputStream out, String cigarString) throws IOException {
+
+        if (cigarString.equals("*")) {
+            out.writeInt(0);
+            return;
+        }
+
+        int count = 0;
+        for (int i = 0; i < cigarString.length(); i++) {
+            if (!Character.isDigit(cigarString.charAt(i))) count++;
+        }
+        out.writeInt(count);
+
+        int length = 0;
+        for (int i = 0; i < cigarString.length(); i++) {
+            char c = cigarString.charAt(i);
+            if (Character.isDigit(c)) {
+                length = 10 * length + (c - '0');
+            } else {
+                out.writeInt((length << 4) | CIGAR_OPERATORS.indexOf(c));
+                length = 0;
+            }
+        }
+    }
+
+    private static void writeTags(DataOutputStream out, AlignmentArena arena, SAMRecord record) throws IOException {
+
+        // Tags are written after a placeholder for their length, which is filled in at the end
+        int lengthPosition = arena.size();
+        out.writeInt(0);
+
+        List<SAMRecord.SAMTagAndValue> attributes = record.getAttributes();
+        if (attributes != null) {
+            for (SAMRecord.SAMTagAndValue tv : attributes) {
+                out.writeByte(tv.tag.charAt(0));
+                out.writeByte(tv.tag.charAt(1));
+                writeValue(out, tv.value, record.isUnsignedArrayAttribute(tv.tag));
+            }
+        }
+
+        arena.putInt(lengthPosition, arena.size() - lengthPosition - 4);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value, boolean unsigned) throws IOException {
+
+        if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof byte[]) {
+            byte[] array = (byte[]) value;
+            writeArrayHeader(out, unsigned ? 'C' : BYTE, array.length);
+            out.write(array);
+        } else if (value instanceof short[]) {
+            short[] array = (short[]) value;
+            writeArrayHeader(out, unsigned ? 'S' : SHORT, array.length);
+            for (short v : array) out.writeShort(v);
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            writeArrayHeader(out, unsigned ? 'I' : INT, array.length);
+            for (int v : array) out.writeInt(v);
+        } else if (value instanceof float[]) {
+            float[] array = (float[]) value;
+            writeArrayHeader(out, FLOAT, array.length);
+            for (float v : array) out.writeFloat(v);
+        } else {
+            log.debug("Unexpected tag value type, storing as string: " + value.getClass());
+            writeValue(out, String.valueOf(value), false);
+        }
+    }
+
+    private static void writeArrayHeader(DataOutputStream out, int elementType, int length) throws IOException {
+        out.writeByte(ARRAY);
+        out.writeByte(elementType);
+        out.writeInt(length);
+    }
+
+    private static String readTagKey(ByteBuffer bb) {
+        return new String(new char[]{(char) bb.get(), (char) bb.get()});
+    }
+
+    private static Object readValue(ByteBuffer bb, byte type) {
+
+        switch (type) {
+            case STRING:
+                byte[] bytes = new byte[bb.getInt()];
+                bb.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            case CHAR:
+                return bb.getChar();
+            case INT:
+                return bb.getInt();
+            case LONG:
+                return bb.getLong();
+            case SHORT:
+                return bb.getShort();
+            case BYTE:
+                return bb.get();
+            case FLOAT:
+                return bb.getFloat();
+            case DOUBLE:
+                return bb.getDouble();
+            case ARRAY:
+                byte elementType = (byte) Character.toLowerCase(bb.get());
+                int length = bb.getInt();
+                switch (elementType) {
+                    case BYTE:
+                        byte[] b = new byte[length];
+                        bb.get(b);
+                        return b;
+                    case SHORT:
+                        short[] s = new short[length];
+                        bb.asShortBuffer().get(s);
+                        bb.position(bb.position() + 2 * length);
+                        return s;
+                    case INT:
+                        int[] i = new int[length];
+                        bb.asIntBuffer().get(i);
+                        bb.position(bb.position() + 4 * length);
+                        return i;
+                    default:
+                        float[] f = new float[length];
+                        bb.asFloatBuffer().get(f);
+                        bb.position(bb.position() + 4 * length);
+                        return f;
+                }
+            default:
+                throw new IllegalStateException("Unexpected tag type: " + (char) type);
+        }
+    }
+
+    private static void skipValue(ByteBuffer bb, byte type) {
+
+        int size;
+        switch (type) {
+            case STRING:
+                size = bb.getInt();
+                break;
+            case BYTE:
+                size = 1;
+                break;
+            case CHAR:
+            case SHORT:
+                size = 2;
+                break;
+            case INT:
+            case FLOAT:
+                size = 4;
+                break;
+            case ARRAY:
+                byte elementType = (byte) Character.toLowerCase(bb.get());
+                int elementSize = elementType == BYTE ? 1 : elementType == SHORT ? 2 : 4;
+                size = elementSize * bb.getInt();
+                break;
+            default:
+                size = 8;
+        }
+        bb.position(bb.position() + size);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+/**
+ * A column of non-negative counts, or sums, over an interval.  In compact mode storage is allocated on the first
+ * non-zero value, starting with the narrowest width (byte, then char, then int) that holds the values seen, and
+ * widening as needed.  Columns that are never incremented, for example quality sums when no base in the
+ * interval has quality, cost nothing.  Values that would be negative are stored at int width.
+ */
+final class CountColumn {
+
+    private final int length;
+    private byte[] bytes;
+    private char[] chars;
+    private int[] ints;
+
+    CountColumn(int length, boolean compact) {
+        this.length = length;
+        if (!compact) {
+            ints = new int[length];
+        }
+    }
+
+    int get(int idx) {
+        if (ints != null) {
+            return ints[idx];
+        } else if (chars != null) {
+            return chars[idx];
+        } else if (bytes != null) {
+            return bytes[idx] & 0xff;
+        } else {
+            return 0;
+        }
+    }
+
+    void add(int idx, int delta) {
+
+        if (ints != null) {
+            ints[idx] += delta;
+            return;
+        }
+
+        int value = get(idx) + delta;
+
+        if (chars != null) {
+            if ((value & ~0xffff) == 0) {
+                chars[idx] = (char) value;
+            } else {
+                toInts();
+                ints[idx] = value;
+            }
+        } else if (bytes != null) {
+            if ((value & ~0xff) == 0) {
+                bytes[idx] = (byte) value;
+            } else if ((value & ~0xffff) == 0) {
+                toChars();
+                chars[idx] = (char) value;
+            } else {
+                toInts();
+                ints[idx] = value;
+            }
+        } else if (value == 0) {
+            // Nothing to store
+        } else if ((value & ~0xff) == 0) {
+            bytes = new byte[length];
+            bytes[idx] = (byte) value;
+        } else if ((value & ~0xffff) == 0) {
+            chars = new char[length];
+            chars[idx] = (char) value;
+        } else {
+            ints = new int[length];
+            ints[idx] = value;
+        }
+    }
+
+    void increment(int idx) {
+        add(idx, 1);
+    }
+
+    /**
+     * Bytes used by the value storage
+     */
+    long getStorageSize() {
+        if (ints != null) {
+            return 4L * length;
+        } else if (chars != null) {
+            return 2L * length;
+        } else if (bytes != null) {
+            return length;
+        } else {
+            return 0;
+        }
+    }
+
+    private void toChars() {
+        chars = new char[length];
+        if (bytes != null) {
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) (bytes[i] & 0xff);
+            }
+            bytes = null;
+        }
+    }
+
+    private void toInts() {
+        ints = new int[length];
+        if (chars != null) {
+            for (int i = 0; i < length; i++) {
+                ints[i] = chars[i];
+            }
+            chars = null;
+        } else if (bytes != null) {
+            for (int i = 0; i < length; i++) {
+                ints[i] = bytes[i] & 0xff;
+            }
+            bytes = null;
+        }
+    }
+}
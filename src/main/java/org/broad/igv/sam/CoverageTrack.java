@@ -155,6 +155,14 @@ public class CoverageTrack extends AbstractTrack implements ScalableTrack {
         return true;
     }
 
+    /**
+     * The data range scale is drawn relative to the visible area and would move with cached pixels while panning.
+     */
+    @Override
+    public boolean isPanCacheable(ReferenceFrame frame) {
+        return false;
+    }
+
     public void setDataManager(AlignmentDataManager dataManager) {
         this.dataManager = dataManager;
         this.dataManager.subscribe(this);
@@ -26,8 +26,15 @@
 package org.broad.igv.sam;
 
 import org.broad.igv.logging.*;
+import org.broad.igv.prefs.PreferencesManager;
+
+import static org.broad.igv.prefs.Constants.SAM_COMPACT_COUNTS;
 
 /**
+ * Alignment counts for every position of an interval.  Each count is held in a CountColumn.  In compact mode,
+ * the default, columns are stored at the narrowest width the observed depth allows and are allocated on first
+ * use, so shallow intervals, and quality, deletion and insertion columns that are never touched, cost little.
+ *
  * @author jrobinso
  * @date Feb 23, 2011
  */
@@ -36,27 +43,28 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
     private static Logger log = LogManager.getLogger(DenseAlignmentCounts.class);
 
     // counts
-    int[] posA;
-    int[] posT;
-    int[] posC;
-    int[] posG;
-    int[] posN;
-    int[] negA;
-    int[] negT;
-    int[] negC;
-    int[] negG;
-    int[] negN;
-    int[] qA;
-    int[] qT;
-    int[] qC;
-    int[] qG;
-    int[] qN;
-    int[] posTotal;
-    int[] negTotal;
-    int[] del;
-    int[] ins;
-    private int[] totalQ;
+    CountColumn posA;
+    CountColumn posT;
+    CountColumn posC;
+    CountColumn posG;
+    CountColumn posN;
+    CountColumn negA;
+    CountColumn negT;
+    CountColumn negC;
+    CountColumn negG;
+    CountColumn negN;
+    CountColumn qA;
+    CountColumn qT;
+    CountColumn qC;
+    CountColumn qG;
+    CountColumn qN;
+    CountColumn posTotal;
+    CountColumn negTotal;
+    CountColumn del;
+    CountColumn ins;
+    private CountColumn totalQ;
     private int maxCount = 0;
+    private final int nPts;
 
     /**
      * We store the maximum number of counts over intervals
@@ -68,27 +76,28 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
     public DenseAlignmentCounts(int start, int end, AlignmentTrack.BisulfiteContext bisulfiteContext) {
         super(start, end, bisulfiteContext);
 
-        int nPts = end - start;
-        posA = new int[nPts];
-        posT = new int[nPts];
-        posC = new int[nPts];
-        posG = new int[nPts];
-        posN = new int[nPts];
-        posTotal = new int[nPts];
-        negA = new int[nPts];
-        negT = new int[nPts];
-        negC = new int[nPts];
-        negG = new int[nPts];
-        negN = new int[nPts];
-        negTotal = new int[nPts];
-        qA = new int[nPts];
-        qT = new int[nPts];
-        qC = new int[nPts];
-        qG = new int[nPts];
-        qN = new int[nPts];
-        del = new int[nPts];
-        ins = new int[nPts];
-        totalQ = new int[nPts];
+        nPts = end - start;
+        boolean compact = PreferencesManager.getPreferences().getAsBoolean(SAM_COMPACT_COUNTS);
+        posA = new CountColumn(nPts, compact);
+        posT = new CountColumn(nPts, compact);
+        posC = new CountColumn(nPts, compact);
+        posG = new CountColumn(nPts, compact);
+        posN = new CountColumn(nPts, compact);
+        posTotal = new CountColumn(nPts, compact);
+        negA = new CountColumn(nPts, compact);
+        negT = new CountColumn(nPts, compact);
+        negC = new CountColumn(nPts, compact);
+        negG = new CountColumn(nPts, compact);
+        negN = new CountColumn(nPts, compact);
+        negTotal = new CountColumn(nPts, compact);
+        qA = new CountColumn(nPts, compact);
+        qT = new CountColumn(nPts, compact);
+        qC = new CountColumn(nPts, compact);
+        qG = new CountColumn(nPts, compact);
+        qN = new CountColumn(nPts, compact);
+        del = new CountColumn(nPts, compact);
+        ins = new CountColumn(nPts, compact);
+        totalQ = new CountColumn(nPts, compact);
 
         maxCounts = new int[(nPts / MAX_COUNT_INTERVAL) + 1];
         log.debug("nPts: " + nPts + " maxCounts.length: " + maxCounts.length);
@@ -98,6 +107,18 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
         return end - start;
     }
 
+    /**
+     * Approximate bytes used by count storage
+     */
+    public long getStorageSize() {
+        long size = 4L * maxCounts.length;
+        for (CountColumn c : new CountColumn[]{posA, posT, posC, posG, posN, negA, negT, negC, negG, negN,
+                qA, qT, qC, qG, qN, posTotal, negTotal, del, ins, totalQ}) {
+            size += c.getStorageSize();
+        }
+        return size;
+    }
+
     @Override
     public int getMaxCount(int strt, int end) {
 
@@ -127,33 +148,33 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
 
     public int getTotalCount(int pos) {
         int offset = pos - start;
-        if (offset < 0 || offset >= posA.length) {
+        if (offset < 0 || offset >= nPts) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            return posTotal[offset] + negTotal[offset];
+            return posTotal.get(offset) + negTotal.get(offset);
 
         }
     }
 
     public int getTotalQuality(int pos) {
         int offset = pos - start;
-        if (offset < 0 || offset >= posA.length) {
+        if (offset < 0 || offset >= nPts) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            return totalQ[offset];
+            return totalQ.get(offset);
 
         }
     }
 
     public int getCount(int pos, byte b) {
         int offset = pos - start;
-        if (offset < 0 || offset >= posA.length) {
+        if (offset < 0 || offset >= nPts) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
@@ -162,19 +183,19 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
             switch (b) {
                 case 'a':
                 case 'A':
-                    return posA[offset] + negA[offset];
+                    return posA.get(offset) + negA.get(offset);
                 case 't':
                 case 'T':
-                    return posT[offset] + negT[offset];
+                    return posT.get(offset) + negT.get(offset);
                 case 'c':
                 case 'C':
-                    return posC[offset] + negC[offset];
+                    return posC.get(offset) + negC.get(offset);
                 case 'g':
                 case 'G':
-                    return posG[offset] + negG[offset];
+                    return posG.get(offset) + negG.get(offset);
                 case 'n':
                 case 'N':
-                    return posN[offset] + negN[offset];
+                    return posN.get(offset) + negN.get(offset);
             }
             log.debug("Unknown nucleotide: " + b);
             return 0;
@@ -183,7 +204,7 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
 
     public int getNegCount(int pos, byte b) {
         int offset = pos - start;
-        if (offset < 0 || offset >= posA.length) {
+        if (offset < 0 || offset >= nPts) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
@@ -192,19 +213,19 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
             switch (b) {
                 case 'a':
                 case 'A':
-                    return negA[offset];
+                    return negA.get(offset);
                 case 't':
                 case 'T':
-                    return negT[offset];
+                    return negT.get(offset);
                 case 'c':
                 case 'C':
-                    return negC[offset];
+                    return negC.get(offset);
                 case 'g':
                 case 'G':
-                    return negG[offset];
+                    return negG.get(offset);
                 case 'n':
                 case 'N':
-                    return negN[offset];
+                    return negN.get(offset);
             }
             log.error("Unknown nucleotide: " + b);
             return 0;
@@ -213,7 +234,7 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
 
     public int getPosCount(int pos, byte b) {
         int offset = pos - start;
-        if (offset < 0 || offset >= posA.length) {
+        if (offset < 0 || offset >= nPts) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
@@ -222,19 +243,19 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
             switch (b) {
                 case 'a':
                 case 'A':
-                    return posA[offset];
+                    return posA.get(offset);
                 case 't':
                 case 'T':
-                    return posT[offset];
+                    return posT.get(offset);
                 case 'c':
                 case 'C':
-                    return posC[offset];
+                    return posC.get(offset);
                 case 'g':
                 case 'G':
-                    return posG[offset];
+                    return posG.get(offset);
                 case 'n':
                 case 'N':
-                    return posN[offset];
+                    return posN.get(offset);
             }
             log.error("Unknown nucleotide: " + b);
             return 0;
@@ -243,30 +264,30 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
 
     public int getDelCount(int pos) {
         int offset = pos - start;
-        if (offset < 0 || offset >= posA.length) {
+        if (offset < 0 || offset >= nPts) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         }
-        return del[offset];
+        return del.get(offset);
     }
 
 
     public int getInsCount(int pos) {
         int offset = pos - start;
-        if (offset < 0 || offset >= posA.length) {
+        if (offset < 0 || offset >= nPts) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         }
-        return ins[offset];
+        return ins.get(offset);
     }
 
     public int getQuality(int pos, byte b) {
         int offset = pos - start;
-        if (offset < 0 || offset >= posA.length) {
+        if (offset < 0 || offset >= nPts) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
@@ -275,21 +296,21 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
             switch (b) {
                 case 'a':
                 case 'A':
-                    return qA[offset];
+                    return qA.get(offset);
                 case 't':
                 case 'T':
-                    return qT[offset];
+                    return qT.get(offset);
                 case 'c':
                 case 'C':
-                    return qC[offset];
+                    return qC.get(offset);
                 case 'g':
                 case 'G':
-                    return qG[offset];
+                    return qG.get(offset);
                 case 'n':
                 case 'N':
-                    return qN[offset];
+                    return qN.get(offset);
             }
-            log.error("Unknown nucleotide: " + posN);
+            log.error("Unknown nucleotide: " + b);
             return 0;
         }
     }
@@ -297,14 +318,14 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
 
     protected void incrementDeletion(int pos, boolean negativeStrand) {
         int offset = pos - start;
-        if (offset >= 0 && offset < del.length) {
-            del[offset] = del[offset] + 1;
+        if (offset >= 0 && offset < nPts) {
+            del.increment(offset);
 
             if (countDeletedBasesCovered) {
                 if (negativeStrand) {
-                    negTotal[offset] = negTotal[offset] + 1;
+                    negTotal.increment(offset);
                 } else {
-                    posTotal[offset] = posTotal[offset] + 1;
+                    posTotal.increment(offset);
                 }
             }
         }
@@ -314,8 +335,8 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
         int pos = insBlock.getStart();
         int offset = pos - start;
         // Insertions are between bases.  increment count at position just before insertion
-        if (offset >= 0 && offset < ins.length) {
-           ins[offset] = ins[offset] + 1;
+        if (offset >= 0 && offset < nPts) {
+           ins.increment(offset);
         }
     }
 
@@ -336,62 +357,62 @@ public class DenseAlignmentCounts extends BaseAlignmentCounts {
     protected void incPositionCount(int pos, byte b, byte q, boolean isNegativeStrand) {
 
         int offset = pos - start;
-        if (offset >= 0 && offset < posA.length) {
+        if (offset >= 0 && offset < nPts) {
             switch (b) {
                 case 'a':
                 case 'A':
                     if (isNegativeStrand) {
-                        negA[offset] = negA[offset] + 1;
+                        negA.increment(offset);
                     } else {
-                        posA[offset] = posA[offset] + 1;
+                        posA.increment(offset);
                     }
-                    qA[offset] = qA[offset] + q;
+                    qA.add(offset, q);
                     break;
                 case 't':
                 case 'T':
                     if (isNegativeStrand) {
-                        negT[offset] = negT[offset] + 1;
+                        negT.increment(offset);
                     } else {
-                        posT[offset] = posT[offset] + 1;
+                        posT.increment(offset);
                     }
-                    qT[offset] = qT[offset] + q;
+                    qT.add(offset, q);
                     break;
                 case 'c':
                 case 'C':
                     if (isNegativeStrand) {
-                        negC[offset] = negC[offset] + 1;
+                        negC.increment(offset);
                     } else {
-                        posC[offset] = posC[offset] + 1;
+                        posC.increment(offset);
                     }
-                    qC[offset] = qC[offset] + q;
+                    qC.add(offset, q);
                     break;
                 case 'g':
                 case 'G':
                     if (isNegativeStrand) {
-                        negG[offset] = negG[offset] + 1;
+                        negG.increment(offset);
                     } else {
-                        posG[offset] = posG[offset] + 1;
+                        posG.increment(offset);
                     }
-                    qG[offset] = qG[offset] + q;
+                    qG.add(offset, q);
                     break;
                 // Everything else is counted as "N".  This might be an actual "N",  or an ambiguity code
                 default:
                     if (isNegativeStrand) {
-                        negN[offset] = negN[offset] + 1;
+                        negN.increment(offset);
                     } else {
-                        posN[offset] = posN[offset] + 1;
+                        posN.increment(offset);
                     }
-                    qN[offset] = qN[offset] + q;
+                    qN.add(offset, q);
 
             }
             if (isNegativeStrand) {
-                negTotal[offset] = negTotal[offset] + 1;
+                negTotal.increment(offset);
             } else {
-                posTotal[offset] = posTotal[offset] + 1;
+                posTotal.increment(offset);
             }
-            totalQ[offset] = totalQ[offset] + q;
+            totalQ.add(offset, q);
 
-            int tmp = posTotal[offset] + negTotal[offset];
+            int tmp = posTotal.get(offset) + negTotal.get(offset);
             int maxCountInt = offset / MAX_COUNT_INTERVAL;
             if(tmp > maxCounts[maxCountInt]){
                 maxCounts[maxCountInt] = tmp;
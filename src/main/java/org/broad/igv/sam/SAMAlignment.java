@@ -154,6 +154,33 @@ public class SAMAlignment implements Alignment {
 
     }
 
+    /**
+     * Copy constructor for subclasses that replace the backing SAMRecord with their own storage.  Derived state
+     * (blocks, gaps, mate, strands) is shared with the source alignment; the record itself is not retained.
+     * Subclasses must override the methods that read from the record.
+     */
+    protected SAMAlignment(SAMAlignment other) {
+        this.record = null;
+        this.readGroupRecord = other.readGroupRecord;
+        this.flags = other.flags;
+        this.chr = other.chr;
+        this.start = other.start;
+        this.end = other.end;
+        this.ycColor = other.ycColor;
+        this.mate = other.mate;
+        this.alignmentBlocks = other.alignmentBlocks;
+        this.insertions = other.insertions;
+        this.gaps = other.gaps;
+        this.gapTypes = other.gapTypes;
+        this.baseModificationMap = other.baseModificationMap;
+        this.mateSequence = other.mateSequence;
+        this.pairOrientation = other.pairOrientation;
+        this.firstOfPairStrand = other.firstOfPairStrand;
+        this.secondOfPairStrand = other.secondOfPairStrand;
+        this.haplotypeName = other.haplotypeName;
+        this.hapDistance = other.hapDistance;
+    }
+
     public SAMRecord getRecord() {
         return this.record;
     }
@@ -260,8 +287,26 @@ public class SAMAlignment implements Alignment {
         return record.getAlignmentEnd();
     }
 
+    /**
+     * Return the read bases, or an empty array if the sequence is not stored ("*").
+     */
+    protected byte[] getReadBases() {
+        return record.getReadBases();
+    }
+
+    /**
+     * Return the optional fields (tags) of this alignment, in record order.
+     */
+    protected List<SAMRecord.SAMTagAndValue> getTagValues() {
+        return record.getAttributes();
+    }
+
+    int getFlags() {
+        return flags;
+    }
+
     public String getReadLengthString() {
-        String rs = record.getReadString();
+        String rs = getReadSequence();
         if (rs.equals("*") || rs.equals("")) {
             return "undefined";
         } else {
@@ -320,17 +365,25 @@ public class SAMAlignment implements Alignment {
     @Override
     public synchronized Map<Integer, BaseModification> getBaseModificationMap() {
 
-        if (baseModificationMap == null && (record.hasAttribute("Mm") || record.hasAttribute("MM"))) {
-            Object mm = record.hasAttribute("Mm") ? record.getAttribute("Mm") : record.getAttribute("MM");
-            byte[] ml = (byte[]) (record.hasAttribute("Ml") ? record.getAttribute("Ml") : record.getAttribute("ML"));
-            List<BaseModification> baseModifications = BaseModification.getBaseModifications(mm.toString(), ml, record.getReadBases(), isNegativeStrand());
-            baseModificationMap = new HashMap<>();
-            for (BaseModification mod : baseModifications) {
-                Integer p = mod.position;
-                if (!baseModificationMap.containsKey(p) || Byte.toUnsignedInt(mod.likelihood) > Byte.toUnsignedInt(baseModificationMap.get(p).likelihood)) {
-                    baseModificationMap.put(p, mod);
+        if (baseModificationMap == null) {
+            Object mm = getAttribute("Mm");
+            if (mm == null) {
+                mm = getAttribute("MM");
+            }
+            if (mm != null) {
+                Object ml = getAttribute("Ml");
+                if (ml == null) {
+                    ml = getAttribute("ML");
                 }
+                List<BaseModification> baseModifications = BaseModification.getBaseModifications(mm.toString(), (byte[]) ml, getReadBases(), isNegativeStrand());
+                baseModificationMap = new HashMap<>();
+                for (BaseModification mod : baseModifications) {
+                    Integer p = mod.position;
+                    if (!baseModificationMap.containsKey(p) || Byte.toUnsignedInt(mod.likelihood) > Byte.toUnsignedInt(baseModificationMap.get(p).likelihood)) {
+                        baseModificationMap.put(p, mod);
+                    }
 
+                }
             }
         }
         return baseModificationMap;
@@ -637,7 +690,7 @@ public class SAMAlignment implements Alignment {
         }
         buf.append("Read length = " + getReadLengthString() + "<br>");
 
-        buf.append("Flags = " + record.getFlags()  + "<br>");
+        buf.append("Flags = " + flags  + "<br>");
 
         buf.append("----------------------" + "<br>");
         String cigarString = getCigarString();
@@ -782,8 +835,7 @@ public class SAMAlignment implements Alignment {
         }
 
         StringBuffer buf = new StringBuffer();
-        SAMRecord record = getRecord();
-        List<SAMRecord.SAMTagAndValue> attributes = record.getAttributes();
+        List<SAMRecord.SAMTagAndValue> attributes = getTagValues();
         if (attributes != null && !attributes.isEmpty()) {
 
             for (SAMRecord.SAMTagAndValue tag : attributes) {
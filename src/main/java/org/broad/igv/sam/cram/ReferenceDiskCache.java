@@ -8,12 +8,12 @@ import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.prefs.Constants;
 import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.util.HttpUtils;
+import org.broad.igv.util.IGVExecutors;
 
 import java.io.*;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.zip.*;
 
 /**
@@ -26,11 +26,19 @@ public class ReferenceDiskCache {
 
     private static Logger log = LogManager.getLogger(ReferenceDiskCache.class);
 
-    private static final ExecutorService threadExecutor = Executors.newFixedThreadPool(1);
+    private static ExecutorService threadExecutor;
+
+    private static synchronized ExecutorService getThreadExecutor() {
+        if (threadExecutor == null) {
+            int threads = PreferencesManager.getPreferences().getAsInt(Constants.IO_REFERENCE_CACHE_THREADS);
+            threadExecutor = IGVExecutors.newIOExecutor(threads);
+        }
+        return threadExecutor;
+    }
 
     public static void saveSequence(final String genomeId, final String chr, final byte[] bytes) throws IOException {
 
-        threadExecutor.submit(() -> {
+        getThreadExecutor().submit(() -> {
             {
                 File cacheDir = getCacheDirectory();
 
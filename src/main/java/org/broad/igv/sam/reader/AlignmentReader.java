@@ -88,4 +88,12 @@ public interface AlignmentReader<T extends Alignment> {
 
     boolean hasIndex();
 
+    /**
+     * Return true if query() can be called concurrently from multiple threads, with each call returning an
+     * independent iterator.
+     */
+    default boolean supportsConcurrentQueries() {
+        return false;
+    }
+
 }
@@ -90,6 +90,14 @@ public class BAMReader implements AlignmentReader<SAMAlignment> {
         return indexed;
     }
 
+    /**
+     * Each query obtains its own SamReader from the pool, so indexed files can be queried concurrently.
+     */
+    @Override
+    public boolean supportsConcurrentQueries() {
+        return indexed;
+    }
+
     public Set<String> getPlatforms() {
         return AlignmentReaderFactory.getPlatforms(getFileHeader());
     }
@@ -45,7 +45,7 @@ public class SamReaderPool {
     private ResourceLocator locator;
     private boolean requireIndex;
     private List<SamReader> availableReaders;
-    byte [] indexBytes;
+    private volatile byte [] indexBytes;
 
     public SamReaderPool(ResourceLocator locator, boolean requireIndex) {
         this.locator = locator;
@@ -53,15 +53,20 @@ public class SamReaderPool {
         availableReaders = Collections.synchronizedList(new ArrayList<>());
     }
 
-    public synchronized SamReader getReader() throws IOException {
-        if (availableReaders.size() > 0) {
-            return availableReaders.remove(0);
-        } else {
-            return createReader();
+    /**
+     * Return a free reader, or create one.  Readers are created outside the pool lock so that concurrent queries
+     * against a remote file open their streams, and issue range requests, in parallel.
+     */
+    public SamReader getReader() throws IOException {
+        synchronized (availableReaders) {
+            if (availableReaders.size() > 0) {
+                return availableReaders.remove(0);
+            }
         }
+        return createReader();
     }
 
-    public synchronized SamReader getReaderIterator() throws IOException {
+    public SamReader getReaderIterator() throws IOException {
         return createReader(1000000);
     }
 
@@ -127,10 +132,7 @@ public class SamReaderPool {
                 resource = resource.index(indexFile);
             } else {
                 // Don't use seekable stream for remoted indeces, can result in hundreds of http requests.
-                if(indexBytes == null) {
-                    indexBytes = HttpUtils.getInstance().getContentsAsBytes(HttpUtils.createURL(indexPath), null);
-                }
-                ByteArraySeekableStream stream = new ByteArraySeekableStream(indexBytes);
+                ByteArraySeekableStream stream = new ByteArraySeekableStream(getIndexBytes(indexPath));
                 resource = resource.index(stream);
             }
         }
@@ -138,6 +140,13 @@ public class SamReaderPool {
         return factory.open(resource);
     }
 
+    private synchronized byte[] getIndexBytes(String indexPath) throws IOException {
+        if (indexBytes == null) {
+            indexBytes = HttpUtils.getInstance().getContentsAsBytes(HttpUtils.createURL(indexPath), null);
+        }
+        return indexBytes;
+    }
+
     /**
      * Fetch an explicitly set index path, either via the ResourceLocator or as a parameter in a URL
      *
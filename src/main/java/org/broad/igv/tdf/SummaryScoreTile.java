@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.tdf;
+
+import org.broad.igv.data.BasicScore;
+import org.broad.igv.feature.LocusScore;
+import org.broad.igv.util.collections.FloatArrayList;
+import org.broad.igv.util.collections.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary scores for a single tile, stored as primitive start, end, and value columns.  The columns are scanned to
+ * select scores in a range, and LocusScore objects are created only for the selected scores, per query, so a cached
+ * tile holds no score objects.
+ * <p>
+ * Scores computed from raw data can carry extra information (probe names, composite values) used for popup text
+ * that the columns cannot reproduce, so tiles built from score objects keep the originals.
+ */
+class SummaryScoreTile {
+
+    final int[] starts;
+    final int[] ends;
+    final float[] values;
+    private final LocusScore[] scores;   // Null unless built from score objects
+
+    SummaryScoreTile(int[] starts, int[] ends, float[] values) {
+        this(starts, ends, values, null);
+    }
+
+    private SummaryScoreTile(int[] starts, int[] ends, float[] values, LocusScore[] scores) {
+        this.starts = starts;
+        this.ends = ends;
+        this.values = values;
+        this.scores = scores;
+    }
+
+    static SummaryScoreTile fromScores(List<LocusScore> scoreList) {
+
+        int size = scoreList.size();
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            LocusScore s = scoreList.get(i);
+            starts[i] = s.getStart();
+            ends[i] = s.getEnd();
+            values[i] = s.getScore();
+        }
+        return new SummaryScoreTile(starts, ends, values, scoreList.toArray(new LocusScore[size]));
+    }
+
+    static SummaryScoreTile fromColumns(IntArrayList starts, IntArrayList ends, FloatArrayList values) {
+        return new SummaryScoreTile(starts.toArray(), ends.toArray(), values.toArray());
+    }
+
+    int size() {
+        return starts.length;
+    }
+
+    /**
+     * Return the score at idx.  For a tile stored as columns this is a new object on each call.
+     */
+    LocusScore getScore(int idx) {
+        return scores != null ? scores[idx] : new BasicScore(starts[idx], ends[idx], values[idx]);
+    }
+
+    List<LocusScore> getScores() {
+        List<LocusScore> list = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            list.add(getScore(i));
+        }
+        return list;
+    }
+
+    /**
+     * Estimate of the heap size of this tile, used for cache accounting.  This includes the score objects of a
+     * tile built from scores.
+     */
+    long estimateBytes() {
+        return 64L + (scores == null ? 12L : 12L + 56L) * starts.length;
+    }
+}
@@ -42,8 +42,14 @@ import org.broad.igv.prefs.Constants;
 import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.track.TrackType;
 import org.broad.igv.track.WindowFunction;
+import org.broad.igv.util.collections.FloatArrayList;
+import org.broad.igv.util.collections.IntArrayList;
+import org.broad.igv.util.collections.WeightedLRUCache;
+import org.broad.igv.util.metrics.Metric;
+import org.broad.igv.util.metrics.MetricsRegistry;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author jrobinso
@@ -52,11 +58,33 @@ public class TDFDataSource implements CoverageDataSource {
 
     private static Logger log = LogManager.getLogger(TDFDataSource.class);
 
+    /**
+     * Maximum estimated size of cached summary scores.  The budget is shared by all data sources (tracks), so
+     * that loading many TDF tracks does not multiply it.
+     */
+    static final long MAX_CACHE_BYTES = 100000000;
+
+    static final WeightedLRUCache<TileKey, SummaryScoreTile> summaryScoreCache =
+            new WeightedLRUCache<>(MAX_CACHE_BYTES, SummaryScoreTile::estimateBytes);
+
+    static {
+        summaryScoreCache.setEvictionListener((key, tile) -> key.source.cacheBytes.addAndGet(-tile.estimateBytes()));
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("cache.tdf.summary.hitRate", summaryScoreCache::getHitRate);
+        metrics.gauge("cache.tdf.summary.evictions", summaryScoreCache::getEvictionCount);
+        metrics.gauge("cache.tdf.summary.bytes", summaryScoreCache::getWeight);
+    }
+
     TDFReader reader;
     int maxPrecomputedZoom = 6;
     private int trackNumber = 0;
     String trackName;
-    Map<String, List<LocusScore>> summaryScoreCache = Collections.synchronizedMap(new HashMap<>());
+
+    // Cache statistics for this data source, published as gauges until disposed
+    final AtomicLong cacheHits = new AtomicLong();
+    final AtomicLong cacheMisses = new AtomicLong();
+    final AtomicLong cacheBytes = new AtomicLong();
+    private final List<Metric> gauges = new ArrayList<>();
     Genome genome;
     WindowFunction windowFunction = WindowFunction.mean;
     List<WindowFunction> availableFunctions;
@@ -75,6 +103,12 @@ public class TDFDataSource implements CoverageDataSource {
         this.reader = reader;
         init();
 
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        String tag = MetricsRegistry.pathTag(getPath()) + "#" + trackNumber;
+        gauges.add(metrics.gauge("cache.tdf.summary.hits", tag, cacheHits::get));
+        gauges.add(metrics.gauge("cache.tdf.summary.misses", tag, cacheMisses::get));
+        gauges.add(metrics.gauge("cache.tdf.summary.bytes", tag, cacheBytes::get));
+
 
     }
 
@@ -163,19 +197,29 @@ public class TDFDataSource implements CoverageDataSource {
         return reader.getLowerLimit() * normalizationFactor;
     }
 
-    private List<LocusScore> getCachedSummaryScores(String querySeq, int zoom, int tileNumber, double tileWidth) {
+    private SummaryScoreTile getCachedSummaryScores(String querySeq, int zoom, int tileNumber, double tileWidth) {
 
-        String key = querySeq + "_" + zoom + "_" + tileNumber + "_" + windowFunction;
+        TileKey key = new TileKey(this, querySeq + "_" + zoom + "_" + tileNumber + "_" + windowFunction);
 
-        List<LocusScore> scores = summaryScoreCache.get(key);
+        SummaryScoreTile scores = summaryScoreCache.get(key);
         if (scores == null) {
+            cacheMisses.incrementAndGet();
 
             int startLocation = (int) (tileNumber * tileWidth);
             int endLocation = (int) ((tileNumber + 1) * tileWidth);
 
-            scores = getSummaryScores(querySeq, startLocation, endLocation, zoom);
+            scores = loadSummaryScores(querySeq, startLocation, endLocation, zoom);
 
-            summaryScoreCache.put(key, scores);
+            long bytes = scores.estimateBytes();
+            if (bytes <= summaryScoreCache.getMaxWeight()) {
+                cacheBytes.addAndGet(bytes);
+                SummaryScoreTile previous = summaryScoreCache.put(key, scores);
+                if (previous != null) {
+                    cacheBytes.addAndGet(-previous.estimateBytes());
+                }
+            }
+        } else {
+            cacheHits.incrementAndGet();
         }
 
         return scores;
@@ -183,13 +227,15 @@ public class TDFDataSource implements CoverageDataSource {
     }
 
     public List<LocusScore> getSummaryScores(String querySeq, int startLocation, int endLocation, int zoom) {
+        return loadSummaryScores(querySeq, startLocation, endLocation, zoom).getScores();
+    }
+
+    private SummaryScoreTile loadSummaryScores(String querySeq, int startLocation, int endLocation, int zoom) {
 
         if (this.availableFunctions == null) {
             init();
         }
 
-        List<LocusScore> scores;
-
         if (zoom <= this.maxPrecomputedZoom && windowFunction != WindowFunction.none) {
             // Window function == none => no windowing, so its not clear what to do.  For now use mean
             // WindowFunction wf = (windowFunction == WindowFunction.none ? WindowFunction.mean : windowFunction);
@@ -205,7 +251,10 @@ public class TDFDataSource implements CoverageDataSource {
                 }
             }
 
-            scores = new ArrayList(1000);
+            // Precomputed scores are plain start-end-value triplets, copy directly to primitive columns
+            IntArrayList starts = new IntArrayList(1000);
+            IntArrayList ends = new IntArrayList(1000);
+            FloatArrayList values = new FloatArrayList(1000);
             if (tiles != null && tiles.size() > 0) {
                 for (TDFTile tile : tiles) {
 
@@ -214,22 +263,26 @@ public class TDFDataSource implements CoverageDataSource {
                             float v = tile.getValue(trackNumber, i);
                             if (!Float.isNaN(v)) {
                                 v *= normalizationFactor;
-                                scores.add(new BasicScore(tile.getStartPosition(i), tile.getEndPosition(i), v));
+                                starts.add(tile.getStartPosition(i));
+                                ends.add(tile.getEndPosition(i));
+                                values.add(v);
                             }
                         }
                     }
                 }
             }
+            return SummaryScoreTile.fromColumns(starts, ends, values);
 
         } else {
 
+            List<LocusScore> scores;
             if (querySeq.equals(Globals.CHR_ALL)) {
                 scores = getWGRawScores();
             } else {
                 scores = getLocusScoresForChr(querySeq, startLocation, endLocation, zoom);
             }
+            return SummaryScoreTile.fromScores(scores);
         }
-        return scores;
     }
 
     private List<LocusScore> getLocusScoresForChr(String chr, int startLocation, int endLocation, int zoom) {
@@ -445,12 +498,12 @@ public class TDFDataSource implements CoverageDataSource {
             int endTile = ((endLocation - 1) / tileWidth);
 
             for (int t = startTile; t <= endTile; t++) {
-                List<LocusScore> cachedScores = getCachedSummaryScores(querySeq, zoom, t, tileWidth);
+                SummaryScoreTile cachedScores = getCachedSummaryScores(querySeq, zoom, t, tileWidth);
                 if (cachedScores != null) {
-                    for (LocusScore s : cachedScores) {
-                        if (s.getEnd() >= startLocation) {
-                            scores.add(s);
-                        } else if (s.getStart() > endLocation) {
+                    for (int i = 0; i < cachedScores.size(); i++) {
+                        if (cachedScores.ends[i] >= startLocation) {
+                            scores.add(cachedScores.getScore(i));
+                        } else if (cachedScores.starts[i] > endLocation) {
                             break;
                         }
                     }
@@ -489,7 +542,19 @@ public class TDFDataSource implements CoverageDataSource {
 
     @Override
     public void dispose() {
-
+        for (TileKey key : summaryScoreCache.keys()) {
+            if (key.source == this) {
+                SummaryScoreTile tile = summaryScoreCache.remove(key);
+                if (tile != null) {
+                    cacheBytes.addAndGet(-tile.estimateBytes());
+                }
+            }
+        }
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        for (Metric gauge : gauges) {
+            metrics.remove(gauge);
+        }
+        gauges.clear();
     }
 
     /**
@@ -551,4 +616,32 @@ public class TDFDataSource implements CoverageDataSource {
 
 
     private static HashSet<String> WELL_KNOWN_GENOMES = new HashSet<String>(Arrays.asList("hg18", "hg19", "mm8", "mm9"));
+
+    /**
+     * Key of a summary tile in the shared cache.  The owning data source is part of the key, so that its entries
+     * can be removed and its memory accounted for.
+     */
+    static final class TileKey {
+
+        final TDFDataSource source;
+        final String key;
+
+        TileKey(TDFDataSource source, String key) {
+            this.source = source;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey)) return false;
+            TileKey other = (TileKey) o;
+            return source == other.source && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(source) + key.hashCode();
+        }
+    }
 }
@@ -39,7 +39,10 @@ import org.broad.igv.track.WindowFunction;
 import org.broad.igv.util.CompressionUtils;
 import org.broad.igv.util.ResourceLocator;
 import org.broad.igv.util.StringUtils;
-import org.broad.igv.util.collections.LRUCache;
+import org.broad.igv.util.collections.WeightedLRUCache;
+import org.broad.igv.util.metrics.MetricsRegistry;
+import org.broad.igv.util.metrics.Timer;
+import org.broad.igv.util.stream.IGVMappedFileStream;
 import org.broad.igv.util.stream.IGVSeekableStreamFactory;
 
 import java.io.IOException;
@@ -56,6 +59,16 @@ public class TDFReader {
     static final Logger log = LogManager.getLogger(TDFReader.class);
     public static final int GZIP_FLAG = 0x1;
 
+    /**
+     * Maximum estimated size of cached dataset headers (tile index arrays).  Tiles are cached separately.
+     */
+    static final long MAX_DATASET_CACHE_BYTES = 2000000;
+
+    /**
+     * Maximum estimated size of cached data tiles, shared by all datasets of the file
+     */
+    static final long MAX_TILE_CACHE_BYTES = 20000000;
+
     private SeekableStream seekableStream = null;
     private int version;
     private Map<String, IndexEntry> datasetIndex;
@@ -64,8 +77,9 @@ public class TDFReader {
     private String trackLine;
     private String[] trackNames;
     private String genomeId;
-    LRUCache<String, TDFGroup> groupCache = new LRUCache(20);
-    LRUCache<String, TDFDataset> datasetCache = new LRUCache(20);
+    WeightedLRUCache<String, TDFGroup> groupCache = new WeightedLRUCache<>(20, g -> 1);
+    WeightedLRUCache<String, TDFDataset> datasetCache = new WeightedLRUCache<>(MAX_DATASET_CACHE_BYTES, ds -> 64L + 12L * ds.nTiles);
+    WeightedLRUCache<String, TDFTile> tileCache = new WeightedLRUCache<>(MAX_TILE_CACHE_BYTES, this::estimateTileBytes);
     TDFTile wgTile;
 
     Map<WindowFunction, Double> valueCache = new HashMap();
@@ -142,9 +156,7 @@ public class TDFReader {
         int idxByteCount = byteBuffer.getInt();
         int nHeaderBytes = byteBuffer.getInt();
 
-        byte[] bytes = readBytes(24, nHeaderBytes);
-        byteBuffer = ByteBuffer.wrap(bytes);
-        byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        byteBuffer = readBuffer(24, nHeaderBytes);
 
         if (version >= 2) {
             int nWFs = byteBuffer.getInt();
@@ -201,9 +213,7 @@ public class TDFReader {
 //fis.seek(idxPosition);
             //byte[] bytes = new byte[nBytes];
             //readFully(bytes);
-            byte[] bytes = readBytes(idxPosition, nBytes);
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer byteBuffer = readBuffer(idxPosition, nBytes);
 
             int nDatasets = byteBuffer.getInt();
 
@@ -245,8 +255,9 @@ public class TDFReader {
 
     public synchronized TDFDataset getDataset(String name) {
 
-        if (datasetCache.containsKey(name)) {
-            return datasetCache.get(name);
+        TDFDataset cached = datasetCache.get(name);
+        if (cached != null) {
+            return cached;
         }
 
         try {
@@ -258,15 +269,12 @@ public class TDFReader {
                 //fis.seek(position);
                 //byte[] buffer = new byte[nBytes];
                 //readFully(buffer);
-                byte[] buffer = readBytes(position, nBytes);
-                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
-                byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+                ByteBuffer byteBuffer = readBuffer(position, nBytes);
 
                 TDFDataset ds = new TDFDataset(name, byteBuffer, this);
                 datasetCache.put(name, ds);
                 return ds;
             } else {
-                datasetCache.put(name, null);
                 return null;
             }
 
@@ -285,8 +293,9 @@ public class TDFReader {
     }
 
     public synchronized TDFGroup getGroup(String name) {
-        if (groupCache.containsKey(name)) {
-            return groupCache.get(name);
+        TDFGroup cached = groupCache.get(name);
+        if (cached != null) {
+            return cached;
         }
 
         try {
@@ -297,9 +306,7 @@ public class TDFReader {
             //fis.seek(position);
             //byte[] buffer = new byte[nBytes];
             //readFully(buffer);
-            byte[] buffer = readBytes(position, nBytes);
-            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
-            byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer byteBuffer = readBuffer(position, nBytes);
 
             TDFGroup group = new TDFGroup(name, byteBuffer);
 
@@ -313,11 +320,38 @@ public class TDFReader {
         }
     }
 
+    /**
+     * Return the tile, from the cache if possible.  Blank tiles are null, and are not cached as they cost no I/O.
+     */
+    TDFTile getTile(TDFDataset ds, int tileNumber) {
+        String key = ds.getName() + "_" + tileNumber;
+        TDFTile tile = tileCache.get(key);
+        if (tile == null) {
+            tile = readTile(ds, tileNumber);
+            tileCache.put(key, tile);
+        }
+        return tile;
+    }
+
+    void clearTiles(TDFDataset ds) {
+        for (int t = 0; t < ds.nTiles; t++) {
+            tileCache.remove(ds.getName() + "_" + t);
+        }
+    }
+
+    /**
+     * Estimate the heap size of a tile: start and end positions plus a float value per track for each entry.
+     */
+    private long estimateTileBytes(TDFTile tile) {
+        int nTracks = trackNames == null ? 1 : trackNames.length;
+        return 64L + (long) tile.getSize() * (8 + 4 * nTracks);
+    }
+
     // TODO -- move to dataset class
 
     public TDFTile readTile(TDFDataset ds, int tileNumber) {
 
-        try {
+        try (Timer.Context ignored = MetricsRegistry.getInstance().timer("tdf.tile.read", MetricsRegistry.pathTag(getPath())).time()) {
             if (tileNumber >= ds.tilePositions.length) {
                 // TODO - return empty tile
                 return null;
@@ -335,13 +369,13 @@ public class TDFReader {
             //fis.seek(position);
             //byte[] buffer = new byte[nBytes];
             //readFully(buffer);
-            byte[] buffer = readBytes(position, nBytes);
+            ByteBuffer byteBuffer = readBuffer(position, nBytes);
             if (compressed) {
-                buffer = compressionUtils.decompress(buffer);
-
+                byte[] buffer = compressionUtils.decompress(byteBuffer, nBytes * 4);
+                return TileFactory.createTile(buffer, trackNames.length);
+            } else {
+                return TileFactory.createTile(byteBuffer, trackNames.length);
             }
-
-            return TileFactory.createTile(buffer, trackNames.length);
         } catch (IOException ex) {
             String tileName = ds.getName() + "[" + tileNumber + "]";
             log.error("Error reading data tile: " + tileName, ex);
@@ -432,6 +466,21 @@ public class TDFReader {
     }
 
 
+    /**
+     * Return a little-endian buffer over the bytes at position.  For memory-mapped local files this is a view of
+     * the mapping, and concurrent reads do not contend for the stream.
+     */
+    private ByteBuffer readBuffer(long position, int nBytes) throws IOException {
+        ByteBuffer byteBuffer;
+        if (seekableStream instanceof IGVMappedFileStream) {
+            byteBuffer = ((IGVMappedFileStream) seekableStream).getBuffer(position, nBytes);
+        } else {
+            byteBuffer = ByteBuffer.wrap(readBytes(position, nBytes));
+        }
+        byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        return byteBuffer;
+    }
+
     public synchronized byte[] readBytes(long position, int nBytes) throws IOException {
         seekableStream.seek(position);
         byte[] buffer = new byte[nBytes];
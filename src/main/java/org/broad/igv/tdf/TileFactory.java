@@ -43,8 +43,15 @@ import java.nio.ByteOrder;
 public class TileFactory {
 
     public static TDFTile createTile(byte[] buffer, int nSamples) throws IOException {
+        return createTile(ByteBuffer.wrap(buffer), nSamples);
+    }
+
+    /**
+     * Create a tile from the buffer, which may be a view of a memory-mapped file.  The buffer order is set to
+     * little-endian.
+     */
+    public static TDFTile createTile(ByteBuffer byteBuffer, int nSamples) throws IOException {
 
-        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
         byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
 
         String typeString = StringUtils.readString(byteBuffer);
@@ -35,13 +35,19 @@ import org.broad.igv.sam.*;
 import org.broad.igv.sam.reader.AlignmentReader;
 import org.broad.igv.sam.reader.AlignmentReaderFactory;
 import org.broad.igv.tools.parsers.DataConsumer;
+import org.broad.igv.util.IGVExecutors;
+import org.broad.igv.util.ResourceLocator;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to compute coverage on an alignment or feature file.  This class is designed to be instantiated and executed
- * from a single thread.
+ * from a single thread, although parse() can use worker threads internally (see setThreads).
  */
 public class CoverageCounter {
 
@@ -148,23 +154,45 @@ public class CoverageCounter {
     private Locus queryInterval;
 
     /**
-     * Data buffer to pass data to the "consumer" (preprocessor).
+     * Template for the data buffer passed to the "consumer" (preprocessor).  Its length is the number of output
+     * columns.  Each ReadCounter allocates its own buffer of this length.
      */
     private float[] buffer;
 
-    private final static Set<Byte> nucleotidesKeep = new HashSet<Byte>();
+    /**
+     * Number of threads for counting.  If greater than 1, chromosomes of an indexed BAM or CRAM file are counted
+     * concurrently.
+     */
+    private int threads = 1;
+
     public static final byte DEL = 126;
     public static final byte INS = 127;
     private final static byte[] nucleotides = new byte[]{'A', 'C', 'G', 'T', 'N', DEL, INS};
 
+    /**
+     * Count slots per strand for base counts:  one for each of the nucleotides, plus one for any other base.
+     */
+    private static final int NUM_BASE_SLOTS = nucleotides.length + 1;
+
+    /**
+     * Lookup table from base to its index in nucleotides.  Other bases map to the last slot, which is not output.
+     */
+    private static final byte[] BASE_INDEX = new byte[256];
+
+    /**
+     * Initial number of windows held by a ReadCounter.  Must be a power of 2.
+     */
+    private static final int INITIAL_WINDOW_CAPACITY = 1024;
+
     /**
      * Whether to write wig data to standard out (stdout)
      */
     private boolean writeStdOut;
 
     static {
-        for (byte b : nucleotides) {
-            nucleotidesKeep.add(b);
+        Arrays.fill(BASE_INDEX, (byte) nucleotides.length);
+        for (int i = 0; i < nucleotides.length; i++) {
+            BASE_INDEX[nucleotides[i] & 0xff] = (byte) i;
         }
     }
 
@@ -213,6 +241,10 @@ public class CoverageCounter {
         this.postExtFactor = postExtFactor;
     }
 
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
     /**
      * Take additional optional command line arguments and parse them
      *
@@ -272,9 +304,11 @@ public class CoverageCounter {
     /**
      * Parse and "count" the alignment file.  The main method.
      * <p/>
-     * This method is not thread safe due to the use of the member variable "buffer".
+     * If more than one thread is requested, the entire file is counted, and the file is an indexed BAM or CRAM,
+     * chromosomes are counted concurrently.  See parseParallel.
      *
-     * @throws IOException
+     * @throws IOException if the alignments cannot be read, or a worker thread fails.  The output is incomplete
+     *                     and the caller should discard it.
      */
     public synchronized void parse() throws IOException {
 
@@ -283,12 +317,6 @@ public class CoverageCounter {
         int tolerance = (int) (windowSize * (Math.floor(maxExtFactor / windowSize) + 2));
         consumer.setSortTolerance(tolerance);
 
-        AlignmentReader reader = null;
-        CloseableIterator<Alignment> iter = null;
-
-        String lastChr = "";
-        ReadCounter counter = null;
-
         WigWriter wigWriter = null;
         if (wigFile != null || writeStdOut) {
             wigWriter = new WigWriter(wigFile, windowSize);
@@ -296,6 +324,29 @@ public class CoverageCounter {
 
         try {
 
+            AlignmentReader indexedReader = (threads > 1 && queryInterval == null) ? openIndexedReader() : null;
+            if (indexedReader != null) {
+                parseParallel(indexedReader, tolerance, wigWriter);
+            } else {
+                parseSerial(tolerance, wigWriter);
+            }
+
+            consumer.setAttribute("totalCount", String.valueOf(totalCount));
+            consumer.parsingComplete();
+
+        } finally {
+            if (wigWriter != null) {
+                wigWriter.close();
+            }
+        }
+    }
+
+    private void parseSerial(int tolerance, WigWriter wigWriter) throws IOException {
+
+        AlignmentReader reader = null;
+        CloseableIterator<Alignment> iter = null;
+
+        try {
             if (queryInterval == null) {
                 reader = AlignmentReaderFactory.getReader(alignmentFile, false);
                 iter = reader.iterator();
@@ -304,6 +355,159 @@ public class CoverageCounter {
                 iter = reader.query(queryInterval.getChr(), queryInterval.getStart() - 1, queryInterval.getEnd(), false);
             }
 
+            totalCount += countAlignments(iter, tolerance, (chr, start, end, data) -> {
+                consumer.addData(chr, start, end, data, null);
+                if (wigWriter != null) {
+                    wigWriter.addData(chr, start, end, data);
+                }
+            });
+
+        } finally {
+            if (iter != null) {
+                iter.close();
+            }
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Open the alignment file with its index, or return null if it is not an indexed BAM or CRAM file.
+     */
+    private AlignmentReader openIndexedReader() {
+
+        String format = new ResourceLocator(alignmentFile).getFormat();
+        if (!"bam".equals(format) && !"cram".equals(format)) {
+            return null;
+        }
+        try {
+            AlignmentReader reader = AlignmentReaderFactory.getReader(alignmentFile, true);
+            if (reader.hasIndex()) {
+                return reader;
+            }
+            reader.close();
+        } catch (Exception e) {
+            log.warn("Could not open index for " + alignmentFile + ", counting with a single thread");
+        }
+        return null;
+    }
+
+    /**
+     * Count each sequence in the file header concurrently, each with its own reader.  Worker output is spooled to
+     * a temporary file per sequence, and replayed to the consumer (and wig writer) on this thread in header order,
+     * which is the order of a sorted file.  The output is the same as a serial parse.
+     * <p>
+     * At most 2 * threads sequences are in flight, i.e. submitted but not yet replayed, which bounds the temporary
+     * disk use to that many sequences regardless of the number of sequences in the header.
+     */
+    private void parseParallel(AlignmentReader headerReader, int tolerance, WigWriter wigWriter) throws IOException {
+
+        List<String> sequenceNames;
+        try {
+            sequenceNames = headerReader.getSequenceNames();
+        } finally {
+            headerReader.close();
+        }
+
+        int maxInFlight = 2 * threads;
+        ExecutorService executor = IGVExecutors.newIOExecutor(threads);
+        Deque<Future<SequenceSpool>> inFlight = new ArrayDeque<>(maxInFlight);
+        List<SequenceSpool> spools = new ArrayList<>();
+        Iterator<String> sequences = sequenceNames.iterator();
+        try {
+            while (true) {
+                while (inFlight.size() < maxInFlight && sequences.hasNext()) {
+                    String seq = sequences.next();
+                    SequenceSpool spool = new SequenceSpool(buffer.length);
+                    spools.add(spool);
+                    inFlight.add(executor.submit(() -> countSequence(seq, spool, tolerance)));
+                }
+
+                Future<SequenceSpool> next = inFlight.poll();
+                if (next == null) {
+                    break;
+                }
+                SequenceSpool spool = next.get();
+                totalCount += spool.alignmentCount;
+                spool.replay(wigWriter);
+                spool.delete();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted counting " + alignmentFile);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        } finally {
+            for (Future<SequenceSpool> f : inFlight) {
+                f.cancel(true);
+            }
+            executor.shutdownNow();
+            boolean terminated = false;
+            try {
+                terminated = executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (terminated) {
+                for (SequenceSpool spool : spools) {
+                    spool.delete();
+                }
+            } else {
+                log.warn("Counting threads did not stop, temporary files will be deleted on exit");
+            }
+        }
+    }
+
+    private SequenceSpool countSequence(String seq, SequenceSpool spool, int tolerance) throws IOException {
+
+        AlignmentReader reader = null;
+        CloseableIterator<Alignment> iter = null;
+        try {
+            reader = AlignmentReaderFactory.getReader(alignmentFile, true);
+            iter = reader.query(seq, 0, Integer.MAX_VALUE, false);
+            spool.alignmentCount = countAlignments(iter, tolerance, spool);
+        } catch (IOException | RuntimeException e) {
+            spool.delete();
+            throw e;
+        } finally {
+            spool.closeOutput();
+            if (iter != null) {
+                iter.close();
+            }
+            if (reader != null) {
+                reader.close();
+            }
+        }
+        return spool;
+    }
+
+    /**
+     * Count the alignments from the iterator, passing completed windows to the sink.  No mutable state of this
+     * class is used, so this can be run concurrently on different iterators.
+     *
+     * @return the number of alignments counted
+     */
+    private int countAlignments(Iterator<Alignment> iter, int tolerance, WindowSink sink) {
+
+        int count = 0;
+        String lastChr = "";
+        ReadCounter counter = null;
+
+        try {
+
             while (iter != null && iter.hasNext()) {
                 Alignment alignment = iter.next();
                 if (passFilter(alignment)) {
@@ -324,20 +528,20 @@ public class CoverageCounter {
                     }
                     boolean readNegStrand = alignment.isNegativeStrand();
 
-                    totalCount++;
+                    count++;
 
                     String alignmentChr = alignment.getChr();
 
                     // Close all counters with position < alignment.getStart()
                     if (alignmentChr.equals(lastChr)) {
                         if (counter != null) {
-                            counter.closeBucketsBefore(alignment.getAlignmentStart() - tolerance, wigWriter);
+                            counter.closeBucketsBefore(alignment.getAlignmentStart() - tolerance);
                         }
                     } else {  // New chromosome
                         if (counter != null) {
-                            counter.closeBucketsBefore(Integer.MAX_VALUE, wigWriter);
+                            counter.closeBucketsBefore(Integer.MAX_VALUE);
                         }
-                        counter = new ReadCounter(alignmentChr);
+                        counter = new ReadCounter(alignmentChr, sink);
                         lastChr = alignmentChr;
                     }
 
@@ -458,27 +662,12 @@ public class CoverageCounter {
                 }
 
             }
-            consumer.setAttribute("totalCount", String.valueOf(totalCount));
-            consumer.parsingComplete();
-
-        } catch (Exception e) {
-            e.printStackTrace();
         } finally {
-
             if (counter != null) {
-                counter.closeBucketsBefore(Integer.MAX_VALUE, wigWriter);
-            }
-            if (iter != null) {
-                iter.close();
+                counter.closeBucketsBefore(Integer.MAX_VALUE);
             }
-            if (reader != null) {
-                reader.close();
-            }
-            if (wigWriter != null) {
-                wigWriter.close();
-            }
-
         }
+        return count;
     }
 
 
@@ -522,16 +711,49 @@ public class CoverageCounter {
         this.writeStdOut = writeStdOut;
     }
 
+    /**
+     * Counts for a single chromosome, held in a ring buffer of windows in primitive arrays.  Window w is stored in
+     * slot (w & mask).  The buffer holds windows firstWindow to firstWindow + capacity - 1, and grows if a read
+     * spans more windows than that.  Windows are flushed to the consumer, in order, as the read position advances,
+     * so memory is bounded by the span of a read (plus extension) rather than by the chromosome length.
+     * Incrementing a count allocates nothing.
+     * <p>
+     * A count can arrive for a window before firstWindow, for example from a read on the negative strand extended
+     * toward its 5' end.  The buffer then extends backwards, down to the first window not yet closed.
+     */
     class ReadCounter {
 
         String chr;
+        int chrLength;
+        WindowSink sink;
+        float[] data;
+
+        int capacity;
+        int mask;
+        boolean started = false;
+        int firstWindow;
+        int lastWindow;
+
+        // Windows before this one have been closed, and can no longer be counted
+        int closedWindow = 0;
+
+        boolean[] touched;
+        int[] totalCounts;
+        int[] strandCounts;      // slot * NUM_STRANDS + strand
+        int[] baseCounts;        // (slot * NUM_STRANDS + strand) * NUM_BASE_SLOTS + base index
+
         /**
-         * Map of window index -> counter
+         * Count of increments for windows already flushed.  Only possible if the input is not sorted.
          */
-        TreeMap<Integer, Counter> counts = new TreeMap<Integer, Counter>();
+        int lateCount = 0;
 
-        ReadCounter(String chr) {
+        ReadCounter(String chr, WindowSink sink) {
             this.chr = chr;
+            this.sink = sink;
+            this.data = new float[buffer.length];
+            Chromosome chromosome = genome == null ? null : genome.getChromosome(chr);
+            this.chrLength = chromosome == null ? Integer.MAX_VALUE : chromosome.getLength();
+            allocate(INITIAL_WINDOW_CAPACITY);
         }
 
         /**
@@ -540,40 +762,106 @@ public class CoverageCounter {
          * @param strand   - which strand to increment count. Should be POSITIVE or NEGATIVE
          */
         void incrementCount(int position, byte base, Strand strand) {
-            final Counter counter = getCounterForPosition(position);
-            int strandNum = strand.equals(Strand.POSITIVE) ? 0 : 1;
-            counter.increment(base, strandNum);
+            int slot = getSlot(position);
+            if (slot < 0) return;
+            int strandNum = strand == Strand.POSITIVE ? 0 : 1;
+            if (outputBases) {
+                baseCounts[(slot * NUM_STRANDS + strandNum) * NUM_BASE_SLOTS + BASE_INDEX[base & 0xff]]++;
+            }
+            if (outputSeparate) {
+                strandCounts[slot * NUM_STRANDS + strandNum]++;
+            }
+            totalCounts[slot]++;
         }
 
         void incrementDeletion(int position, Strand strand) {
-            final Counter counter = getCounterForPosition(position);
-            int strandNum = strand.equals(Strand.POSITIVE) ? 0 : 1;
-            if (outputBases) {
-                counter.incrementNucleotide(DEL, strandNum);
+            int slot = getSlot(position);
+            if (slot >= 0 && outputBases) {
+                int strandNum = strand == Strand.POSITIVE ? 0 : 1;
+                baseCounts[(slot * NUM_STRANDS + strandNum) * NUM_BASE_SLOTS + BASE_INDEX[DEL]]++;
             }
         }
 
         void incrementInsertion(int position, Strand strand) {
             // Insertions are between 2 bases, we increment the counter for the position preceding the insertion
-            final Counter counter = getCounterForPosition(position-1);
-            int strandNum = strand.equals(Strand.POSITIVE) ? 0 : 1;
-            if (outputBases) {
-                counter.incrementNucleotide(INS, strandNum);
+            int slot = getSlot(position - 1);
+            if (slot >= 0 && outputBases) {
+                int strandNum = strand == Strand.POSITIVE ? 0 : 1;
+                baseCounts[(slot * NUM_STRANDS + strandNum) * NUM_BASE_SLOTS + BASE_INDEX[INS]]++;
             }
-
         }
 
+        /**
+         * Return the ring buffer slot for the window containing position, marking it as touched, or -1 if the
+         * window has already been closed.
+         */
+        private int getSlot(int position) {
+            int w = position / windowSize;
+            if (w < closedWindow) {
+                lateCount++;
+                return -1;
+            }
+            if (!started) {
+                started = true;
+                firstWindow = w;
+                lastWindow = w;
+            } else if (w < firstWindow) {
+                if (lastWindow - w >= capacity) {
+                    grow(lastWindow - w + 1);
+                }
+                firstWindow = w;
+            }
+            if (w - firstWindow >= capacity) {
+                grow(w - firstWindow + 1);
+            }
+            if (w > lastWindow) {
+                lastWindow = w;
+            }
+            int slot = w & mask;
+            touched[slot] = true;
+            return slot;
+        }
 
-        private Counter getCounterForPosition(int position) {
-            int idx = position / windowSize;
-            return getCounter(idx);
+        private void allocate(int capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            touched = new boolean[capacity];
+            totalCounts = new int[capacity];
+            if (outputSeparate) {
+                strandCounts = new int[capacity * NUM_STRANDS];
+            }
+            if (outputBases) {
+                baseCounts = new int[capacity * NUM_STRANDS * NUM_BASE_SLOTS];
+            }
         }
 
-        private Counter getCounter(int idx) {
-            if (!counts.containsKey(idx)) {
-                counts.put(idx, new Counter());
+        /**
+         * Grow the ring buffer to hold at least minCapacity windows, re-slotting the windows currently held.
+         */
+        private void grow(int minCapacity) {
+
+            int oldMask = mask;
+            boolean[] oldTouched = touched;
+            int[] oldTotalCounts = totalCounts;
+            int[] oldStrandCounts = strandCounts;
+            int[] oldBaseCounts = baseCounts;
+
+            allocate(Integer.highestOneBit(minCapacity - 1) << 1);
+
+            for (int w = firstWindow; w <= lastWindow; w++) {
+                int from = w & oldMask;
+                if (!oldTouched[from]) continue;
+                int to = w & mask;
+                touched[to] = true;
+                totalCounts[to] = oldTotalCounts[from];
+                if (outputSeparate) {
+                    System.arraycopy(oldStrandCounts, from * NUM_STRANDS, strandCounts, to * NUM_STRANDS, NUM_STRANDS);
+                }
+                if (outputBases) {
+                    int n = NUM_STRANDS * NUM_BASE_SLOTS;
+                    System.arraycopy(oldBaseCounts, from * n, baseCounts, to * n, n);
+                }
             }
-            return counts.get(idx);
         }
 
 
@@ -583,177 +871,191 @@ public class CoverageCounter {
          *
          * @param position - genomic position
          */
-        void closeBucketsBefore(int position, WigWriter wigWriter) {
-            List<Integer> bucketsToClose = new ArrayList<Integer>();
+        void closeBucketsBefore(int position) {
 
-            int bucket = position / windowSize;
-            for (Map.Entry<Integer, Counter> entry : counts.entrySet()) {
-                if (entry.getKey() < bucket) {
-
-                    // Divide total count by window size.  This is the average count per
-                    // base over the window,  so for example 30x coverage remains 30x irrespective of window size.
-                    int bucketStartPosition = entry.getKey() * windowSize;
-                    int bucketEndPosition = bucketStartPosition + windowSize;
-
-                    if (genome != null) {
-                        Chromosome chromosome = genome.getChromosome(chr);
-                        if (chromosome != null) {
-                            bucketEndPosition = Math.min(bucketEndPosition, chromosome.getLength());
-                        }
-                    }
-                    int bucketSize = bucketEndPosition - bucketStartPosition;
+            if (!started) return;
 
-                    final Counter counter = entry.getValue();
+            int bucket = position / windowSize;
+            int end = Math.min(bucket, lastWindow + 1);
 
-                    int col = 0;
+            for (int w = firstWindow; w < end; w++) {
+                int slot = w & mask;
+                if (touched[slot]) {
+                    flush(w, slot);
+                    clear(slot);
+                }
+            }
 
-                    //Not outputting base info, just totals
-                    if (!outputBases) {
-                        if (outputSeparate) {
-                            //Output strand specific information, if applicable
-                            for (int strandNum : output_strands) {
-                                buffer[col] = ((float) counter.getCount(strandNum)) / bucketSize;
-                                col++;
-                            }
+            if (bucket > firstWindow) {
+                firstWindow = bucket;
+            }
+            if (bucket > closedWindow) {
+                closedWindow = bucket;
+            }
 
-                        } else {
-                            buffer[col] = ((float) counter.getTotalCounts()) / bucketSize;
-                            col++;
-                        }
+            if (position == Integer.MAX_VALUE && lateCount > 0) {
+                log.warn(lateCount + " counts on " + chr + " were out of order and skipped.  Is the input sorted?");
+            }
+        }
 
-                        //Output counts of each base
-                    } else {
-                        if (outputSeparate) {
-                            for (int strandNum : output_strands) {
-                                for (byte base : nucleotides) {
-                                    buffer[col] = ((float) counter.getBaseCount(base, strandNum)) / bucketSize;
-                                    col++;
-                                }
-                            }
-                        } else {
-                            for (byte base : nucleotides) {
-                                buffer[col] = ((float) counter.getBaseCount(base)) / bucketSize;
-                                col++;
-                            }
-                        }
-                    }
+        private void flush(int window, int slot) {
 
+            // Divide total count by window size.  This is the average count per
+            // base over the window,  so for example 30x coverage remains 30x irrespective of window size.
+            int bucketStartPosition = window * windowSize;
+            int bucketEndPosition = Math.min(bucketStartPosition + windowSize, chrLength);
+            int bucketSize = bucketEndPosition - bucketStartPosition;
 
-                    consumer.addData(chr, bucketStartPosition, bucketEndPosition, buffer, null);
+            int col = 0;
 
-                    if (wigWriter != null) {
-                        wigWriter.addData(chr, bucketStartPosition, bucketEndPosition, buffer);
+            //Not outputting base info, just totals
+            if (!outputBases) {
+                if (outputSeparate) {
+                    //Output strand specific information, if applicable
+                    for (int strandNum : output_strands) {
+                        data[col] = ((float) strandCounts[slot * NUM_STRANDS + strandNum]) / bucketSize;
+                        col++;
                     }
 
-
-                    bucketsToClose.add(entry.getKey());
+                } else {
+                    data[col] = ((float) totalCounts[slot]) / bucketSize;
+                    col++;
                 }
-            }
 
-            for (Integer key : bucketsToClose) {
-                counts.remove(key);
+                //Output counts of each base
+            } else {
+                if (outputSeparate) {
+                    for (int strandNum : output_strands) {
+                        int offset = (slot * NUM_STRANDS + strandNum) * NUM_BASE_SLOTS;
+                        for (int b = 0; b < nucleotides.length; b++) {
+                            data[col] = ((float) baseCounts[offset + b]) / bucketSize;
+                            col++;
+                        }
+                    }
+                } else {
+                    for (int b = 0; b < nucleotides.length; b++) {
+                        int count = 0;
+                        for (int strandNum = 0; strandNum < NUM_STRANDS; strandNum++) {
+                            count += baseCounts[(slot * NUM_STRANDS + strandNum) * NUM_BASE_SLOTS + b];
+                        }
+                        data[col] = ((float) count) / bucketSize;
+                        col++;
+                    }
+                }
             }
 
-
+            sink.addData(chr, bucketStartPosition, bucketEndPosition, data);
         }
 
+        private void clear(int slot) {
+            touched[slot] = false;
+            totalCounts[slot] = 0;
+            if (outputSeparate) {
+                Arrays.fill(strandCounts, slot * NUM_STRANDS, (slot + 1) * NUM_STRANDS, 0);
+            }
+            if (outputBases) {
+                int n = NUM_STRANDS * NUM_BASE_SLOTS;
+                Arrays.fill(baseCounts, slot * n, (slot + 1) * n, 0);
+            }
+        }
     }
 
 
     /**
-     * Class for counting nucleotides and strands over an interval.
+     * Receiver of completed windows
      */
+    interface WindowSink {
+        void addData(String chr, int start, int end, float[] data);
+    }
 
-    class Counter {
-        /**
-         * The total number of counts on this Counter. Will
-         * be the sum of baseCount over the second index.
-         */
-        int[] strandCount;
-        int totalCount = 0;
-        //int qualityCount = 0;
-
-        //String chr;
-        //int start;
-        //int end;
-        //byte[] ref;
-        /**
-         * The number of times a particular base has been encountered (ie # of reads of that base)
-         */
-        //int[][] baseCount = new int[NUM_STRANDS][];
+    /**
+     * Temporary file holding the windows counted for one sequence by a worker thread, for replay to the consumer
+     * in order.  The file is created on the first window.
+     */
+    class SequenceSpool implements WindowSink {
 
-        private Map<Byte, Integer>[] baseTypeCounts;
+        private final int nColumns;
+        private File file;
+        private DataOutputStream dos;
+        private String lastChr;
+        int alignmentCount;
 
-        Counter() {
-            //this.chr = chr;
-            //this.start = start;
-            //this.end = end;
+        SequenceSpool(int nColumns) {
+            this.nColumns = nColumns;
+        }
 
-            if (outputBases) {
-                baseTypeCounts = new HashMap[NUM_STRANDS];
-                for (int ii = 0; ii < NUM_STRANDS; ii++) {
-                    baseTypeCounts[ii] = new HashMap<Byte, Integer>();
+        @Override
+        public void addData(String chr, int start, int end, float[] data) {
+            try {
+                if (dos == null) {
+                    file = File.createTempFile("igvtools_count", ".bin");
+                    file.deleteOnExit();
+                    dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
                 }
-            }
-
-            if (outputSeparate) {
-                strandCount = new int[NUM_STRANDS];
+                if (!chr.equals(lastChr)) {
+                    dos.writeBoolean(true);
+                    dos.writeUTF(chr);
+                    lastChr = chr;
+                }
+                dos.writeBoolean(false);
+                dos.writeInt(start);
+                dos.writeInt(end);
+                for (float d : data) {
+                    dos.writeFloat(d);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
 
-
-        int getCount(int strand) {
-            return strandCount[strand];
-        }
-
-        public int getTotalCounts() {
-            return totalCount;
+        void closeOutput() throws IOException {
+            if (dos != null) {
+                dos.close();
+                dos = null;
+            }
         }
 
-        void increment(byte base, int strand) {
+        void replay(WigWriter wigWriter) throws IOException {
 
-            if (outputBases) {
-                incrementNucleotide(base, strand);
-            }
+            if (file == null) return;
 
-            if (outputSeparate) {
-                this.strandCount[strand]++;
+            float[] data = new float[nColumns];
+            String chr = null;
+            try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+                while (true) {
+                    boolean newChr;
+                    try {
+                        newChr = dis.readBoolean();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (newChr) {
+                        chr = dis.readUTF();
+                        continue;
+                    }
+                    int start = dis.readInt();
+                    int end = dis.readInt();
+                    for (int i = 0; i < nColumns; i++) {
+                        data[i] = dis.readFloat();
+                    }
+                    consumer.addData(chr, start, end, data, null);
+                    if (wigWriter != null) {
+                        wigWriter.addData(chr, start, end, data);
+                    }
+                }
             }
-
-            this.totalCount++;
         }
 
-        /**
-         * Increment the nucleotide counts.
-         *
-         * @param base   65, 67, 71, 84, 78, 126, 127
-         *               aka A, C, G, T, N, deletion, insertion.
-         *               Anything else is stored as 0
-         * @param strand index of strand, 0 for positive and 1 for negative
-         */
-        private void incrementNucleotide(byte base, int strand) {
-            Map<Byte, Integer> btc = baseTypeCounts[strand];
-            if (!nucleotidesKeep.contains(base)) {
-                base = 0;
-            }
-
-            int orig = 0;
-            if (btc.containsKey(base)) {
-                orig = btc.get(base);
+        void delete() {
+            try {
+                closeOutput();
+            } catch (IOException e) {
+                // Ignore, file is deleted
             }
-            btc.put(base, orig + 1);
-        }
-
-        public int getBaseCount(byte base, int strand) {
-            return baseTypeCounts[strand].containsKey(base) ? baseTypeCounts[strand].get(base) : 0;
-        }
-
-        public int getBaseCount(byte base) {
-            int count = 0;
-            for (int strand = 0; strand < NUM_STRANDS; strand++) {
-                count += getBaseCount(base, strand);
+            if (file != null) {
+                file.delete();
+                file = null;
             }
-            return count;
         }
     }
 
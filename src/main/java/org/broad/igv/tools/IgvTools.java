@@ -176,6 +176,7 @@ public class IgvTools {
     private static CmdLineParser.Option minMapQualityOpt = null;
     private static CmdLineParser.Option includeDupsOpt = null;
     private static CmdLineParser.Option pairedCoverageOpt = null;
+    private static CmdLineParser.Option threadsOpt = null;
 
     // options for index
     private static CmdLineParser.Option indexTypeOption = null;
@@ -368,9 +369,10 @@ public class IgvTools {
                     int minMapQuality = (Integer) parser.getOptionValue(minMapQualityOpt, 0);
 
                     int windowSizeValue = (Integer) parser.getOptionValue(windowSizeOption, WINDOW_SIZE);
+                    int threads = (Integer) parser.getOptionValue(threadsOpt, 1);
                     doCount(ifile, ofile, genomeId, maxZoomValue, wfList, windowSizeValue, extFactorValue,
                             preFactorValue, posFactorValue,
-                            trackLine, queryString, minMapQuality, countFlags);
+                            trackLine, queryString, minMapQuality, countFlags, threads);
                 } else {
                     String probeFile = (String) parser.getOptionValue(probeFileOption, PROBE_FILE);
                     toTDF(typeString, ifile, ofile, probeFile, genomeId, maxZoomValue, wfList, tmpDirName, maxRecords);
@@ -568,6 +570,7 @@ public class IgvTools {
                 minMapQualityOpt = parser.addIntegerOption("minMapQuality");
                 includeDupsOpt = parser.addBooleanOption("includeDuplicates");
                 pairedCoverageOpt = parser.addBooleanOption("pairs");
+                threadsOpt = parser.addIntegerOption("threads");
 
                 // Trackline
                 colorOption = parser.addStringOption("color");
@@ -810,6 +813,19 @@ public class IgvTools {
                         Collection<WindowFunction> windowFunctions, int windowSizeValue,
                         int extFactorValue, int preExtFactorValue, int postExtFactorValue,
                         String trackLine, String queryString, int minMapQuality, int countFlags) throws IOException {
+        doCount(ifile, ofile, genomeId, maxZoomValue, windowFunctions, windowSizeValue, extFactorValue,
+                preExtFactorValue, postExtFactorValue, trackLine, queryString, minMapQuality, countFlags, 1);
+    }
+
+    /**
+     * Compute coverage as above, counting chromosomes of an indexed BAM or CRAM file on up to "threads"
+     * threads.
+     */
+    public void doCount(String ifile, String ofile, String genomeId, int maxZoomValue,
+                        Collection<WindowFunction> windowFunctions, int windowSizeValue,
+                        int extFactorValue, int preExtFactorValue, int postExtFactorValue,
+                        String trackLine, String queryString, int minMapQuality, int countFlags,
+                        int threads) throws IOException {
 
 
 //        log.warn("Computing coverage.  File = " + ifile);
@@ -859,6 +875,7 @@ public class IgvTools {
             counter.setWriteStdOut(wigStdOut);
             counter.setPreExtFactor(preExtFactorValue);
             counter.setPosExtFactor(postExtFactorValue);
+            counter.setThreads(threads);
 
             String prefix = FilenameUtils.getName(ifile);
             String[] tracknames = counter.getTrackNames(prefix + " ");
@@ -106,6 +106,23 @@ public abstract class DataTrack extends AbstractTrack implements ScalableTrack,
         return true;
     }
 
+    /**
+     * Data tracks render only the scores already loaded for the frame, with a renderer owned by the track.
+     */
+    @Override
+    public boolean isParallelRenderable() {
+        return true;
+    }
+
+    /**
+     * The data range scale, axis, and track name are drawn relative to the visible area, not the data, and would
+     * move with cached pixels while panning.
+     */
+    @Override
+    public boolean isPanCacheable(ReferenceFrame frame) {
+        return false;
+    }
+
     @Override
     public boolean isReadyToPaint(ReferenceFrame frame) {
         String chr = frame.getChrName();
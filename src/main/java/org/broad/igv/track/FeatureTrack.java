@@ -775,6 +775,14 @@ public class FeatureTrack extends AbstractTrack implements IGVEventObserver {
 
     }
 
+    /**
+     * Coverage and "zoom in" messages are positioned relative to the view, only features can be cached.
+     */
+    @Override
+    public boolean isPanCacheable(ReferenceFrame frame) {
+        return isShowFeatures(frame) && super.isPanCacheable(frame);
+    }
+
     protected boolean isShowFeatures(ReferenceFrame frame) {
 
         if (frame.getChrName().equals(Globals.CHR_ALL)) {
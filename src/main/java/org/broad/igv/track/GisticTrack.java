@@ -221,6 +221,14 @@ public class GisticTrack extends AbstractTrack {
         return maxGScore;
     }
 
+    /**
+     * The axis is drawn relative to the visible area and would move with cached pixels while panning.
+     */
+    @Override
+    public boolean isPanCacheable(ReferenceFrame frame) {
+        return false;
+    }
+
     /**
      * Method description
      *
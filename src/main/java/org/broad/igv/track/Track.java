@@ -290,4 +290,23 @@ public interface Track extends Persistable {
         IGV.getInstance().repaint(this);
     }
 
+    /**
+     * Return true if the track's rendering in the frame depends only on its data and the genomic extent of the
+     * view, so that rendered pixels can be shifted and reused while the view is panned.  Autoscaled tracks are
+     * rescaled as the view moves and are not cacheable.  Tracks that draw decorations anchored to the visible area,
+     * such as a data range scale or axis, must return false.
+     */
+    default boolean isPanCacheable(ReferenceFrame frame) {
+        return !getAutoScale();
+    }
+
+    /**
+     * Return true if render() may be called off the event dispatch thread, concurrently with the rendering of
+     * other tracks, into an offscreen image of the visible part of the track.  The track must render only data
+     * already loaded, and must not modify shared state while rendering.
+     */
+    default boolean isParallelRenderable() {
+        return false;
+    }
+
 }
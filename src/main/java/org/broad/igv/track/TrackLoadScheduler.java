@@ -0,0 +1,310 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.track;
+
+import org.broad.igv.logging.*;
+import org.broad.igv.prefs.IGVPreferences;
+import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.ui.panel.ReferenceFrame;
+import org.broad.igv.util.IGVExecutors;
+import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.metrics.MetricsRegistry;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static org.broad.igv.prefs.Constants.TRACK_LOAD_THREADS;
+import static org.broad.igv.prefs.Constants.TRACK_LOAD_THREADS_PER_SOURCE;
+
+/**
+ * Schedules track loads ({@link Track#load(ReferenceFrame)}) on the shared I/O executor.
+ * <p>
+ * A load is identified by its track, frame, and the frame's locus.  Requests for a load that is already queued or
+ * running share it.  When a request finds a queued or running load for the same track and frame at a different
+ * locus, that load is stale: a queued load is dropped, and a running load is abandoned, its future completing
+ * with a cancellation immediately.  An abandoned load runs to completion, since interrupting I/O can close
+ * channels shared with other loads, but a new load for the same track and frame does not start until it finishes.
+ * <p>
+ * Queued loads are started in priority order: visible frames first, then the most recent request, then frame
+ * order, then tracks that have loaded quickly before.  At most a fixed number of loads run at once, and at most
+ * a fixed number per data source.
+ */
+public class TrackLoadScheduler {
+
+    private static Logger log = LogManager.getLogger(TrackLoadScheduler.class);
+
+    private static TrackLoadScheduler instance;
+
+    private final int maxThreads;
+    private final int maxThreadsPerSource;
+    private final ExecutorService executor;
+
+    private final PriorityQueue<LoadTask> queue = new PriorityQueue<>();
+    private final Map<TrackFrame, LoadTask> queued = new HashMap<>();
+    private final Map<TrackFrame, LoadTask> running = new HashMap<>();
+    private final Map<String, Integer> runningBySource = new HashMap<>();
+    private int runningCount;
+
+    // Exponential moving average of load time by track, in nanoseconds
+    private final Map<Track, Long> loadTimes = new WeakHashMap<>();
+
+    private long requestCount;
+    private long taskCount;
+
+    public static synchronized TrackLoadScheduler getInstance() {
+        if (instance == null) {
+            IGVPreferences prefs = PreferencesManager.getPreferences();
+            instance = new TrackLoadScheduler(prefs.getAsInt(TRACK_LOAD_THREADS), prefs.getAsInt(TRACK_LOAD_THREADS_PER_SOURCE));
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            metrics.gauge("track.load.queued", instance::getQueuedCount);
+            metrics.gauge("track.load.running", instance::getRunningCount);
+        }
+        return instance;
+    }
+
+    TrackLoadScheduler(int maxThreads, int maxThreadsPerSource) {
+        this.maxThreads = Math.max(1, maxThreads);
+        this.maxThreadsPerSource = Math.max(1, maxThreadsPerSource);
+        this.executor = IGVExecutors.getIOExecutor();
+    }
+
+    /**
+     * Load each track that is not ready to paint in each frame.  The returned future completes when all of the
+     * loads complete.  It completes exceptionally, with a {@link java.util.concurrent.CancellationException} as
+     * the cause, if any of the loads is superseded by a later request.
+     */
+    public CompletableFuture<Void> load(Collection<? extends Track> tracks, Collection<ReferenceFrame> frames) {
+
+        // Check readiness before taking the lock, tracks might synchronize on themselves during loading
+        List<TrackFrame> needed = new ArrayList<>();
+        for (ReferenceFrame frame : frames) {
+            for (Track track : tracks) {
+                if (!track.isReadyToPaint(frame)) {
+                    needed.add(new TrackFrame(track, frame));
+                }
+            }
+        }
+        if (needed.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(needed.size());
+        synchronized (this) {
+            long request = ++requestCount;
+            List<ReferenceFrame> frameOrder = new ArrayList<>(frames);
+            for (TrackFrame key : needed) {
+
+                String locus = getLocus(key.frame);
+
+                LoadTask runningTask = running.get(key);
+                if (runningTask != null && !runningTask.future.isDone() && runningTask.locus.equals(locus)) {
+                    futures.add(runningTask.future);
+                    continue;
+                }
+                if (runningTask != null && !runningTask.locus.equals(locus)) {
+                    runningTask.future.cancel(false);
+                }
+
+                LoadTask task = queued.get(key);
+                if (task != null) {
+                    queue.remove(task);
+                    if (!task.locus.equals(locus)) {
+                        task.future.cancel(false);
+                        task = null;
+                    }
+                }
+                if (task == null) {
+                    task = new LoadTask(key, locus, getSource(key.track), ++taskCount);
+                    queued.put(key, task);
+                }
+                task.request = request;
+                task.frameIndex = frameOrder.indexOf(key.frame);
+                task.visible = key.frame.isVisible();
+                task.cost = loadTimes.getOrDefault(key.track, 0L);
+                queue.add(task);
+                futures.add(task.future);
+            }
+            dispatch();
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Return true if any load is queued or running
+     */
+    public synchronized boolean isBusy() {
+        return runningCount > 0 || !queue.isEmpty();
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    public synchronized int getRunningCount() {
+        return runningCount;
+    }
+
+    /**
+     * Start queued loads, in priority order, while there are threads available.  Loads that cannot start because
+     * of the per-source limit, or because a load of the same track and frame is still running, are skipped.
+     */
+    private void dispatch() {
+
+        List<LoadTask> skipped = null;
+        while (runningCount < maxThreads && !queue.isEmpty()) {
+            LoadTask task = queue.poll();
+            if (running.containsKey(task.key) || (task.source != null &&
+                    runningBySource.getOrDefault(task.source, 0) >= maxThreadsPerSource)) {
+                if (skipped == null) skipped = new ArrayList<>();
+                skipped.add(task);
+                continue;
+            }
+
+            queued.remove(task.key);
+            running.put(task.key, task);
+            runningCount++;
+            if (task.source != null) {
+                runningBySource.merge(task.source, 1, Integer::sum);
+            }
+            executor.execute(() -> run(task));
+        }
+        if (skipped != null) {
+            queue.addAll(skipped);
+        }
+    }
+
+    private void run(LoadTask task) {
+
+        long t0 = System.nanoTime();
+        Throwable error = null;
+        try {
+            // A load abandoned, then requested again, might have completed while this task was queued
+            if (!task.future.isCancelled() && !task.key.track.isReadyToPaint(task.key.frame)) {
+                task.key.track.load(task.key.frame);
+            }
+        } catch (Throwable t) {
+            error = t;
+        }
+        long elapsed = System.nanoTime() - t0;
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.timer("track.load", task.key.track.getName()).record(elapsed);
+        if (error != null) {
+            metrics.counter("track.load.errors", task.key.track.getName()).increment();
+        }
+
+        synchronized (this) {
+            runningCount--;
+            if (task.source != null) {
+                runningBySource.merge(task.source, -1, Integer::sum);
+                runningBySource.remove(task.source, 0);
+            }
+            if (running.get(task.key) == task) {
+                running.remove(task.key);
+            }
+            Long previous = loadTimes.get(task.key.track);
+            loadTimes.put(task.key.track, previous == null ? elapsed : (previous + elapsed) / 2);
+            dispatch();
+        }
+
+        if (error != null) {
+            task.future.completeExceptionally(error);
+        } else {
+            task.future.complete(null);
+        }
+    }
+
+    private static String getLocus(ReferenceFrame frame) {
+        return frame.getChrName() + ":" + (long) frame.getOrigin() + "-" + (long) frame.getEnd();
+    }
+
+    /**
+     * Return the data source of the track, used to limit concurrent loads per source.  Tracks without a resource,
+     * typically computed in memory, are not limited.
+     */
+    private static String getSource(Track track) {
+        ResourceLocator locator = track.getResourceLocator();
+        return locator == null ? null : locator.getPath();
+    }
+
+
+    private static class TrackFrame {
+
+        final Track track;
+        final ReferenceFrame frame;
+
+        TrackFrame(Track track, ReferenceFrame frame) {
+            this.track = track;
+            this.frame = frame;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TrackFrame)) return false;
+            TrackFrame that = (TrackFrame) o;
+            return track == that.track && frame == that.frame;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(track) + System.identityHashCode(frame);
+        }
+    }
+
+    private static class LoadTask implements Comparable<LoadTask> {
+
+        final TrackFrame key;
+        final String locus;
+        final String source;
+        final long sequence;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        // Priority, updated when the task is requested again
+        long request;
+        int frameIndex;
+        boolean visible;
+        long cost;
+
+        LoadTask(TrackFrame key, String locus, String source, long sequence) {
+            this.key = key;
+            this.locus = locus;
+            this.source = source;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(LoadTask o) {
+            if (visible != o.visible) return visible ? -1 : 1;
+            if (request != o.request) return request > o.request ? -1 : 1;
+            if (frameIndex != o.frameIndex) return Integer.compare(frameIndex, o.frameIndex);
+            if (cost != o.cost) return Long.compare(cost, o.cost);
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -82,9 +82,8 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.prefs.Preferences;
 import java.util.stream.Collectors;
@@ -2227,9 +2226,6 @@ public class IGV implements IGVEventObserver {
         repaint(component, trackList);
     }
 
-    private boolean isLoading = false;
-    private Collection<? extends Track> pending = null;
-
     private void repaint(final JComponent component, Collection<? extends Track> trackList) {
 
         if (Globals.isBatch()) {
@@ -2258,24 +2254,15 @@ public class IGV implements IGVEventObserver {
 
         } else {
 
-            if (isLoading) {
-                // Track data is being loaded, do a repaint with existing data and mark this request for future execution
+            TrackLoadScheduler scheduler = TrackLoadScheduler.getInstance();
+            if (scheduler.isBusy()) {
+                // Track data is being loaded, do a repaint with existing data while this request is loaded
                 UIUtilities.invokeOnEventThread(() -> contentPane.repaint());
-                pending = trackList;
-                return;
             }
 
-            List<CompletableFuture> futures = new ArrayList();
-
-            for (ReferenceFrame frame : FrameManager.getFrames()) {
-                for (Track track : trackList) {
-                    if (track.isReadyToPaint(frame) == false) {
-                        futures.add(CompletableFuture.runAsync(() -> track.load(frame), threadExecutor));
-                    }
-                }
-            }
+            CompletableFuture<Void> future = scheduler.load(trackList, FrameManager.getFrames());
 
-            if (futures.size() == 0) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
                 UIUtilities.invokeOnEventThread(() -> {
                     Autoscaler.autoscale(getAllTracks());
                     checkPanelLayouts();
@@ -2285,30 +2272,21 @@ public class IGV implements IGVEventObserver {
                 // One ore more tracks require loading before repaint.   Load all needed tracks, autscale if needed, then
                 // repaint.  The autoscale step is key, since tracks can be grouped for autoscaling it is neccessary that
                 // all data is loaded before any track is repainted.  Otherwise tracks be loaded an painted independently.
-
-                final CompletableFuture[] futureArray = futures.toArray(new CompletableFuture[futures.size()]);
+                // If the view moves before loading completes the request is superseded, and the later request repaints.
                 WaitCursorManager.CursorToken token = WaitCursorManager.showWaitCursor();
-                isLoading = true;
-                CompletableFuture.allOf(futureArray).thenApplyAsync(future -> {
+                future.whenComplete((result, ex) -> {
                     WaitCursorManager.removeWaitCursor(token);
-                    // Autoscale as required, check layouts (for scrollbar changes), and repaint.
-                    Autoscaler.autoscale(getAllTracks());
-                    UIUtilities.invokeOnEventThread(() -> {
-                        checkPanelLayouts();
-                        component.repaint();
-                        isLoading = false;
-                        if (pending != null) {
-                            Collection<? extends Track> tmp = pending;
-                            pending = null;
-                            repaint(tmp);
-                        }
-                    });
-                    return null;
-                }).exceptionally(ex -> {
-                    log.error("Error loading track data", ex);
-                    isLoading = false;
-                    pending = null;
-                    return null;
+                    if (ex == null) {
+                        // Autoscale as required, check layouts (for scrollbar changes), and repaint.
+                        TrackRasterCache.invalidateAll();
+                        Autoscaler.autoscale(getAllTracks());
+                        UIUtilities.invokeOnEventThread(() -> {
+                            checkPanelLayouts();
+                            component.repaint();
+                        });
+                    } else if (!(ex instanceof CancellationException || ex.getCause() instanceof CancellationException)) {
+                        log.error("Error loading track data", ex);
+                    }
                 });
             }
         }
@@ -2329,7 +2307,4 @@ public class IGV implements IGVEventObserver {
                 flatMap(trackGroup -> trackGroup.getVisibleTracks().stream()).
                 collect(Collectors.toList());
     }
-
-    // Thread pool for loading data
-    private static final ExecutorService threadExecutor = Executors.newFixedThreadPool(5);
 }
@@ -770,6 +770,17 @@ public class IGVMenuBar extends JMenuBar implements IGVEventObserver {
             }
         }
 
+        menuAction =
+                new MenuAction("Diagnostics ...") {
+
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        (new MetricsDialog(igv.getMainFrame())).setVisible(true);
+                    }
+                };
+        menuAction.setToolTipText("Show load, fetch, and render times and cache statistics for this session");
+        menuItems.add(MenuAndToolbarUtils.createMenuItem(menuAction));
+
         menuAction =
                 new MenuAction("About IGV ") {
 
@@ -51,6 +51,7 @@ import org.broad.igv.ui.UIConstants;
 import org.broad.igv.ui.WaitCursorManager;
 import org.broad.igv.ui.util.DataPanelTool;
 import org.broad.igv.ui.util.MessageUtils;
+import org.broad.igv.util.metrics.MetricsRegistry;
 
 import javax.swing.*;
 import javax.swing.event.MouseInputAdapter;
@@ -65,6 +66,7 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -83,6 +85,7 @@ public class DataPanel extends JComponent implements Paintable, IGVEventObserver
     private ReferenceFrame frame;
     private DataPanelContainer parent;
     private DataPanelPainter painter;
+    private TrackRasterCache rasterCache;
     private String tooltipText = "";
 
     public DataPanel(ReferenceFrame frame, DataPanelContainer parent) {
@@ -95,6 +98,7 @@ public class DataPanel extends JComponent implements Paintable, IGVEventObserver
         setAutoscrolls(true);
         setToolTipText("");
         painter = new DataPanelPainter();
+        rasterCache = new TrackRasterCache();
         setBackground(PreferencesManager.getPreferences().getAsColor(Constants.BACKGROUND_COLOR));
         ToolTipManager.sharedInstance().registerComponent(this);
     }
@@ -104,6 +108,7 @@ public class DataPanel extends JComponent implements Paintable, IGVEventObserver
         if (event instanceof DataLoadedEvent) {
             if (((DataLoadedEvent) event).referenceFrame == frame) {
                 log.debug("Data loaded repaint " + frame);
+                rasterCache.invalidate();
                 repaint();
             }
         }
@@ -151,7 +156,7 @@ public class DataPanel extends JComponent implements Paintable, IGVEventObserver
 
             computeMousableRegions(groups, trackWidth);
 
-            painter.paint(groups, context, trackWidth, getBackground(), damageRect);
+            painter.paint(groups, context, trackWidth, getBackground(), damageRect, rasterCache);
 
             // If there is a partial ROI in progress draw it first
             if (currentTool instanceof RegionOfInterestTool) {
@@ -168,6 +173,7 @@ public class DataPanel extends JComponent implements Paintable, IGVEventObserver
 
             long dt = System.currentTimeMillis() - lastPaintTime;
             PanTool.repaintTime(dt);
+            MetricsRegistry.getInstance().timer("render.repaint").record(TimeUnit.MILLISECONDS.toNanos(dt));
 
         } catch (Exception e) {
             MessageUtils.showMessage("Unexpected error repainting view.  See igv.log for details.");
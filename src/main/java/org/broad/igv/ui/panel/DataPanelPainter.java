@@ -34,27 +34,65 @@ package org.broad.igv.ui.panel;
 //~--- non-JDK imports --------------------------------------------------------
 
 import org.broad.igv.logging.*;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.sam.AlignmentTrack;
 import org.broad.igv.sam.InsertionManager;
 import org.broad.igv.sam.InsertionMarker;
 import org.broad.igv.track.*;
 import org.broad.igv.ui.IGV;
 import org.broad.igv.ui.UIConstants;
+import org.broad.igv.util.IGVExecutors;
+import org.broad.igv.util.metrics.MetricsRegistry;
+import org.broad.igv.util.metrics.Timer;
 
+import javax.swing.JComponent;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.print.PrinterGraphics;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 public class DataPanelPainter {
 
     private static Logger log = LogManager.getLogger(DataPanelPainter.class);
 
+    // Cache of rendered tracks for the current paint, or null
+    private TrackRasterCache rasterCache;
+
+    // Tracks being rendered on the worker pool for the current paint, in paint order, or null
+    private List<TrackImage> trackImages;
+    private AffineTransform imageScale;
+    private Color background;
+
+    public void paint(Collection<TrackGroup> groups,
+                      RenderContext context,
+                      int width,
+                      Color background,
+                      Rectangle visibleRect) {
+        paint(groups, context, width, background, visibleRect, null);
+    }
+
+    /**
+     * Paint the track groups, reusing cached track renderings from the raster cache where it is active for
+     * the context's reference frame.
+     * <p>
+     * Otherwise, if the RENDER.PARALLEL_TRACKS preference is set, tracks that support it
+     * ({@link Track#isParallelRenderable()}) are rendered concurrently into offscreen images on the CPU executor,
+     * while other tracks are rendered on the calling thread.  The images are then composited in track order.
+     * This applies to on-screen painting and offscreen images such as snapshots (see
+     * {@link #getImageScale(Graphics2D)}), printing and SVG output are rendered directly.
+     */
     public synchronized void paint(Collection<TrackGroup> groups,
                                    RenderContext context,
                                    int width,
                                    Color background,
-                                   Rectangle visibleRect) {
+                                   Rectangle visibleRect,
+                                   TrackRasterCache rasterCache) {
 
 
         //
@@ -99,7 +137,26 @@ public class DataPanelPainter {
                 referenceFrame.origin = start;
             }
         } else {
-            paintFrame(groups, context, width, visibleRect);
+            try {
+                if (rasterCache != null && rasterCache.isActive(referenceFrame)) {
+                    this.rasterCache = rasterCache;
+                } else if (PreferencesManager.getPreferences().getAsBoolean(Constants.RENDER_PARALLEL_TRACKS)) {
+                    this.imageScale = getImageScale(context.getGraphics());
+                    if (imageScale != null) {
+                        this.trackImages = new ArrayList<>();
+                        this.background = background;
+                    }
+                }
+                paintFrame(groups, context, width, visibleRect);
+                if (trackImages != null) {
+                    compositeTrackImages(context);
+                }
+            } finally {
+                this.rasterCache = null;
+                this.trackImages = null;
+                this.imageScale = null;
+                this.background = null;
+            }
         }
 
     }
@@ -226,10 +283,142 @@ public class DataPanelPainter {
 
     final private void draw(Track track, Rectangle rect, RenderContext context) {
 
-        track.render(context, rect);
+        if (rasterCache != null && track.isPanCacheable(context.getReferenceFrame())) {
+            rasterCache.draw(track, rect, context, this::render);
+        } else if (trackImages != null && track.isParallelRenderable() && rect.intersects(context.getVisibleRect())) {
+            trackImages.add(renderAsync(track, rect, context));
+        } else {
+            render(track, rect, context);
+        }
+    }
+
+    private void render(Track track, Rectangle rect, RenderContext context) {
+        renderTrack(track, rect, context);
+        renderOverlays(track, rect, context);
+    }
+
+    private static void renderTrack(Track track, Rectangle rect, RenderContext context) {
+        try (Timer.Context ignored = MetricsRegistry.getInstance().timer("track.render", track.getName()).time()) {
+            track.render(context, rect);
+        }
+    }
+
+    /**
+     * Return the scale at which to render track images for the graphics, or null if tracks should be drawn directly.
+     * Images are used for on-screen raster graphics whose transform is the device transform, e.g. the HiDPI scale,
+     * plus a translation, and for offscreen images, e.g. batch snapshots, whose transform is a translation only.
+     * Printers, SVG graphics, and zoomed graphics are drawn directly, so that they keep vector output.
+     */
+    static AffineTransform getImageScale(Graphics2D g) {
+        boolean printer = g instanceof PrinterGraphics || g instanceof PrintGraphics;
+        GraphicsConfiguration config = printer ? null : g.getDeviceConfiguration();
+        if (config == null) {
+            return null;
+        }
+        switch (config.getDevice().getType()) {
+            case GraphicsDevice.TYPE_RASTER_SCREEN:
+                return getImageScale(config.getDefaultTransform(), g.getTransform());
+            case GraphicsDevice.TYPE_IMAGE_BUFFER:
+                return getImageScale(new AffineTransform(), g.getTransform());
+            default:
+                return null;
+        }
+    }
+
+    static AffineTransform getImageScale(AffineTransform deviceTransform, AffineTransform transform) {
+        int scaleOrTranslate = AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE | AffineTransform.TYPE_GENERAL_SCALE;
+        if ((transform.getType() & ~scaleOrTranslate) != 0 ||
+                transform.getScaleX() != deviceTransform.getScaleX() ||
+                transform.getScaleY() != deviceTransform.getScaleY()) {
+            return null;
+        }
+        return AffineTransform.getScaleInstance(transform.getScaleX(), transform.getScaleY());
+    }
+
+    /**
+     * Render the visible part of the track into an image on the CPU executor.
+     */
+    private TrackImage renderAsync(Track track, Rectangle rect, RenderContext context) {
+
+        final Rectangle trackRect = new Rectangle(rect);
+        final Rectangle visibleRect = new Rectangle(context.getVisibleRect());
+        final int top = Math.max(rect.y, visibleRect.y);
+        final int height = Math.min(rect.y + rect.height, visibleRect.y + visibleRect.height) - top;
+        final JComponent panel = context.getPanel();
+        final ReferenceFrame frame = context.getReferenceFrame();
+        final List<InsertionMarker> insertionMarkers = context.getInsertionMarkers();
+        final AffineTransform scale = this.imageScale;
+        final Color background = this.background;
+
+        CompletableFuture<BufferedImage> image = CompletableFuture.supplyAsync(
+                () -> renderImage(track, trackRect, top, height, panel, frame, visibleRect, insertionMarkers, scale, background),
+                IGVExecutors.getCPUExecutor());
+        return new TrackImage(track, trackRect, top, height, image);
+    }
+
+    /**
+     * Render the rows top to top + height of the track into an opaque image, filled with the background color.
+     * The image is sized for the scale, so that it is drawn 1:1 to device pixels on a HiDPI display.
+     */
+    static BufferedImage renderImage(Track track, Rectangle trackRect, int top, int height,
+                                     JComponent panel, ReferenceFrame frame, Rectangle visibleRect,
+                                     List<InsertionMarker> insertionMarkers, AffineTransform scale, Color background) {
+
+        int imageWidth = Math.max(1, (int) Math.ceil(trackRect.width * scale.getScaleX()));
+        int imageHeight = Math.max(1, (int) Math.ceil(height * scale.getScaleY()));
+        BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        RenderContext imageContext = null;
+        try {
+            g.setBackground(background);
+            g.clearRect(0, 0, imageWidth, imageHeight);
+            g.transform(scale);
+            g.translate(-trackRect.x, -top);
+            g.setColor(Color.BLACK);
+            imageContext = new RenderContext(panel, g, frame, visibleRect);
+            imageContext.setInsertionMarkers(insertionMarkers);
+            renderTrack(track, trackRect, imageContext);
+        } finally {
+            if (imageContext != null) {
+                imageContext.dispose();
+            }
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Draw a track image from {@link #renderImage} to the rows top to top + height of the track rectangle.
+     */
+    static void drawImage(Graphics2D g, BufferedImage image, Rectangle trackRect, int top, int height) {
+        g.drawImage(image, trackRect.x, top, trackRect.width, height, null);
+    }
+
+    /**
+     * Draw the images of tracks rendered on the worker pool, followed by their overlays.  A track that failed to
+     * render is rendered again on this thread.
+     */
+    private void compositeTrackImages(RenderContext context) {
+        Graphics2D g = context.getGraphics();
+        for (TrackImage trackImage : trackImages) {
+            Rectangle rect = trackImage.rect;
+            try {
+                drawImage(g, trackImage.image.join(), rect, trackImage.top, trackImage.height);
+                renderOverlays(trackImage.track, rect, context);
+            } catch (CompletionException e) {
+                log.error("Error rendering track " + trackImage.track.getName(), e.getCause());
+                render(trackImage.track, rect, context);
+            }
+        }
+    }
+
+    private void renderOverlays(Track track, Rectangle rect, RenderContext context) {
 
         // Get overlays
 
+        if (!IGV.hasInstance()) {
+            return;
+        }
         List<Track> overlayTracks = IGV.getInstance().getOverlayTracks(track);
         if (overlayTracks != null) {
             for (Track overlayTrack : overlayTracks) {
@@ -244,6 +433,20 @@ public class DataPanelPainter {
     }
 
 
-}
+    private static class TrackImage {
 
+        final Track track;
+        final Rectangle rect;
+        final int top;
+        final int height;
+        final CompletableFuture<BufferedImage> image;
 
+        TrackImage(Track track, Rectangle rect, int top, int height, CompletableFuture<BufferedImage> image) {
+            this.track = track;
+            this.rect = rect;
+            this.top = top;
+            this.height = height;
+            this.image = image;
+        }
+    }
+}
@@ -122,6 +122,7 @@ public class PanTool extends AbstractDataPanelTool {
         if (isDragging) {
             isDragging = false;
             lastDragEventTime = 0;
+            TrackRasterCache.stopPanning();
             getReferenceFame().dragStopped();
         }
         Component panel = (Component) e.getSource();
@@ -163,6 +164,7 @@ public class PanTool extends AbstractDataPanelTool {
                 if (cumulativeDeltaX > cumulativeDeltaY) {
 
                     // Horizontal scrolling
+                    TrackRasterCache.startPanning(getReferenceFame());
                     getReferenceFame().shiftOriginPixels(deltaX);
                 } else {
                     // Vertical Scrolling 
@@ -375,11 +375,15 @@ public class ReferenceFrame {
     }
 
 
+    /**
+     * Shift the origin by a number of pixels.  This is called for each step of a drag or key press, so
+     * observers are notified once for a burst of shifts.
+     */
     public void shiftOriginPixels(int delta) {
 
         double shiftBP = delta * getScale();
         setOrigin(origin + shiftBP);
-        eventBus.post(ViewChange.Result());
+        eventBus.postCoalesced(ViewChange.Result());
     }
 
     public void centerOnLocation(String chr, double chrLocation) {
@@ -0,0 +1,269 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.ui.panel;
+
+import org.broad.igv.Globals;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.track.RenderContext;
+import org.broad.igv.track.Track;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Cache of rendered track images for one data panel, used while a reference frame is being panned.  Each track's
+ * visible area is kept as a screen-width image together with the frame origin, scale and geometry it was rendered
+ * with.  Images are sized for the device scale, as in {@link DataPanelPainter#renderImage}, so that they are drawn
+ * 1:1 to device pixels on a HiDPI display.  When the frame pans by a whole number of device pixels the cached
+ * pixels are shifted and only the newly exposed strip is rendered.  The render context's visible rect is narrowed to
+ * the strip, so that renderers which cull to the visible rect skip features outside it, and drawing is clipped to
+ * the strip.
+ * <p>
+ * The cache is active only between {@link #startPanning(ReferenceFrame)} and {@link #stopPanning()}, i.e. for the
+ * duration of a drag, and is discarded afterwards so that the view is fully repainted when panning stops.  It is
+ * also invalidated when data is loaded.  It is not used for graphics that are zoomed or otherwise not drawn 1:1 to
+ * device pixels (see {@link DataPanelPainter#getImageScale(Graphics2D)}).  Tracks opt out with
+ * {@link Track#isPanCacheable(ReferenceFrame)}, e.g. when they draw decorations positioned relative to the view
+ * rather than the genome.
+ */
+public class TrackRasterCache {
+
+    // Columns either side of an exposed strip included in its visible rect, so that drawing that depends on
+    // neighboring features, such as the spacing between adjacent variants, matches a full render
+    static final int STRIP_MARGIN = 10;
+
+    private static volatile ReferenceFrame panningFrame;
+
+    // Incremented to invalidate all caches, e.g. when track data is loaded
+    private static volatile long generation;
+
+    private final Map<Track, Raster> rasters = new IdentityHashMap<>();
+    private long cacheGeneration;
+
+    /**
+     * Start caching rendered tracks for the frame.  Called when a drag starts.
+     */
+    static void startPanning(ReferenceFrame frame) {
+        if (PreferencesManager.getPreferences().getAsBoolean(Constants.RENDER_PAN_CACHE)) {
+            panningFrame = frame;
+        }
+    }
+
+    static void stopPanning() {
+        panningFrame = null;
+    }
+
+    /**
+     * Invalidate the caches of all panels.  Called when track data has changed.
+     */
+    public static void invalidateAll() {
+        generation++;
+    }
+
+    /**
+     * Return true if cached renderings can be used for the frame.  If not, any cached images are released.
+     */
+    boolean isActive(ReferenceFrame frame) {
+        boolean active = frame != null && frame == panningFrame && !frame.getChrName().equals(Globals.CHR_ALL);
+        long g = generation;
+        if ((!active || g != cacheGeneration) && !rasters.isEmpty()) {
+            rasters.clear();
+        }
+        cacheGeneration = g;
+        return active;
+    }
+
+    void invalidate() {
+        rasters.clear();
+    }
+
+    /**
+     * Draw the track into rect, reusing pixels rendered for a previous frame origin where possible.
+     *
+     * @param track    the track
+     * @param rect     track bounds, in panel coordinates
+     * @param context  render context for the panel
+     * @param renderer renders the track, and its overlays, to a context
+     */
+    void draw(Track track, Rectangle rect, RenderContext context, TrackRenderer renderer) {
+        draw(track, rect, context, renderer, DataPanelPainter.getImageScale(context.getGraphics()));
+    }
+
+    /**
+     * Draw the track with images rendered at imageScale, the scale from panel to device pixels.  If imageScale is
+     * null the track is drawn directly.
+     */
+    void draw(Track track, Rectangle rect, RenderContext context, TrackRenderer renderer, AffineTransform imageScale) {
+
+        Rectangle visibleRect = context.getVisibleRect();
+        int top = Math.max(rect.y, visibleRect.y);
+        int bottom = Math.min(rect.y + rect.height, visibleRect.y + visibleRect.height);
+        if (bottom <= top || rect.width <= 0 || imageScale == null) {
+            renderer.draw(track, rect, context);
+            return;
+        }
+
+        ReferenceFrame frame = context.getReferenceFrame();
+        double origin = frame.getOrigin();
+        double scale = frame.getScale();
+
+        // Image dimensions, in device pixels
+        int width = Math.max(1, (int) Math.ceil(rect.width * imageScale.getScaleX()));
+        int height = Math.max(1, (int) Math.ceil((bottom - top) * imageScale.getScaleY()));
+
+        Raster raster = rasters.get(track);
+        int dx = raster == null ? Integer.MAX_VALUE :
+                raster.shift(frame.getChrName(), origin, scale, imageScale, rect, top, width, height);
+
+        if (Math.abs(dx) >= width) {
+            // Nothing usable, render the whole track
+            if (raster == null || raster.image.getWidth() != width || raster.image.getHeight() != height) {
+                raster = new Raster(width, height);
+                rasters.put(track, raster);
+            }
+            render(track, rect, context, renderer, raster.image, imageScale, top, 0, width);
+        } else if (dx != 0) {
+            // Shift the cached pixels, then render the exposed strip
+            BufferedImage image = raster.spare;
+            Graphics2D g = image.createGraphics();
+            try {
+                g.drawImage(raster.image, -dx, 0, null);
+            } finally {
+                g.dispose();
+            }
+            raster.spare = raster.image;
+            raster.image = image;
+            if (dx > 0) {
+                render(track, rect, context, renderer, image, imageScale, top, width - dx, dx);
+            } else {
+                render(track, rect, context, renderer, image, imageScale, top, 0, -dx);
+            }
+        }
+        raster.set(frame.getChrName(), origin, scale, imageScale, rect, top);
+
+        DataPanelPainter.drawImage(context.getGraphics(), raster.image, rect, top, bottom - top);
+    }
+
+    /**
+     * Render the columns [x, x + w) of the image, in device pixels, for the track.  The track is rendered for the
+     * same frame and track rectangle as without the cache, with the visible rect narrowed to the strip and drawing
+     * clipped to it.
+     */
+    private void render(Track track, Rectangle rect, RenderContext context, TrackRenderer renderer,
+                        BufferedImage image, AffineTransform imageScale, int top, int x, int w) {
+
+        Rectangle visibleRect = context.getVisibleRect();
+        if (w < image.getWidth()) {
+            double sx = imageScale.getScaleX();
+            int stripStart = rect.x + (int) Math.floor(x / sx) - STRIP_MARGIN;
+            int stripEnd = rect.x + (int) Math.ceil((x + w) / sx) + STRIP_MARGIN;
+            visibleRect = new Rectangle(stripStart, visibleRect.y, stripEnd - stripStart, visibleRect.height);
+        }
+
+        Graphics2D g = image.createGraphics();
+        RenderContext imageContext = null;
+        try {
+            g.clipRect(x, 0, w, image.getHeight());
+            g.setBackground(context.getBackgroundColor());
+            g.clearRect(x, 0, w, image.getHeight());
+            g.transform(imageScale);
+            g.translate(-rect.x, -top);
+            g.setColor(Color.BLACK);
+
+            imageContext = new RenderContext(context.getPanel(), g, context.getReferenceFrame(), visibleRect);
+            imageContext.setInsertionMarkers(context.getInsertionMarkers());
+            renderer.draw(track, new Rectangle(rect), imageContext);
+        } finally {
+            if (imageContext != null) {
+                imageContext.dispose();
+            }
+            g.dispose();
+        }
+    }
+
+    interface TrackRenderer {
+        void draw(Track track, Rectangle rect, RenderContext context);
+    }
+
+
+    /**
+     * Rendered image of a track's visible area, and the view it was rendered for.
+     */
+    private static class Raster {
+
+        BufferedImage image;
+        BufferedImage spare;   // Reused as the destination of the next shift
+
+        String chr;
+        double origin;
+        double scale;
+        AffineTransform imageScale;
+        int y;
+        int trackWidth;
+        int trackHeight;
+        int top;
+
+        Raster(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            spare = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        void set(String chr, double origin, double scale, AffineTransform imageScale, Rectangle rect, int top) {
+            this.chr = chr;
+            this.origin = origin;
+            this.scale = scale;
+            this.imageScale = imageScale;
+            this.y = rect.y;
+            this.trackWidth = rect.width;
+            this.trackHeight = rect.height;
+            this.top = top;
+        }
+
+        /**
+         * Return the shift in device pixels from the cached view to the given view, or Integer.MAX_VALUE if the
+         * cached image cannot be reused: the chromosome, scale, device scale or geometry differs, or the shift is
+         * not a whole number of device pixels.
+         */
+        int shift(String chr, double origin, double scale, AffineTransform imageScale, Rectangle rect, int top,
+                  int width, int height) {
+            if (!chr.equals(this.chr) || scale != this.scale || !imageScale.equals(this.imageScale) ||
+                    rect.y != y || rect.width != trackWidth || rect.height != trackHeight || top != this.top ||
+                    width != image.getWidth() || height != image.getHeight()) {
+                return Integer.MAX_VALUE;
+            }
+            double dx = (origin - this.origin) / scale * imageScale.getScaleX();
+            long pixels = Math.round(dx);
+            if (Math.abs(dx - pixels) > 0.01 || Math.abs(pixels) > image.getWidth()) {
+                return Integer.MAX_VALUE;
+            }
+            return (int) pixels;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.ui.util;
+
+import org.broad.igv.ui.IGVDialog;
+import org.broad.igv.util.metrics.Metric;
+import org.broad.igv.util.metrics.MetricsRegistry;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableRowSorter;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lists the metrics in the {@link MetricsRegistry}: load, fetch, and render times, bytes read, and cache
+ * statistics for the session.  Timer values are in milliseconds.
+ */
+public class MetricsDialog extends IGVDialog {
+
+    private static final String[] COLUMNS = {"Metric", "Type", "Count", "Value / Total", "Mean", "Min", "Max", "P50", "P95"};
+
+    // Value keys for the numeric columns, from column 2
+    private static final String[] VALUE_KEYS = {"count", "total", "mean", "min", "max", "p50", "p95"};
+
+    private final MetricsTableModel model = new MetricsTableModel();
+
+    public MetricsDialog(Frame owner) {
+        super(owner, "Diagnostics", false);
+        initComponents();
+        refresh();
+        setSize(900, 500);
+        setLocationRelativeTo(owner);
+    }
+
+    private void initComponents() {
+
+        JTable table = new JTable(model);
+        TableRowSorter<MetricsTableModel> sorter = new TableRowSorter<>(model);
+        Comparator<Number> numberComparator = Comparator.nullsFirst(Comparator.comparingDouble(Number::doubleValue));
+        for (int c = 2; c < COLUMNS.length; c++) {
+            sorter.setComparator(c, numberComparator);
+        }
+        table.setRowSorter(sorter);
+        table.getColumnModel().getColumn(0).setPreferredWidth(300);
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+
+        JButton resetButton = new JButton("Reset");
+        resetButton.setToolTipText("Clear counters, histograms, and timers");
+        resetButton.addActionListener(e -> {
+            MetricsRegistry.getInstance().reset();
+            refresh();
+        });
+
+        JButton copyButton = new JButton("Copy JSON");
+        copyButton.setToolTipText("Copy all metrics to the clipboard as JSON");
+        copyButton.addActionListener(e -> {
+            StringSelection json = new StringSelection(MetricsRegistry.getInstance().toJson());
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(json, null);
+        });
+
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> setVisible(false));
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(refreshButton);
+        buttonPanel.add(resetButton);
+        buttonPanel.add(copyButton);
+        buttonPanel.add(closeButton);
+
+        Container contentPane = getContentPane();
+        contentPane.setLayout(new BorderLayout());
+        contentPane.add(new JScrollPane(table), BorderLayout.CENTER);
+        contentPane.add(buttonPanel, BorderLayout.SOUTH);
+    }
+
+    private void refresh() {
+        model.setMetrics(MetricsRegistry.getInstance().getMetrics());
+    }
+
+
+    private static class MetricsTableModel extends AbstractTableModel {
+
+        private List<Metric> metrics = new ArrayList<>();
+        private List<Map<String, Number>> values = new ArrayList<>();
+
+        void setMetrics(List<Metric> metrics) {
+            List<Map<String, Number>> values = new ArrayList<>(metrics.size());
+            for (Metric m : metrics) {
+                values.add(m.getValues());
+            }
+            this.metrics = metrics;
+            this.values = values;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return metrics.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column < 2 ? String.class : Number.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Metric metric = metrics.get(row);
+            if (column == 0) {
+                return metric.getName();
+            } else if (column == 1) {
+                return metric.getType();
+            } else {
+                Map<String, Number> metricValues = values.get(row);
+                String key = VALUE_KEYS[column - 2];
+                Number value = metricValues.get(key);
+                // Counters and gauges have a single value, shown in the total column
+                return value == null && key.equals("total") ? metricValues.get("value") : value;
+            }
+        }
+    }
+}
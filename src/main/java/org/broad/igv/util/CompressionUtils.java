@@ -27,8 +27,10 @@ package org.broad.igv.util;
 
 import org.broad.igv.logging.*;
 import org.broad.igv.Globals;
+import org.broad.igv.util.metrics.MetricsRegistry;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
@@ -62,9 +64,24 @@ public class CompressionUtils {
      * @return
      */
     public synchronized byte[] decompress(byte[] data, int uncompressedChunkSize) {
+        return decompress(data, 0, data.length, uncompressedChunkSize);
+    }
+
+    /**
+     * Decompress the range data[offset, offset + length), which may contain several concatenated zlib streams.
+     *
+     * @param data                  -- buffer containing the data to decompress
+     * @param offset                -- start of the compressed data in the buffer
+     * @param length                -- number of compressed bytes
+     * @param uncompressedChunkSize -- an estimate of the uncompressed chunk size.  This need not be exact.
+     * @return
+     */
+    public synchronized byte[] decompress(byte[] data, int offset, int length, int uncompressedChunkSize) {
+
+        long t0 = System.nanoTime();
 
         // mpd: new code
-        int rem = data.length;
+        int rem = length;
 
         // Create an expandable byte array to hold the decompressed data
         ByteArrayOutputStream bos = new ByteArrayOutputStream(uncompressedChunkSize);
@@ -73,14 +90,13 @@ public class CompressionUtils {
         byte[] outbuf = new byte[uncompressedChunkSize];
 
         decompressor.reset();
-        decompressor.setInput(data);
+        decompressor.setInput(data, offset, length);
         while (rem > 0) {
 
             // If we are finished with the current chunk start a new one
             if (decompressor.finished()) {
-                decompressor = new Inflater();
-                int offset = data.length - rem;
-                decompressor.setInput(data, offset, rem);
+                decompressor.reset();
+                decompressor.setInput(data, offset + length - rem, rem);
             }
 
             try {
@@ -100,10 +116,63 @@ public class CompressionUtils {
         }
 
         // Return the decompressed data
-        return bos.toByteArray();
+        byte[] result = bos.toByteArray();
+        recordDecompression(t0, length, result.length);
+        return result;
     }
 
 
+    /**
+     * Decompress the remaining bytes of the buffer, which may contain several concatenated zlib streams.  The
+     * buffer is read in place, so a view of a memory-mapped file is not copied.  The buffer position is advanced
+     * past the consumed input.
+     *
+     * @param data                  -- buffer positioned at the data to decompress
+     * @param uncompressedChunkSize -- an estimate of the uncompressed chunk size.  This need not be exact.
+     * @return
+     */
+    public synchronized byte[] decompress(ByteBuffer data, int uncompressedChunkSize) {
+
+        long t0 = System.nanoTime();
+        int length = data.remaining();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(uncompressedChunkSize);
+        byte[] outbuf = new byte[uncompressedChunkSize];
+
+        decompressor.reset();
+        decompressor.setInput(data);
+        while (data.hasRemaining() || !decompressor.finished()) {
+
+            // If we are finished with the current chunk start a new one.  The inflater advances the buffer
+            // position to the end of the consumed input.
+            if (decompressor.finished()) {
+                decompressor.reset();
+                decompressor.setInput(data);
+            }
+
+            try {
+                int count = decompressor.inflate(outbuf, 0, outbuf.length);
+                if (count == 0 && (decompressor.needsInput() || decompressor.needsDictionary())) {
+                    break;
+                }
+                bos.write(outbuf, 0, count);
+            } catch (Exception e) {
+                log.error("Error decompressing data", e);
+                break;
+            }
+        }
+
+        byte[] result = bos.toByteArray();
+        recordDecompression(t0, length - data.remaining(), result.length);
+        return result;
+    }
+
+    private static void recordDecompression(long t0, int compressedBytes, int bytes) {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.timer("decompress").record(System.nanoTime() - t0);
+        metrics.counter("decompress.bytes.in").add(compressedBytes);
+        metrics.counter("decompress.bytes.out").add(bytes);
+    }
+
     public synchronized byte[] compress(byte[] data) {
 
         // Give the compressor the data to compress
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for HTTP requests issued through HttpUtils.  Range streams are counted on close as read to the end, or
+ * abandoned with unread content.  Only a stream read to the end can return its connection to the JDK keep-alive
+ * cache, so the read-to-end rate is an upper bound on connection reuse.  Actual reuse is decided inside
+ * HttpURLConnection and is not observable.
+ */
+public class HttpConnectionStats {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rangeRequests = new AtomicLong();
+    private final AtomicLong bytesFetched = new AtomicLong();
+    private final AtomicLong streamsReadToEnd = new AtomicLong();
+    private final AtomicLong streamsAbandoned = new AtomicLong();
+    private final AtomicLong permitWaitNanos = new AtomicLong();
+
+    void requestOpened() {
+        requests.incrementAndGet();
+    }
+
+    void rangeRequestOpened(long waitNanos) {
+        rangeRequests.incrementAndGet();
+        permitWaitNanos.addAndGet(waitNanos);
+    }
+
+    void bytesRead(long n) {
+        bytesFetched.addAndGet(n);
+    }
+
+    void rangeStreamClosed(boolean readToEnd) {
+        if (readToEnd) {
+            streamsReadToEnd.incrementAndGet();
+        } else {
+            streamsAbandoned.incrementAndGet();
+        }
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getRangeRequests() {
+        return rangeRequests.get();
+    }
+
+    public long getBytesFetched() {
+        return bytesFetched.get();
+    }
+
+    public long getStreamsReadToEnd() {
+        return streamsReadToEnd.get();
+    }
+
+    public long getStreamsAbandoned() {
+        return streamsAbandoned.get();
+    }
+
+    /**
+     * Total time, in milliseconds, range requests have waited for a per-host permit.
+     */
+    public long getPermitWaitMillis() {
+        return permitWaitNanos.get() / 1000000;
+    }
+
+    /**
+     * Fraction of closed range streams that were read to the end, and so were eligible for connection reuse.
+     */
+    public double getReadToEndRate() {
+        long readToEnd = streamsReadToEnd.get();
+        long total = readToEnd + streamsAbandoned.get();
+        return total == 0 ? 0 : ((double) readToEnd) / total;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpConnectionStats{requests=" + getRequests() +
+                ", rangeRequests=" + getRangeRequests() +
+                ", bytesFetched=" + getBytesFetched() +
+                ", readToEnd=" + getStreamsReadToEnd() +
+                ", abandoned=" + getStreamsAbandoned() +
+                ", permitWaitMillis=" + getPermitWaitMillis() + "}";
+    }
+}
@@ -40,6 +40,8 @@ import org.broad.igv.ui.IGV;
 import org.broad.igv.ui.util.MessageUtils;
 import org.broad.igv.util.collections.CI;
 import org.broad.igv.util.ftp.FTPUtils;
+import org.broad.igv.util.metrics.Counter;
+import org.broad.igv.util.metrics.MetricsRegistry;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
@@ -57,6 +59,8 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.GZIPInputStream;
 
 import static org.broad.igv.prefs.Constants.*;
@@ -97,6 +101,16 @@ public class HttpUtils {
     private final int DEFAULT_REDIRECT_EXPIRATION_MIN = 15;
     private Map<URL, CachedRedirect> redirectCache = new HashMap<URL, CachedRedirect>();
 
+    /**
+     * Unread content up to this size is drained when a range stream is closed, so the connection can be reused.
+     */
+    private static final int MAX_DRAIN_BYTES = 65536;
+
+    // Limits on concurrent range requests, by host
+    private final Map<String, HostPermits> hostPermits = new ConcurrentHashMap<>();
+    private final HttpConnectionStats connectionStats = new HttpConnectionStats();
+    private ExecutorService rangeExecutor;
+
     /**
      * @return the single instance
      */
@@ -119,6 +133,22 @@ public class HttpUtils {
         }
 
         byteRangeTestMap = Collections.synchronizedMap(new HashMap());
+
+        // Size the JDK keep-alive cache to hold a connection for each concurrent range request to a host
+        if (System.getProperty("http.maxConnections") == null) {
+            try {
+                System.setProperty("http.maxConnections", String.valueOf(getMaxConnectionsPerHost()));
+            } catch (Exception e) {
+                log.warn("Couldn't set http.maxConnections");
+            }
+        }
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("http.requests", connectionStats::getRequests);
+        metrics.gauge("http.rangeRequests", connectionStats::getRangeRequests);
+        metrics.gauge("http.bytesFetched", connectionStats::getBytesFetched);
+        metrics.gauge("http.permitWaitMillis", connectionStats::getPermitWaitMillis);
+        metrics.gauge("http.rangeReadToEndRate", connectionStats::getReadToEndRate);
     }
 
     /**
@@ -416,6 +446,23 @@ public class HttpUtils {
         return conn.getHeaderField(key);
     }
 
+    /**
+     * Return the values of the header fields from a single request.  Fields not in the response are omitted.
+     */
+    public Map<String, String> getHeaderFields(URL url, String... keys) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        HttpURLConnection conn = openConnectionHeadOrGet(url);
+        if (conn != null) {
+            for (String key : keys) {
+                String value = conn.getHeaderField(key);
+                if (value != null) {
+                    fields.put(key, value);
+                }
+            }
+        }
+        return fields;
+    }
+
     public long getLastModified(URL url) throws IOException {
         HttpURLConnection conn = openConnectionHeadOrGet(url);
         if (conn == null) return 0;
@@ -709,6 +756,8 @@ public class HttpUtils {
             url = addQueryParameter(url, "userProject", GoogleUtils.getProjectID());
         }
 
+        connectionStats.requestOpened();
+
         HttpURLConnection conn = null;
         if (proxySettings != null && proxySettings.isProxyDefined()) {
 
@@ -1002,7 +1051,240 @@ public class HttpUtils {
     }
 
     public void shutdown() {
-        // Do any cleanup required here
+        synchronized (this) {
+            if (rangeExecutor != null) {
+                rangeExecutor.shutdownNow();
+                rangeExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * Open a stream for the bytes between start and end (inclusive) of the resource.  The number of open range
+     * streams per host is limited by the HTTP.MAX_CONNECTIONS_PER_HOST preference, read on each call so a change
+     * applies to later requests; this call blocks until a permit is available.  The stream must be closed to release the permit.  On close, unread content is drained
+     * if small so the connection is returned to the keep-alive cache.
+     */
+    public InputStream openRangeStream(URL url, long start, long end) throws IOException {
+
+        HostPermits permits = hostPermits.computeIfAbsent(url.getHost(), h -> new HostPermits());
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        long t0 = System.nanoTime();
+        try {
+            permits.acquire(getMaxConnectionsPerHost());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for connection to " + url.getHost());
+        }
+        connectionStats.rangeRequestOpened(System.nanoTime() - t0);
+
+        try {
+            Map<String, String> params = new HashMap<>();
+            params.put("Range", "bytes=" + start + "-" + end);
+            HttpURLConnection conn = openConnection(url, params);
+            InputStream input;
+            try {
+                input = conn.getInputStream();
+            } catch (IOException e) {
+                readErrorStream(conn);  // Consume content
+                throw e;
+            }
+            metrics.timer("http.range.open", url.getHost()).record(System.nanoTime() - t0);
+            return new RangeInputStream(input, permits, metrics.counter("http.bytes", url.getHost()));
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Fetch the byte ranges, each given as {start, end} inclusive, of the resource.  Multiple ranges are requested
+     * in parallel, subject to the per-host connection limit.  Results are in the order of the ranges.  A result
+     * is shorter than requested, possibly empty, if the range extends past the end of the resource.
+     */
+    public List<byte[]> readRanges(URL url, List<long[]> ranges) throws IOException {
+
+        if (ranges.size() == 1) {
+            return Collections.singletonList(readRange(url, ranges.get(0)[0], ranges.get(0)[1]));
+        }
+
+        List<Future<byte[]>> futures = new ArrayList<>(ranges.size());
+        ExecutorService executor = getRangeExecutor();
+        for (long[] r : ranges) {
+            futures.add(executor.submit(() -> readRange(url, r[0], r[1])));
+        }
+
+        List<byte[]> results = new ArrayList<>(ranges.size());
+        try {
+            for (Future<byte[]> f : futures) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted reading " + url);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+        return results;
+    }
+
+    private byte[] readRange(URL url, long start, long end) throws IOException {
+
+        byte[] bytes = new byte[(int) (end - start + 1)];
+        int n = 0;
+        try (InputStream is = openRangeStream(url, start, end)) {
+            while (n < bytes.length) {
+                int count = is.read(bytes, n, bytes.length - n);
+                if (count < 0) {
+                    break;
+                }
+                n += count;
+            }
+        } catch (UnsatisfiableRangeException e) {
+            // Range starts past the end of the resource
+        } catch (IOException e) {
+            if (!(e instanceof EOFException) && (e.getMessage() == null || !e.getMessage().contains("416"))) {
+                throw e;
+            }
+        }
+        return n == bytes.length ? bytes : Arrays.copyOf(bytes, n);
+    }
+
+    private synchronized ExecutorService getRangeExecutor() {
+        if (rangeExecutor == null) {
+            // Concurrency is limited by the per-host connection permits, not the executor
+            rangeExecutor = IGVExecutors.newIOExecutor(Integer.MAX_VALUE);
+        }
+        return rangeExecutor;
+    }
+
+    private static int getMaxConnectionsPerHost() {
+        return Math.max(1, PreferencesManager.getPreferences().getAsInt(HTTP_MAX_CONNECTIONS_PER_HOST));
+    }
+
+    public HttpConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+
+    /**
+     * Return the number of open range streams to the host
+     */
+    int getPermitsInUse(String host) {
+        HostPermits permits = hostPermits.get(host);
+        return permits == null ? 0 : permits.getInUse();
+    }
+
+    /**
+     * Limits the number of open range streams to a host.  Unlike a Semaphore, the limit is given on each acquire,
+     * so a change to the preference takes effect for later requests.  If the limit is lowered, streams already
+     * open are counted against it until they close.
+     */
+    static class HostPermits {
+
+        private int limit;
+        private int inUse;
+
+        synchronized void acquire(int limit) throws InterruptedException {
+            if (limit != this.limit) {
+                this.limit = limit;
+                notifyAll();
+            }
+            while (inUse >= this.limit) {
+                wait();
+            }
+            inUse++;
+        }
+
+        synchronized void release() {
+            inUse--;
+            notifyAll();
+        }
+
+        synchronized int getInUse() {
+            return inUse;
+        }
+    }
+
+    /**
+     * Counts bytes read, in total and by host, and releases the host permit on close.
+     */
+    private class RangeInputStream extends FilterInputStream {
+
+        private final HostPermits permits;
+        private final Counter hostBytes;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private boolean eof = false;
+
+        RangeInputStream(InputStream in, HostPermits permits, Counter hostBytes) {
+            super(in);
+            this.permits = permits;
+            this.hostBytes = hostBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                eof = true;
+            } else {
+                connectionStats.bytesRead(1);
+                hostBytes.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                eof = true;
+            } else {
+                connectionStats.bytesRead(n);
+                hostBytes.add(n);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed.compareAndSet(false, true)) {
+                try {
+                    if (!eof) {
+                        drain();
+                    }
+                    connectionStats.rangeStreamClosed(eof);
+                    super.close();
+                } finally {
+                    permits.release();
+                }
+            }
+        }
+
+        private void drain() {
+            byte[] buffer = new byte[8192];
+            int drained = 0;
+            try {
+                while (drained < MAX_DRAIN_BYTES) {
+                    int n = in.read(buffer);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    drained += n;
+                }
+            } catch (IOException e) {
+                // Connection will not be reused
+            }
+        }
     }
 
     public static class ProxySettings {
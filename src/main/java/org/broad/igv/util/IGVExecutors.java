@@ -0,0 +1,270 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util;
+
+import org.broad.igv.logging.*;
+import org.broad.igv.prefs.PreferencesManager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.broad.igv.prefs.Constants.CPU_THREADS;
+import static org.broad.igv.prefs.Constants.IO_VIRTUAL_THREADS;
+
+/**
+ * Shared executors for background work.  Blocking I/O, such as remote reads, runs on the I/O executor, an
+ * unbounded pool of daemon threads.  With the IO.VIRTUAL_THREADS preference, off by default, the I/O executor
+ * uses virtual threads where the JVM supports them (Java 21+).  CPU-bound work, such as decompression, alignment
+ * packing, and rendering, runs on a fixed pool sized to the processor count.
+ * <p>
+ * Record parsing stays on the I/O threads.  Codecs decode records as they are read from the stream, so a parse
+ * moved to the CPU pool would hold a CPU thread while it waits on the network.
+ * <p>
+ * Virtual threads stay off by default because several readers do blocking I/O while holding a monitor, e.g.
+ * the synchronized TDFReader.readBytes reading through IGVSeekableHTTPStream, which waits on range fetches
+ * and host permits.  Before JDK 24 a virtual thread blocked inside a monitor pins its carrier thread, and once
+ * every carrier is pinned by such loads the fetches they wait on cannot run.
+ * <p>
+ * The shared executors are not bounded per subsystem.  Each subsystem takes a bounded view with
+ * {@link #newIOExecutor(int)} or {@link #newBoundedExecutor(Executor, int)}, with its limit from preferences, so
+ * that limits are independent of the number of platform threads.
+ */
+public class IGVExecutors {
+
+    private static Logger log = LogManager.getLogger(IGVExecutors.class);
+
+    private static ExecutorService ioExecutor;
+    private static ExecutorService cpuExecutor;
+    private static boolean virtualThreads;
+    private static final ThreadLocal<Boolean> cpuThread = ThreadLocal.withInitial(() -> false);
+
+    public static synchronized ExecutorService getIOExecutor() {
+        if (ioExecutor == null) {
+            if (PreferencesManager.getPreferences().getAsBoolean(IO_VIRTUAL_THREADS)) {
+                ioExecutor = newVirtualThreadExecutor();
+            }
+            virtualThreads = ioExecutor != null;
+            if (ioExecutor == null) {
+                ioExecutor = Executors.newCachedThreadPool(daemonThreadFactory("igv-io"));
+            }
+            log.info("I/O executor uses " + (virtualThreads ? "virtual" : "platform") + " threads");
+        }
+        return ioExecutor;
+    }
+
+    public static synchronized ExecutorService getCPUExecutor() {
+        if (cpuExecutor == null) {
+            int threads = PreferencesManager.getPreferences().getAsInt(CPU_THREADS);
+            if (threads <= 0) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+            ThreadFactory factory = daemonThreadFactory("igv-cpu");
+            cpuExecutor = Executors.newFixedThreadPool(threads, r -> factory.newThread(() -> {
+                cpuThread.set(true);
+                r.run();
+            }));
+        }
+        return cpuExecutor;
+    }
+
+    /**
+     * Run the task on the CPU executor and wait for it to complete.  This bounds CPU-bound steps of work that
+     * otherwise runs on I/O threads, e.g. packing alignments after a load.  Called from a CPU executor thread the
+     * task runs inline, as waiting on the pool from within it could deadlock.
+     */
+    public static void runOnCPU(Runnable task) {
+        if (cpuThread.get()) {
+            task.run();
+            return;
+        }
+        Future<?> future = getCPUExecutor().submit(task);
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted waiting for CPU task");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    /**
+     * Return true if the I/O executor runs tasks on virtual threads
+     */
+    public static synchronized boolean isVirtual() {
+        getIOExecutor();
+        return virtualThreads;
+    }
+
+    /**
+     * Return an executor running tasks on the shared I/O executor, at most maxConcurrent at a time.
+     */
+    public static ExecutorService newIOExecutor(int maxConcurrent) {
+        return newBoundedExecutor(getIOExecutor(), maxConcurrent);
+    }
+
+    /**
+     * Return an executor running tasks on the delegate, at most maxConcurrent at a time.  Tasks beyond the limit
+     * are queued.  Shutting down the returned executor does not affect the delegate.
+     */
+    public static ExecutorService newBoundedExecutor(Executor delegate, int maxConcurrent) {
+        return new BoundedExecutor(delegate, Math.max(1, maxConcurrent));
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // Virtual threads are not available before Java 21 (or are a preview feature)
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+
+    /**
+     * An executor that limits the number of tasks running on a delegate executor.  Running tasks are not
+     * interrupted by {@link #shutdownNow()}.
+     */
+    static class BoundedExecutor extends AbstractExecutorService {
+
+        private final Executor delegate;
+        private final int maxConcurrent;
+        private final Deque<Runnable> queue = new ArrayDeque<>();
+        private int active;
+        private boolean shutdown;
+
+        BoundedExecutor(Executor delegate, int maxConcurrent) {
+            this.delegate = delegate;
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            synchronized (this) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("Executor has been shut down");
+                }
+                queue.add(command);
+            }
+            startQueued();
+        }
+
+        private void startQueued() {
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    if (active >= maxConcurrent || queue.isEmpty()) {
+                        return;
+                    }
+                    next = queue.poll();
+                    active++;
+                }
+                try {
+                    delegate.execute(() -> {
+                        try {
+                            next.run();
+                        } finally {
+                            synchronized (this) {
+                                active--;
+                                notifyAll();
+                            }
+                            startQueued();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    synchronized (this) {
+                        active--;
+                        notifyAll();
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        synchronized int getActiveCount() {
+            return active;
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            shutdown = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> pending = new ArrayList<>(queue);
+            queue.clear();
+            notifyAll();
+            return pending;
+        }
+
+        @Override
+        public synchronized boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public synchronized boolean isTerminated() {
+            return shutdown && active == 0 && queue.isEmpty();
+        }
+
+        @Override
+        public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+    }
+}
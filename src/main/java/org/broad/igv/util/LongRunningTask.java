@@ -27,6 +27,7 @@ package org.broad.igv.util;
 
 import org.broad.igv.logging.*;
 import org.broad.igv.Globals;
+import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.ui.IGV;
 import org.broad.igv.ui.WaitCursorManager;
 import org.broad.igv.ui.WaitCursorManager.CursorToken;
@@ -35,6 +36,8 @@ import org.broad.igv.ui.util.MessageUtils;
 import javax.swing.*;
 import java.util.concurrent.*;
 
+import static org.broad.igv.prefs.Constants.IO_LONG_RUNNING_TASK_THREADS;
+
 /**
  * Utility class for executing long running tasks in their own thread (i.e. not on the swing event thread).
  *
@@ -44,11 +47,19 @@ public class LongRunningTask implements Callable {
 
     private static Logger log = LogManager.getLogger(LongRunningTask.class);
 
-    private static final ExecutorService threadExecutor = Executors.newFixedThreadPool(5);
+    private static ExecutorService threadExecutor;
 
     Runnable runnable;
 
-    public static Executor getThreadExecutor() {
+    /**
+     * Return the executor for long running tasks.  Tasks run on the shared I/O executor, at most
+     * IO.LONG_RUNNING_TASK_THREADS at a time.
+     */
+    public static synchronized ExecutorService getThreadExecutor() {
+        if (threadExecutor == null) {
+            int threads = PreferencesManager.getPreferences().getAsInt(IO_LONG_RUNNING_TASK_THREADS);
+            threadExecutor = IGVExecutors.newIOExecutor(threads);
+        }
         return threadExecutor;
     }
 
@@ -57,7 +68,7 @@ public class LongRunningTask implements Callable {
             runnable.run();
             return null;
         } else {
-            return threadExecutor.submit(new LongRunningTask(runnable));
+            return getThreadExecutor().submit(new LongRunningTask(runnable));
         }
     }
 
@@ -0,0 +1,249 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.collections;
+
+import java.util.*;
+
+/**
+ * A thread-safe least-recently-used cache bounded by total weight rather than entry count.  The weight of
+ * each value is computed once, when it is added, by the supplied weigher -- typically an estimate of its size
+ * in bytes.  Values are held by strong references, so heap use is bounded by the maximum weight rather than
+ * by the garbage collector.
+ * <p>
+ * A value heavier than the maximum weight is never cached.  Null values are not cached either, as they would
+ * carry no weight and so escape the bound; putting null just removes the key.  A null from {@link #get} is
+ * therefore always a miss.
+ * <p>
+ * All operations are serialized on a single lock, the cache itself.  It is not segmented, so it suits caches of
+ * tiles and blocks whose loading cost dwarfs the lookup, not hot per-record lookups from many threads.
+ */
+public class WeightedLRUCache<K, V> {
+
+    public interface Weigher<V> {
+        long weigh(V value);
+    }
+
+    public interface EvictionListener<K, V> {
+        void evicted(K key, V value);
+    }
+
+    private final Weigher<? super V> weigher;
+    private final LinkedHashMap<K, Entry<V>> map;
+    private EvictionListener<K, V> evictionListener;
+
+    private long maxWeight;
+    private long weight;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public WeightedLRUCache(long maxWeight, Weigher<? super V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.map = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Set a listener to be notified when an entry is evicted to stay within the weight budget.  Explicit removes
+     * and clears are not reported.  The listener is called after the cache lock is released, on the thread that
+     * caused the eviction, so it may do slow work such as disk I/O or call back into the cache.
+     */
+    public synchronized void setEvictionListener(EvictionListener<K, V> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Return the value for the key, or null if absent, marking the entry as recently used.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        } else {
+            hitCount++;
+            return entry.value;
+        }
+    }
+
+    /**
+     * Add the value, evicting least recently used entries as needed to stay within the weight budget.  A null
+     * value removes the key.
+     *
+     * @return the previous value for the key, or null
+     */
+    public V put(K key, V value) {
+
+        if (value == null) {
+            return remove(key);
+        }
+
+        long w = Math.max(0, weigher.weigh(value));
+
+        Entry<V> previous;
+        List<Map.Entry<K, Entry<V>>> evicted = Collections.emptyList();
+        synchronized (this) {
+            previous = map.remove(key);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+
+            if (w <= maxWeight) {
+                map.put(key, new Entry<>(value, w));
+                weight += w;
+                evicted = evict();
+            }
+        }
+        notifyEvicted(evicted);
+
+        return previous == null ? null : previous.value;
+    }
+
+    public synchronized V remove(K key) {
+        Entry<V> entry = map.remove(key);
+        if (entry == null) {
+            return null;
+        } else {
+            weight -= entry.weight;
+            return entry.value;
+        }
+    }
+
+    /**
+     * Test for presence of the key.  This does not affect recency or hit statistics.
+     */
+    public synchronized boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * Return a snapshot of the keys, in order from least to most recently used.
+     */
+    public synchronized List<K> keys() {
+        return new ArrayList<>(map.keySet());
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public void setMaxWeight(long maxWeight) {
+        List<Map.Entry<K, Entry<V>>> evicted;
+        synchronized (this) {
+            this.maxWeight = maxWeight;
+            evicted = evict();
+        }
+        notifyEvicted(evicted);
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0 : ((double) hitCount) / requests;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WeightedLRUCache{size=" + map.size() +
+                ", weight=" + weight +
+                ", maxWeight=" + maxWeight +
+                ", hits=" + hitCount +
+                ", misses=" + missCount +
+                ", evictions=" + evictionCount + "}";
+    }
+
+    /**
+     * Remove eldest entries until within the weight budget.  Called with the lock held; returns the evicted
+     * entries if there is a listener to notify.
+     */
+    private List<Map.Entry<K, Entry<V>>> evict() {
+        List<Map.Entry<K, Entry<V>>> evicted = Collections.emptyList();
+        Iterator<Map.Entry<K, Entry<V>>> iter = map.entrySet().iterator();
+        while (weight > maxWeight && iter.hasNext()) {
+            Map.Entry<K, Entry<V>> eldest = iter.next();
+            iter.remove();
+            weight -= eldest.getValue().weight;
+            evictionCount++;
+            if (evictionListener != null) {
+                if (evicted.isEmpty()) evicted = new ArrayList<>();
+                evicted.add(eldest);
+            }
+        }
+        return evicted;
+    }
+
+    private void notifyEvicted(List<Map.Entry<K, Entry<V>>> evicted) {
+        if (evicted.isEmpty()) return;
+        EvictionListener<K, V> listener;
+        synchronized (this) {
+            listener = evictionListener;
+        }
+        if (listener != null) {
+            for (Map.Entry<K, Entry<V>> e : evicted) {
+                listener.evicted(e.getKey(), e.getValue().value);
+            }
+        }
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long weight;
+
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.metrics;
+
+import org.broad.igv.logging.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A value read on demand from another component, e.g. a cache hit rate.
+ */
+public class Gauge extends Metric {
+
+    private static Logger log = LogManager.getLogger(Gauge.class);
+
+    private final Supplier<? extends Number> supplier;
+
+    Gauge(String name, Supplier<? extends Number> supplier) {
+        super(name);
+        this.supplier = supplier;
+    }
+
+    /**
+     * Return the current value, or null if it is not available.
+     */
+    public Number getValue() {
+        try {
+            Number value = supplier.get();
+            if (value instanceof Double || value instanceof Float) {
+                double d = value.doubleValue();
+                return Double.isNaN(d) || Double.isInfinite(d) ? null : value;
+            }
+            return value;
+        } catch (Exception e) {
+            log.debug("Error reading gauge " + getName() + ": " + e);
+            return null;
+        }
+    }
+
+    @Override
+    public String getType() {
+        return "gauge";
+    }
+
+    @Override
+    public Map<String, Number> getValues() {
+        Number value = getValue();
+        return value == null ? Collections.emptyMap() : Collections.singletonMap("value", value);
+    }
+}
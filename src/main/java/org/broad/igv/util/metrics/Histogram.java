@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distribution of a non-negative value, e.g. the number of alignments in a tile.  Values are counted in
+ * power-of-two buckets, so percentiles are approximate: a percentile is reported as the upper bound of its
+ * bucket, at most twice the true value.  Count, total, min, and max are exact.
+ * <p>
+ * Values are recorded without locking.  A reset swaps in empty state and waits for values being recorded to the
+ * old state to complete, so a value recorded during a dump with reset is reported either in that dump or the next.
+ */
+public class Histogram extends Metric {
+
+    private static final int BUCKETS = 64;
+
+    private volatile State state = new State();
+
+    Histogram(String name) {
+        super(name);
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        State s;
+        while (true) {
+            s = state;
+            s.writers.incrementAndGet();
+            if (s == state) {
+                break;
+            }
+            // Reset since the state was read, record to the new state
+            s.writers.decrementAndGet();
+        }
+        try {
+            s.record(value);
+        } finally {
+            s.writers.decrementAndGet();
+        }
+    }
+
+    public long getCount() {
+        return state.getCount();
+    }
+
+    public long getTotal() {
+        return state.getTotal();
+    }
+
+    public long getMin() {
+        return state.getMin();
+    }
+
+    public long getMax() {
+        return state.getMax();
+    }
+
+    public double getMean() {
+        return state.getMean();
+    }
+
+    /**
+     * Return the approximate value at quantile q, 0 < q <= 1.
+     */
+    public long getPercentile(double q) {
+        return state.getPercentile(q);
+    }
+
+    @Override
+    public String getType() {
+        return "histogram";
+    }
+
+    @Override
+    public Map<String, Number> getValues() {
+        return getValues(state);
+    }
+
+    Map<String, Number> getValues(State s) {
+        Map<String, Number> values = new LinkedHashMap<>();
+        values.put("count", s.getCount());
+        values.put("total", s.getTotal());
+        values.put("mean", s.getMean());
+        values.put("min", s.getMin());
+        values.put("max", s.getMax());
+        values.put("p50", s.getPercentile(0.5));
+        values.put("p95", s.getPercentile(0.95));
+        return values;
+    }
+
+    @Override
+    synchronized Map<String, Number> getValuesAndReset() {
+        State s = state;
+        state = new State();
+        while (s.writers.get() != 0) {
+            Thread.onSpinWait();
+        }
+        return getValues(s);
+    }
+
+    @Override
+    synchronized void reset() {
+        state = new State();
+    }
+
+    /**
+     * Values recorded since the last reset.
+     */
+    static class State {
+
+        // Number of threads recording to this state
+        final AtomicLong writers = new AtomicLong();
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        // Bucket b counts values v with 2^(b-1) <= v < 2^b, bucket 0 counts zeros
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long value) {
+            count.increment();
+            total.add(value);
+            min.accumulateAndGet(value, Math::min);
+            max.accumulateAndGet(value, Math::max);
+            buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getTotal() {
+            return total.sum();
+        }
+
+        long getMin() {
+            long n = min.get();
+            return n == Long.MAX_VALUE ? 0 : n;
+        }
+
+        long getMax() {
+            long n = max.get();
+            return n == Long.MIN_VALUE ? 0 : n;
+        }
+
+        double getMean() {
+            long n = getCount();
+            return n == 0 ? 0 : ((double) getTotal()) / n;
+        }
+
+        long getPercentile(double q) {
+
+            long n = 0;
+            long[] counts = new long[BUCKETS];
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] = buckets.get(b);
+                n += counts[b];
+            }
+            if (n == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(q * n));
+            long cumulative = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                cumulative += counts[b];
+                if (cumulative >= rank) {
+                    long upper = b == 0 ? 0 : (1L << b) - 1;
+                    return Math.max(getMin(), Math.min(upper, getMax()));
+                }
+            }
+            return getMax();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.metrics;
+
+import java.util.Map;
+
+/**
+ * A named measurement held by the {@link MetricsRegistry}.
+ */
+public abstract class Metric {
+
+    private final String name;
+
+    Metric(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the metric type, e.g. "counter", as reported in the JSON dump.
+     */
+    public abstract String getType();
+
+    /**
+     * Return a snapshot of the metric's values, keyed by value name, in display order.
+     */
+    public abstract Map<String, Number> getValues();
+
+    /**
+     * Clear accumulated values.  Metrics that reflect state held elsewhere are not affected.
+     */
+    void reset() {
+    }
+
+    /**
+     * Return a snapshot of the metric's values and clear them.  Values recorded concurrently are reported either
+     * in the snapshot or after the reset.
+     */
+    Map<String, Number> getValuesAndReset() {
+        Map<String, Number> values = getValues();
+        reset();
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "=" + getValues();
+    }
+}
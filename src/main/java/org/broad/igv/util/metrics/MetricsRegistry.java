@@ -0,0 +1,219 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Session-wide registry of counters, histograms, timers, and gauges, used to find which tracks, files, or servers
+ * are slow without attaching a profiler.  Metrics are created on first use and live for the session.
+ * <p>
+ * A metric can be tagged, e.g. with a file path or host, to keep a separate measurement per tag.  The tagged
+ * metric is named "name{tag}".  Once the registry holds {@link #MAX_METRICS} metrics, new tags share the
+ * metric "name{other}".  Tags for files are made with {@link #pathTag(String)}, which removes any query string, so
+ * that credentials in URLs are not exposed by the metrics dump.
+ * <p>
+ * Metrics are listed in the diagnostics dialog, and dumped as JSON by the "metrics" batch command.
+ */
+public class MetricsRegistry {
+
+    static final int MAX_METRICS = 5000;
+
+    static final String OTHER_TAG = "other";
+
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    MetricsRegistry() {
+    }
+
+    public Counter counter(String name) {
+        return counter(name, null);
+    }
+
+    public Counter counter(String name, String tag) {
+        return getOrCreate(name, tag, Counter.class, Counter::new);
+    }
+
+    public Histogram histogram(String name) {
+        return histogram(name, null);
+    }
+
+    public Histogram histogram(String name, String tag) {
+        return getOrCreate(name, tag, Histogram.class, Histogram::new);
+    }
+
+    public Timer timer(String name) {
+        return timer(name, null);
+    }
+
+    public Timer timer(String name, String tag) {
+        return getOrCreate(name, tag, Timer.class, Timer::new);
+    }
+
+    /**
+     * Register a gauge, replacing any metric of the same name.  The supplier is called each time metrics are
+     * listed, so it should be cheap and must not block.
+     */
+    public Gauge gauge(String name, Supplier<? extends Number> supplier) {
+        return gauge(name, null, supplier);
+    }
+
+    /**
+     * Register a tagged gauge, e.g. for one track.  Tagged gauges are not limited by {@link #MAX_METRICS}, so
+     * the owner should {@link #remove(Metric)} them when it is disposed.
+     */
+    public Gauge gauge(String name, String tag, Supplier<? extends Number> supplier) {
+        String key = getName(name, tag);
+        Gauge gauge = new Gauge(key, supplier);
+        metrics.put(key, gauge);
+        return gauge;
+    }
+
+    /**
+     * Remove the metric, if it is still registered.  A metric that has since been replaced under the same name is
+     * not affected.
+     */
+    public void remove(Metric metric) {
+        if (metric != null) {
+            metrics.remove(metric.getName(), metric);
+        }
+    }
+
+    public Metric get(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Return all metrics, sorted by name
+     */
+    public List<Metric> getMetrics() {
+        List<Metric> list = new ArrayList<>(metrics.values());
+        list.sort(Comparator.comparing(Metric::getName));
+        return list;
+    }
+
+    /**
+     * Clear the values of all counters, histograms, and timers.  Gauges are not affected.  To read the values
+     * before clearing them use {@link #toJson(boolean)}.
+     */
+    public void reset() {
+        for (Metric m : metrics.values()) {
+            m.reset();
+        }
+    }
+
+    /**
+     * Return the metrics as a single line of JSON, e.g.
+     * {"timestamp":1600000000000,"metrics":{"alignment.pack":{"type":"timer","count":2,"total":1.5,...},...}}
+     */
+    public String toJson() {
+        return toJson(false);
+    }
+
+    /**
+     * Return the metrics as JSON, optionally clearing each metric as it is read.  Each metric is read and
+     * cleared in one step, so a value recorded while the metrics are dumped is reported either in this dump or
+     * the next, not lost between them.
+     */
+    public String toJson(boolean reset) {
+        JsonObject json = new JsonObject();
+        json.addProperty("timestamp", System.currentTimeMillis());
+        JsonObject metricsJson = new JsonObject();
+        for (Metric m : getMetrics()) {
+            JsonObject metricJson = new JsonObject();
+            metricJson.addProperty("type", m.getType());
+            Map<String, Number> values = reset ? m.getValuesAndReset() : m.getValues();
+            for (Map.Entry<String, Number> entry : values.entrySet()) {
+                metricJson.addProperty(entry.getKey(), entry.getValue());
+            }
+            metricsJson.add(m.getName(), metricJson);
+        }
+        json.add("metrics", metricsJson);
+        return new Gson().toJson(json);
+    }
+
+    /**
+     * Return a tag for a file path or URL.  For a URL this is the host and path, without user info, query string,
+     * or fragment, which can hold credentials such as signatures and access tokens.
+     */
+    public static String pathTag(String path) {
+        if (path == null) {
+            return null;
+        }
+        int schemeEnd = path.indexOf("://");
+        if (schemeEnd < 0) {
+            return path;
+        }
+        String tag = path.substring(schemeEnd + 3);
+        int end = tag.length();
+        for (char c : new char[]{'?', '#'}) {
+            int idx = tag.indexOf(c);
+            if (idx >= 0 && idx < end) {
+                end = idx;
+            }
+        }
+        tag = tag.substring(0, end);
+        int authorityEnd = tag.indexOf('/');
+        int userInfoEnd = tag.lastIndexOf('@', authorityEnd < 0 ? tag.length() - 1 : authorityEnd);
+        return userInfoEnd < 0 ? tag : tag.substring(userInfoEnd + 1);
+    }
+
+    static String getName(String name, String tag) {
+        return tag == null ? name : name + "{" + tag + "}";
+    }
+
+    private <T extends Metric> T getOrCreate(String name, String tag, Class<T> type, Function<String, T> factory) {
+
+        String key = getName(name, tag);
+        Metric m = metrics.get(key);
+        if (m == null) {
+            if (tag != null && metrics.size() >= MAX_METRICS) {
+                key = getName(name, OTHER_TAG);
+            }
+            m = metrics.computeIfAbsent(key, factory);
+        }
+        if (!type.isInstance(m)) {
+            throw new IllegalArgumentException("Metric " + key + " is a " + m.getType() + ", not a " +
+                    type.getSimpleName().toLowerCase());
+        }
+        return type.cast(m);
+    }
+}
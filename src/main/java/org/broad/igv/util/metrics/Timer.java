@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A histogram of durations.  Durations are recorded, with {@link #record(long)} or {@link #time()}, in
+ * nanoseconds.  The values reported by {@link #getValues()} are in milliseconds.
+ * <p>
+ * Typical usage:
+ * <pre>
+ *     try (Timer.Context ignored = MetricsRegistry.getInstance().timer("tile.load", path).time()) {
+ *         ...
+ *     }
+ * </pre>
+ */
+public class Timer extends Histogram {
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    Timer(String name) {
+        super(name);
+    }
+
+    /**
+     * Start timing.  The duration is recorded when the returned context is closed.
+     */
+    public Context time() {
+        return new Context();
+    }
+
+    @Override
+    public String getType() {
+        return "timer";
+    }
+
+    @Override
+    Map<String, Number> getValues(State s) {
+        Map<String, Number> values = new LinkedHashMap<>();
+        values.put("count", s.getCount());
+        values.put("total", toMillis(s.getTotal()));
+        values.put("mean", toMillis(s.getMean()));
+        values.put("min", toMillis(s.getMin()));
+        values.put("max", toMillis(s.getMax()));
+        values.put("p50", toMillis(s.getPercentile(0.5)));
+        values.put("p95", toMillis(s.getPercentile(0.95)));
+        return values;
+    }
+
+    private static double toMillis(double nanos) {
+        return Math.round(nanos / 1000) / 1000.0;
+    }
+
+    public class Context implements AutoCloseable {
+
+        private final long start = System.nanoTime();
+
+        @Override
+        public void close() {
+            record(System.nanoTime() - start);
+        }
+    }
+}
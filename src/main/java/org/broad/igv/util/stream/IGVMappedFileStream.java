@@ -0,0 +1,201 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.stream;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Seekable stream for a local file backed by memory-mapped buffers.  Reads are copies from the mapping rather
+ * than system calls, and {@link #getBuffer(long, int)} returns views of the mapping without copying.
+ * <p>
+ * Files larger than 2 GB are mapped as several segments.  The stream position is not thread safe, as for any
+ * stream, but the positional methods {@link #getBuffer(long, int)} and {@link #read(long, byte[], int, int)} may
+ * be called concurrently.
+ */
+public class IGVMappedFileStream extends SeekableStream {
+
+    static final int SEGMENT_SIZE = 1 << 30;
+
+    private final File file;
+    private final long length;
+    private MappedByteBuffer[] segments;
+    private long position;
+
+    public IGVMappedFileStream(File file) throws IOException {
+        this(file, SEGMENT_SIZE);
+    }
+
+    IGVMappedFileStream(File file, int segmentSize) throws IOException {
+        this.file = file;
+        // The mapping remains valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            length = channel.size();
+            int nSegments = (int) ((length + segmentSize - 1) / segmentSize);
+            segments = new MappedByteBuffer[nSegments];
+            for (int i = 0; i < nSegments; i++) {
+                long start = (long) i * segmentSize;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, length - start));
+            }
+        }
+    }
+
+    /**
+     * Return a read-only buffer over the bytes from position to position + size, truncated at the end of file.
+     * The buffer is a view of the mapping unless the range spans segments, in which case it is a copy.  The
+     * buffer is in big-endian order, and its position is 0.
+     */
+    public ByteBuffer getBuffer(long position, int size) throws IOException {
+
+        MappedByteBuffer[] segments = getSegments();
+        size = (int) Math.max(0, Math.min(size, length - position));
+        if (size == 0) {
+            return ByteBuffer.allocate(0);
+        }
+
+        long segmentSize = segments[0].capacity();
+        int s = (int) (position / segmentSize);
+        int offset = (int) (position - s * segmentSize);
+        if (offset + size <= segments[s].capacity()) {
+            ByteBuffer bb = segments[s].duplicate();
+            bb.position(offset).limit(offset + size);
+            return bb.slice().asReadOnlyBuffer();
+        } else {
+            byte[] bytes = new byte[size];
+            read(position, bytes, 0, size);
+            return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Read up to length bytes starting at the file position into the array.  This does not use or change the
+     * stream position.
+     *
+     * @return the number of bytes read, or -1 if position is at or past the end of file
+     */
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+
+        if (length < 0 || offset < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        MappedByteBuffer[] segments = getSegments();
+        if (position >= this.length) {
+            return length == 0 ? 0 : -1;
+        }
+
+        long segmentSize = segments[0].capacity();
+        int n = (int) Math.min(length, this.length - position);
+        int copied = 0;
+        while (copied < n) {
+            long p = position + copied;
+            int s = (int) (p / segmentSize);
+            int segmentOffset = (int) (p - s * segmentSize);
+            ByteBuffer bb = segments[s].duplicate();
+            bb.position(segmentOffset);
+            int count = Math.min(n - copied, bb.remaining());
+            bb.get(buffer, offset + copied, count);
+            copied += count;
+        }
+        return n;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = read(position, buffer, offset, length);
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position >= length) {
+            return -1;
+        }
+        MappedByteBuffer[] segments = getSegments();
+        long segmentSize = segments[0].capacity();
+        int s = (int) (position / segmentSize);
+        int b = segments[s].get((int) (position - s * segmentSize)) & 0xff;
+        position++;
+        return b;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long initPos = position;
+        position = Math.min(length, position + Math.max(0, n));
+        return position - initPos;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        this.position = position;
+    }
+
+    @Override
+    public long position() throws IOException {
+        return position;
+    }
+
+    @Override
+    public boolean eof() throws IOException {
+        return position >= length;
+    }
+
+    @Override
+    public String getSource() {
+        return file.getAbsolutePath();
+    }
+
+    /**
+     * Release the mapping.  The memory is unmapped when the buffers are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        segments = null;
+    }
+
+    private MappedByteBuffer[] getSegments() throws IOException {
+        MappedByteBuffer[] segments = this.segments;
+        if (segments == null) {
+            throw new IOException("Stream is closed: " + file.getAbsolutePath());
+        }
+        return segments;
+    }
+}
@@ -28,15 +28,18 @@ package org.broad.igv.util.stream;
 import htsjdk.samtools.seekablestream.SeekableStream;
 import org.broad.igv.logging.*;
 import org.broad.igv.util.HttpUtils;
+import org.broad.igv.util.metrics.Counter;
+import org.broad.igv.util.metrics.MetricsRegistry;
+import org.broad.igv.util.metrics.Timer;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  */
@@ -44,10 +47,28 @@ public class IGVSeekableHTTPStream extends SeekableStream {
 
     static Logger log = LogManager.getLogger(IGVSeekableHTTPStream.class);
 
+    /**
+     * Reads larger than this many blocks bypass the block cache
+     */
+    static final int MAX_CACHED_READ_BLOCKS = 16;
+
+    /**
+     * Upper bound on the number of blocks read ahead of a sequential read
+     */
+    static final int MAX_READ_AHEAD_BLOCKS = 8;
+
     private long position = 0;
     private URL url;
     long contentLength = -1;                      // Not set
 
+    // Read-ahead grows while reads are sequential, and is reset on a seek
+    private long lastReadEnd = -1;
+    private int readAheadBlocks = 0;
+
+    // Metrics for this URL, created on first read
+    private Timer readTimer;
+    private Counter bytesRead;
+
     public IGVSeekableHTTPStream(final URL url) {
         this.url = url;
     }
@@ -77,10 +98,32 @@ public class IGVSeekableHTTPStream extends SeekableStream {
 
     public int read(byte[] buffer, int offset, int len) throws IOException {
 
+        boolean useCache = RemoteBlockCache.isEnabled() &&
+                len <= MAX_CACHED_READ_BLOCKS * RemoteBlockCache.getInstance().getBlockSize();
+
+        if (useCache) {
+            readAheadBlocks = position == lastReadEnd ?
+                    Math.min(MAX_READ_AHEAD_BLOCKS, Math.max(1, 2 * readAheadBlocks)) :
+                    0;
+        }
+
+        if (readTimer == null) {
+            String tag = MetricsRegistry.pathTag(getSource());
+            readTimer = MetricsRegistry.getInstance().timer("stream.read", tag);
+            bytesRead = MetricsRegistry.getInstance().counter("stream.bytes", tag);
+        }
+
         int attempts = 0;
         while(attempts < 3) {
+            long t0 = System.nanoTime();
             try {
-                return _read(buffer, offset, len);
+                int n = useCache ? readBlocks(buffer, offset, len) : _read(buffer, offset, len);
+                lastReadEnd = position;
+                readTimer.record(System.nanoTime() - t0);
+                if (n > 0) {
+                    bytesRead.add(n);
+                }
+                return n;
             } catch (java.net.SocketException e) {
                 if(attempts < 3) {
                     attempts++;
@@ -144,7 +187,7 @@ public class IGVSeekableHTTPStream extends SeekableStream {
 
         catch (IOException e) {
 
-            if (e.getMessage().contains("416") || (e instanceof EOFException)) {
+            if (isUnsatisfiableRange(e)) {
                 return handleUnsatisfiableRange(n);
             } else {
                 throw e;
@@ -157,6 +200,150 @@ public class IGVSeekableHTTPStream extends SeekableStream {
         }
     }
 
+    /**
+     * Read through the shared block cache.  Blocks overlapping the requested range are looked up in the cache,
+     * and each contiguous run of missing blocks is fetched with a single range request.  The last run is extended
+     * by the current read-ahead.
+     */
+    private int readBlocks(byte[] buffer, int offset, int len) throws IOException {
+
+        if (offset < 0 || len < 0 || (offset + len) > buffer.length) {
+            String stats = "Offset=" + offset + ",len=" + len + ",buflen=" + buffer.length;
+            throw new IndexOutOfBoundsException(stats);
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        RemoteBlockCache cache = RemoteBlockCache.getInstance();
+        String source = getSource();
+        if (contentLength < 0) {
+            Long cachedLength = cache.getContentLength(source);
+            if (cachedLength != null) {
+                contentLength = cachedLength;
+            }
+        }
+        if (contentLength >= 0 && position >= contentLength) {
+            return -1;  // EOF
+        }
+
+        int blockSize = cache.getBlockSize();
+        long firstBlock = position / blockSize;
+        long lastBlock = (position + len - 1) / blockSize;
+        if (contentLength > 0) {
+            lastBlock = Math.min(lastBlock, (contentLength - 1) / blockSize);
+        }
+
+        int nBlocks = (int) (lastBlock - firstBlock + 1);
+        byte[][] blocks = new byte[nBlocks][];
+        for (int i = 0; i < nBlocks; i++) {
+            blocks[i] = cache.getBlock(source, firstBlock + i);
+        }
+
+        // Contiguous runs of missing blocks, as {first block, block count}
+        List<long[]> runs = new ArrayList<>();
+        int i = 0;
+        while (i < nBlocks) {
+            if (blocks[i] != null) {
+                i++;
+                continue;
+            }
+            int j = i;
+            while (j < nBlocks && blocks[j] == null) {
+                j++;
+            }
+            int count = j - i + (j == nBlocks ? readAheadBlocks : 0);
+            runs.add(new long[]{firstBlock + i, count});
+            i = j;
+        }
+
+        if (runs.size() > 0) {
+            List<byte[][]> fetched = fetchBlocks(cache, runs);
+            for (int r = 0; r < runs.size(); r++) {
+                int idx = (int) (runs.get(r)[0] - firstBlock);
+                byte[][] runBlocks = fetched.get(r);
+                System.arraycopy(runBlocks, 0, blocks, idx, Math.min(runBlocks.length, nBlocks - idx));
+            }
+        }
+
+        // Copy from the blocks to the buffer.  A missing or short block marks the end of file.
+        int n = 0;
+        for (int b = 0; b < nBlocks && n < len; b++) {
+            byte[] block = blocks[b];
+            if (block == null) {
+                break;
+            }
+            int blockOffset = (int) (position + n - (firstBlock + b) * blockSize);
+            if (blockOffset >= block.length) {
+                break;
+            }
+            int count = Math.min(block.length - blockOffset, len - n);
+            System.arraycopy(block, blockOffset, buffer, offset + n, count);
+            n += count;
+            if (block.length < blockSize) {
+                break;
+            }
+        }
+
+        if (n == 0) {
+            return -1;
+        }
+        position += n;
+        return n;
+    }
+
+    /**
+     * Fetch runs of blocks, each given as {first block, block count}, and add them to the cache.  Runs are
+     * fetched in parallel, one range request each.  The block array for a run is shorter than requested if the
+     * end of file is reached.
+     */
+    private List<byte[][]> fetchBlocks(RemoteBlockCache cache, List<long[]> runs) throws IOException {
+
+        int blockSize = cache.getBlockSize();
+        List<long[]> ranges = new ArrayList<>(runs.size());
+        for (long[] run : runs) {
+            long start = run[0] * blockSize;
+            long end = start + run[1] * blockSize - 1;
+            if (contentLength > 0) {
+                end = Math.min(end, contentLength - 1);
+            }
+            ranges.add(new long[]{start, end});
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Fetching " + ranges.size() + " block ranges starting at " + ranges.get(0)[0]);
+        }
+
+        List<byte[]> results = HttpUtils.getInstance().readRanges(url, ranges);
+
+        String source = getSource();
+        List<byte[][]> fetched = new ArrayList<>(runs.size());
+        for (int r = 0; r < runs.size(); r++) {
+
+            long start = ranges.get(r)[0];
+            byte[] bytes = results.get(r);
+            int n = bytes.length;
+            if (n < ranges.get(r)[1] - start + 1) {
+                contentLength = start + n;
+                cache.setContentLength(source, contentLength);
+            }
+
+            int nBlocks = (n + blockSize - 1) / blockSize;
+            byte[][] blocks = new byte[nBlocks][];
+            for (int b = 0; b < nBlocks; b++) {
+                int from = b * blockSize;
+                int to = Math.min(n, from + blockSize);
+                blocks[b] = from == 0 && to == n ? bytes : Arrays.copyOfRange(bytes, from, to);
+                cache.putBlock(source, runs.get(r)[0] + b, blocks[b]);
+            }
+            fetched.add(blocks);
+        }
+        return fetched;
+    }
+
+    private static boolean isUnsatisfiableRange(IOException e) {
+        return (e instanceof EOFException) || (e.getMessage() != null && e.getMessage().contains("416"));
+    }
+
     private int handleUnsatisfiableRange(int n) {
         if (n == 0) {
             contentLength = position;
@@ -182,21 +369,8 @@ public class IGVSeekableHTTPStream extends SeekableStream {
     }
 
     public InputStream openInputStreamForRange(long start, long end) throws IOException {
-
-        String byteRange = "bytes=" + start + "-" + end;
-        Map<String, String> params = new HashMap();
-        params.put("Range", byteRange);
         //URL url = addStartEndQueryString(this.url, start, end);
-
-        HttpURLConnection conn = HttpUtils.getInstance().openConnection(url, params);
-
-        try {
-            InputStream input = conn.getInputStream();
-            return input;
-        } catch (IOException e) {
-            HttpUtils.getInstance().readErrorStream(conn);  // Consume content
-            throw e;
-        }
+        return HttpUtils.getInstance().openRangeStream(url, start, end);
     }
 
 
@@ -28,6 +28,8 @@ package org.broad.igv.util.stream;
 import htsjdk.samtools.seekablestream.ISeekableStreamFactory;
 import htsjdk.samtools.seekablestream.SeekableFileStream;
 import htsjdk.samtools.seekablestream.SeekableStream;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.util.FileUtils;
 import org.broad.igv.util.HttpUtils;
 
@@ -40,6 +42,11 @@ import java.net.URL;
  */
 public class IGVSeekableStreamFactory implements ISeekableStreamFactory {
 
+    /**
+     * Extensions of local files read through memory-mapped streams
+     */
+    static final String[] MAPPED_EXTENSIONS = {".tdf", ".bw", ".bigwig", ".bb", ".bigbed", ".fa", ".fasta", ".fna"};
+
     private static IGVSeekableStreamFactory instance;
     static{
         instance = new IGVSeekableStreamFactory();
@@ -73,6 +80,8 @@ public class IGVSeekableStreamFactory implements ISeekableStreamFactory {
             } else if (path.toLowerCase().startsWith("ftp:")) {
                 final URL url = HttpUtils.createURL(path);
                 is = new IGVSeekableFTPStream(url);
+            } else if (isMappable(path)) {
+                is = new IGVMappedFileStream(new File(path));
             } else {
                 is = new SeekableFileStream(new File(path));
             }
@@ -88,6 +97,23 @@ public class IGVSeekableStreamFactory implements ISeekableStreamFactory {
         return new IGVSeekableBufferedStream(stream, bufferSize);
     }
 
+    /**
+     * Return true if the local file should be read through a memory-mapped stream.  Mapping is limited to
+     * indexed formats read with many small random reads.
+     */
+    public static boolean isMappable(String path) {
+        if (!PreferencesManager.getPreferences().getAsBoolean(Constants.LOCAL_FILE_MAPPED_STREAMS)) {
+            return false;
+        }
+        String lcPath = path.toLowerCase();
+        for (String ext : MAPPED_EXTENSIONS) {
+            if (lcPath.endsWith(ext)) {
+                return new File(path).isFile();
+            }
+        }
+        return false;
+    }
+
     private String mapPath(String path) {
         if(path.startsWith("ftp://ftp.ncbi.nlm.nih.gov/geo")) {
             return path.replace("ftp://ftp.ncbi.nlm.nih.gov/geo", "https://ftp.ncbi.nlm.nih.gov/geo");
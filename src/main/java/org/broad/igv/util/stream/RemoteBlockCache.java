@@ -0,0 +1,292 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.stream;
+
+import org.broad.igv.logging.*;
+import org.broad.igv.prefs.IGVPreferences;
+import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.util.collections.WeightedLRUCache;
+import org.broad.igv.util.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.broad.igv.prefs.Constants.*;
+
+/**
+ * A cache of fixed-size, block-aligned ranges of remote files, shared by all streams reading the same URL.
+ * Blocks are held in memory up to a byte budget.  Optionally, blocks evicted from memory are spilled to a
+ * temporary directory for the remainder of the session.  Spill files are written and read outside of any lock;
+ * the lock on this object guards only the index of spilled blocks.
+ * <p>
+ * The content length of a URL is recorded here when a stream discovers it (by reading past the end of file),
+ * so that other streams do not need to rediscover it.
+ * <p>
+ * Blocks not found in memory are looked up in the persistent {@link RemoteDiskCache}, if enabled, which retains
+ * fetched blocks between sessions.
+ */
+public class RemoteBlockCache {
+
+    private static Logger log = LogManager.getLogger(RemoteBlockCache.class);
+
+    static final long MAX_SPILL_BYTES = 1000000000L;
+
+    private static RemoteBlockCache instance;
+
+    private final int blockSize;
+    private final WeightedLRUCache<BlockKey, byte[]> blocks;
+    private final Map<String, Long> contentLengths = new ConcurrentHashMap<>();
+
+    // Spilled blocks, in access order
+    private File spillDirectory;
+    private final LinkedHashMap<BlockKey, SpilledBlock> spilledBlocks = new LinkedHashMap<>(16, 0.75f, true);
+    private long spilledBytes;
+    private final AtomicLong spillFileCounter = new AtomicLong();
+
+    // Persistent cache, shared across sessions.  Null if disabled.
+    private final RemoteDiskCache diskCache;
+
+    public static synchronized RemoteBlockCache getInstance() {
+        if (instance == null) {
+            IGVPreferences prefs = PreferencesManager.getPreferences();
+            int blockSize = Math.max(1, prefs.getAsInt(HTTP_BLOCK_SIZE)) * 1024;
+            long maxBytes = prefs.getAsInt(HTTP_BLOCK_CACHE_SIZE) * 1024L * 1024L;
+            RemoteDiskCache diskCache = RemoteDiskCache.isEnabled() ? RemoteDiskCache.getInstance() : null;
+            instance = new RemoteBlockCache(blockSize, maxBytes, prefs.getAsBoolean(HTTP_BLOCK_CACHE_SPILL), diskCache);
+            WeightedLRUCache<?, ?> blocks = instance.blocks;
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            metrics.gauge("cache.block.hitRate", blocks::getHitRate);
+            metrics.gauge("cache.block.hits", blocks::getHitCount);
+            metrics.gauge("cache.block.misses", blocks::getMissCount);
+            metrics.gauge("cache.block.evictions", blocks::getEvictionCount);
+            metrics.gauge("cache.block.bytes", blocks::getWeight);
+            metrics.gauge("cache.block.spilledBytes", instance::getSpilledBytes);
+        }
+        return instance;
+    }
+
+    public static boolean isEnabled() {
+        return PreferencesManager.getPreferences().getAsBoolean(HTTP_BLOCK_CACHE_ENABLED);
+    }
+
+    RemoteBlockCache(int blockSize, long maxBytes, boolean spill) {
+        this(blockSize, maxBytes, spill, null);
+    }
+
+    RemoteBlockCache(int blockSize, long maxBytes, boolean spill, RemoteDiskCache diskCache) {
+
+        this.blockSize = blockSize;
+        this.diskCache = diskCache;
+        this.blocks = new WeightedLRUCache<>(maxBytes, b -> b.length);
+
+        if (spill) {
+            try {
+                spillDirectory = Files.createTempDirectory("igv-blocks").toFile();
+                spillDirectory.deleteOnExit();
+                blocks.setEvictionListener(this::spill);
+            } catch (IOException e) {
+                log.error("Error creating block spill directory, spilling disabled", e);
+            }
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Return the block, or null if it is not cached.  Blocks at the end of a file can be shorter than the block size.
+     */
+    public byte[] getBlock(String url, long blockIndex) {
+
+        BlockKey key = new BlockKey(url, blockIndex);
+        byte[] block = blocks.get(key);
+        if (block == null && spillDirectory != null) {
+            block = readSpilled(key);
+            if (block != null) {
+                blocks.put(key, block);
+            }
+        }
+        if (block == null && diskCache != null) {
+            block = diskCache.get(url, blockIndex * blockSize, blockSize);
+            if (block != null) {
+                blocks.put(key, block);
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Add a block fetched from the remote file.  The block is also written to the disk cache, if enabled.
+     */
+    public void putBlock(String url, long blockIndex, byte[] block) {
+        blocks.put(new BlockKey(url, blockIndex), block);
+        if (diskCache != null) {
+            diskCache.put(url, blockIndex * blockSize, blockSize, block);
+        }
+    }
+
+    public Long getContentLength(String url) {
+        return contentLengths.get(url);
+    }
+
+    public void setContentLength(String url, long contentLength) {
+        contentLengths.put(url, contentLength);
+    }
+
+    public void clear() {
+        blocks.clear();
+        contentLengths.clear();
+        List<SpilledBlock> spilled;
+        synchronized (this) {
+            spilled = new ArrayList<>(spilledBlocks.values());
+            spilledBlocks.clear();
+            spilledBytes = 0;
+        }
+        for (SpilledBlock b : spilled) {
+            b.file.delete();
+        }
+    }
+
+    public WeightedLRUCache<?, ?> getMemoryCache() {
+        return blocks;
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteBlockCache{blockSize=" + blockSize + ", memory=" + blocks +
+                ", spilledBytes=" + getSpilledBytes() + "}";
+    }
+
+    synchronized long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /**
+     * Eviction listener for the memory cache, called after the memory cache lock is released.
+     */
+    private void spill(BlockKey key, byte[] block) {
+
+        synchronized (this) {
+            if (spilledBlocks.containsKey(key)) return;
+        }
+
+        File file = new File(spillDirectory, Integer.toHexString(key.url.hashCode()) + "_" + key.blockIndex + "_" +
+                spillFileCounter.incrementAndGet());
+        try {
+            Files.write(file.toPath(), block);
+            file.deleteOnExit();
+        } catch (IOException e) {
+            log.error("Error spilling block to " + file.getAbsolutePath(), e);
+            file.delete();
+            return;
+        }
+
+        List<File> expired = new ArrayList<>();
+        synchronized (this) {
+            if (spilledBlocks.containsKey(key)) {
+                // Spilled concurrently by another thread
+                expired.add(file);
+            } else {
+                spilledBlocks.put(key, new SpilledBlock(file, block.length));
+                spilledBytes += block.length;
+                Iterator<SpilledBlock> iter = spilledBlocks.values().iterator();
+                while (spilledBytes > MAX_SPILL_BYTES && iter.hasNext()) {
+                    SpilledBlock eldest = iter.next();
+                    iter.remove();
+                    spilledBytes -= eldest.length;
+                    expired.add(eldest.file);
+                }
+            }
+        }
+        for (File f : expired) {
+            f.delete();
+        }
+    }
+
+    private byte[] readSpilled(BlockKey key) {
+
+        SpilledBlock spilled;
+        synchronized (this) {
+            spilled = spilledBlocks.get(key);
+        }
+        if (spilled == null) return null;
+        try {
+            return Files.readAllBytes(spilled.file.toPath());
+        } catch (IOException e) {
+            // Expected if the block was expired or cleared after the lookup
+            log.debug("Error reading spilled block " + spilled.file.getAbsolutePath() + ": " + e.getMessage());
+            synchronized (this) {
+                if (spilledBlocks.get(key) == spilled) {
+                    spilledBlocks.remove(key);
+                    spilledBytes -= spilled.length;
+                }
+            }
+            spilled.file.delete();
+            return null;
+        }
+    }
+
+    private static class SpilledBlock {
+
+        final File file;
+        final int length;
+
+        SpilledBlock(File file, int length) {
+            this.file = file;
+            this.length = length;
+        }
+    }
+
+
+    private static class BlockKey {
+
+        final String url;
+        final long blockIndex;
+
+        BlockKey(String url, long blockIndex) {
+            this.url = url;
+            this.blockIndex = blockIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            BlockKey blockKey = (BlockKey) o;
+            return blockIndex == blockKey.blockIndex && url.equals(blockKey.url);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, blockIndex);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.stream;
+
+import org.broad.igv.DirectoryManager;
+import org.broad.igv.google.GoogleUtils;
+import org.broad.igv.logging.*;
+import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.util.HttpUtils;
+import org.broad.igv.util.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import static org.broad.igv.prefs.Constants.HTTP_DISK_CACHE_ENABLED;
+import static org.broad.igv.prefs.Constants.HTTP_DISK_CACHE_SIZE;
+
+/**
+ * A persistent cache of byte ranges of remote files, kept on disk between sessions.  Entries are content
+ * addressed: the file name is a digest of the URL, the resource validator, and the byte range.  The validator is
+ * the ETag of the resource, or its Last-Modified date if there is no strong ETag, and is fetched once per session.
+ * A change to the remote resource changes the validator, so stale entries are never read -- they age out by
+ * eviction.  Resources with no validator are not cached.
+ * <p>
+ * Entries are stored unencrypted.  Resources fetched with credentials -- URLs with a signature or token query
+ * parameter, and Google URLs, which are fetched with an OAuth token -- are never cached.  This also keeps
+ * short-lived signed URLs, which differ on each request, from filling the cache.  The cache is off by default.
+ * <p>
+ * Each entry records its length and a CRC32 checksum, which are verified on read; a corrupt entry is deleted.
+ * Entries are written by a background thread to a temporary file and renamed, so an interrupted write leaves no
+ * partial entry.  Recency is kept in file modification times, so the least-recently-used order used for
+ * eviction survives restarts.
+ */
+public class RemoteDiskCache {
+
+    private static Logger log = LogManager.getLogger(RemoteDiskCache.class);
+
+    static final int MAGIC = 0x49474243;
+    static final int HEADER_SIZE = 16;     // magic, length, crc
+    static final String EXTENSION = ".blk";
+
+    private static final String NO_VALIDATOR = "";
+
+    // Query parameters that carry credentials, in lower case
+    private static final Set<String> CREDENTIAL_PARAMETERS = new HashSet<>(Arrays.asList(
+            "x-amz-signature", "x-amz-credential", "x-amz-security-token", "awsaccesskeyid", "signature",
+            "x-goog-signature", "x-goog-credential", "googleaccessid", "sig", "access_token", "token"));
+
+    private static RemoteDiskCache instance;
+
+    private final File directory;
+    private final long maxBytes;
+    private final Map<String, String> validators = new ConcurrentHashMap<>();
+    private final ExecutorService writer;
+
+    // Entry sizes by file name, in access order.  Loaded from the directory on first use.
+    private LinkedHashMap<String, Long> entries;
+    private long totalBytes;
+
+    private long hitCount;
+    private long missCount;
+
+    public static synchronized RemoteDiskCache getInstance() {
+        if (instance == null) {
+            long maxBytes = PreferencesManager.getPreferences().getAsInt(HTTP_DISK_CACHE_SIZE) * 1024L * 1024L;
+            instance = new RemoteDiskCache(new File(DirectoryManager.getIgvDirectory(), "remote-cache"), maxBytes);
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            metrics.gauge("cache.disk.hitRate", instance::getHitRate);
+            metrics.gauge("cache.disk.hits", instance::getHitCount);
+            metrics.gauge("cache.disk.misses", instance::getMissCount);
+        }
+        return instance;
+    }
+
+    public static boolean isEnabled() {
+        return PreferencesManager.getPreferences().getAsBoolean(HTTP_DISK_CACHE_ENABLED);
+    }
+
+    RemoteDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "remote-disk-cache");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Return the cached bytes for the range of the resource, or null if they are not cached.  The bytes can be
+     * fewer than length if the range extends past the end of the resource.
+     */
+    public byte[] get(String url, long start, int length) {
+
+        String validator = getValidator(url);
+        if (validator == null) {
+            return null;
+        }
+
+        String name = getName(url, validator, start, length);
+        synchronized (this) {
+            if (getEntries().get(name) == null) {
+                missCount++;
+                return null;
+            }
+        }
+
+        File file = getFile(name);
+        byte[] data = readEntry(file);
+        synchronized (this) {
+            if (data == null) {
+                missCount++;
+                removeEntry(name);
+            } else {
+                hitCount++;
+                file.setLastModified(System.currentTimeMillis());
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Add the bytes for the range of the resource.  The entry is written asynchronously.
+     */
+    public void put(String url, long start, int length, byte[] data) {
+
+        String validator = getValidator(url);
+        if (validator == null) {
+            return;
+        }
+
+        String name = getName(url, validator, start, length);
+        writer.submit(() -> {
+            try {
+                writeEntry(name, data);
+            } catch (IOException e) {
+                log.error("Error writing remote cache entry " + name, e);
+            }
+        });
+    }
+
+    public synchronized void clear() {
+        for (String name : getEntries().keySet()) {
+            getFile(name).delete();
+        }
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized long getTotalBytes() {
+        getEntries();
+        return totalBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : ((double) hitCount) / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RemoteDiskCache{directory=" + directory +
+                ", entries=" + (entries == null ? 0 : entries.size()) +
+                ", bytes=" + totalBytes +
+                ", maxBytes=" + maxBytes +
+                ", hits=" + hitCount +
+                ", misses=" + missCount + "}";
+    }
+
+    /**
+     * Wait for pending writes to complete
+     */
+    void flush() {
+        try {
+            writer.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Not possible, the task does nothing
+        }
+    }
+
+    void setValidator(String url, String validator) {
+        validators.put(url, validator == null || !isCacheable(url) ? NO_VALIDATOR : validator);
+    }
+
+    /**
+     * Return true if the resource can be cached, i.e. it is not fetched with credentials
+     */
+    static boolean isCacheable(String url) {
+        if (GoogleUtils.isGoogleURL(url)) {
+            return false;
+        }
+        int idx = url.indexOf('?');
+        if (idx >= 0) {
+            for (String param : url.substring(idx + 1).split("&")) {
+                int eq = param.indexOf('=');
+                String name = (eq < 0 ? param : param.substring(0, eq)).toLowerCase();
+                if (CREDENTIAL_PARAMETERS.contains(name)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the validator for the resource, or null if it has none.
+     */
+    private String getValidator(String url) {
+        String validator = validators.get(url);
+        if (validator == null) {
+            validator = isCacheable(url) ? fetchValidator(url) : NO_VALIDATOR;
+            validators.put(url, validator);
+        }
+        return validator.isEmpty() ? null : validator;
+    }
+
+    /**
+     * Fetch the validator with a single request for the headers
+     */
+    private static String fetchValidator(String url) {
+        try {
+            Map<String, String> headers = HttpUtils.getInstance().getHeaderFields(HttpUtils.createURL(url), "ETag", "Last-Modified");
+            String etag = headers.get("ETag");
+            // Weak ETags do not guarantee byte-identical content
+            if (etag != null && !etag.startsWith("W/")) {
+                return "ETag:" + etag;
+            }
+            String lastModified = headers.get("Last-Modified");
+            if (lastModified != null) {
+                return "Last-Modified:" + lastModified;
+            }
+        } catch (IOException e) {
+            log.warn("Error fetching validator for " + url + ", disk cache disabled for this resource", e);
+        }
+        return NO_VALIDATOR;
+    }
+
+    private void writeEntry(String name, byte[] data) throws IOException {
+
+        File file = getFile(name);
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + dir.getAbsolutePath());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(data.length).putLong(crc.getValue());
+
+        File tmp = File.createTempFile("entry", ".tmp", dir);
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                out.write(header.array());
+                out.write(data);
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tmp.delete();
+        }
+
+        synchronized (this) {
+            Long previous = getEntries().put(name, (long) (HEADER_SIZE + data.length));
+            totalBytes += HEADER_SIZE + data.length - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    /**
+     * Read and verify the entry, returning null if it is missing or corrupt
+     */
+    private static byte[] readEntry(File file) {
+        try {
+            ByteBuffer bb = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (bb.remaining() < HEADER_SIZE || bb.getInt() != MAGIC) {
+                return null;
+            }
+            int length = bb.getInt();
+            long checksum = bb.getLong();
+            if (length != bb.remaining()) {
+                return null;
+            }
+            byte[] data = new byte[length];
+            bb.get(data);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            if (crc.getValue() != checksum) {
+                log.warn("Checksum mismatch in remote cache entry " + file.getName());
+                return null;
+            }
+            return data;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void removeEntry(String name) {
+        Long size = getEntries().remove(name);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        getFile(name).delete();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iter = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iter.hasNext()) {
+            Map.Entry<String, Long> eldest = iter.next();
+            iter.remove();
+            totalBytes -= eldest.getValue();
+            getFile(eldest.getKey()).delete();
+        }
+    }
+
+    /**
+     * Return the entry index, loading it from the directory if needed.  Leftover temporary files are deleted.
+     */
+    private LinkedHashMap<String, Long> getEntries() {
+
+        if (entries == null) {
+            entries = new LinkedHashMap<>(16, 0.75f, true);
+            List<File> files = new ArrayList<>();
+            File[] dirs = directory.listFiles(File::isDirectory);
+            if (dirs != null) {
+                for (File dir : dirs) {
+                    File[] dirFiles = dir.listFiles();
+                    if (dirFiles == null) continue;
+                    for (File f : dirFiles) {
+                        if (f.getName().endsWith(EXTENSION)) {
+                            files.add(f);
+                        } else if (f.getName().endsWith(".tmp")) {
+                            f.delete();
+                        }
+                    }
+                }
+            }
+            files.sort(Comparator.comparingLong(File::lastModified));
+            for (File f : files) {
+                String name = f.getName();
+                long size = f.length();
+                entries.put(name.substring(0, name.length() - EXTENSION.length()), size);
+                totalBytes += size;
+            }
+            evict();
+        }
+        return entries;
+    }
+
+    private File getFile(String name) {
+        return new File(new File(directory, name.substring(0, 2)), name + EXTENSION);
+    }
+
+    static String getName(String url, String validator, long start, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String key = url + "\n" + validator + "\n" + start + "\n" + length;
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);   // SHA-256 is required of every Java platform
+        }
+    }
+}
@@ -33,10 +33,12 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.Arrays;
 
 /**
  * A SeekableStream implementation for the "range" webservice.  The purpose of this class is to serve range-byte
- * requests to clients who are unable to use the http header for this.
+ * requests to clients who are unable to use the http header for this.  Ranges read are kept in the
+ * {@link RemoteDiskCache}, if enabled.
  * <p/>
  * /xchip/igv/data/public/annotations/seq/hg18/chr1.txt
  */
@@ -93,6 +95,16 @@ public class SeekableServiceStream extends SeekableStream {
             throw new IndexOutOfBoundsException();
         }
 
+        RemoteDiskCache diskCache = RemoteDiskCache.isEnabled() ? RemoteDiskCache.getInstance() : null;
+        if (diskCache != null) {
+            byte[] cached = diskCache.get(getSource(), position, length);
+            if (cached != null) {
+                System.arraycopy(cached, 0, buffer, offset, cached.length);
+                position += cached.length;
+                return cached.length;
+            }
+        }
+
         InputStream is = null;
 
         URL url = HttpUtils.createURL(WEBSERVICE_URL + "?file=" + wrappedURL.toExternalForm() + "&position=" + position + "&length=" + length);
@@ -105,11 +117,14 @@ public class SeekableServiceStream extends SeekableStream {
             while (n < length) {
                 int count = is.read(buffer, offset + n, length - n);
                 if (count < 0) {
-                    return n;
+                    break;
                 }
                 n += count;
             }
 
+            if (diskCache != null && n > 0) {
+                diskCache.put(getSource(), position, length, Arrays.copyOfRange(buffer, offset, offset + n));
+            }
             position += n;
 
             return n;
@@ -493,8 +493,10 @@ public class VariantTrack extends FeatureTrack implements IGVEventObserver {
             final double locScale = context.getScale();
             final double origin = context.getOrigin();
 
-            final double pXMin = tmpRect.getMinX();
-            final double pXMax = tmpRect.getMaxX();
+            // Variants are culled to the visible columns, e.g. the strip exposed by a pan
+            Rectangle columns = visibleRectangle == null ? tmpRect : tmpRect.intersection(visibleRectangle);
+            final double pXMin = columns.getMinX();
+            final double pXMax = columns.getMaxX();
             tmpRect.height = getVariantBandHeight();
 
             int lastEndX = -1;
@@ -38,6 +38,7 @@ import org.broad.igv.ui.panel.FrameManager;
 import org.broad.igv.ui.panel.ReferenceFrame;
 import org.broad.igv.util.ResourceLocator;
 import org.broad.igv.util.TestUtils;
+import org.broad.igv.util.metrics.MetricsRegistry;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -227,6 +228,21 @@ public class CommandExecutorTest extends AbstractHeadedTest {
 
     }
 
+    @Test
+    public void testMetrics() throws Exception {
+        MetricsRegistry.getInstance().counter("test.commandExecutor").add(3);
+
+        String res = exec.execute("metrics");
+        assertTrue(res.startsWith("{"));
+        assertTrue(res.contains("\"test.commandExecutor\":{\"type\":\"counter\",\"value\":3}"));
+
+        res = exec.execute("metrics reset");
+        assertTrue(res.contains("\"value\":3"));
+        assertEquals(0, MetricsRegistry.getInstance().counter("test.commandExecutor").getValue());
+
+        assertTrue(exec.execute("metrics foo").startsWith("Error"));
+    }
+
     @Test
     public void testSortByRegionScoreType() throws Exception {
         Timer deadlockChecker = TestUtils.startDeadlockChecker(1000);
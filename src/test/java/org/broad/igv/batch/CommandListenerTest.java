@@ -45,8 +45,14 @@ import java.io.PrintWriter;
 import java.net.HttpURLConnection;
 import java.net.Socket;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author jacob
@@ -100,6 +106,97 @@ public class CommandListenerTest extends AbstractHeadedTest {
         assertEquals(genId, GenomeManager.getInstance().getGenomeId());
     }
 
+    @Test
+    public void testPipelinedSocket() throws Exception {
+
+        try (Socket socket = new Socket("localhost", port)) {
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+
+            out.println("#1 echo a");
+            out.println("#2 goto chr1:1-100");
+            out.println("#3 echo b");
+            out.println("echo c");
+
+            Set<String> responses = new HashSet<>();
+            for (int i = 0; i < 4; i++) {
+                responses.add(in.readLine());
+            }
+            assertEquals(new HashSet<>(Arrays.asList("#1 a", "#2 OK", "#3 b", "c")), responses);
+        }
+    }
+
+    @Test
+    public void testConcurrentClients() throws Exception {
+
+        // The first client stays connected while the second is served
+        try (Socket idle = new Socket("localhost", port);
+             Socket socket = new Socket("localhost", port)) {
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            socket.setSoTimeout(10000);
+
+            out.println("echo");
+            assertEquals("echo", in.readLine());
+        }
+    }
+
+    @Test
+    public void testMaxClients() throws Exception {
+
+        PreferencesManager.getPreferences().override(Constants.PORT_MAX_CLIENTS, "1");
+        try {
+            CommandListener.halt();
+            CommandListener.start(port);
+
+            try (Socket first = new Socket("localhost", port);
+                 Socket second = new Socket("localhost", port)) {
+                first.setSoTimeout(10000);
+                second.setSoTimeout(10000);
+                PrintWriter out = new PrintWriter(first.getOutputStream(), true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(first.getInputStream()));
+                out.println("echo");
+                assertEquals("echo", in.readLine());
+
+                // A connection beyond the limit is answered and closed, not queued
+                BufferedReader secondIn = new BufferedReader(new InputStreamReader(second.getInputStream()));
+                assertEquals(CommandListener.BUSY, secondIn.readLine());
+                assertNull(secondIn.readLine());
+            }
+        } finally {
+            PreferencesManager.getPreferences().remove(Constants.PORT_MAX_CLIENTS);
+        }
+    }
+
+    @Test
+    public void testSessionSnapshotDirectory() throws Exception {
+
+        File dirA = new File(TestUtils.TMP_OUTPUT_DIR, "sessionA");
+        File dirB = new File(TestUtils.TMP_OUTPUT_DIR, "sessionB");
+
+        try (Socket socketA = new Socket("localhost", port);
+             Socket socketB = new Socket("localhost", port)) {
+            socketA.setSoTimeout(30000);
+            socketB.setSoTimeout(30000);
+            PrintWriter outA = new PrintWriter(socketA.getOutputStream(), true);
+            BufferedReader inA = new BufferedReader(new InputStreamReader(socketA.getInputStream()));
+            PrintWriter outB = new PrintWriter(socketB.getOutputStream(), true);
+            BufferedReader inB = new BufferedReader(new InputStreamReader(socketB.getInputStream()));
+
+            outA.println("snapshotDirectory " + dirA.getAbsolutePath());
+            assertEquals(CommandListener.OK, inA.readLine());
+            outB.println("snapshotDirectory " + dirB.getAbsolutePath());
+            assertEquals(CommandListener.OK, inB.readLine());
+
+            // Client B's directory must not replace client A's
+            outA.println("snapshot a.png");
+            inA.readLine();
+        }
+
+        assertTrue(new File(dirA, "a.png").exists());
+        assertFalse(new File(dirB, "a.png").exists());
+    }
+
     @Test
     public void testGenomeLink() throws Exception{
         String cmd = buildRootURL() + "load?genome=" + genId;
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.bbfile;
+
+import htsjdk.samtools.seekablestream.ByteArraySeekableStream;
+import org.broad.igv.util.CompressionUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BBBlockLoaderTest {
+
+    @Test
+    public void testCoalescedReads() throws IOException {
+
+        // Blocks 0-3 are contiguous, block 4 follows a gap too large to read through
+        int[] gaps = {0, 0, 0, 0, BBBlockLoader.MAX_GAP + 1};
+        List<byte[]> blocks = new ArrayList<>();
+        List<RPTreeLeafNodeItem> items = new ArrayList<>();
+        CompressionUtils compressionUtils = new CompressionUtils();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        for (int i = 0; i < gaps.length; i++) {
+            file.write(new byte[gaps[i]]);
+            byte[] block = new byte[1000 + i];
+            Arrays.fill(block, (byte) i);
+            byte[] compressed = compressionUtils.compress(block);
+            items.add(new RPTreeLeafNodeItem(0, i * 100, 0, i * 100 + 100, file.size(), compressed.length));
+            file.write(compressed);
+            blocks.add(block);
+        }
+
+        CountingStream stream = new CountingStream(file.toByteArray());
+        BBBlockLoader loader = new BBBlockLoader(stream, 4096, 1000000);
+
+        // Request out of order -- results follow the request order
+        List<RPTreeLeafNodeItem> request = Arrays.asList(items.get(4), items.get(2), items.get(0), items.get(3), items.get(1));
+        byte[][] loaded = loader.loadBlocks(request);
+        assertArrayEquals(blocks.get(4), loaded[0]);
+        assertArrayEquals(blocks.get(2), loaded[1]);
+        assertArrayEquals(blocks.get(0), loaded[2]);
+        assertArrayEquals(blocks.get(3), loaded[3]);
+        assertArrayEquals(blocks.get(1), loaded[4]);
+        assertEquals(2, stream.seekCount);
+
+        // Second request is served from the cache
+        loaded = loader.loadBlocks(items.subList(1, 3));
+        assertArrayEquals(blocks.get(1), loaded[0]);
+        assertArrayEquals(blocks.get(2), loaded[1]);
+        assertEquals(2, stream.seekCount);
+
+        // Prefetcher reads a batch at a time
+        BBBlockLoader uncached = new BBBlockLoader(stream, 4096, 0);
+        BBBlockLoader.Prefetcher prefetcher = uncached.prefetcher(items);
+        for (int i = 0; i < items.size(); i++) {
+            assertArrayEquals(blocks.get(i), prefetcher.getBlock(i));
+        }
+        assertEquals(4, stream.seekCount);
+    }
+
+    @Test
+    public void testUncompressed() throws IOException {
+
+        byte[] file = new byte[100];
+        for (int i = 0; i < file.length; i++) file[i] = (byte) i;
+        List<RPTreeLeafNodeItem> items = Arrays.asList(
+                new RPTreeLeafNodeItem(0, 0, 0, 10, 10, 20),
+                new RPTreeLeafNodeItem(0, 10, 0, 20, 30, 20));
+
+        BBBlockLoader loader = new BBBlockLoader(new CountingStream(file), 0, 0);
+        byte[][] loaded = loader.loadBlocks(items);
+        assertArrayEquals(Arrays.copyOfRange(file, 10, 30), loaded[0]);
+        assertArrayEquals(Arrays.copyOfRange(file, 30, 50), loaded[1]);
+    }
+
+    static class CountingStream extends ByteArraySeekableStream {
+
+        int seekCount;
+
+        CountingStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public void seek(long position) {
+            seekCount++;
+            super.seek(position);
+        }
+    }
+}
@@ -29,6 +29,11 @@ import org.broad.igv.util.TestUtils;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -78,5 +83,37 @@ public class BBFileReaderTest {
 
     }
 
+    @Test
+    public void testConcurrentQueries() throws Exception {
+
+        String path = TestUtils.DATA_DIR + "bb/chr21.refseq.bb";
+        BBFileReader bbReader = new BBFileReader(path);
+
+        String chr = "chr21";
+        int start = 26490012;
+        int end = 42182827;
 
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> {
+                    BigBedIterator iter = bbReader.getBigBedIterator(chr, start, chr, end, false);
+                    int count = 0;
+                    while (iter.hasNext()) {
+                        BedData f = iter.next();
+                        assertEquals(chr, f.getChromosome());
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            for (Future<Integer> f : futures) {
+                assertEquals("Feature count", 225, f.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+            bbReader.close();
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package org.broad.igv.event;
+
+import org.broad.igv.util.metrics.Gauge;
+import org.broad.igv.util.metrics.MetricsRegistry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IGVEventBusTest {
+
+    @Test
+    public void testPost() {
+
+        IGVEventBus bus = new IGVEventBus(Runnable::run);
+        RecordingObserver o1 = new RecordingObserver();
+        RecordingObserver o2 = new RecordingObserver();
+        bus.subscribe(String.class, o1);
+        bus.subscribe(String.class, o1);    // Duplicate, ignored
+        bus.subscribe(String.class, o2);
+        bus.subscribe(Integer.class, o2);
+
+        bus.post("a");
+        bus.post(1);
+        assertEquals(List.of("a"), o1.events);
+        assertEquals(List.of("a", 1), o2.events);
+        assertEquals(2, bus.getObserverCount(String.class));
+
+        bus.unsubscribe(o2);
+        bus.post("b");
+        assertEquals(List.of("a", "b"), o1.events);
+        assertEquals(List.of("a", 1), o2.events);
+
+        IGVEventBus.DispatchStats stats = bus.getDispatchStats().get(String.class);
+        assertEquals(2, stats.getPostCount());
+        assertEquals(3, stats.getDeliveryCount());
+    }
+
+    @Test
+    public void testSubscribeDuringPost() {
+
+        IGVEventBus bus = new IGVEventBus(Runnable::run);
+        RecordingObserver late = new RecordingObserver();
+        IGVEventObserver subscriber = event -> bus.subscribe(String.class, late);
+        bus.subscribe(String.class, subscriber);
+
+        bus.post("a");
+        assertTrue(late.events.isEmpty());
+        bus.post("b");
+        assertEquals(List.of("b"), late.events);
+    }
+
+    @Test
+    public void testPostCoalesced() {
+
+        List<Runnable> queue = new ArrayList<>();
+        IGVEventBus bus = new IGVEventBus(queue::add);
+        RecordingObserver observer = new RecordingObserver();
+        bus.subscribe(String.class, observer);
+        bus.subscribe(Integer.class, observer);
+
+        bus.postCoalesced("a");
+        bus.postCoalesced(1);
+        bus.postCoalesced("b");
+        bus.postCoalesced("c");
+        assertTrue(observer.events.isEmpty());
+        assertEquals(2, queue.size());
+
+        queue.forEach(Runnable::run);
+        assertEquals(List.of("c", 1), observer.events);
+        assertEquals(2, bus.getDispatchStats().get(String.class).getCoalescedCount());
+
+        // A new event after delivery is scheduled again
+        queue.clear();
+        bus.postCoalesced("d");
+        assertEquals(1, queue.size());
+        queue.get(0).run();
+        assertEquals(List.of("c", 1, "d"), observer.events);
+    }
+
+    @Test
+    public void testPostAsync() {
+
+        List<Runnable> queue = new ArrayList<>();
+        IGVEventBus bus = new IGVEventBus(queue::add);
+        RecordingObserver observer = new RecordingObserver();
+        bus.subscribe(String.class, observer);
+
+        bus.postAsync("a");
+        bus.postAsync("b");
+        assertTrue(observer.events.isEmpty());
+        queue.forEach(Runnable::run);
+        assertEquals(List.of("a", "b"), observer.events);
+    }
+
+    @Test
+    public void testDispatchMetrics() {
+
+        // Only the default bus publishes its statistics
+        new IGVEventBus(Runnable::run).post(new MetricsTestEvent());
+        assertNull(MetricsRegistry.getInstance().get("event.posts{MetricsTestEvent}"));
+
+        IGVEventBus.getInstance().post(new MetricsTestEvent());
+        IGVEventBus.getInstance().post(new MetricsTestEvent());
+        Gauge posts = (Gauge) MetricsRegistry.getInstance().get("event.posts{MetricsTestEvent}");
+        assertEquals(2L, posts.getValue());
+        assertNotNull(MetricsRegistry.getInstance().get("event.dispatch.meanMs{MetricsTestEvent}"));
+    }
+
+    private static class MetricsTestEvent {
+    }
+
+    private static class RecordingObserver implements IGVEventObserver {
+
+        final List<Object> events = new ArrayList<>();
+
+        @Override
+        public void receiveEvent(Object event) {
+            events.add(event);
+        }
+    }
+}
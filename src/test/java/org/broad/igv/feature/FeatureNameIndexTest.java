@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.feature;
+
+import org.broad.igv.AbstractHeadlessTest;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FeatureNameIndexTest extends AbstractHeadlessTest {
+
+    @Test
+    public void testSearch() throws Exception {
+
+        List<BasicFeature> features = new ArrayList<>();
+        features.add(feature("chr1", 100, 200, "EGFR", "ENSG01"));
+        features.add(feature("chr1_random", 100, 5000, "EGFR", null));     // Weird chromosome, least preferred
+        features.add(feature("chr2", 300, 5000, "EGFR", null));            // Longer than the chr1 feature
+        features.add(feature("chr3", 10, 20, "EGF", "ENSG02"));
+        features.add(feature("chr3", 30, 40, "Egfl7", null));
+        features.add(feature("chr4", 10, 20, "BRCA1", null));
+
+        File file = File.createTempFile("test", FeatureNameIndex.EXTENSION);
+        file.deleteOnExit();
+        FeatureNameIndex.write(file, features.iterator(), null);
+
+        FeatureNameIndex index = new FeatureNameIndex(file);
+
+        List<NamedFeature> egfr = index.getFeatures("EGFR");
+        assertEquals(3, egfr.size());
+        assertEquals("chr2", egfr.get(0).getChr());
+        assertEquals("chr1", egfr.get(1).getChr());
+        assertEquals("chr1_random", egfr.get(2).getChr());
+        assertEquals("EGFR", egfr.get(0).getName());
+
+        NamedFeature byId = index.getFeatures("ENSG01").get(0);
+        assertEquals("EGFR", byId.getName());
+        assertEquals(100, byId.getStart());
+        assertEquals(200, byId.getEnd());
+
+        assertTrue(index.getFeatures("EGFRX").isEmpty());
+        assertTrue(index.getFeatures("A").isEmpty());
+        assertTrue(index.getFeatures("ZZZ").isEmpty());
+
+        Map<String, List<NamedFeature>> matches = index.search("EGF", 10);
+        assertEquals(Arrays.asList("EGF", "EGFL7", "EGFR"), new ArrayList<>(matches.keySet()));
+        assertEquals(3, matches.get("EGFR").size());
+
+        assertEquals(Arrays.asList("EGF", "EGFL7"), new ArrayList<>(index.search("EGF", 2).keySet()));
+        assertTrue(index.search("X", 10).isEmpty());
+
+        index.close();
+        assertTrue(index.getFeatures("EGFR").isEmpty());
+    }
+
+    @Test
+    public void testFeatureDB() throws Exception {
+
+        List<BasicFeature> features = new ArrayList<>();
+        features.add(feature("chr5", 1000, 2000, "NAMEIDXGENE1", null));
+        features.add(feature("chr5", 3000, 4000, "NAMEIDXGENE2", null));
+
+        File file = File.createTempFile("test", FeatureNameIndex.EXTENSION);
+        file.deleteOnExit();
+        FeatureNameIndex.write(file, features.iterator(), null);
+        FeatureDB.addNameIndex(new FeatureNameIndex(file));
+
+        assertEquals(3000, FeatureDB.getFeature("nameidxgene2").getStart());
+        List<NamedFeature> matches = FeatureDB.getFeaturesList("nameidx", 10);
+        assertEquals(2, matches.size());
+        assertEquals("NAMEIDXGENE1", matches.get(0).getName());
+    }
+
+    private static BasicFeature feature(String chr, int start, int end, String name, String id) {
+        BasicFeature f = new BasicFeature(chr, start, end, Strand.POSITIVE);
+        f.setName(name);
+        if (id != null) f.setIdentifier(id);
+        return f;
+    }
+}
@@ -0,0 +1,254 @@
+package org.broad.igv.feature.genome;
+
+import htsjdk.samtools.seekablestream.SeekableFileStream;
+import htsjdk.samtools.seekablestream.SeekableStream;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TwoBitSequenceTest {
+
+    // chr1 has an N block at 4-6 and a soft-masked block at 8-10
+    static String CHR1 = "ACGTNNAAccGTTCAGG";
+    static String CHR2 = "TTTTGGGGCCCCAAAA";
+
+    @Test
+    public void testLittleEndian() throws Exception {
+        File file = writeTwoBit(ByteOrder.LITTLE_ENDIAN);
+        verify(new TwoBitSequence(file.getAbsolutePath()));
+    }
+
+    @Test
+    public void testBigEndian() throws Exception {
+        File file = writeTwoBit(ByteOrder.BIG_ENDIAN);
+        verify(new TwoBitSequence(file.getAbsolutePath()));
+    }
+
+    /**
+     * Files that are not memory mapped, e.g. remote files, are read through a single stream, and the index is
+     * read with a few requests
+     */
+    @Test
+    public void testStream() throws Exception {
+        File file = writeTwoBit(ByteOrder.LITTLE_ENDIAN);
+        CountingStream stream = new CountingStream(file);
+        TwoBitSequence sequence = new TwoBitSequence(file.getAbsolutePath(), stream);
+
+        // Header and index, then the sequence lengths
+        assertEquals(2, stream.readCount);
+        verify(sequence);
+        assertFalse(stream.closed);
+    }
+
+    @Test
+    public void testStreamManyContigs() throws Exception {
+
+        int contigCount = 2000;
+        String[] names = new String[contigCount];
+        String[] seqs = new String[contigCount];
+        for (int i = 0; i < contigCount; i++) {
+            names[i] = "contig" + i;
+            seqs[i] = CHR2.substring(0, 1 + i % CHR2.length());
+        }
+        File file = writeTwoBit(ByteOrder.LITTLE_ENDIAN, names, seqs);
+        CountingStream stream = new CountingStream(file);
+        TwoBitSequence sequence = new TwoBitSequence(file.getAbsolutePath(), stream);
+
+        assertTrue("Reads: " + stream.readCount, stream.readCount < 10);
+        for (int i = 0; i < contigCount; i++) {
+            assertEquals(seqs[i].length(), sequence.getChromosomeLength(names[i]));
+        }
+        assertEquals(seqs[1234], new String(sequence.getSequence(names[1234], 0, seqs[1234].length(), false)));
+    }
+
+    /**
+     * A record offset past the end of file is reported as a GenomeException naming the file
+     */
+    @Test
+    public void testOffsetPastEndOfFile() throws Exception {
+
+        File file = writeTwoBit(ByteOrder.LITTLE_ENDIAN);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // chr2 offset: header (16) + chr1 entry (1 + 4 + 4) + chr2 name (1 + 4)
+            raf.seek(30);
+            raf.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(1000000).array());
+        }
+
+        try {
+            new TwoBitSequence(file.getAbsolutePath());
+            fail("Expected GenomeException");
+        } catch (GenomeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(file.getAbsolutePath()));
+        }
+
+        try {
+            new TwoBitSequence(file.getAbsolutePath(), new CountingStream(file));
+            fail("Expected GenomeException");
+        } catch (GenomeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(file.getAbsolutePath()));
+        }
+    }
+
+    private void verify(TwoBitSequence sequence) {
+
+        assertEquals(Arrays.asList("chr1", "chr2"), sequence.getChromosomeNames());
+        assertEquals(CHR1.length(), sequence.getChromosomeLength("chr1"));
+        assertEquals(CHR2.length(), sequence.getChromosomeLength("chr2"));
+
+        assertEquals(CHR1, new String(sequence.getSequence("chr1", 0, CHR1.length(), false)));
+        assertEquals(CHR2, new String(sequence.getSequence("chr2", 0, CHR2.length(), false)));
+
+        // Unaligned sub-ranges
+        for (int start = 0; start < CHR1.length(); start++) {
+            for (int end = start + 1; end <= CHR1.length(); end++) {
+                assertEquals(CHR1.substring(start, end), new String(sequence.getSequence("chr1", start, end, false)));
+            }
+        }
+
+        // Query extending past the chromosome end is clipped
+        assertEquals(CHR2.substring(10), new String(sequence.getSequence("chr2", 10, 1000, false)));
+
+        assertEquals('G', sequence.getBase("chr2", 5));
+        assertNull(sequence.getSequence("chrX", 0, 10, false));
+    }
+
+    /**
+     * Create a minimal 2bit file encoding CHR1 and CHR2.
+     */
+    private static File writeTwoBit(ByteOrder order) throws IOException {
+
+        byte[] rec1 = record(CHR1, new int[]{4}, new int[]{2}, new int[]{8}, new int[]{2}, order);
+        byte[] rec2 = record(CHR2, new int[0], new int[0], new int[0], new int[0], order);
+        return writeTwoBit(order, new String[]{"chr1", "chr2"}, new byte[][]{rec1, rec2});
+    }
+
+    private static File writeTwoBit(ByteOrder order, String[] names, String[] seqs) throws IOException {
+        byte[][] records = new byte[seqs.length][];
+        for (int i = 0; i < seqs.length; i++) {
+            records[i] = record(seqs[i], new int[0], new int[0], new int[0], new int[0], order);
+        }
+        return writeTwoBit(order, names, records);
+    }
+
+    private static File writeTwoBit(ByteOrder order, String[] names, byte[][] records) throws IOException {
+
+        int headerSize = 16;
+        int recordsSize = 0;
+        for (int i = 0; i < names.length; i++) {
+            headerSize += 1 + names[i].length() + 4;
+            recordsSize += records[i].length;
+        }
+        ByteBuffer bb = ByteBuffer.allocate(headerSize + recordsSize).order(order);
+        bb.putInt(TwoBitSequence.SIGNATURE_LE);
+        bb.putInt(0);
+        bb.putInt(names.length);
+        bb.putInt(0);
+        int offset = headerSize;
+        for (int i = 0; i < names.length; i++) {
+            bb.put((byte) names[i].length()).put(names[i].getBytes()).putInt(offset);
+            offset += records[i].length;
+        }
+        for (byte[] record : records) {
+            bb.put(record);
+        }
+
+        File file = File.createTempFile("test", ".2bit");
+        file.deleteOnExit();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(bb.array());
+        }
+        return file;
+    }
+
+    private static byte[] record(String seq, int[] nStarts, int[] nSizes, int[] maskStarts, int[] maskSizes, ByteOrder order) {
+
+        int packedSize = (seq.length() + 3) / 4;
+        ByteBuffer bb = ByteBuffer.allocate(16 + 8 * nStarts.length + 8 * maskStarts.length + packedSize).order(order);
+        bb.putInt(seq.length());
+        bb.putInt(nStarts.length);
+        for (int s : nStarts) bb.putInt(s);
+        for (int s : nSizes) bb.putInt(s);
+        bb.putInt(maskStarts.length);
+        for (int s : maskStarts) bb.putInt(s);
+        for (int s : maskSizes) bb.putInt(s);
+        bb.putInt(0);
+
+        String upper = seq.toUpperCase();
+        for (int i = 0; i < packedSize; i++) {
+            int b = 0;
+            for (int j = 0; j < 4; j++) {
+                int idx = i * 4 + j;
+                int code = idx < upper.length() ? "TCAG".indexOf(upper.charAt(idx)) : 0;
+                if (code < 0) code = 0;   // N
+                b |= code << (6 - 2 * j);
+            }
+            bb.put((byte) b);
+        }
+        return bb.array();
+    }
+
+    /**
+     * A file stream that counts reads
+     */
+    static class CountingStream extends SeekableStream {
+
+        final SeekableFileStream stream;
+        int readCount;
+        boolean closed;
+
+        CountingStream(File file) throws IOException {
+            this.stream = new SeekableFileStream(file);
+        }
+
+        @Override
+        public long length() {
+            return stream.length();
+        }
+
+        @Override
+        public long position() throws IOException {
+            return stream.position();
+        }
+
+        @Override
+        public void seek(long position) throws IOException {
+            stream.seek(position);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            readCount++;
+            return stream.read(buffer, offset, length);
+        }
+
+        @Override
+        public int read() throws IOException {
+            readCount++;
+            return stream.read();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            stream.close();
+        }
+
+        @Override
+        public boolean eof() throws IOException {
+            return stream.eof();
+        }
+
+        @Override
+        public String getSource() {
+            return stream.getSource();
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import static org.junit.Assert.assertEquals;
 
@@ -94,6 +95,54 @@ public class FastaIndexedSequenceTest {
     }
 
 
+    @Test
+    public void testCopySequence() throws Exception {
+
+        String fasta = TestUtils.DATA_DIR + "fasta/ecoli_out.padded.fasta";
+        String expectedSequence = "atcaccattaccac******AAcggtgcgggctgacgcgtacaggaaacacagaaaaaag";
+        String chr = "NC_000913_bb";
+        int start = 240;
+        int end = 300;
+        FastaIndexedSequence sequence = new FastaIndexedSequence(fasta);
+
+        byte[] dest = new byte[100];
+        int nBases = sequence.getSequence(chr, start, end, dest, 5, true);
+        assertEquals(60, nBases);
+        assertEquals(expectedSequence.toUpperCase(), new String(dest, 5, nBases));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(100);
+        nBases = sequence.getSequence(chr, start, end, buffer, false);
+        assertEquals(60, nBases);
+        assertEquals(60, buffer.position());
+        byte[] bytes = new byte[nBases];
+        buffer.flip();
+        buffer.get(bytes);
+        assertEquals(expectedSequence, new String(bytes));
+    }
+
+    @Test
+    public void testPackedSequence() throws Exception {
+
+        String fasta = TestUtils.DATA_DIR + "fasta/ecoli_out.padded.fasta";
+        String chr = "NC_000913_bb";
+        int start = 237;
+        int end = 302;
+        FastaIndexedSequence sequence = new FastaIndexedSequence(fasta);
+
+        byte[] bases = sequence.getSequence(chr, start, end, true);
+        byte[] packed = sequence.getPackedSequence(chr, start, end);
+        assertEquals((bases.length + 3) / 4, packed.length);
+
+        String codes = "TCAG";
+        for (int i = 0; i < bases.length; i++) {
+            char expected = Character.toUpperCase((char) bases[i]);
+            if (codes.indexOf(expected) < 0) expected = 'T';
+            int code = (packed[i / 4] >> (6 - 2 * (i % 4))) & 0x3;
+            assertEquals(expected, codes.charAt(code));
+        }
+    }
+
+
     // TODO -- add some assertions, what are we testing?
     @Test
     public void testPaddedReference2() throws Exception {
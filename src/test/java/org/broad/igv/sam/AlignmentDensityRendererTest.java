@@ -0,0 +1,109 @@
+package org.broad.igv.sam;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+public class AlignmentDensityRendererTest {
+
+    static final int WIDTH = 120;
+    static final int HEIGHT = 60;
+
+    static final Color[] COLORS = {Color.GRAY, Color.RED, new Color(0, 0, 150)};
+
+    /**
+     * Rows of alignments, as {x, width, color index}, sorted by x within a row.  Includes overlapping and adjacent
+     * alignments, and alignments extending past the left and right edges.
+     */
+    static final int[][][] ROWS = {
+            {{-3, 5, 0}, {2, 1, 0}, {3, 1, 0}, {6, 1, 1}, {6, 1, 0}, {50, 1, 2}, {118, 4, 0}},
+            {{0, 1, 0}, {1, 1, 1}, {2, 1, 0}, {10, 1, 0}, {10, 1, 0}},
+            {},
+            {{30, 1, 2}, {31, 1, 2}, {35, 1, 2}},
+            {{-10, 2, 0}, {200, 1, 0}},
+            {{5, 1, 0}, {7, 1, 1}}
+    };
+
+    @Test
+    public void testMatchesFillRect() {
+
+        int rowHeight = 10;
+        Rectangle[] bounds = {
+                new Rectangle(0, 0, WIDTH, HEIGHT),
+                new Rectangle(7, 13, 100, 30)      // Partially visible rows and alignments
+        };
+
+        for (Rectangle b : bounds) {
+
+            BufferedImage expected = newImage();
+            Graphics2D g = expected.createGraphics();
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.75f));
+            g.setClip(b);
+
+            BufferedImage actual = newImage();
+            Graphics2D g2 = actual.createGraphics();
+            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.75f));
+            g2.setClip(b);
+
+            AlignmentDensityRenderer densityRenderer = new AlignmentDensityRenderer(b);
+            for (int r = 0; r < ROWS.length; r++) {
+                int y = r * rowHeight + 1;
+                int h = rowHeight - 2;
+                densityRenderer.startRow(y, h);
+                for (int[] a : ROWS[r]) {
+                    g.setColor(COLORS[a[2]]);
+                    g.fillRect(a[0], y, a[1], h);
+                    densityRenderer.addAlignment(a[0], a[1], COLORS[a[2]]);
+                }
+            }
+            densityRenderer.draw(g2);
+
+            for (int x = 0; x < WIDTH; x++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    // Overlapping alignments are blended once rather than twice, only the color is compared
+                    Color e = new Color(expected.getRGB(x, y));
+                    Color a = new Color(actual.getRGB(x, y));
+                    assertEquals("Pixel " + x + "," + y, e.equals(Color.WHITE), a.equals(Color.WHITE));
+                    if (!isOverlap(x, y / rowHeight)) {
+                        assertEquals("Pixel " + x + "," + y, e, a);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        BufferedImage image = newImage();
+        AlignmentDensityRenderer densityRenderer = new AlignmentDensityRenderer(new Rectangle(0, 0, WIDTH, HEIGHT));
+        densityRenderer.startRow(0, 10);
+        densityRenderer.addAlignment(WIDTH + 5, 1, Color.GRAY);
+        densityRenderer.draw(image.createGraphics());
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                assertEquals(Color.WHITE.getRGB(), image.getRGB(x, y));
+            }
+        }
+        assertTrue(new AlignmentDensityRenderer(new Rectangle(0, 0, 0, HEIGHT)).isEmpty());
+    }
+
+    private static boolean isOverlap(int x, int row) {
+        if (row >= ROWS.length) return false;
+        int count = 0;
+        for (int[] a : ROWS[row]) {
+            if (x >= a[0] && x < a[0] + a[1]) count++;
+        }
+        return count > 1;
+    }
+
+    private static BufferedImage newImage() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        return image;
+    }
+}
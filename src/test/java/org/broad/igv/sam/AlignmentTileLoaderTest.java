@@ -90,6 +90,82 @@ public class AlignmentTileLoaderTest extends AbstractHeadlessTest {
 
     }
 
+    /**
+     * Test that parallel sub-range loading returns the same alignments, in the same order, as a single query.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelLoading() throws Exception {
+
+        String path = TestUtils.DATA_DIR + "bam/gstt1_sample.bam";
+        String sequence = "chr22";
+        int start = 24376039;
+        int end = 24396625;
+
+        AlignmentDataManager.DownsampleOptions downsampleOptions = new AlignmentDataManager.DownsampleOptions(false, 50, 100);
+        AlignmentTileLoader loader = new AlignmentTileLoader(AlignmentReaderFactory.getReader(new ResourceLocator(path)));
+
+        List<Alignment> expected = loader.loadTile(sequence, start, end, null, downsampleOptions, null, null, null).getAlignments();
+
+        String oldParallel = PreferencesManager.getPreferences().get(Constants.SAM_PARALLEL_LOADING);
+        String oldMinRange = PreferencesManager.getPreferences().get(Constants.SAM_PARALLEL_LOADING_MIN_RANGE);
+        PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOADING, "true");
+        PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOADING_MIN_RANGE, "1000");
+        try {
+            List<Alignment> actual = loader.loadTile(sequence, start, end, null, downsampleOptions, null, null, null).getAlignments();
+
+            assertTrue("No alignments loaded", expected.size() > 0);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Alignment e = expected.get(i);
+                Alignment a = actual.get(i);
+                assertEquals(e.getReadName(), a.getReadName());
+                assertEquals(e.getStart(), a.getStart());
+                assertEquals(e.isFirstOfPair(), a.isFirstOfPair());
+            }
+        } finally {
+            PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOADING, oldParallel);
+            PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOADING_MIN_RANGE, oldMinRange);
+        }
+    }
+
+    /**
+     * Downsampling a parallel load should see every record, so coverage matches a single query
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelLoadingDownsampled() throws Exception {
+
+        String path = TestUtils.DATA_DIR + "bam/gstt1_sample.bam";
+        String sequence = "chr22";
+        int start = 24376039;
+        int end = 24396625;
+
+        AlignmentDataManager.DownsampleOptions downsampleOptions = new AlignmentDataManager.DownsampleOptions(true, 50, 10);
+        AlignmentTileLoader loader = new AlignmentTileLoader(AlignmentReaderFactory.getReader(new ResourceLocator(path)));
+
+        AlignmentCounts expected = loader.loadTile(sequence, start, end, null, downsampleOptions, null, null, null).getCounts();
+
+        String oldParallel = PreferencesManager.getPreferences().get(Constants.SAM_PARALLEL_LOADING);
+        String oldMinRange = PreferencesManager.getPreferences().get(Constants.SAM_PARALLEL_LOADING_MIN_RANGE);
+        PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOADING, "true");
+        PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOADING_MIN_RANGE, "1000");
+        try {
+            AlignmentTileLoader.AlignmentTile tile = loader.loadTile(sequence, start, end, null, downsampleOptions, null, null, null);
+            AlignmentCounts actual = tile.getCounts();
+
+            assertTrue(tile.getDownsampledIntervals().size() > 0);
+            for (int pos = start; pos < end; pos++) {
+                assertEquals(expected.getTotalCount(pos), actual.getTotalCount(pos));
+            }
+        } finally {
+            PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOADING, oldParallel);
+            PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOADING_MIN_RANGE, oldMinRange);
+        }
+    }
+
     private AlignmentTileLoader.AlignmentTile tstKeepPairsDownsample(String path, String sequence, int start, int end, int maxDepth) throws Exception{
 
 
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.util.TestUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompactAlignmentTest extends AbstractHeadlessTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (String file : new String[]{"NA12878.muc1.test.sam", "hardSoftClip.sam", "has_padding.sam", "yc_tags.sam"}) {
+            checkFile(TestUtils.DATA_DIR + "sam/" + file);
+        }
+    }
+
+    @Test
+    public void testUnpackedBases() {
+
+        // Lower case bases have no 4-bit encoding, and are stored one per byte
+        byte[] data = "xxacgTNyy".getBytes();
+        ArenaByteSubarray bases = new ArenaByteSubarray(data, 2, false, 5, 1, 6, (byte) '?');
+        assertEquals('c', bases.getByte(0));
+        assertEquals("cgTN??", bases.getString());
+        assertArrayEquals("gT".getBytes(), bases.copyOfRange(1, 3));
+    }
+
+    @Test
+    public void testArenaChunks() throws Exception {
+
+        AlignmentArena arena = new AlignmentArena();
+        byte[] first = null;
+        int records = 0;
+        while (arena.getAllocatedBytes() < 2 * AlignmentArena.MIN_CHUNK_SIZE) {
+            arena.begin().writeInt(records);
+            int offset = arena.commit();
+            if (first == null) first = arena.getChunk();
+            assertEquals(records, java.nio.ByteBuffer.wrap(arena.getChunk()).getInt(offset));
+            records++;
+        }
+        assertNotSame(first, arena.getChunk());
+        assertEquals(0, java.nio.ByteBuffer.wrap(first).getInt(0));
+    }
+
+    private void checkFile(String path) throws Exception {
+
+        AlignmentArena arena = new AlignmentArena();
+        try (SamReader reader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(new File(path))) {
+            for (SAMRecord record : reader) {
+
+                SAMAlignment alignment = new SAMAlignment(record);
+                CompactAlignment compact = new CompactAlignment(alignment, arena);
+                String msg = path + " " + record.getReadName();
+
+                assertEquals(msg, alignment.getReadName(), compact.getReadName());
+                assertEquals(msg, alignment.getCigarString(), compact.getCigarString());
+                assertEquals(msg, alignment.getReadSequence(), compact.getReadSequence());
+                assertEquals(msg, alignment.getMappingQuality(), compact.getMappingQuality());
+                assertEquals(msg, alignment.getInferredInsertSize(), compact.getInferredInsertSize());
+                assertEquals(msg, alignment.getAlignmentStart(), compact.getAlignmentStart());
+                assertEquals(msg, alignment.getAlignmentEnd(), compact.getAlignmentEnd());
+                assertEquals(msg, alignment.getStart(), compact.getStart());
+                assertEquals(msg, alignment.getEnd(), compact.getEnd());
+                assertEquals(msg, alignment.getReadLengthString(), compact.getReadLengthString());
+
+                checkBlocks(msg, alignment.getAlignmentBlocks(), compact.getAlignmentBlocks());
+                checkBlocks(msg, alignment.getInsertions(), compact.getInsertions());
+
+                List<SAMRecord.SAMTagAndValue> tags = record.getAttributes();
+                assertEquals(msg, tags.size(), compact.getTagValues().size());
+                for (SAMRecord.SAMTagAndValue tag : tags) {
+                    Object value = compact.getAttribute(tag.tag);
+                    assertNotNull(msg + " " + tag.tag, value);
+                    if (!value.getClass().isArray()) {
+                        assertEquals(msg + " " + tag.tag, tag.value, value);
+                    }
+                }
+                assertNull(compact.getAttribute("ZZ"));
+
+                assertEquals(msg, record.getSAMString(), compact.getRecord().getSAMString());
+            }
+        }
+    }
+
+    private static void checkBlocks(String msg, AlignmentBlock[] expected, AlignmentBlock[] actual) {
+
+        if (expected == null) {
+            assertNull(msg, actual);
+            return;
+        }
+
+        assertEquals(msg, expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            AlignmentBlock e = expected[i];
+            AlignmentBlock a = actual[i];
+            assertEquals(msg, e.getStart(), a.getStart());
+            assertEquals(msg, e.getLength(), a.getLength());
+            assertEquals(msg, e.isSoftClip(), a.isSoftClip());
+            assertEquals(msg, e.getBases().startOffset, a.getBases().startOffset);
+            for (int j = 0; j < e.getBasesLength(); j++) {
+                assertEquals(msg, e.getBase(j), a.getBase(j));
+                assertEquals(msg, e.getQuality(j), a.getQuality(j));
+            }
+        }
+    }
+}
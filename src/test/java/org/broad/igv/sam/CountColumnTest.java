@@ -0,0 +1,56 @@
+package org.broad.igv.sam;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CountColumnTest {
+
+    @Test
+    public void testLazyAllocation() {
+        CountColumn column = new CountColumn(100, true);
+        assertEquals(0, column.getStorageSize());
+        assertEquals(0, column.get(10));
+        column.add(10, 0);
+        assertEquals(0, column.getStorageSize());
+    }
+
+    @Test
+    public void testWidening() {
+        CountColumn column = new CountColumn(100, true);
+
+        column.increment(5);
+        assertEquals(100, column.getStorageSize());
+
+        for (int i = 0; i < 300; i++) {
+            column.increment(6);
+        }
+        assertEquals(200, column.getStorageSize());
+
+        column.add(7, 70000);
+        assertEquals(400, column.getStorageSize());
+
+        // Values are preserved across widening
+        assertEquals(1, column.get(5));
+        assertEquals(300, column.get(6));
+        assertEquals(70000, column.get(7));
+        assertEquals(0, column.get(8));
+    }
+
+    @Test
+    public void testNegative() {
+        CountColumn column = new CountColumn(10, true);
+        column.increment(1);
+        column.add(2, -1);
+        assertEquals(1, column.get(1));
+        assertEquals(-1, column.get(2));
+    }
+
+    @Test
+    public void testNotCompact() {
+        CountColumn column = new CountColumn(10, false);
+        assertEquals(40, column.getStorageSize());
+        column.add(3, 1000);
+        assertEquals(1000, column.get(3));
+    }
+}
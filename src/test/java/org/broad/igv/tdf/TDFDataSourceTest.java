@@ -31,6 +31,8 @@ import org.broad.igv.feature.LocusScore;
 import org.broad.igv.feature.genome.ChromosomeCoordinate;
 import org.broad.igv.util.ResourceLocator;
 import org.broad.igv.util.TestUtils;
+import org.broad.igv.util.metrics.Gauge;
+import org.broad.igv.util.metrics.MetricsRegistry;
 import org.junit.Test;
 
 import java.util.HashMap;
@@ -38,6 +40,10 @@ import java.util.List;
 import java.util.Map;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 
 /**
  * User: jacob
@@ -80,4 +86,40 @@ public class TDFDataSourceTest extends AbstractHeadlessTest {
         }
 
     }
+
+    @Test
+    public void testSummaryScoreCache() throws Exception {
+
+        String testFile = TestUtils.DATA_DIR + "tdf/wholeGenomeTest.tdf";
+        TDFReader reader = new TDFReader(new ResourceLocator(testFile));
+        TDFDataSource ds = new TDFDataSource(reader, 0, "", genome);
+        String tag = MetricsRegistry.pathTag(ds.getPath()) + "#0";
+        String bytesGauge = "cache.tdf.summary.bytes{" + tag + "}";
+
+        int end = genome.getChromosome("chr1").getLength();
+        List<LocusScore> scores = ds.getSummaryScoresForRange("chr1", 0, end, 0);
+        assertFalse(scores.isEmpty());
+        assertTrue(ds.cacheBytes.get() > 0);
+        assertEquals(ds.cacheBytes.get(), ((Gauge) MetricsRegistry.getInstance().get(bytesGauge)).getValue().longValue());
+        long misses = ds.cacheMisses.get();
+
+        // A repeated query is served from the cache.  Score objects are created per query, not cached.
+        List<LocusScore> cached = ds.getSummaryScoresForRange("chr1", 0, end, 0);
+        assertEquals(misses, ds.cacheMisses.get());
+        assertTrue(ds.cacheHits.get() > 0);
+        assertEquals(scores.size(), cached.size());
+        for (int i = 0; i < scores.size(); i++) {
+            assertEquals(scores.get(i).getStart(), cached.get(i).getStart());
+            assertEquals(scores.get(i).getEnd(), cached.get(i).getEnd());
+            assertEquals(scores.get(i).getScore(), cached.get(i).getScore(), 0);
+        }
+
+        ds.dispose();
+        assertEquals(0, ds.cacheBytes.get());
+        for (TDFDataSource.TileKey key : TDFDataSource.summaryScoreCache.keys()) {
+            assertNotSame(ds, key.source);
+        }
+        assertNull(MetricsRegistry.getInstance().get(bytesGauge));
+        reader.close();
+    }
 }
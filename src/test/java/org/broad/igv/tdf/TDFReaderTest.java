@@ -26,12 +26,16 @@
 package org.broad.igv.tdf;
 
 import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.TestUtils;
 import org.junit.Test;
 
 import java.util.Set;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 /**
@@ -70,4 +74,36 @@ public class TDFReaderTest {
         assertNotNull(tile);
 
     }
+
+    @Test
+    public void testTileCache() throws Exception {
+
+        TDFReader reader = new TDFReader(new ResourceLocator(TestUtils.DATA_DIR + "tdf/wholeGenomeTest.tdf"));
+        TDFDataset dataset = reader.getDataset("/chr1/raw");
+        assertNotNull(dataset);
+        assertSame(dataset, reader.getDataset("/chr1/raw"));
+        assertNull(reader.getDataset("/noSuchDataset"));
+
+        int t = 0;
+        while (dataset.tilePositions[t] < 0) t++;
+        String key = dataset.getName() + "_" + t;
+
+        // Tiles are cached by the reader, across datasets, under one budget
+        TDFTile tile = dataset.getTile(t);
+        assertNotNull(tile);
+        assertTrue(reader.tileCache.containsKey(key));
+        assertSame(tile, dataset.getTile(t));
+        assertEquals(1, reader.tileCache.getHitCount());
+        assertTrue(reader.tileCache.getWeight() > 0);
+
+        // Blank tiles are not cached
+        dataset.getTile(dataset.nTiles);
+        assertEquals(1, reader.tileCache.size());
+
+        dataset.clearCache();
+        assertFalse(reader.tileCache.containsKey(key));
+        assertEquals(0, reader.tileCache.getWeight());
+
+        reader.close();
+    }
 }
@@ -25,10 +25,16 @@
 
 package org.broad.igv.tools;
 
+import htsjdk.samtools.util.CloseableIterator;
 import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.feature.Strand;
 import org.broad.igv.prefs.IGVPreferences;
 import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.sam.Alignment;
+import org.broad.igv.sam.AlignmentBlock;
+import org.broad.igv.sam.reader.AlignmentReader;
+import org.broad.igv.sam.reader.AlignmentReaderFactory;
 import org.broad.igv.tools.parsers.DataConsumer;
 import org.broad.igv.track.TrackType;
 import org.broad.igv.util.TestUtils;
@@ -41,8 +47,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 
 public class CoverageCounterTest extends AbstractHeadlessTest {
@@ -187,6 +196,167 @@ public class CoverageCounterTest extends AbstractHeadlessTest {
 
     }
 
+    /**
+     * Test that counting chromosomes in parallel gives the same output as a serial count.
+     */
+    @Test
+    public void testParallelCount() throws Exception {
+        String ifile = TestUtils.DATA_DIR + "bam/gstt1_sample.bam";
+        int windowSize = 25;
+        int flags = CoverageCounter.STRANDS_BY_READ + CoverageCounter.BASES;
+
+        TestDataConsumer serial = new TestDataConsumer();
+        new CoverageCounter(ifile, serial, windowSize, 0, null, genome, null, 0, flags).parse();
+
+        TestDataConsumer parallel = new TestDataConsumer();
+        CoverageCounter cc = new CoverageCounter(ifile, parallel, windowSize, 0, null, genome, null, 0, flags);
+        cc.setThreads(4);
+        cc.parse();
+
+        assertEquals(serial.attributes.get("totalCount"), parallel.attributes.get("totalCount"));
+        assertEquals(serial.testDatas.size(), parallel.testDatas.size());
+        for (int i = 0; i < serial.testDatas.size(); i++) {
+            TestData expected = serial.testDatas.get(i);
+            TestData actual = parallel.testDatas.get(i);
+            assertEquals(expected.chr, actual.chr);
+            assertEquals(expected.start, actual.start);
+            assertEquals(expected.end, actual.end);
+            for (int j = 0; j < expected.data.length; j++) {
+                assertEquals(expected.data[j], actual.data[j]);
+            }
+        }
+    }
+
+    /**
+     * Test that an error in a parallel count is thrown from parse(), rather than swallowed, and that the
+     * temporary spool files are deleted.
+     */
+    @Test
+    public void testParallelCountError() throws Exception {
+        String ifile = TestUtils.DATA_DIR + "bam/gstt1_sample.bam";
+        File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        int spoolsBefore = countSpoolFiles(tmpDir);
+
+        TestDataConsumer failing = new TestDataConsumer() {
+            @Override
+            public void addData(String chr, int start, int end, float[] data, String name) {
+                throw new IllegalStateException("Consumer failure");
+            }
+        };
+        CoverageCounter cc = new CoverageCounter(ifile, failing, 25, 0, null, genome, null, 0, 0);
+        cc.setThreads(2);
+        try {
+            cc.parse();
+            fail("Expected the consumer error to be thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("Consumer failure", e.getMessage());
+        }
+        assertEquals(spoolsBefore, countSpoolFiles(tmpDir));
+    }
+
+    private static int countSpoolFiles(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith("igvtools_count") && name.endsWith(".bin"));
+        return files == null ? 0 : files.length;
+    }
+
+    /**
+     * Test that a count before the window of the first counted position, as from a read on the negative strand
+     * extended toward its 5' end, is kept until the window is closed.
+     */
+    @Test
+    public void testCountBeforeFirstWindow() throws Exception {
+
+        int windowSize = 10;
+        CoverageCounter cc = new CoverageCounter(null, new TestDataConsumer(), windowSize, 0, null, null, null, 0, 0);
+        Map<Integer, Float> windows = new TreeMap<>();
+        CoverageCounter.ReadCounter counter = cc.new ReadCounter("chr1", (chr, start, end, data) -> windows.put(start, data[0]));
+
+        for (int pos = 100; pos < 110; pos++) {
+            counter.incrementCount(pos, (byte) 'A', Strand.POSITIVE);
+        }
+        for (int pos = 40; pos < 110; pos++) {
+            counter.incrementCount(pos, (byte) 'A', Strand.NEGATIVE);
+        }
+        counter.closeBucketsBefore(60);
+        assertEquals(2, windows.size());
+
+        // Window 5 is closed, window 6 is not
+        counter.incrementCount(55, (byte) 'A', Strand.NEGATIVE);
+        counter.incrementCount(65, (byte) 'A', Strand.NEGATIVE);
+        counter.closeBucketsBefore(Integer.MAX_VALUE);
+
+        assertEquals(1, counter.lateCount);
+        assertEquals(7, windows.size());
+        for (int start = 40; start < 110; start += windowSize) {
+            float expected = start == 60 ? 1.1f : (start == 100 ? 2 : 1);
+            assertEquals(expected, windows.get(start), 1.0e-6f);
+        }
+    }
+
+    /**
+     * Test counts with extended reads against a direct count of each position covered by an extended read.
+     */
+    @Test
+    public void testExtendedReadCounts() throws Exception {
+
+        String ifile = TestUtils.DATA_DIR + "bam/gstt1_sample.bam";
+        int windowSize = 25;
+        int extFactor = 200;
+
+        TestDataConsumer dc = new TestDataConsumer();
+        new CoverageCounter(ifile, dc, windowSize, extFactor, null, genome, null, 0, 0).parse();
+
+        Map<String, Long> expected = new TreeMap<>();
+        AlignmentReader reader = AlignmentReaderFactory.getReader(ifile, false);
+        try (CloseableIterator<Alignment> iter = reader.iterator()) {
+            while (iter.hasNext()) {
+                Alignment alignment = iter.next();
+                if (!alignment.isMapped() || alignment.isDuplicate() || alignment.isVendorFailedRead() ||
+                        alignment.getReadStrand() == Strand.NONE) {
+                    continue;
+                }
+                boolean negative = alignment.isNegativeStrand();
+                AlignmentBlock[] blocks = alignment.getAlignmentBlocks();
+                if (blocks == null) {
+                    countExtended(expected, alignment.getChr(), alignment.getAlignmentStart(), alignment.getAlignmentEnd(),
+                            negative, extFactor, windowSize);
+                } else {
+                    for (AlignmentBlock block : blocks) {
+                        if (!block.isSoftClip() && block.getBases() != null) {
+                            countExtended(expected, alignment.getChr(), block.getStart(), block.getEnd(),
+                                    negative, extFactor, windowSize);
+                        }
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        Map<String, Long> actual = new TreeMap<>();
+        for (TestData d : dc.testDatas) {
+            long count = Math.round(d.data[0] * (d.end - d.start));
+            if (count > 0) {
+                actual.put(d.chr + ":" + d.start / windowSize, count);
+            }
+        }
+
+        assertTrue(expected.size() > 0);
+        assertEquals(expected, actual);
+    }
+
+    private static void countExtended(Map<String, Long> counts, String chr, int start, int end, boolean negative,
+                                      int extFactor, int windowSize) {
+        if (negative) {
+            start = Math.max(0, start - extFactor);
+        } else {
+            end += extFactor;
+        }
+        for (int pos = start; pos < end; pos++) {
+            counts.merge(chr + ":" + pos / windowSize, 1L, Long::sum);
+        }
+    }
+
     /**
      * Test different strand options, just count output columns
      * and make sure we get the right number
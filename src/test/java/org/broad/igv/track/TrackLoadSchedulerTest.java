@@ -0,0 +1,170 @@
+package org.broad.igv.track;
+
+import org.broad.igv.ui.panel.ReferenceFrame;
+import org.broad.igv.util.ResourceLocator;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TrackLoadSchedulerTest {
+
+    @Test
+    public void testDedupe() throws Exception {
+
+        TrackLoadScheduler scheduler = new TrackLoadScheduler(4, 2);
+        TestFrame frame = new TestFrame(0);
+        TestTrack track = new TestTrack("a.bam");
+        track.block();
+
+        CompletableFuture<Void> f1 = scheduler.load(List.of(track), List.of(frame));
+        CompletableFuture<Void> f2 = scheduler.load(List.of(track), List.of(frame));
+        track.release();
+
+        f1.get(5, TimeUnit.SECONDS);
+        f2.get(5, TimeUnit.SECONDS);
+        assertEquals(1, track.loads.size());
+
+        // Already loaded
+        assertTrue(scheduler.load(List.of(track), List.of(frame)).isDone());
+    }
+
+    @Test
+    public void testSupersede() throws Exception {
+
+        TrackLoadScheduler scheduler = new TrackLoadScheduler(4, 2);
+        TestFrame frame = new TestFrame(0);
+        TestTrack track = new TestTrack("a.bam");
+        track.block();
+
+        CompletableFuture<Void> f1 = scheduler.load(List.of(track), List.of(frame));
+        track.started.await(5, TimeUnit.SECONDS);
+
+        // The view moves while the first load is running.  The first request is abandoned.
+        frame.origin = 1000;
+        CompletableFuture<Void> f2 = scheduler.load(List.of(track), List.of(frame));
+        assertTrue(f1.isCompletedExceptionally());
+        assertFalse(f2.isDone());
+
+        // The abandoned load reads the current frame state, so the second load finds the track ready
+        track.release();
+        f2.get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("chr1:1000"), track.loads);
+    }
+
+    @Test
+    public void testSourceLimit() throws Exception {
+
+        TrackLoadScheduler scheduler = new TrackLoadScheduler(4, 1);
+        TestFrame frame = new TestFrame(0);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<TestTrack> tracks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            TestTrack track = new TestTrack("a.bam") {
+                @Override
+                public void load(ReferenceFrame frame) {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    super.load(frame);
+                }
+            };
+            tracks.add(track);
+        }
+
+        scheduler.load(tracks, List.of(frame)).get(5, TimeUnit.SECONDS);
+        assertEquals(1, maxRunning.get());
+        for (TestTrack track : tracks) {
+            assertEquals(1, track.loads.size());
+        }
+        assertFalse(scheduler.isBusy());
+    }
+
+
+    static class TestFrame extends ReferenceFrame {
+
+        volatile double origin;
+
+        TestFrame(double origin) {
+            super("test");
+            this.origin = origin;
+        }
+
+        @Override
+        public String getChrName() {
+            return "chr1";
+        }
+
+        @Override
+        public double getOrigin() {
+            return origin;
+        }
+
+        @Override
+        public double getEnd() {
+            return origin + 100;
+        }
+
+        @Override
+        public boolean isVisible() {
+            return true;
+        }
+    }
+
+    static class TestTrack extends AbstractTrack {
+
+        final List<String> loads = Collections.synchronizedList(new ArrayList<>());
+        final Set<String> loaded = ConcurrentHashMap.newKeySet();
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile CountDownLatch gate;
+
+        TestTrack(String path) {
+            super(new ResourceLocator(path), path, path);
+        }
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public boolean isReadyToPaint(ReferenceFrame frame) {
+            return loaded.contains(locus(frame));
+        }
+
+        @Override
+        public void load(ReferenceFrame frame) {
+            started.countDown();
+            try {
+                if (gate != null) gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String locus = locus(frame);
+            loads.add(locus);
+            loaded.add(locus);
+        }
+
+        @Override
+        public void render(RenderContext context, Rectangle rect) {
+        }
+
+        private static String locus(ReferenceFrame frame) {
+            return frame.getChrName() + ":" + (long) frame.getOrigin();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.broad.igv.ui.panel;
+
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.IGVPreferences;
+import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.track.RenderContext;
+import org.broad.igv.track.TrackGroup;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class DataPanelPainterTest extends AbstractHeadlessTest {
+
+    static final int WIDTH = 200;
+    static final int HEIGHT = 20;
+
+    @Test
+    public void testImageScale() {
+
+        AffineTransform identity = new AffineTransform();
+        AffineTransform hiDPI = AffineTransform.getScaleInstance(2, 2);
+
+        // Device transform plus a translation
+        AffineTransform translated = new AffineTransform(hiDPI);
+        translated.translate(10, 20);
+        assertEquals(identity, DataPanelPainter.getImageScale(identity, AffineTransform.getTranslateInstance(5, 5)));
+        assertEquals(hiDPI, DataPanelPainter.getImageScale(hiDPI, translated));
+
+        // Zoomed or rotated graphics are drawn directly
+        assertNull(DataPanelPainter.getImageScale(identity, hiDPI));
+        assertNull(DataPanelPainter.getImageScale(hiDPI, identity));
+        assertNull(DataPanelPainter.getImageScale(identity, AffineTransform.getRotateInstance(0.1)));
+
+        // Offscreen images, e.g. snapshots, are rendered to images when drawn 1:1
+        Graphics2D g = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB).createGraphics();
+        assertEquals(identity, DataPanelPainter.getImageScale(g));
+        g.translate(10, 20);
+        assertEquals(identity, DataPanelPainter.getImageScale(g));
+        g.scale(2, 2);
+        assertNull(DataPanelPainter.getImageScale(g));
+        g.dispose();
+    }
+
+    /**
+     * Paint into an offscreen image, as for a batch snapshot, with tracks rendered in parallel and sequentially
+     */
+    @Test
+    public void testPaintOffscreenParallel() {
+
+        IGVPreferences prefs = PreferencesManager.getPreferences();
+        String parallel = prefs.get(Constants.RENDER_PARALLEL_TRACKS);
+        try {
+            ParallelStripedTrack track1 = new ParallelStripedTrack();
+            ParallelStripedTrack track2 = new ParallelStripedTrack();
+            TrackGroup group = new TrackGroup();
+            group.add(track1);
+            group.add(track2);
+            List<TrackGroup> groups = List.of(group);
+
+            prefs.override(Constants.RENDER_PARALLEL_TRACKS, "false");
+            BufferedImage expected = paint(groups);
+            assertFalse(track1.onCallingThread.isEmpty());
+            assertFalse(track1.onCallingThread.contains(Boolean.FALSE));
+
+            track1.onCallingThread.clear();
+            prefs.override(Constants.RENDER_PARALLEL_TRACKS, "true");
+            BufferedImage actual = paint(groups);
+            assertFalse(track1.onCallingThread.isEmpty());
+            assertFalse(track1.onCallingThread.contains(Boolean.TRUE));
+
+            for (int x = 0; x < expected.getWidth(); x++) {
+                for (int y = 0; y < expected.getHeight(); y++) {
+                    assertEquals("Pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+                }
+            }
+        } finally {
+            prefs.override(Constants.RENDER_PARALLEL_TRACKS, parallel);
+        }
+    }
+
+    private static BufferedImage paint(List<TrackGroup> groups) {
+        int height = 2 * HEIGHT;
+        BufferedImage image = newImage(new AffineTransform(), WIDTH, height);
+        Graphics2D g = image.createGraphics();
+        Rectangle visibleRect = new Rectangle(0, 0, WIDTH, height);
+        RenderContext context = new RenderContext(new JPanel(), g, newFrame(), visibleRect);
+        new DataPanelPainter().paint(groups, context, WIDTH, Color.WHITE, visibleRect);
+        context.dispose();
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    public void testComposite() {
+        Rectangle rect = new Rectangle(0, 0, WIDTH, HEIGHT);
+        assertComposite(rect, rect, new AffineTransform());
+    }
+
+    @Test
+    public void testCompositeHiDPI() {
+        Rectangle rect = new Rectangle(0, 0, WIDTH, HEIGHT);
+        assertComposite(rect, rect, AffineTransform.getScaleInstance(2, 2));
+    }
+
+    @Test
+    public void testCompositePartiallyVisible() {
+        Rectangle rect = new Rectangle(0, 0, WIDTH, HEIGHT);
+        Rectangle visibleRect = new Rectangle(0, 7, WIDTH, HEIGHT - 7);
+        assertComposite(rect, visibleRect, AffineTransform.getScaleInstance(2, 2));
+    }
+
+    /**
+     * Compare a track rendered directly with the track rendered to an image and composited, on graphics with the
+     * scale transform
+     */
+    private static void assertComposite(Rectangle rect, Rectangle visibleRect, AffineTransform scale) {
+
+        ReferenceFrame frame = newFrame();
+        TrackRasterCacheTest.StripedTrack track = new TrackRasterCacheTest.StripedTrack();
+        JPanel panel = new JPanel();
+
+        BufferedImage expected = newImage(scale);
+        Graphics2D g = expected.createGraphics();
+        g.transform(scale);
+        g.setClip(visibleRect);
+        RenderContext context = new RenderContext(panel, g, frame, visibleRect);
+        track.render(context, rect);
+        context.dispose();
+        g.dispose();
+
+        int top = Math.max(rect.y, visibleRect.y);
+        int height = Math.min(rect.y + rect.height, visibleRect.y + visibleRect.height) - top;
+        BufferedImage trackImage = DataPanelPainter.renderImage(track, rect, top, height, panel, frame, visibleRect,
+                null, scale, Color.WHITE);
+        assertEquals((int) (WIDTH * scale.getScaleX()), trackImage.getWidth());
+        assertEquals((int) (height * scale.getScaleY()), trackImage.getHeight());
+
+        BufferedImage actual = newImage(scale);
+        g = actual.createGraphics();
+        g.transform(scale);
+        DataPanelPainter.drawImage(g, trackImage, rect, top, height);
+        g.dispose();
+
+        for (int x = 0; x < expected.getWidth(); x++) {
+            for (int y = 0; y < expected.getHeight(); y++) {
+                assertEquals("Pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    private static BufferedImage newImage(AffineTransform scale) {
+        return newImage(scale, WIDTH, HEIGHT);
+    }
+
+    private static BufferedImage newImage(AffineTransform scale, int imageWidth, int imageHeight) {
+        int width = (int) (imageWidth * scale.getScaleX());
+        int height = (int) (imageHeight * scale.getScaleY());
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setBackground(Color.WHITE);
+        g.clearRect(0, 0, width, height);
+        g.dispose();
+        return image;
+    }
+
+    private static ReferenceFrame newFrame() {
+        ReferenceFrame frame = new ReferenceFrame("test");
+        frame.chrName = "chr1";
+        frame.widthInPixels = WIDTH;
+        frame.scale = 1;
+        frame.origin = 1000;
+        return frame;
+    }
+
+    /**
+     * A striped track that can be rendered in parallel, recording whether each render was on the calling thread
+     */
+    static class ParallelStripedTrack extends TrackRasterCacheTest.StripedTrack {
+
+        final Thread caller = Thread.currentThread();
+        final List<Boolean> onCallingThread = new CopyOnWriteArrayList<>();
+
+        ParallelStripedTrack() {
+            setHeight(HEIGHT);
+        }
+
+        @Override
+        public boolean isParallelRenderable() {
+            return true;
+        }
+
+        @Override
+        public void render(RenderContext context, Rectangle rect) {
+            onCallingThread.add(Thread.currentThread() == caller);
+            super.render(context, rect);
+        }
+    }
+}
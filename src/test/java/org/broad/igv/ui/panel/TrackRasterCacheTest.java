@@ -0,0 +1,224 @@
+package org.broad.igv.ui.panel;
+
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.track.AbstractTrack;
+import org.broad.igv.track.RenderContext;
+import org.broad.igv.util.ResourceLocator;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TrackRasterCacheTest extends AbstractHeadlessTest {
+
+    static final int WIDTH = 200;
+    static final int HEIGHT = 20;
+
+    @After
+    public void tearDown() throws Exception {
+        TrackRasterCache.stopPanning();
+        super.tearDown();
+    }
+
+    @Test
+    public void testPan() {
+
+        ReferenceFrame frame = newFrame();
+        StripedTrack track = new StripedTrack();
+        TrackRasterCache cache = new TrackRasterCache();
+        TrackRasterCache.startPanning(frame);
+        assertTrue(cache.isActive(frame));
+
+        draw(cache, track, frame);
+        assertEquals(List.of(WIDTH), track.renderedWidths);
+
+        // Pan right and left, only the exposed strip is rendered
+        int[] shifts = {37, -12, 5, -150};
+        for (int dx : shifts) {
+            track.renderedWidths.clear();
+            frame.origin += dx * frame.getScale();
+            BufferedImage cached = draw(cache, track, frame);
+            assertEquals(List.of(Math.abs(dx)), track.renderedWidths);
+            assertImagesEqual(draw(null, track, frame), cached);
+        }
+
+        // A pan of the full width, or by a fraction of a pixel, renders everything
+        track.renderedWidths.clear();
+        frame.origin += WIDTH;
+        draw(cache, track, frame);
+        frame.origin += 0.5;
+        draw(cache, track, frame);
+        assertEquals(List.of(WIDTH, WIDTH), track.renderedWidths);
+    }
+
+    /**
+     * The visible rect of the context an exposed strip is rendered with is narrowed to the strip, so that features
+     * outside it are culled
+     */
+    @Test
+    public void testStripVisibleRect() {
+
+        ReferenceFrame frame = newFrame();
+        StripedTrack track = new StripedTrack();
+        TrackRasterCache cache = new TrackRasterCache();
+        TrackRasterCache.startPanning(frame);
+        assertTrue(cache.isActive(frame));
+
+        draw(cache, track, frame);
+        assertEquals(new Rectangle(0, 0, WIDTH, HEIGHT), track.visibleRects.get(0));
+
+        int margin = TrackRasterCache.STRIP_MARGIN;
+        track.visibleRects.clear();
+        frame.origin += 37;
+        draw(cache, track, frame);
+        frame.origin -= 12;
+        draw(cache, track, frame);
+        assertEquals(List.of(new Rectangle(WIDTH - 37 - margin, 0, 37 + 2 * margin, HEIGHT),
+                new Rectangle(-margin, 0, 12 + 2 * margin, HEIGHT)), track.visibleRects);
+    }
+
+    /**
+     * On a HiDPI display cached images are sized in device pixels, and a pan by a whole number of device pixels
+     * reuses them
+     */
+    @Test
+    public void testPanHiDPI() {
+
+        AffineTransform hiDPI = AffineTransform.getScaleInstance(2, 2);
+        ReferenceFrame frame = newFrame();
+        StripedTrack track = new StripedTrack();
+        TrackRasterCache cache = new TrackRasterCache();
+        TrackRasterCache.startPanning(frame);
+        assertTrue(cache.isActive(frame));
+
+        draw(cache, track, frame, hiDPI);
+        assertEquals(List.of(WIDTH), track.renderedWidths);
+
+        int[] shifts = {37, -12, 5, -150};
+        for (int dx : shifts) {
+            track.renderedWidths.clear();
+            frame.origin += dx * frame.getScale();
+            BufferedImage cached = draw(cache, track, frame, hiDPI);
+            assertEquals(List.of(Math.abs(dx)), track.renderedWidths);
+            assertImagesEqual(draw(null, track, frame, hiDPI), cached);
+        }
+
+        // Half a panel pixel is a whole device pixel, only the last device column is rendered
+        track.renderedWidths.clear();
+        frame.origin += 0.5;
+        draw(cache, track, frame, hiDPI);
+        assertEquals(List.of(1), track.renderedWidths);
+    }
+
+    @Test
+    public void testInvalidate() {
+
+        ReferenceFrame frame = newFrame();
+        StripedTrack track = new StripedTrack();
+        TrackRasterCache cache = new TrackRasterCache();
+        TrackRasterCache.startPanning(frame);
+
+        cache.isActive(frame);
+        draw(cache, track, frame);
+        TrackRasterCache.invalidateAll();
+        cache.isActive(frame);
+        frame.origin += 10;
+        draw(cache, track, frame);
+
+        TrackRasterCache.stopPanning();
+        assertFalse(cache.isActive(frame));
+        TrackRasterCache.startPanning(frame);
+        cache.isActive(frame);
+        draw(cache, track, frame);
+
+        assertEquals(List.of(WIDTH, WIDTH, WIDTH), track.renderedWidths);
+    }
+
+    private static ReferenceFrame newFrame() {
+        ReferenceFrame frame = new ReferenceFrame("test");
+        frame.chrName = "chr1";
+        frame.widthInPixels = WIDTH;
+        frame.scale = 1;
+        frame.origin = 1000;
+        return frame;
+    }
+
+    private static BufferedImage draw(TrackRasterCache cache, StripedTrack track, ReferenceFrame frame) {
+        return draw(cache, track, frame, null);
+    }
+
+    /**
+     * Draw the track, directly if cache is null, to an image.  If imageScale is not null the graphics are scaled
+     * by it, as for a HiDPI display.
+     */
+    private static BufferedImage draw(TrackRasterCache cache, StripedTrack track, ReferenceFrame frame,
+                                      AffineTransform imageScale) {
+        AffineTransform scale = imageScale == null ? new AffineTransform() : imageScale;
+        int width = (int) (WIDTH * scale.getScaleX());
+        int height = (int) (HEIGHT * scale.getScaleY());
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setBackground(Color.WHITE);
+        g.clearRect(0, 0, width, height);
+        g.transform(scale);
+        JPanel panel = new JPanel();
+        panel.setBackground(Color.WHITE);
+        Rectangle rect = new Rectangle(0, 0, WIDTH, HEIGHT);
+        RenderContext context = new RenderContext(panel, g, frame, new Rectangle(rect));
+        if (cache == null) {
+            track.render(context, rect);
+        } else if (imageScale == null) {
+            cache.draw(track, rect, context, (t, r, c) -> t.render(c, r));
+        } else {
+            cache.draw(track, rect, context, (t, r, c) -> t.render(c, r), imageScale);
+        }
+        context.dispose();
+        g.dispose();
+        return image;
+    }
+
+    private static void assertImagesEqual(BufferedImage expected, BufferedImage actual) {
+        for (int x = 0; x < expected.getWidth(); x++) {
+            for (int y = 0; y < expected.getHeight(); y++) {
+                assertEquals("Pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * Draws a column for each base in the visible rect, colored by position, and records the width of the clip and
+     * the visible rect of each render.
+     */
+    static class StripedTrack extends AbstractTrack {
+
+        final List<Integer> renderedWidths = new ArrayList<>();
+        final List<Rectangle> visibleRects = new ArrayList<>();
+
+        StripedTrack() {
+            super(new ResourceLocator("striped"), "striped", "striped");
+        }
+
+        @Override
+        public void render(RenderContext context, Rectangle rect) {
+            Graphics2D g = context.getGraphics();
+            Rectangle clip = g.getClipBounds();
+            renderedWidths.add(clip == null ? rect.width : clip.width);
+            Rectangle visibleRect = context.getVisibleRect();
+            visibleRects.add(new Rectangle(visibleRect));
+            int start = (int) (context.getOrigin() + (visibleRect.x - rect.x) * context.getScale());
+            double end = context.getOrigin() + (visibleRect.getMaxX() - rect.x) * context.getScale();
+            for (int pos = start; pos < end; pos++) {
+                int x = (int) ((pos - context.getOrigin()) / context.getScale());
+                g.setColor(new Color((pos * 40) % 256, (pos * 90) % 256, (pos * 7) % 256));
+                g.fillRect(x, rect.y + pos % 5, 1, rect.height - pos % 5);
+            }
+        }
+    }
+}
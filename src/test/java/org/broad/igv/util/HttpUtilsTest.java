@@ -35,9 +35,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static spark.Spark.get;
 
 
@@ -193,4 +197,65 @@ public class HttpUtilsTest extends AbstractHeadlessTest {
         assertEquals(server.tempDestCt, 2);
 
     }
+
+    @Test(timeout = 10000)
+    public void testHostPermits() throws Exception {
+
+        HttpUtils.HostPermits permits = new HttpUtils.HostPermits();
+        permits.acquire(1);
+        assertEquals(1, permits.getInUse());
+
+        // A second acquire blocks until the first permit is released
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread t = new Thread(() -> {
+            try {
+                permits.acquire(1);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                // Test fails on the latch
+            }
+        });
+        t.start();
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        permits.release();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        t.join();
+        assertEquals(1, permits.getInUse());
+
+        // Raising the limit, as from a preference change, applies to the next acquire
+        permits.acquire(2);
+        assertEquals(2, permits.getInUse());
+        permits.release();
+        permits.release();
+        assertEquals(0, permits.getInUse());
+    }
+
+    @Test
+    public void testRangeStreamPermits() throws Exception {
+
+        get("/range_ok", (req, res) -> "0123456789");
+        get("/range_error", (req, res) -> {
+            res.status(500);
+            return "error";
+        });
+        // give the test server a moment to start up
+        Thread.sleep(500);
+
+        HttpUtils httpUtils = HttpUtils.getInstance();
+
+        // The permit is held while the stream is open, and released on close
+        InputStream is = httpUtils.openRangeStream(new URL("http://localhost:4567/range_ok"), 0, 9);
+        assertEquals(1, httpUtils.getPermitsInUse("localhost"));
+        is.close();
+        assertEquals(0, httpUtils.getPermitsInUse("localhost"));
+
+        // The permit is released if the request fails
+        try {
+            httpUtils.openRangeStream(new URL("http://localhost:4567/range_error"), 0, 9);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertEquals(0, httpUtils.getPermitsInUse("localhost"));
+    }
 }
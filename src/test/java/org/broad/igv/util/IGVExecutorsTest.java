@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IGVExecutorsTest {
+
+    @Test
+    public void testBoundedExecutor() throws Exception {
+
+        ExecutorService delegate = Executors.newCachedThreadPool();
+        ExecutorService executor = IGVExecutors.newBoundedExecutor(delegate, 3);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(3, maxRunning.get());
+
+        // Shutting down the bounded executor does not affect the delegate
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(delegate.isShutdown());
+        try {
+            executor.execute(() -> {});
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+        delegate.shutdown();
+    }
+
+    @Test
+    public void testRunOnCPU() throws Exception {
+
+        Thread caller = Thread.currentThread();
+        Thread[] threads = new Thread[2];
+        IGVExecutors.runOnCPU(() -> {
+            threads[0] = Thread.currentThread();
+            // A nested call from a CPU thread runs inline rather than waiting on the pool
+            IGVExecutors.runOnCPU(() -> threads[1] = Thread.currentThread());
+        });
+        assertNotSame(caller, threads[0]);
+        assertSame(threads[0], threads[1]);
+
+        try {
+            IGVExecutors.runOnCPU(() -> {
+                throw new IllegalStateException("test");
+            });
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("test", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testShutdownNow() throws Exception {
+
+        ExecutorService delegate = Executors.newCachedThreadPool();
+        ExecutorService executor = IGVExecutors.newBoundedExecutor(delegate, 1);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> {});
+        executor.execute(() -> {});
+
+        // The queued tasks are returned, the running task completes
+        assertEquals(2, executor.shutdownNow().size());
+        assertFalse(executor.isTerminated());
+        latch.countDown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        delegate.shutdown();
+    }
+}
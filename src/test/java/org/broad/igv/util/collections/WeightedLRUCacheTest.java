@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.collections;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WeightedLRUCacheTest {
+
+    @Test
+    public void testEvictByWeight() {
+
+        WeightedLRUCache<String, byte[]> cache = new WeightedLRUCache<>(100, b -> b.length);
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        assertEquals(80, cache.getWeight());
+
+        // Touch "a" so "b" is the least recently used
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", new byte[40]);
+        assertEquals(2, cache.size());
+        assertTrue(cache.containsKey("a"));
+        assertFalse(cache.containsKey("b"));
+        assertTrue(cache.containsKey("c"));
+        assertEquals(80, cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testOversizedValueNotCached() {
+
+        WeightedLRUCache<String, byte[]> cache = new WeightedLRUCache<>(100, b -> b.length);
+        cache.put("a", new byte[40]);
+        cache.put("big", new byte[200]);
+        assertFalse(cache.containsKey("big"));
+        assertTrue(cache.containsKey("a"));
+        assertEquals(40, cache.getWeight());
+    }
+
+    @Test
+    public void testReplaceAndStats() {
+
+        WeightedLRUCache<String, byte[]> cache = new WeightedLRUCache<>(100, b -> b.length);
+        cache.put("a", new byte[40]);
+        cache.put("a", new byte[10]);
+        assertEquals(10, cache.getWeight());
+        assertEquals(1, cache.size());
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("missing"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.setMaxWeight(5);
+        assertFalse(cache.containsKey("a"));
+        assertEquals(0, cache.getWeight());
+
+        cache.clear();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testNullNotCached() {
+
+        WeightedLRUCache<String, byte[]> cache = new WeightedLRUCache<>(100, b -> b.length);
+        cache.put("a", new byte[40]);
+
+        // Null values are not held, and putting null removes an existing entry
+        cache.put("null", null);
+        assertFalse(cache.containsKey("null"));
+        cache.put("a", null);
+        assertFalse(cache.containsKey("a"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+
+        assertNull(cache.get("null"));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testEvictionListenerCalledWithoutLock() {
+
+        WeightedLRUCache<String, byte[]> cache = new WeightedLRUCache<>(20, b -> b.length);
+        List<String> evicted = new ArrayList<>();
+        cache.setEvictionListener((k, v) -> {
+            assertFalse(Thread.holdsLock(cache));
+            evicted.add(k);
+        });
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[10]);
+        cache.put("c", new byte[10]);
+        assertEquals(Arrays.asList("a"), evicted);
+
+        cache.setMaxWeight(10);
+        assertEquals(Arrays.asList("a", "b"), evicted);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.stream;
+
+import org.broad.igv.util.TestUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class IGVMappedFileStreamTest {
+
+    private static final File testFile = new File(TestUtils.DATA_DIR + "seekablestream/seekTest.txt");
+
+    @Test
+    public void testSeekAndRead() throws Exception {
+
+        byte[] expected = Files.readAllBytes(testFile.toPath());
+
+        try (IGVMappedFileStream is = new IGVMappedFileStream(testFile)) {
+            assertEquals(expected.length, is.length());
+            is.seek(20);
+            byte[] bytes = new byte[9];
+            assertEquals(9, is.read(bytes, 0, 9));
+            assertEquals("ccccccccc", new String(bytes));
+            assertEquals(29, is.position());
+        }
+    }
+
+    /**
+     * Use a small segment size so reads and buffers span segment boundaries
+     */
+    @Test
+    public void testSegments() throws Exception {
+
+        byte[] expected = Files.readAllBytes(testFile.toPath());
+
+        try (IGVMappedFileStream is = new IGVMappedFileStream(testFile, 7)) {
+
+            for (int position = 0; position < expected.length; position++) {
+                int size = Math.min(12, expected.length - position);
+
+                byte[] bytes = new byte[size];
+                assertEquals(size, is.read(position, bytes, 0, size));
+                for (int i = 0; i < size; i++) {
+                    assertEquals(expected[position + i], bytes[i]);
+                }
+
+                ByteBuffer bb = is.getBuffer(position, size);
+                assertEquals(size, bb.remaining());
+                for (int i = 0; i < size; i++) {
+                    assertEquals(expected[position + i], bb.get());
+                }
+            }
+
+            // Reads are truncated at the end of file
+            assertEquals(2, is.getBuffer(expected.length - 2, 100).remaining());
+            assertEquals(-1, is.read(expected.length, new byte[10], 0, 10));
+
+            is.seek(0);
+            for (byte b : expected) {
+                assertEquals(b & 0xff, is.read());
+            }
+            assertEquals(-1, is.read());
+        }
+    }
+}
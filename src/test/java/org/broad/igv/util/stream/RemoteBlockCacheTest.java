@@ -0,0 +1,86 @@
+package org.broad.igv.util.stream;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RemoteBlockCacheTest {
+
+    static String URL = "https://example.org/test.bam";
+
+    @Test
+    public void testEviction() {
+
+        RemoteBlockCache cache = new RemoteBlockCache(10, 30, false);
+        for (int i = 0; i < 5; i++) {
+            cache.putBlock(URL, i, new byte[10]);
+        }
+
+        // Only the 3 most recent blocks fit
+        assertNull(cache.getBlock(URL, 0));
+        assertNull(cache.getBlock(URL, 1));
+        assertNotNull(cache.getBlock(URL, 4));
+        assertNull(cache.getBlock("https://example.org/other.bam", 4));
+    }
+
+    @Test
+    public void testSpill() {
+
+        RemoteBlockCache cache = new RemoteBlockCache(10, 30, true);
+        for (int i = 0; i < 5; i++) {
+            byte[] block = new byte[10];
+            block[0] = (byte) i;
+            cache.putBlock(URL, i, block);
+        }
+
+        // Evicted blocks are restored from disk
+        assertEquals(20, cache.getSpilledBytes());
+        byte[] block = cache.getBlock(URL, 0);
+        assertNotNull(block);
+        assertEquals(0, block[0]);
+        assertEquals(1, cache.getBlock(URL, 1)[0]);
+
+        cache.clear();
+        assertNull(cache.getBlock(URL, 1));
+        assertEquals(0, cache.getSpilledBytes());
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentSpillAndClear() throws Exception {
+
+        RemoteBlockCache cache = new RemoteBlockCache(10, 30, true);
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 1000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    byte[] block = new byte[10];
+                    block[0] = (byte) i;
+                    cache.putBlock(URL, offset + i, block);
+                    byte[] b = cache.getBlock(URL, offset + i / 2);
+                    if (b != null && b[0] != (byte) (i / 2)) errors.incrementAndGet();
+                    if (i % 100 == 0) cache.clear();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(0, errors.get());
+        cache.clear();
+        assertEquals(0, cache.getSpilledBytes());
+    }
+
+    @Test
+    public void testContentLength() {
+        RemoteBlockCache cache = new RemoteBlockCache(10, 30, false);
+        assertNull(cache.getContentLength(URL));
+        cache.setContentLength(URL, 12345);
+        assertEquals(Long.valueOf(12345), cache.getContentLength(URL));
+    }
+}
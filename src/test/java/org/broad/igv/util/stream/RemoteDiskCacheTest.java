@@ -0,0 +1,121 @@
+package org.broad.igv.util.stream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class RemoteDiskCacheTest {
+
+    static String URL = "https://example.org/test.bam";
+
+    File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("remote-cache").toFile();
+        directory.deleteOnExit();
+    }
+
+    @Test
+    public void testPersistence() {
+
+        RemoteDiskCache cache = newCache("\"abc\"", 1000);
+        cache.put(URL, 100, 10, bytes(10, 1));
+        cache.flush();
+        assertEquals(1, cache.get(URL, 100, 10)[0]);
+        assertNull(cache.get(URL, 100, 20));
+        assertNull(cache.get(URL, 0, 10));
+
+        // A new session with the same validator finds the entry
+        cache = newCache("\"abc\"", 1000);
+        assertEquals(1, cache.get(URL, 100, 10)[0]);
+
+        // A new validator means the resource has changed
+        cache = newCache("\"def\"", 1000);
+        assertNull(cache.get(URL, 100, 10));
+    }
+
+    @Test
+    public void testNoValidator() {
+        RemoteDiskCache cache = newCache(null, 1000);
+        cache.put(URL, 0, 10, bytes(10, 1));
+        cache.flush();
+        assertNull(cache.get(URL, 0, 10));
+        assertEquals(0, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testCredentialsNotCached() {
+
+        assertTrue(RemoteDiskCache.isCacheable(URL));
+        assertTrue(RemoteDiskCache.isCacheable(URL + "?format=bam"));
+        assertFalse(RemoteDiskCache.isCacheable(URL + "?X-Amz-Algorithm=AWS4-HMAC-SHA256&X-Amz-Signature=abc"));
+        assertFalse(RemoteDiskCache.isCacheable(URL + "?sv=2020&sig=abc"));
+        assertFalse(RemoteDiskCache.isCacheable(URL + "?access_token=abc"));
+        assertFalse(RemoteDiskCache.isCacheable("https://storage.googleapis.com/bucket/test.bam"));
+
+        String signedURL = URL + "?Expires=1&Signature=abc";
+        RemoteDiskCache cache = new RemoteDiskCache(directory, 1000);
+        cache.setValidator(signedURL, "\"abc\"");
+        cache.put(signedURL, 0, 10, bytes(10, 1));
+        cache.flush();
+        assertNull(cache.get(signedURL, 0, 10));
+        assertEquals(0, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testEviction() {
+
+        int entrySize = RemoteDiskCache.HEADER_SIZE + 10;
+        RemoteDiskCache cache = newCache("\"abc\"", 3 * entrySize);
+        for (int i = 0; i < 3; i++) {
+            cache.put(URL, i * 10, 10, bytes(10, i));
+        }
+        cache.flush();
+        assertNotNull(cache.get(URL, 0, 10));   // Mark as recently used
+
+        cache.put(URL, 30, 10, bytes(10, 3));
+        cache.flush();
+        assertEquals(3 * entrySize, cache.getTotalBytes());
+        assertNotNull(cache.get(URL, 0, 10));
+        assertNull(cache.get(URL, 10, 10));
+        assertNotNull(cache.get(URL, 30, 10));
+    }
+
+    @Test
+    public void testCorruptEntry() throws Exception {
+
+        RemoteDiskCache cache = newCache("\"abc\"", 1000);
+        cache.put(URL, 0, 10, bytes(10, 1));
+        cache.flush();
+
+        String name = RemoteDiskCache.getName(URL, "\"abc\"", 0, 10);
+        File file = new File(new File(directory, name.substring(0, 2)), name + RemoteDiskCache.EXTENSION);
+        assertTrue(file.exists());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(RemoteDiskCache.HEADER_SIZE + 5);
+            raf.write(99);
+        }
+
+        assertNull(cache.get(URL, 0, 10));
+        assertFalse(file.exists());
+        assertEquals(0, cache.getTotalBytes());
+    }
+
+    private RemoteDiskCache newCache(String validator, long maxBytes) {
+        RemoteDiskCache cache = new RemoteDiskCache(directory, maxBytes);
+        cache.setValidator(URL, validator);
+        return cache;
+    }
+
+    private static byte[] bytes(int length, int value) {
+        byte[] bytes = new byte[length];
+        bytes[0] = (byte) value;
+        return bytes;
+    }
+}